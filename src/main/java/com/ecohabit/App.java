@@ -21,7 +21,12 @@ import javafx.animation.ParallelTransition;
 import javafx.util.Duration;
 import main.java.com.ecohabit.util.SceneManager;
 import main.java.com.ecohabit.dao.DatabaseConnection;
+import main.java.com.ecohabit.service.BadgeService;
+import main.java.com.ecohabit.service.ChatHistoryStore;
+import main.java.com.ecohabit.service.ChatResponsePipeline;
 import main.java.com.ecohabit.service.DatabaseService;
+import main.java.com.ecohabit.service.LeaderboardService;
+import main.java.com.ecohabit.service.ResponseBackends;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -58,6 +63,9 @@ public class App extends Application {
     	LOGGER.info("Initializing database...");
         DatabaseConnection.initializeDatabase(); // Create tables if missing
         initializeDatabase();
+        BadgeService badgeService = BadgeService.getInstance();
+        LeaderboardService.getInstance().rebuildAsync(badgeService.getTemplatePoints());
+        badgeService.startPendingBackfill(); // Apply new badge templates to past activities
 
         LOGGER.info("Starting EcoHabit application...");
         this.primaryStage = stage;
@@ -68,6 +76,15 @@ public class App extends Application {
         showSplashScreen();  
     }
     
+    @Override
+    public void stop() {
+        // Write any coalesced badge progress and queued chat messages before exiting
+        BadgeService.shutdownInstance();
+        ChatResponsePipeline.shutdownInstance();
+        ResponseBackends.shutdownInstance();
+        ChatHistoryStore.shutdownInstance();
+    }
+    
     private void initializeDatabase() {
         try {
             DatabaseService dbService = DatabaseService.getInstance();
@@ -89,6 +89,13 @@ public class DBManager {
             "description TEXT, " +
             "icon TEXT, " +
             "earned_date DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+            "template_key TEXT, " +
+            "current_value INTEGER DEFAULT 0, " +
+            "progress INTEGER DEFAULT 0, " +
+            "earned BOOLEAN DEFAULT FALSE, " +
+            "last_day TEXT, " +
+            "carry REAL DEFAULT 0, " +
+            "updated_at DATETIME, " +
             "FOREIGN KEY (user_id) REFERENCES users (id))",
 
             // Eco tips table
@@ -97,7 +104,75 @@ public class DBManager {
             "tip_text TEXT NOT NULL, " +
             "category TEXT, " +
             "difficulty TEXT, " +
-            "co2_impact REAL)"
+            "co2_impact REAL)",
+
+            // Badge backfill bookkeeping: templates already replayed over history,
+            // and users finished by an interrupted run
+            "CREATE TABLE IF NOT EXISTS badge_backfill_templates (" +
+            "template_key TEXT PRIMARY KEY, " +
+            "criteria_hash TEXT NOT NULL, " +
+            "completed_at DATETIME DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS badge_backfill_progress (" +
+            "job_key TEXT NOT NULL, " +
+            "user_id INTEGER NOT NULL, " +
+            "PRIMARY KEY (job_key, user_id))",
+
+            // Tips each user has read or favorited, one bitmap per kind with bit i set for tip id i
+            "CREATE TABLE IF NOT EXISTS user_tip_marks (" +
+            "user_id INTEGER NOT NULL, " +
+            "kind TEXT NOT NULL, " +
+            "bits BLOB NOT NULL, " +
+            "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+            "PRIMARY KEY (user_id, kind))",
+
+            // One rating per user and tip; re-rating replaces the earlier value
+            "CREATE TABLE IF NOT EXISTS tip_ratings (" +
+            "user_id INTEGER NOT NULL, " +
+            "tip_id INTEGER NOT NULL, " +
+            "rating REAL NOT NULL, " +
+            "rated_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+            "PRIMARY KEY (user_id, tip_id))",
+
+            "CREATE INDEX IF NOT EXISTS idx_tip_ratings_tip ON tip_ratings (tip_id)",
+
+            // Chat sessions; messages first_seq..last_seq of a session are stored
+            "CREATE TABLE IF NOT EXISTS chat_sessions (" +
+            "session_id TEXT PRIMARY KEY, " +
+            "user_id INTEGER NOT NULL, " +
+            "first_seq INTEGER NOT NULL DEFAULT 1, " +
+            "last_seq INTEGER NOT NULL DEFAULT 0, " +
+            "created_at TEXT, " +
+            "last_message_at TEXT)",
+
+            "CREATE INDEX IF NOT EXISTS idx_chat_sessions_user ON chat_sessions (user_id, last_message_at)",
+
+            // Append-only chat messages, numbered per session so any page is a range of the key
+            "CREATE TABLE IF NOT EXISTS chat_messages (" +
+            "session_id TEXT NOT NULL, " +
+            "seq INTEGER NOT NULL, " +
+            "sender TEXT, " +
+            "message_type TEXT, " +
+            "content TEXT, " +
+            "sent_at TEXT, " +
+            "intent TEXT, " +
+            "confidence REAL, " +
+            "entities TEXT, " +
+            "category TEXT, " +
+            "PRIMARY KEY (session_id, seq)) WITHOUT ROWID",
+
+            // Search index of chat messages: one row per distinct term of a message, keyed so a
+            // user's messages with a term are one range, newest last, and by message so checking
+            // another term of a message is one lookup
+            "CREATE TABLE IF NOT EXISTS chat_terms (" +
+            "user_id INTEGER NOT NULL, " +
+            "term TEXT NOT NULL, " +
+            "sent_at TEXT NOT NULL, " +
+            "session_id TEXT NOT NULL, " +
+            "seq INTEGER NOT NULL, " +
+            "PRIMARY KEY (user_id, term, sent_at, session_id, seq)) WITHOUT ROWID",
+
+            "CREATE INDEX IF NOT EXISTS idx_chat_terms_message ON chat_terms (session_id, seq, term)"
         };
 
         try (Statement stmt = connection.createStatement()) {
@@ -107,6 +182,77 @@ public class DBManager {
         } catch (SQLException e) {
             System.err.println("Error creating tables: " + e.getMessage());
         }
+
+        migrateAchievementsTable();
+        migrateEcoTipsTable();
+    }
+
+    /**
+     * Add catalog columns to the eco_tips table. tip_text holds the description
+     * and co2_impact the estimated savings, as before.
+     */
+    private void migrateEcoTipsTable() {
+        String[] columns = {
+            "tip_key TEXT",
+            "locale TEXT DEFAULT 'en'",
+            "title TEXT",
+            "icon TEXT",
+            "rating REAL DEFAULT 0",
+            "read_count INTEGER DEFAULT 0",
+            "like_count INTEGER DEFAULT 0",
+            "tags TEXT",
+            "source TEXT",
+            "featured BOOLEAN DEFAULT FALSE",
+            "approved BOOLEAN DEFAULT TRUE",
+            "image_url TEXT",
+            "user_id INTEGER",
+            "date_created TEXT",
+            "last_updated DATETIME",
+            "base_rating REAL" // catalog rating before any user ratings; null until first rated
+        };
+
+        try (Statement stmt = connection.createStatement()) {
+            for (String column : columns) {
+                try {
+                    stmt.execute("ALTER TABLE eco_tips ADD COLUMN " + column);
+                } catch (SQLException e) {
+                    // Column already exists
+                }
+            }
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_eco_tips_key_locale ON eco_tips (tip_key, locale)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_eco_tips_locale_category ON eco_tips (locale, category, difficulty)");
+        } catch (SQLException e) {
+            System.err.println("Error migrating eco_tips table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add badge progress columns to achievements tables created by older versions
+     */
+    private void migrateAchievementsTable() {
+        String[] columns = {
+            "template_key TEXT",
+            "current_value INTEGER DEFAULT 0",
+            "progress INTEGER DEFAULT 0",
+            "earned BOOLEAN DEFAULT FALSE",
+            "last_day TEXT",
+            "carry REAL DEFAULT 0",
+            "updated_at DATETIME"
+        };
+
+        try (Statement stmt = connection.createStatement()) {
+            for (String column : columns) {
+                try {
+                    stmt.execute("ALTER TABLE achievements ADD COLUMN " + column);
+                } catch (SQLException e) {
+                    // Column already exists
+                }
+            }
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_achievements_user_template " +
+                         "ON achievements (user_id, template_key)");
+        } catch (SQLException e) {
+            System.err.println("Error migrating achievements table: " + e.getMessage());
+        }
     }
 
     public Connection getConnection() throws SQLException {
@@ -16,6 +16,8 @@ import main.java.com.ecohabit.SessionManager;
 import main.java.com.ecohabit.model.Activity;
 import main.java.com.ecohabit.model.User;
 import main.java.com.ecohabit.service.ActivityService;
+import main.java.com.ecohabit.service.BadgeService;
+import main.java.com.ecohabit.service.LeaderboardService;
 import main.java.com.ecohabit.service.NotificationService;
 
 import java.time.LocalDate;
@@ -85,6 +87,8 @@ public class ActivityLogController extends BaseController {
     
     // Services and Data
     private ActivityService activityService;
+    private BadgeService badgeService;
+    private LeaderboardService leaderboardService;
     private NotificationService notificationService;
     private User currentUser;
     private ObservableList<Activity> allActivities;
@@ -140,6 +144,8 @@ public class ActivityLogController extends BaseController {
             System.out.println("Initializing services...");
             
             activityService = new ActivityService();
+            badgeService = BadgeService.getInstance();
+            leaderboardService = LeaderboardService.getInstance();
             notificationService = new NotificationService();
             currentUser = getCurrentUser();
             
@@ -799,6 +805,17 @@ public class ActivityLogController extends BaseController {
             boolean saveSuccess = activityService.saveActivity(userId, activity);
             System.out.println("Database save result: " + saveSuccess);
             
+            // Advance badge progress for stored activities only, so it agrees with the badge
+            // backfill; awards are persisted immediately, progress in batches
+            if (saveSuccess && badgeService != null) {
+                badgeService.updateProgressFromActivity(currentUser.getId(), activity);
+            }
+            
+            // Leaderboards mirror the database, so only count activities that were stored
+            if (saveSuccess && leaderboardService != null) {
+                leaderboardService.onActivityLogged(currentUser.getId(), activity);
+            }
+            
             // Add to local lists regardless of database success
             System.out.println("Adding to local lists...");
             addActivityToLocalLists(activity);
@@ -143,7 +143,7 @@ public class BadgesController extends BaseController {
      */
     private void initializeServices() {
         try {
-            badgeService = new BadgeService();
+            badgeService = BadgeService.getInstance();
             userService = new UserService();
             allBadges = FXCollections.observableArrayList();
             earnedBadges = FXCollections.observableArrayList();
@@ -326,9 +326,12 @@ public class BadgesController extends BaseController {
         }
         if (searchField != null) {
             searchField.setOnAction(e -> performSearch());
+            // The search index answers in microseconds, so filter on every keystroke
             searchField.textProperty().addListener((obs, oldText, newText) -> {
                 if (newText == null || newText.isEmpty()) {
                     clearSearch();
+                } else {
+                    performSearch();
                 }
             });
         }
@@ -823,29 +826,31 @@ public class BadgesController extends BaseController {
      * Update statistics in header
      */
     private void updateStatistics() {
+        Map<String, Object> stats = getBadgeStatistics();
+        
+        long total = ((Number) stats.get("totalBadges")).longValue();
+        long earned = ((Number) stats.get("earnedBadges")).longValue();
+        
         if (totalBadgesLabel != null) {
-            totalBadgesLabel.setText(String.valueOf(allBadges.size()));
+            totalBadgesLabel.setText(String.valueOf(total));
         }
         
         if (earnedBadgesLabel != null) {
-            earnedBadgesLabel.setText(String.valueOf(earnedBadges.size()));
+            earnedBadgesLabel.setText(String.valueOf(earned));
         }
         
         if (completionPercentageLabel != null) {
-            double percentage = allBadges.isEmpty() ? 0 : (earnedBadges.size() * 100.0 / allBadges.size());
+            double percentage = total == 0 ? 0 : (earned * 100.0 / total);
             completionPercentageLabel.setText(String.format("%.1f%%", percentage));
         }
         
         if (overallProgressBar != null) {
-            double progress = allBadges.isEmpty() ? 0 : (earnedBadges.size() * 1.0 / allBadges.size());
+            double progress = total == 0 ? 0 : (earned * 1.0 / total);
             overallProgressBar.setProgress(progress);
         }
         
         if (recentBadgeLabel != null) {
-            Badge mostRecent = earnedBadges.stream()
-                .filter(b -> b.getEarnedDate() != null)
-                .max(Comparator.comparing(Badge::getEarnedDate))
-                .orElse(null);
+            Badge mostRecent = (Badge) stats.get("mostRecentBadge");
             
             if (mostRecent != null) {
                 recentBadgeLabel.setText(mostRecent.getTitle());
@@ -855,39 +860,55 @@ public class BadgesController extends BaseController {
         }
         
         // Update category stats
-        updateCategoryStatistics();
+        @SuppressWarnings("unchecked")
+        Map<String, Long> categoryBreakdown = (Map<String, Long>) stats.get("categoryBreakdown");
+        updateCategoryStatistics(categoryBreakdown);
+    }
+    
+    /**
+     * Get statistics from the service's incrementally maintained counters,
+     * or compute them from the displayed lists when showing mock data
+     */
+    private Map<String, Object> getBadgeStatistics() {
+        if (badgeService != null && currentUser != null) {
+            return badgeService.getUserBadgeStatistics(currentUser.getId());
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalBadges", allBadges.size());
+        stats.put("earnedBadges", (long) earnedBadges.size());
+        stats.put("mostRecentBadge", earnedBadges.stream()
+            .filter(b -> b.getEarnedDate() != null)
+            .max(Comparator.comparing(Badge::getEarnedDate))
+            .orElse(null));
+        stats.put("categoryBreakdown", earnedBadges.stream()
+            .collect(Collectors.groupingBy(Badge::getCategory, Collectors.counting())));
+        return stats;
     }
     
     /**
      * Update category-specific statistics
      */
-    private void updateCategoryStatistics() {
+    private void updateCategoryStatistics(Map<String, Long> categoryBreakdown) {
+        long impact = categoryBreakdown.getOrDefault("Environmental Impact", 0L);
+        long gettingStarted = categoryBreakdown.getOrDefault("Getting Started", 0L);
+        long streak = categoryBreakdown.getOrDefault("Streak", 0L);
+        long social = categoryBreakdown.getOrDefault("Social Impact", 0L);
+        
         if (carbonSaverBadgesLabel != null) {
-            long carbonSaverCount = earnedBadges.stream()
-                .filter(b -> "Environmental Impact".equals(b.getCategory()))
-                .count();
-            carbonSaverBadgesLabel.setText(String.valueOf(carbonSaverCount));
+            carbonSaverBadgesLabel.setText(String.valueOf(impact));
         }
         
         if (activityMasterBadgesLabel != null) {
-            long activityMasterCount = earnedBadges.stream()
-                .filter(b -> "Getting Started".equals(b.getCategory()) || "Streak".equals(b.getCategory()))
-                .count();
-            activityMasterBadgesLabel.setText(String.valueOf(activityMasterCount));
+            activityMasterBadgesLabel.setText(String.valueOf(gettingStarted + streak));
         }
         
         if (streakChampionBadgesLabel != null) {
-            long streakChampionCount = earnedBadges.stream()
-                .filter(b -> "Streak".equals(b.getCategory()))
-                .count();
-            streakChampionBadgesLabel.setText(String.valueOf(streakChampionCount));
+            streakChampionBadgesLabel.setText(String.valueOf(streak));
         }
         
         if (specialEventBadgesLabel != null) {
-            long specialEventCount = earnedBadges.stream()
-                .filter(b -> "Social Impact".equals(b.getCategory()))
-                .count();
-            specialEventBadgesLabel.setText(String.valueOf(specialEventCount));
+            specialEventBadgesLabel.setText(String.valueOf(social));
         }
     }
     
@@ -1065,6 +1086,12 @@ public class BadgesController extends BaseController {
      * Filter and sort badges based on current criteria
      */
     private void filterAndSortBadges() {
+        // Indexed search keeps the service's relevance order
+        if (!searchQuery.isEmpty() && badgeService != null && currentUser != null) {
+            filteredBadges.setAll(badgeService.searchBadges(currentUser.getId(), searchQuery, currentCategory, currentStatus));
+            return;
+        }
+        
         // Filter by category
         List<Badge> filtered = allBadges.stream()
             .filter(badge -> currentCategory.equals("All") || badge.getCategory().equals(currentCategory))
@@ -18,6 +18,8 @@ import javafx.util.Duration;
 import main.java.com.ecohabit.SessionManager;
 import main.java.com.ecohabit.model.ChatMessage;
 import main.java.com.ecohabit.model.User;
+import main.java.com.ecohabit.service.ChatResponsePipeline;
+import main.java.com.ecohabit.service.ChatSearchIndex;
 import main.java.com.ecohabit.service.ChatbotService;
 import main.java.com.ecohabit.service.UserService;
 import java.time.format.DateTimeFormatter;
@@ -64,17 +66,30 @@ public class ChatbotController extends BaseController {
     @FXML private VBox chatHistoryContainer;
     @FXML private Button newChatBtn;
     @FXML private ListView<String> previousChatsListView;
+    @FXML private TextField chatSearchField;
+    @FXML private ListView<ChatSearchIndex.Hit> searchResultsListView;
     
     // Services and Data
     private ChatbotService chatbotService;
+    private ChatResponsePipeline responsePipeline;
     private UserService userService;
     private User currentUser;
-    private ObservableList<ChatMessage> chatHistory;
+    private ObservableList<ChatMessage> chatHistory; // loaded messages of the current session, oldest first
     private String currentChatSession;
+    private Button loadEarlierButton;
+    private Button loadLaterButton; // shown while the loaded messages stop short of the latest
+    
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private static final int SEARCH_CONTEXT_MESSAGES = 5; // shown above a search hit
+    private static final int SEARCH_SNIPPET_LENGTH = 80;
+    
+    private int searchGeneration; // bumped per search so a slow one cannot overwrite a newer one
+    private int historyGeneration; // bumped when the shown messages are replaced; stale pages are dropped
     
     // Chat State
     private boolean isTyping = false;
     private Timeline typingAnimation;
+    private final List<StreamedReply> pendingReplies = new ArrayList<>(); // replies not yet complete, in order
     private List<String> quickActions;
     private Map<String, String> chatSessions;
     
@@ -111,6 +126,7 @@ public class ChatbotController extends BaseController {
     private void initializeServices() {
         try {
             chatbotService = new ChatbotService();
+            responsePipeline = ChatResponsePipeline.getInstance();
             userService = UserService.getInstance(); // Use singleton instance
             chatHistory = FXCollections.observableArrayList();
             chatSessions = new HashMap<>();
@@ -216,6 +232,33 @@ public class ChatbotController extends BaseController {
             
             previousChatsListView.setContextMenu(contextMenu);
         }
+        
+        // Search across chats
+        if (chatSearchField != null) {
+            chatSearchField.setOnAction(_ -> searchChats());
+            chatSearchField.textProperty().addListener((_, _, newText) -> {
+                if (newText == null || newText.isBlank()) {
+                    searchGeneration++;
+                    showSearchResults(Collections.emptyList());
+                }
+            });
+        }
+        if (searchResultsListView != null) {
+            searchResultsListView.setCellFactory(_ -> new ListCell<ChatSearchIndex.Hit>() {
+                @Override
+                protected void updateItem(ChatSearchIndex.Hit hit, boolean empty) {
+                    super.updateItem(hit, empty);
+                    setText(empty || hit == null ? null : describeSearchHit(hit));
+                    setWrapText(true);
+                }
+            });
+            searchResultsListView.setOnMouseClicked(e -> {
+                ChatSearchIndex.Hit hit = searchResultsListView.getSelectionModel().getSelectedItem();
+                if (e.getClickCount() == 2 && hit != null) {
+                    openSearchHit(hit);
+                }
+            });
+        }
     
         
         if (messageInput != null) {
@@ -320,6 +363,12 @@ public class ChatbotController extends BaseController {
             }
         }
         
+        // Back to the latest messages if an older part of the chat is shown, so the new one
+        // follows them
+        if (loadLaterButton != null && chatContainer != null && chatContainer.getChildren().contains(loadLaterButton)) {
+            loadSelectedChatSession(currentChatSession);
+        }
+        
         // Create user message
         ChatMessage userMessage = new ChatMessage();
         userMessage.setContent(messageText);
@@ -334,8 +383,7 @@ public class ChatbotController extends BaseController {
         messageInput.clear();
         sendButton.setDisable(true);
         
-        // Show typing indicator and get bot response
-        showTypingIndicator();
+        // Show typing indicator and stream the bot response
         getBotResponse(messageText);
     }
     
@@ -361,6 +409,19 @@ public class ChatbotController extends BaseController {
     private void addMessageToUI(ChatMessage message) {
         if (chatContainer == null) return;
         
+        HBox messageContainer = createMessageRow(message);
+        
+        // Add to container
+        chatContainer.getChildren().add(messageContainer);
+        
+        // Animate entrance
+        animateMessageEntrance(messageContainer);
+    }
+    
+    /**
+     * Create the row showing one message: its bubble, and the bot avatar for bot messages
+     */
+    private HBox createMessageRow(ChatMessage message) {
         // Create message container
         HBox messageContainer = new HBox();
         messageContainer.setSpacing(10);
@@ -385,11 +446,7 @@ public class ChatbotController extends BaseController {
             messageBubble.getStyleClass().add("bot-message");
         }
         
-        // Add to container
-        chatContainer.getChildren().add(messageContainer);
-        
-        // Animate entrance
-        animateMessageEntrance(messageContainer);
+        return messageContainer;
     }
  // Replace the problematic loadChatSession method with this correctly named version:
     private void loadSelectedChatSession(String sessionId) {
@@ -397,8 +454,10 @@ public class ChatbotController extends BaseController {
         
         try {
             currentChatSession = sessionId;
-            List<ChatMessage> messages = chatbotService.getChatHistory(sessionId);
+            // Only the latest page; earlier messages load on request
+            List<ChatMessage> messages = chatbotService.getRecentMessages(sessionId, HISTORY_PAGE_SIZE);
             
+            historyGeneration++;
             chatHistory.clear();
             chatHistory.addAll(messages);
             
@@ -409,6 +468,9 @@ public class ChatbotController extends BaseController {
                 for (ChatMessage message : messages) {
                     addMessageToUI(message);
                 }
+                updateLoadEarlierButton();
+                updateLoadLaterButton();
+                scrollToBottom();
             }
             
             updateChatStatus("Loaded chat session: " + getFriendlySessionName(sessionId));
@@ -418,6 +480,224 @@ public class ChatbotController extends BaseController {
         }
     }
 
+    /**
+     * Search all of the user's chats in the background and list the matching messages
+     */
+    private void searchChats() {
+        String query = chatSearchField.getText();
+        if (chatbotService == null || currentUser == null || query == null || query.isBlank()) return;
+        
+        int generation = ++searchGeneration;
+        int userId = currentUser.getId();
+        Task<List<ChatSearchIndex.Hit>> searchTask = new Task<List<ChatSearchIndex.Hit>>() {
+            @Override
+            protected List<ChatSearchIndex.Hit> call() {
+                return chatbotService.searchChatHistory(userId, query);
+            }
+            
+            @Override
+            protected void succeeded() {
+                if (generation != searchGeneration) return;
+                showSearchResults(getValue());
+                updateChatStatus(getValue().isEmpty() ? "No messages found" : "Found " + getValue().size() + " messages");
+            }
+            
+            @Override
+            protected void failed() {
+                System.err.println("Error searching chats: " + getException().getMessage());
+            }
+        };
+        
+        Thread thread = new Thread(searchTask, "chat-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void showSearchResults(List<ChatSearchIndex.Hit> hits) {
+        if (searchResultsListView == null) return;
+        searchResultsListView.setItems(FXCollections.observableArrayList(hits));
+        searchResultsListView.setVisible(!hits.isEmpty());
+        searchResultsListView.setManaged(!hits.isEmpty());
+    }
+    
+    /**
+     * One line per hit: when it was sent, by whom, and the start of the message
+     */
+    private String describeSearchHit(ChatSearchIndex.Hit hit) {
+        ChatMessage message = hit.getMessage();
+        String content = message.getContent() == null ? "" : message.getContent().replaceAll("\\s+", " ").trim();
+        if (content.length() > SEARCH_SNIPPET_LENGTH) {
+            content = content.substring(0, SEARCH_SNIPPET_LENGTH) + "…";
+        }
+        return message.getTimestamp().format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm"))
+                + ("user".equals(message.getMessageType()) ? " · You: " : " · EcoBot: ") + content;
+    }
+    
+    /**
+     * Open the session of a search hit at a page starting a few messages before it, loaded in
+     * the background, with the hit highlighted and scrolled into view. Earlier and later
+     * messages load on request.
+     */
+    private void openSearchHit(ChatSearchIndex.Hit hit) {
+        int generation = historyGeneration;
+        Task<List<ChatMessage>> openTask = new Task<List<ChatMessage>>() {
+            @Override
+            protected List<ChatMessage> call() {
+                return chatbotService.getMessagesAfter(hit.getSessionId(),
+                        Math.max(0, hit.getMessageId() - SEARCH_CONTEXT_MESSAGES - 1), HISTORY_PAGE_SIZE);
+            }
+            
+            @Override
+            protected void succeeded() {
+                if (generation != historyGeneration) return; // another chat was opened meanwhile
+                showSearchHit(hit, getValue());
+            }
+            
+            @Override
+            protected void failed() {
+                showError("Load Error", "Failed to open search result: " + getException().getMessage());
+            }
+        };
+        
+        Thread thread = new Thread(openTask, "chat-search-open");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void showSearchHit(ChatSearchIndex.Hit hit, List<ChatMessage> messages) {
+        currentChatSession = hit.getSessionId();
+        historyGeneration++;
+        chatHistory.clear();
+        chatHistory.addAll(messages);
+        
+        if (chatContainer != null) {
+            chatContainer.getChildren().clear();
+            
+            HBox hitRow = null;
+            for (ChatMessage message : messages) {
+                HBox row = createMessageRow(message);
+                if (message.getId() == hit.getMessageId()) {
+                    row.getStyleClass().add("search-hit");
+                    hitRow = row;
+                }
+                chatContainer.getChildren().add(row);
+            }
+            updateLoadEarlierButton();
+            updateLoadLaterButton();
+            if (hitRow != null) {
+                scrollToRow(hitRow);
+            } else {
+                scrollToBottom();
+            }
+        }
+        
+        updateChatStatus("Loaded chat session: " + getFriendlySessionName(hit.getSessionId()));
+    }
+
+    /**
+     * Prepend the previous page of the current session above the loaded messages
+     */
+    private void loadEarlierMessages() {
+        loadAdjacentPage(true);
+    }
+    
+    /**
+     * Append the next page of the current session below the loaded messages
+     */
+    private void loadLaterMessages() {
+        loadAdjacentPage(false);
+    }
+    
+    /**
+     * Load the page before the first loaded message, or after the last, in the background. Its
+     * button is disabled meanwhile, and the page is dropped if other messages were shown since.
+     */
+    private void loadAdjacentPage(boolean earlier) {
+        if (chatHistory.isEmpty() || chatContainer == null) return;
+        
+        int generation = historyGeneration;
+        String sessionId = currentChatSession;
+        int messageId = earlier ? chatHistory.get(0).getId() : chatHistory.get(chatHistory.size() - 1).getId();
+        Button button = earlier ? loadEarlierButton : loadLaterButton;
+        button.setDisable(true);
+        
+        Task<List<ChatMessage>> pageTask = new Task<List<ChatMessage>>() {
+            @Override
+            protected List<ChatMessage> call() {
+                return earlier
+                        ? chatbotService.getMessagesBefore(sessionId, messageId, HISTORY_PAGE_SIZE)
+                        : chatbotService.getMessagesAfter(sessionId, messageId, HISTORY_PAGE_SIZE);
+            }
+            
+            @Override
+            protected void succeeded() {
+                button.setDisable(false);
+                if (generation != historyGeneration) return;
+                
+                List<HBox> rows = new ArrayList<>();
+                for (ChatMessage message : getValue()) {
+                    rows.add(createMessageRow(message));
+                }
+                chatContainer.getChildren().remove(button);
+                if (earlier) {
+                    chatContainer.getChildren().addAll(0, rows);
+                    chatHistory.addAll(0, getValue());
+                    updateLoadEarlierButton();
+                } else {
+                    chatContainer.getChildren().addAll(rows);
+                    chatHistory.addAll(getValue());
+                    updateLoadLaterButton();
+                }
+            }
+            
+            @Override
+            protected void failed() {
+                button.setDisable(false);
+                showError("Load Error", "Failed to load " + (earlier ? "earlier" : "later") + " messages: "
+                        + getException().getMessage());
+            }
+        };
+        
+        Thread thread = new Thread(pageTask, "chat-history-page");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Show the "load later" button at the bottom while the session holds newer messages than
+     * those loaded
+     */
+    private void updateLoadLaterButton() {
+        if (loadLaterButton == null) {
+            loadLaterButton = new Button("⬇ Load later messages");
+            loadLaterButton.getStyleClass().add("quick-action-btn");
+            loadLaterButton.setMaxWidth(Double.MAX_VALUE);
+            loadLaterButton.setOnAction(e -> loadLaterMessages());
+        }
+        chatContainer.getChildren().remove(loadLaterButton);
+        if (!chatHistory.isEmpty()
+                && chatbotService.hasMessagesAfter(currentChatSession, chatHistory.get(chatHistory.size() - 1).getId())) {
+            chatContainer.getChildren().add(loadLaterButton);
+        }
+    }
+    
+    /**
+     * Show the "load earlier" button on top while the session holds older messages
+     */
+    private void updateLoadEarlierButton() {
+        if (loadEarlierButton == null) {
+            loadEarlierButton = new Button("⬆ Load earlier messages");
+            loadEarlierButton.getStyleClass().add("quick-action-btn");
+            loadEarlierButton.setMaxWidth(Double.MAX_VALUE);
+            loadEarlierButton.setOnAction(e -> loadEarlierMessages());
+        }
+        chatContainer.getChildren().remove(loadEarlierButton);
+        if (!chatHistory.isEmpty()
+                && chatbotService.hasMessagesBefore(currentChatSession, chatHistory.get(0).getId())) {
+            chatContainer.getChildren().add(0, loadEarlierButton);
+        }
+    }
+
     // Update the loadChatHistory method to use the correct method name:
     private void loadChatHistory() {
         try {
@@ -472,17 +752,7 @@ public class ChatbotController extends BaseController {
             
             try {
                 if (chatbotService != null) {
-                    // Use reflection to check if the method exists, or provide a fallback
-                    boolean deleted = false;
-                    try {
-                        // Try to call the delete method if it exists
-                        java.lang.reflect.Method method = chatbotService.getClass().getMethod("deleteChatSession", String.class);
-                        deleted = (Boolean) method.invoke(chatbotService, sessionId);
-                    } catch (NoSuchMethodException e) {
-                        // Method doesn't exist - provide fallback behavior
-                        showNotification("Chat deletion not fully implemented yet", "info");
-                        deleted = true; // Assume success for UI update
-                    }
+                    boolean deleted = chatbotService.deleteChatSession(sessionId);
                     
                     if (deleted) {
                         loadChatHistory(); // Refresh the list
@@ -524,7 +794,7 @@ public class ChatbotController extends BaseController {
     private void saveCurrentChatSession() {
         if (currentChatSession != null && !chatHistory.isEmpty()) {
             try {
-                // Save all messages in the current session
+                // Messages are saved as they are added; this catches any that were not
                 for (ChatMessage message : chatHistory) {
                     chatbotService.saveChatMessage(currentChatSession, message);
                 }
@@ -543,7 +813,10 @@ public class ChatbotController extends BaseController {
         saveCurrentChatSession();
         
         // Create new session
-        currentChatSession = "Chat_" + System.currentTimeMillis();
+        currentChatSession = chatbotService != null && currentUser != null
+                ? chatbotService.createChatSession(currentUser.getId())
+                : "Chat_" + System.currentTimeMillis();
+        historyGeneration++;
         chatHistory.clear();
         
         if (chatContainer != null) {
@@ -568,9 +841,19 @@ public class ChatbotController extends BaseController {
         addMessageToUI(message);
         
         // Save to service
-        if (chatbotService != null && currentChatSession != null) {
+        saveChatMessage(currentChatSession, message);
+        
+        // Scroll to bottom
+        scrollToBottom();
+    }
+    
+    /**
+     * Save a message to its session, which may no longer be the one on screen
+     */
+    private void saveChatMessage(String sessionId, ChatMessage message) {
+        if (chatbotService != null && sessionId != null) {
             try {
-                chatbotService.saveChatMessage(currentChatSession, message);
+                chatbotService.saveChatMessage(sessionId, message);
                 
                 // Refresh chat list when a new message is added to a session
                 Platform.runLater(() -> {
@@ -582,9 +865,6 @@ public class ChatbotController extends BaseController {
                 System.err.println("Error saving chat message: " + e.getMessage());
             }
         }
-        
-        // Scroll to bottom
-        scrollToBottom();
     }
     // Update the onScreenActivated method to refresh chat history
     @Override
@@ -602,6 +882,13 @@ public class ChatbotController extends BaseController {
         }
         updateConnectionStatus(true);
     }
+    
+    @Override
+    public void onScreenDeactivated() {
+        super.onScreenDeactivated();
+        cancelPendingReplies();
+    }
+    
     /**
      * Create message bubble
      */
@@ -646,9 +933,9 @@ public class ChatbotController extends BaseController {
     }
     
     /**
-     * Show typing indicator
+     * Show typing indicator, returning the row added to the chat
      */
-    private void showTypingIndicator() {
+    private HBox showTypingIndicator() {
         if (typingIndicator != null) {
             typingIndicator.setVisible(true);
             isTyping = true;
@@ -669,74 +956,158 @@ public class ChatbotController extends BaseController {
         if (chatContainer != null) {
             chatContainer.getChildren().add(typingContainer);
             scrollToBottom();
-            
-            // Remove typing indicator after getting response
-            Timeline removeTyping = new Timeline(
-                new KeyFrame(Duration.seconds(2), _ -> {
-                    chatContainer.getChildren().remove(typingContainer);
-                    if (typingIndicator != null) {
-                        typingIndicator.setVisible(false);
-                    }
-                    isTyping = false;
-                })
-            );
-            removeTyping.play();
+        }
+        return typingContainer;
+    }
+    
+    /**
+     * Hide the typing indicator once no reply is pending
+     */
+    private void updateTypingIndicator() {
+        isTyping = !pendingReplies.isEmpty();
+        if (typingIndicator != null) {
+            typingIndicator.setVisible(isTyping);
         }
     }
    
     /**
-     * Get bot response
+     * Get bot response. It is produced on the shared response pipeline, after any reply still
+     * pending in this session, and streamed into its bubble as it arrives.
      */
     private void getBotResponse(String userMessage) {
-        Task<String> responseTask = new Task<String>() {
-            @Override
-            protected String call() throws Exception {
-                // Simulate thinking time
-                Thread.sleep(1000 + (long)(Math.random() * 2000));
-                
-                if (chatbotService != null) {
-                    // Ensure we have the current user
-                    if (currentUser == null) {
-                        loadUserData(); // Reload user data if null
-                    }
-                    return chatbotService.generateResponse(userMessage, currentUser, chatHistory);
-                } else {
-                    return generateMockResponse(userMessage);
-                }
+        // Ensure we have the current user
+        if (currentUser == null) {
+            loadUserData(); // Reload user data if null
+        }
+        User user = currentUser;
+        List<ChatMessage> context = new ArrayList<>(chatHistory);
+        ChatResponsePipeline.ResponseSource source = ChatResponsePipeline.ResponseSource.ofText(() ->
+                chatbotService != null
+                        ? chatbotService.generateResponse(userMessage, user, context)
+                        : generateMockResponse(userMessage));
+        
+        StreamedReply reply = new StreamedReply(currentChatSession, showTypingIndicator());
+        pendingReplies.add(reply);
+        reply.request = responsePipeline.submit(currentChatSession, source, reply);
+    }
+    
+    /**
+     * Stop replies still being produced and take their partial bubbles off the screen
+     */
+    private void cancelPendingReplies() {
+        for (StreamedReply reply : new ArrayList<>(pendingReplies)) {
+            reply.request.cancel();
+            reply.removeFromChat();
+        }
+        pendingReplies.clear();
+        updateTypingIndicator();
+    }
+    
+    /**
+     * A bot reply being streamed into its bubble. Chunks arriving faster than the screen
+     * refreshes are shown together.
+     */
+    private final class StreamedReply implements ChatResponsePipeline.Listener {
+        private final String sessionId;
+        private final HBox typingRow;
+        private final ChatMessage botMessage = new ChatMessage();
+        private final StringBuilder unshown = new StringBuilder(); // guarded by itself
+        private boolean showScheduled; // guarded by unshown
+        private ChatResponsePipeline.Request request;
+        private HBox messageRow;
+        private Label contentLabel;
+        
+        private StreamedReply(String sessionId, HBox typingRow) {
+            this.sessionId = sessionId;
+            this.typingRow = typingRow;
+            botMessage.setSender("EcoBot");
+            botMessage.setMessageType("bot");
+            botMessage.setContent("");
+        }
+        
+        @Override
+        public void onChunk(String chunk) {
+            synchronized (unshown) {
+                unshown.append(chunk);
+                if (showScheduled) return;
+                showScheduled = true;
             }
-            
-            @Override
-            protected void succeeded() {
-                Platform.runLater(() -> {
-                    String response = getValue();
-                    
-                    // Create bot response message
-                    ChatMessage botMessage = new ChatMessage();
-                    botMessage.setContent(response);
-                    botMessage.setSender("EcoBot");
+            Platform.runLater(this::showChunks);
+        }
+        
+        @Override
+        public void onComplete(String response) {
+            Platform.runLater(() -> {
+                if (request.isCancelled()) return;
+                showChunks();
+                if (chatContainer != null) {
+                    chatContainer.getChildren().remove(typingRow);
+                }
+                pendingReplies.remove(this);
+                updateTypingIndicator();
+                
+                if (botMessage.getTimestamp() == null) {
                     botMessage.setTimestamp(LocalDateTime.now());
-                    botMessage.setMessageType("bot");
-                    
-                    // Add to chat after typing indicator is removed
-                    Timeline delayedAdd = new Timeline(
-                        new KeyFrame(Duration.seconds(2.1), _ -> addMessageToChat(botMessage))
-                    );
-                    delayedAdd.play();
-                });
+                }
+                botMessage.setContent(response);
+                if (sessionId != null && sessionId.equals(currentChatSession)) {
+                    chatHistory.add(botMessage);
+                }
+                saveChatMessage(sessionId, botMessage);
+            });
+        }
+        
+        @Override
+        public void onError(Throwable error) {
+            Platform.runLater(() -> {
+                removeFromChat();
+                pendingReplies.remove(this);
+                updateTypingIndicator();
+                showError("Response Error", "Failed to get bot response: " + error.getMessage());
+            });
+        }
+        
+        /**
+         * Append what arrived since the last refresh, replacing the typing row with the
+         * bubble on the first chunk
+         */
+        private void showChunks() {
+            String text;
+            synchronized (unshown) {
+                text = unshown.toString();
+                unshown.setLength(0);
+                showScheduled = false;
             }
+            if (text.isEmpty() || request.isCancelled()) return;
             
-            @Override
-            protected void failed() {
-                Platform.runLater(() -> {
-                    showError("Response Error", "Failed to get bot response: " + getException().getMessage());
-                    if (typingIndicator != null) {
-                        typingIndicator.setVisible(false);
+            if (contentLabel == null) {
+                long shownAt = System.nanoTime();
+                responsePipeline.recordFirstCharacter(request, shownAt);
+                updateChatStatus(String.format("First character after %d ms",
+                        (shownAt - request.getSubmittedAt()) / 1_000_000));
+                
+                botMessage.setTimestamp(LocalDateTime.now());
+                messageRow = createMessageRow(botMessage);
+                contentLabel = (Label) messageRow.lookup(".message-content");
+                if (chatContainer != null && sessionId != null && sessionId.equals(currentChatSession)) {
+                    int index = chatContainer.getChildren().indexOf(typingRow);
+                    if (index >= 0) {
+                        chatContainer.getChildren().set(index, messageRow);
+                    } else {
+                        chatContainer.getChildren().add(messageRow);
                     }
-                });
+                    animateMessageEntrance(messageRow);
+                }
             }
-        };
+            contentLabel.setText(contentLabel.getText() + text);
+            scrollToBottom();
+        }
         
-        new Thread(responseTask).start();
+        private void removeFromChat() {
+            if (chatContainer != null) {
+                chatContainer.getChildren().removeAll(typingRow, messageRow);
+            }
+        }
     }
     
     /**
@@ -835,6 +1206,7 @@ public class ChatbotController extends BaseController {
      */
     private void clearChat() {
         if (showConfirmation("Clear Chat", "Are you sure you want to clear this chat? This action cannot be undone.")) {
+            historyGeneration++;
             chatHistory.clear();
             if (chatContainer != null) {
                 chatContainer.getChildren().clear();
@@ -873,6 +1245,19 @@ public class ChatbotController extends BaseController {
         }
     }
     
+    /**
+     * Scroll chat so a message row is at the top of the view
+     */
+    private void scrollToRow(HBox row) {
+        if (chatScrollPane != null) {
+            Platform.runLater(() -> {
+                chatScrollPane.layout();
+                double scrollable = chatContainer.getHeight() - chatScrollPane.getViewportBounds().getHeight();
+                chatScrollPane.setVvalue(scrollable > 0 ? Math.min(1.0, row.getBoundsInParent().getMinY() / scrollable) : 0);
+            });
+        }
+    }
+    
     /**
      * Update connection status
      */
@@ -2,11 +2,12 @@ package main.java.com.ecohabit.controller;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
-import javafx.animation.Timeline;
-import javafx.animation.KeyFrame;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
@@ -15,16 +16,21 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 import javafx.scene.text.TextAlignment;
 import javafx.util.Duration;
 import main.java.com.ecohabit.SessionManager;
 import main.java.com.ecohabit.model.EcoTip;
+import main.java.com.ecohabit.model.TipSearchResult;
 import main.java.com.ecohabit.model.User;
 import main.java.com.ecohabit.service.TipsService;
 import main.java.com.ecohabit.service.UserService;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +39,11 @@ import java.util.stream.Collectors;
  */
 public class TipsController extends BaseController {
     
+    private static final int PAGE_SIZE = 48;       // tips fetched per scroll step
+    private static final int PREFETCH_ROWS = 4;    // fetch when a row this close to the end is shown
+    private static final double CARD_WIDTH = 300;
+    private static final double CARD_GAP = 15;
+    
     // Header Components
     @FXML private Label todaysTipLabel;
     @FXML private Label tipOfDayContent;
@@ -52,8 +63,7 @@ public class TipsController extends BaseController {
     @FXML private Button searchBtn;
     
     // Tips Display
-    @FXML private ScrollPane tipsScrollPane;
-    @FXML private VBox tipsContainer;
+    @FXML private ListView<List<EcoTip>> tipsGrid;
     @FXML private VBox featuredTipsContainer;
     
     // Sidebar - Quick Categories
@@ -76,28 +86,31 @@ public class TipsController extends BaseController {
     @FXML private VBox personalRecommendationsContainer;
     @FXML private Button refreshRecommendationsBtn;
     
-    // Pagination
-    @FXML private Button prevPageBtn;
-    @FXML private Label pageLabel;
-    @FXML private Button nextPageBtn;
-    @FXML private ComboBox<Integer> itemsPerPageComboBox;
+    // Loaded tip count
+    @FXML private Label tipCountLabel;
     
     // Services and Data
     private TipsService tipsService;
     private UserService userService;
     private User currentUser;
-    private ObservableList<EcoTip> allTips;
-    private ObservableList<EcoTip> filteredTips;
+    // Loaded tips -> filter -> sort -> grid rows. Filters and sorts swap the predicate and
+    // comparator; with the service the database has already applied them to each page.
+    private final ObservableList<EcoTip> allTips = FXCollections.observableArrayList();
+    private final FilteredList<EcoTip> filteredTips = new FilteredList<>(allTips);
+    private final SortedList<EcoTip> sortedTips = new SortedList<>(filteredTips);
+    private final ObservableList<List<EcoTip>> tipRows = FXCollections.observableArrayList();
     private ObservableList<EcoTip> favoriteTips;
+    private Map<Integer, TipSearchResult> searchResults = new HashMap<>(); // tip id -> match among the loaded tips
     
     // State Management
     private String currentCategory = "All";
     private String currentDifficulty = "All";
     private String currentSortBy = "Date";
     private String searchQuery = "";
-    private int currentPage = 1;
-    private int itemsPerPage = 12;
-    private int totalPages = 1;
+    private int totalTipCount = 0;
+    private int gridColumns = 3;
+    private boolean loadingTips = false;
+    private int loadGeneration = 0; // bumped when the filters change, so stale pages are dropped
     private EcoTip currentTipOfDay;
     
     @Override
@@ -109,6 +122,7 @@ public class TipsController extends BaseController {
             // Setup UI components
             setupComboBoxes();
             setupEventHandlers();
+            setupTipsGrid();
             
             // Load data
             loadUserData();
@@ -138,8 +152,6 @@ public class TipsController extends BaseController {
         try {
             tipsService = new TipsService();
             userService = new UserService();
-            allTips = FXCollections.observableArrayList();
-            filteredTips = FXCollections.observableArrayList();
             favoriteTips = FXCollections.observableArrayList();
             
         } catch (Exception e) {
@@ -152,7 +164,7 @@ public class TipsController extends BaseController {
      * Create mock data for demonstration
      */
     private void createMockData() {
-        allTips = FXCollections.observableArrayList();
+        allTips.clear();
         currentUser = new User();
         currentUser.setId(1);
         currentUser.setFirstName("John");
@@ -192,8 +204,6 @@ public class TipsController extends BaseController {
                 4.2, "🧽")
         ));
         
-        filteredTips = FXCollections.observableArrayList(allTips);
-        
         // Set tip of the day
         currentTipOfDay = allTips.get(new Random().nextInt(allTips.size()));
     }
@@ -241,16 +251,10 @@ public class TipsController extends BaseController {
         // Sort by
         if (sortByComboBox != null) {
             sortByComboBox.setItems(FXCollections.observableArrayList(
-                "Date", "Rating", "Popularity", "Title", "Difficulty"
+                "Relevance", "Date", "Rating", "Popularity", "Title", "Difficulty"
             ));
             sortByComboBox.getSelectionModel().selectFirst();
         }
-        
-        // Items per page
-        if (itemsPerPageComboBox != null) {
-            itemsPerPageComboBox.setItems(FXCollections.observableArrayList(6, 12, 18, 24));
-            itemsPerPageComboBox.setValue(12);
-        }
     }
     
     /**
@@ -316,21 +320,6 @@ public class TipsController extends BaseController {
         if (refreshRecommendationsBtn != null) {
             refreshRecommendationsBtn.setOnAction(e -> loadPersonalRecommendations());
         }
-        
-        // Pagination
-        if (prevPageBtn != null) {
-            prevPageBtn.setOnAction(e -> goToPreviousPage());
-        }
-        if (nextPageBtn != null) {
-            nextPageBtn.setOnAction(e -> goToNextPage());
-        }
-        if (itemsPerPageComboBox != null) {
-            itemsPerPageComboBox.setOnAction(e -> {
-                itemsPerPage = itemsPerPageComboBox.getValue();
-                currentPage = 1;
-                displayTips();
-            });
-        }
     }
     
     /**
@@ -344,6 +333,8 @@ public class TipsController extends BaseController {
             
             if (currentUser == null) {
                 createMockData();
+            } else if (tipsService != null) {
+                favoriteTips.setAll(tipsService.getUserFavorites(currentUser.getId()));
             }
             
         } catch (Exception e) {
@@ -356,40 +347,127 @@ public class TipsController extends BaseController {
      * Load tips from service
      */
     private void loadTips() {
+        if (tipsService != null) {
+            loadTipsPage(true);
+        } else {
+            applyFilters();
+        }
+    }
+    
+    /**
+     * Fetch the first page of tips matching the filters, or the next page when not reset.
+     * Pages come back filtered and sorted by the database and are appended to the grid.
+     */
+    private void loadTipsPage(boolean reset) {
+        if (!reset && (loadingTips || allTips.size() >= totalTipCount)) {
+            return;
+        }
+        if (reset) {
+            loadGeneration++;
+        }
+        int generation = loadGeneration;
+        loadingTips = true;
+        
+        String category = getSelectedCategory();
+        String difficulty = getSelectedDifficulty();
+        String sortBy = getSelectedSortBy();
+        String query = searchQuery;
+        int offset = reset ? 0 : allTips.size();
+        Predicate<EcoTip> filter = tipFilter();
+        Comparator<EcoTip> comparator = tipComparator(sortBy);
+        
         Task<List<EcoTip>> loadTask = new Task<List<EcoTip>>() {
+            private int count;
+            private final Map<Integer, TipSearchResult> matches = new HashMap<>();
+            
             @Override
             protected List<EcoTip> call() throws Exception {
-                if (tipsService != null) {
-                    return tipsService.getAllTips();
-                } else {
-                    return new ArrayList<>(allTips);
+                if (reset) {
+                    count = tipsService.countTips(category, difficulty, query);
+                }
+                if (query == null || query.isEmpty()) {
+                    return tipsService.getTipsPage(category, difficulty, query, sortBy, offset, PAGE_SIZE);
                 }
+                
+                List<EcoTip> tips = new ArrayList<>();
+                for (TipSearchResult result : tipsService.searchTipsPage(category, difficulty, query, sortBy, offset, PAGE_SIZE)) {
+                    tips.add(result.getTip());
+                    matches.put(result.getTip().getId(), result);
+                }
+                return tips;
             }
             
             @Override
             protected void succeeded() {
                 Platform.runLater(() -> {
-                    List<EcoTip> tips = getValue();
-                    allTips.setAll(tips);
-                    filteredTips.setAll(tips);
-                    applyFilters();
+                    if (generation != loadGeneration) {
+                        return; // the filters changed while this page was loading
+                    }
+                    loadingTips = false;
+                    
+                    if (reset) {
+                        // Keep showing the old tips until the new ones arrive, then swap everything at once
+                        totalTipCount = count;
+                        searchResults = matches;
+                        filteredTips.setPredicate(filter);
+                        sortedTips.setComparator(comparator);
+                        allTips.setAll(getValue());
+                        if (tipsGrid != null) {
+                            tipsGrid.scrollTo(0);
+                        }
+                    } else {
+                        searchResults.putAll(matches);
+                        allTips.addAll(getValue());
+                    }
+                    if (getValue().size() < PAGE_SIZE) {
+                        totalTipCount = allTips.size(); // the catalog ended early; stop fetching
+                    }
+                    updateTipCount();
                 });
             }
             
             @Override
             protected void failed() {
                 Platform.runLater(() -> {
+                    if (generation != loadGeneration) {
+                        return;
+                    }
+                    loadingTips = false;
                     System.err.println("Failed to load tips: " + getException().getMessage());
                     // Use mock data as fallback
+                    tipsService = null;
                     if (allTips.isEmpty()) {
                         createMockData();
-                        applyFilters();
                     }
+                    applyFilters();
                 });
             }
         };
         
-        new Thread(loadTask).start();
+        Thread thread = new Thread(loadTask);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Fetch the next page once the grid scrolls near the end of the loaded tips
+     */
+    private void loadMoreTips() {
+        if (tipsService != null) {
+            loadTipsPage(false);
+        }
+    }
+    
+    private String getSelectedCategory() {
+        return categoryFilterComboBox != null ? categoryFilterComboBox.getValue() : currentCategory;
+    }
+    
+    private String getSelectedDifficulty() {
+        return difficultyFilterComboBox != null ? difficultyFilterComboBox.getValue() : currentDifficulty;
+    }
+    
+    private String getSelectedSortBy() {
+        return sortByComboBox != null ? sortByComboBox.getValue() : "Relevance";
     }
     
     /**
@@ -457,7 +535,15 @@ public class TipsController extends BaseController {
      * Load new tip of the day
      */
     private void loadNewTipOfDay() {
-        if (!allTips.isEmpty()) {
+        if (tipsService != null && currentUser != null) {
+            int currentTipId = currentTipOfDay != null ? currentTipOfDay.getId() : -1;
+            EcoTip newTip = tipsService.getAnotherTip(currentUser.getId(), currentTipId);
+            if (newTip != null) {
+                currentTipOfDay = newTip;
+                displayTipOfDay();
+                showNotification("New tip loaded!", "success");
+            }
+        } else if (!allTips.isEmpty()) {
             EcoTip newTip;
             do {
                 newTip = allTips.get(new Random().nextInt(allTips.size()));
@@ -497,6 +583,7 @@ public class TipsController extends BaseController {
                 favoriteTips.add(currentTipOfDay);
                 showNotification("Added to favorites", "success");
             }
+            recordFavorite(currentTipOfDay, !isFavorite);
             
             // Update button appearance
             updateFavoriteButton(!isFavorite);
@@ -560,68 +647,68 @@ public class TipsController extends BaseController {
      * Apply filters to tips
      */
     private void applyFilters() {
-        filteredTips.setAll(allTips);
-        
-        // Category filter
-        String selectedCategory = categoryFilterComboBox != null ? 
-            categoryFilterComboBox.getValue() : currentCategory;
-        if (selectedCategory != null && !"All".equals(selectedCategory)) {
-            filteredTips = filteredTips.filtered(tip -> 
-                selectedCategory.equals(tip.getCategory()));
-        }
-        
-        // Difficulty filter
-        String selectedDifficulty = difficultyFilterComboBox != null ? 
-            difficultyFilterComboBox.getValue() : "All";
-        if (selectedDifficulty != null && !"All".equals(selectedDifficulty)) {
-            filteredTips = filteredTips.filtered(tip -> 
-                selectedDifficulty.equals(tip.getDifficulty()));
+        if (tipsService != null) {
+            // Filtering, sorting and paging run in the database
+            loadTipsPage(true);
+            return;
         }
         
-        // Search filter
-        if (searchQuery != null && !searchQuery.isEmpty()) {
-            String query = searchQuery.toLowerCase();
-            filteredTips = filteredTips.filtered(tip -> 
-                tip.getTitle().toLowerCase().contains(query) ||
-                tip.getDescription().toLowerCase().contains(query) ||
-                tip.getCategory().toLowerCase().contains(query));
+        filteredTips.setPredicate(tipFilter());
+        sortedTips.setComparator(tipComparator(getSelectedSortBy()));
+        totalTipCount = sortedTips.size();
+        updateTipCount();
+        if (tipsGrid != null) {
+            tipsGrid.scrollTo(0);
         }
         
-        // Sort tips
-        sortTips();
-        
-        // Reset to first page and display
-        currentPage = 1;
-        updatePagination();
-        displayTips();
-        
-        showNotification("Filters applied - " + filteredTips.size() + " tips found", "info");
+        showNotification("Filters applied - " + totalTipCount + " tips found", "info");
     }
     
     /**
-     * Sort tips based on selected criteria
+     * Predicate for the selected category and difficulty. The search text is matched here only
+     * for the mock tips; the service already answered it with its search index.
      */
-    private void sortTips() {
-        String sortBy = sortByComboBox != null ? sortByComboBox.getValue() : "Date";
-        
-        if (sortBy != null) {
-            switch (sortBy) {
-                case "Date":
-                    filteredTips.sort((t1, t2) -> t2.getDateCreated().compareTo(t1.getDateCreated()));
-                    break;
-                case "Rating":
-                    filteredTips.sort((t1, t2) -> Double.compare(t2.getRating(), t1.getRating()));
-                    break;
-                case "Popularity":
-                    filteredTips.sort((t1, t2) -> Integer.compare(t2.getReadCount(), t1.getReadCount()));
-                    break;
-                case "Title":
-                    filteredTips.sort(Comparator.comparing(EcoTip::getTitle));
-                    break;
-                case "Difficulty":
-                    filteredTips.sort(Comparator.comparing(tip -> getDifficultyOrder(tip.getDifficulty())));
-                    break;
+    private Predicate<EcoTip> tipFilter() {
+        String selectedCategory = getSelectedCategory();
+        String selectedDifficulty = getSelectedDifficulty();
+        String query = tipsService == null && searchQuery != null ? searchQuery.toLowerCase() : "";
+        
+        return tip -> {
+            if (selectedCategory != null && !"All".equals(selectedCategory)
+                    && !selectedCategory.equals(tip.getCategory())) {
+                return false;
+            }
+            if (selectedDifficulty != null && !"All".equals(selectedDifficulty)
+                    && !selectedDifficulty.equals(tip.getDifficulty())) {
+                return false;
             }
+            return query.isEmpty() ||
+                   tip.getTitle().toLowerCase().contains(query) ||
+                   tip.getDescription().toLowerCase().contains(query) ||
+                   tip.getCategory().toLowerCase().contains(query);
+        };
+    }
+    
+    /**
+     * Comparator for the selected sort, or null to keep the loaded order (relevance)
+     */
+    private Comparator<EcoTip> tipComparator(String sortBy) {
+        if (sortBy == null) {
+            return null;
+        }
+        switch (sortBy) {
+            case "Date":
+                return (t1, t2) -> t2.getDateCreated().compareTo(t1.getDateCreated());
+            case "Rating":
+                return (t1, t2) -> Double.compare(t2.getRating(), t1.getRating());
+            case "Popularity":
+                return (t1, t2) -> Integer.compare(t2.getReadCount(), t1.getReadCount());
+            case "Title":
+                return Comparator.comparing(EcoTip::getTitle);
+            case "Difficulty":
+                return Comparator.comparing(tip -> getDifficultyOrder(tip.getDifficulty()));
+            default:
+                return null;
         }
     }
     
@@ -679,192 +766,267 @@ public class TipsController extends BaseController {
     }
     
     /**
-     * Display tips with pagination
+     * Setup the tips grid. Each list row is one line of cards and only rows on screen get a
+     * cell, so the node count stays the same however many tips are loaded.
      */
-    private void displayTips() {
-        if (tipsContainer != null) {
-            tipsContainer.getChildren().clear();
-            
-            if (filteredTips.isEmpty()) {
-                showEmptyState();
-                return;
-            }
-            
-            // Calculate pagination bounds
-            int startIndex = (currentPage - 1) * itemsPerPage;
-            int endIndex = Math.min(startIndex + itemsPerPage, filteredTips.size());
-            
-            // Create grid layout for tips
-            GridPane tipsGrid = new GridPane();
-            tipsGrid.setHgap(15);
-            tipsGrid.setVgap(15);
-            tipsGrid.setPadding(new Insets(10));
-            
-            int columns = 3; // 3 tips per row
-            int row = 0, col = 0;
-            
-            for (int i = startIndex; i < endIndex; i++) {
-                EcoTip tip = filteredTips.get(i);
-                VBox tipCard = createTipCard(tip);
-                
-                tipsGrid.add(tipCard, col, row);
-                
-                col++;
-                if (col >= columns) {
-                    col = 0;
-                    row++;
-                }
-                
-                // Animate card entrance
-                animateTipCardEntrance(tipCard, i - startIndex);
+    private void setupTipsGrid() {
+        sortedTips.addListener((ListChangeListener<EcoTip>) change -> rebuildTipRows());
+        if (tipsGrid == null) {
+            return;
+        }
+        
+        tipsGrid.setItems(tipRows);
+        tipsGrid.setCellFactory(list -> new TipRowCell());
+        tipsGrid.setPlaceholder(createEmptyState());
+        tipsGrid.setFocusTraversable(false);
+        tipsGrid.widthProperty().addListener((obs, oldWidth, newWidth) -> {
+            int columns = Math.max(1, (int) ((newWidth.doubleValue() - 20) / (CARD_WIDTH + CARD_GAP)));
+            if (columns != gridColumns) {
+                gridColumns = columns;
+                rebuildTipRows();
             }
-            
-            tipsContainer.getChildren().add(tipsGrid);
+        });
+        rebuildTipRows();
+    }
+    
+    /**
+     * Split the sorted tips into grid rows
+     */
+    private void rebuildTipRows() {
+        int size = sortedTips.size();
+        List<List<EcoTip>> rows = new ArrayList<>((size + gridColumns - 1) / gridColumns);
+        for (int i = 0; i < size; i += gridColumns) {
+            rows.add(new ArrayList<>(sortedTips.subList(i, Math.min(i + gridColumns, size))));
         }
+        tipRows.setAll(rows);
+        updateTipCount();
     }
     
     /**
-     * Show empty state when no tips found
+     * Update the loaded tip count below the grid
      */
-    private void showEmptyState() {
-        if (tipsContainer != null) {
-            VBox emptyState = new VBox(20);
-            emptyState.setAlignment(Pos.CENTER);
-            emptyState.setPadding(new Insets(50));
-            
-            Label emptyLabel = new Label("🔍 No tips found");
-            emptyLabel.getStyleClass().add("empty-state-title");
-            
-            Label emptyMessage = new Label("Try adjusting your filters or search terms");
-            emptyMessage.getStyleClass().add("empty-state-message");
-            
-            Button clearFiltersBtn = new Button("Clear Filters");
-            clearFiltersBtn.setOnAction(e -> clearFilters());
-            
-            emptyState.getChildren().addAll(emptyLabel, emptyMessage, clearFiltersBtn);
-            tipsContainer.getChildren().add(emptyState);
+    private void updateTipCount() {
+        if (tipCountLabel != null) {
+            int shown = sortedTips.size();
+            int total = Math.max(shown, tipsService != null ? totalTipCount : shown);
+            tipCountLabel.setText(shown < total ? shown + " of " + total + " tips" : total + " tips");
         }
     }
     
     /**
-     * Create tip card UI component
+     * Empty state shown when no tips match
      */
-    private VBox createTipCard(EcoTip tip) {
-        VBox card = new VBox(10);
-        card.getStyleClass().add("tip-card");
-        card.setPadding(new Insets(15));
-        card.setPrefWidth(300);
-        card.setMinHeight(200);
-        
-        // Header with icon and category
-        HBox header = new HBox(10);
-        header.setAlignment(Pos.CENTER_LEFT);
-        
-        Label iconLabel = new Label(tip.getIcon());
-        iconLabel.getStyleClass().add("tip-icon");
-        
-        Label categoryLabel = new Label(tip.getCategory());
-        categoryLabel.getStyleClass().add("tip-category");
-        
-        Circle difficultyDot = new Circle(5);
-        difficultyDot.setFill(getDifficultyColor(tip.getDifficulty()));
-        
-        header.getChildren().addAll(iconLabel, categoryLabel, difficultyDot);
-        
-        // Title
-        Label titleLabel = new Label(tip.getTitle());
-        titleLabel.getStyleClass().add("tip-title");
-        titleLabel.setWrapText(true);
-        
-        // Description
-        Label descLabel = new Label(tip.getDescription());
-        descLabel.getStyleClass().add("tip-description");
-        descLabel.setWrapText(true);
-        descLabel.setMaxHeight(60);
-        descLabel.setTextAlignment(TextAlignment.LEFT);
+    private VBox createEmptyState() {
+        VBox emptyState = new VBox(20);
+        emptyState.setAlignment(Pos.CENTER);
+        emptyState.setPadding(new Insets(50));
         
-        // Stats row
-        HBox statsRow = new HBox(15);
-        statsRow.setAlignment(Pos.CENTER_LEFT);
+        Label emptyLabel = new Label("🔍 No tips found");
+        emptyLabel.getStyleClass().add("empty-state-title");
         
-        Label ratingLabel = new Label("⭐ " + String.format("%.1f", tip.getRating()));
-        Label readCountLabel = new Label("👁 " + tip.getReadCount());
-        Label co2Label = new Label("🌱 " + String.format("%.1f kg", tip.getEstimatedCO2Savings()));
+        Label emptyMessage = new Label("Try adjusting your filters or search terms");
+        emptyMessage.getStyleClass().add("empty-state-message");
         
-        statsRow.getChildren().addAll(ratingLabel, readCountLabel, co2Label);
+        Button clearFiltersBtn = new Button("Clear Filters");
+        clearFiltersBtn.setOnAction(e -> clearFilters());
         
-        // Action buttons
-        HBox actionRow = new HBox(10);
-        actionRow.setAlignment(Pos.CENTER);
-        
-        Button readBtn = new Button("Read More");
-        Button favoriteBtn = new Button(favoriteTips.contains(tip) ? "❤️" : "🤍");
-        Button shareBtn = new Button("📤");
+        emptyState.getChildren().addAll(emptyLabel, emptyMessage, clearFiltersBtn);
+        return emptyState;
+    }
+    
+    /**
+     * One row of the tips grid. The list recycles cells as it scrolls; a cell keeps its cards
+     * and rebinds them to the tips of whichever row it is given.
+     */
+    private final class TipRowCell extends ListCell<List<EcoTip>> {
+        private final HBox row = new HBox(CARD_GAP);
+        private final List<TipCard> cards = new ArrayList<>();
         
-        readBtn.setOnAction(e -> readTip(tip));
-        favoriteBtn.setOnAction(e -> toggleFavorite(tip, favoriteBtn));
-        shareBtn.setOnAction(e -> shareTip(tip));
+        private TipRowCell() {
+            row.setPadding(new Insets(CARD_GAP / 2, 10, CARD_GAP / 2, 10));
+            setText(null);
+        }
         
-        actionRow.getChildren().addAll(readBtn, favoriteBtn, shareBtn);
+        @Override
+        protected boolean isItemChanged(List<EcoTip> oldItem, List<EcoTip> newItem) {
+            return oldItem != newItem; // rows are rebuilt on every change, so rebind on identity
+        }
         
-        card.getChildren().addAll(header, titleLabel, descLabel, statsRow, actionRow);
+        @Override
+        protected void updateItem(List<EcoTip> tips, boolean empty) {
+            super.updateItem(tips, empty);
+            if (empty || tips == null) {
+                setGraphic(null);
+                return;
+            }
+            
+            while (cards.size() < tips.size()) {
+                cards.add(new TipCard());
+            }
+            if (row.getChildren().size() != tips.size()) {
+                row.getChildren().setAll(cards.subList(0, tips.size()));
+            }
+            for (int i = 0; i < tips.size(); i++) {
+                cards.get(i).show(tips.get(i));
+            }
+            setGraphic(row);
+            
+            if (getIndex() >= tipRows.size() - PREFETCH_ROWS) {
+                loadMoreTips();
+            }
+        }
+    }
+    
+    /**
+     * Tip card UI component, built once and then pointed at different tips as its row scrolls
+     */
+    private final class TipCard extends VBox {
+        private final Label iconLabel = new Label();
+        private final Label categoryLabel = new Label();
+        private final Circle difficultyDot = new Circle(5);
+        private final Label titleLabel = new Label();
+        private final TextFlow titleFlow = new TextFlow();
+        private final Label descLabel = new Label();
+        private final TextFlow descFlow = new TextFlow();
+        private final Label ratingLabel = new Label();
+        private final Label readCountLabel = new Label();
+        private final Label co2Label = new Label();
+        private final Button favoriteBtn = new Button();
+        private EcoTip tip;
+        
+        private TipCard() {
+            super(10);
+            getStyleClass().add("tip-card");
+            setPadding(new Insets(15));
+            setPrefWidth(CARD_WIDTH);
+            setMinHeight(200);
+            
+            // Header with icon and category
+            HBox header = new HBox(10);
+            header.setAlignment(Pos.CENTER_LEFT);
+            iconLabel.getStyleClass().add("tip-icon");
+            categoryLabel.getStyleClass().add("tip-category");
+            header.getChildren().addAll(iconLabel, categoryLabel, difficultyDot);
+            
+            // Title and description; the flows replace the labels when a search match is highlighted
+            titleLabel.getStyleClass().add("tip-title");
+            titleLabel.setWrapText(true);
+            titleFlow.getStyleClass().add("tip-title");
+            
+            descLabel.getStyleClass().add("tip-description");
+            descLabel.setWrapText(true);
+            descLabel.setMaxHeight(60);
+            descLabel.setTextAlignment(TextAlignment.LEFT);
+            descFlow.getStyleClass().add("tip-description");
+            descFlow.setMaxHeight(60);
+            Rectangle clip = new Rectangle();
+            clip.widthProperty().bind(descFlow.widthProperty());
+            clip.heightProperty().bind(descFlow.heightProperty());
+            descFlow.setClip(clip);
+            
+            // Stats row
+            HBox statsRow = new HBox(15);
+            statsRow.setAlignment(Pos.CENTER_LEFT);
+            statsRow.getChildren().addAll(ratingLabel, readCountLabel, co2Label);
+            
+            // Action buttons
+            HBox actionRow = new HBox(10);
+            actionRow.setAlignment(Pos.CENTER);
+            
+            Button readBtn = new Button("Read More");
+            Button shareBtn = new Button("📤");
+            
+            readBtn.setOnAction(e -> readTip(tip));
+            favoriteBtn.setOnAction(e -> toggleFavorite(tip, favoriteBtn));
+            shareBtn.setOnAction(e -> shareTip(tip));
+            
+            actionRow.getChildren().addAll(readBtn, favoriteBtn, shareBtn);
+            
+            getChildren().addAll(header, titleLabel, titleFlow, descLabel, descFlow, statsRow, actionRow);
+            
+            // Hover effect, one transition reused for every tip the card shows
+            ScaleTransition hover = new ScaleTransition(Duration.millis(200), this);
+            setOnMouseEntered(e -> scaleTo(hover, 1.05));
+            setOnMouseExited(e -> scaleTo(hover, 1.0));
+        }
         
-        // Add hover effect
-        addHoverEffect(card);
+        private void show(EcoTip tip) {
+            this.tip = tip;
+            iconLabel.setText(tip.getIcon());
+            categoryLabel.setText(tip.getCategory());
+            difficultyDot.setFill(getDifficultyColor(tip.getDifficulty()));
+            
+            TipSearchResult match = searchResults.get(tip.getId());
+            showText(titleLabel, titleFlow, tip.getTitle(), match != null ? match.getTitleHighlights() : null);
+            showText(descLabel, descFlow, tip.getDescription(), match != null ? match.getDescriptionHighlights() : null);
+            
+            ratingLabel.setText("⭐ " + String.format("%.1f", tip.getRating()));
+            readCountLabel.setText("👁 " + tip.getReadCount());
+            co2Label.setText("🌱 " + String.format("%.1f kg", tip.getEstimatedCO2Savings()));
+            favoriteBtn.setText(favoriteTips.contains(tip) ? "❤️" : "🤍");
+        }
         
-        return card;
+        private void scaleTo(ScaleTransition hover, double scale) {
+            hover.stop();
+            hover.setToX(scale);
+            hover.setToY(scale);
+            hover.play();
+        }
     }
     
     /**
-     * Get color for difficulty level
+     * Show text in the plain label, or in the flow with its search matches highlighted
      */
-    private Color getDifficultyColor(String difficulty) {
-        switch (difficulty) {
-            case "Easy": return Color.GREEN;
-            case "Medium": return Color.ORANGE;
-            case "Hard": return Color.RED;
-            default: return Color.GRAY;
+    private void showText(Label plain, TextFlow flow, String text, List<int[]> highlights) {
+        boolean highlighted = highlights != null && !highlights.isEmpty();
+        plain.setText(highlighted ? null : text);
+        plain.setVisible(!highlighted);
+        plain.setManaged(!highlighted);
+        flow.setVisible(highlighted);
+        flow.setManaged(highlighted);
+        if (highlighted) {
+            fillHighlightedText(flow, text, highlights);
+        } else {
+            flow.getChildren().clear();
         }
     }
     
     /**
-     * Add hover effect to tip card
+     * Fill a text flow with the text, styling the given {start, end} ranges as search matches
      */
-    private void addHoverEffect(VBox card) {
-        card.setOnMouseEntered(e -> {
-            ScaleTransition scale = new ScaleTransition(Duration.millis(200), card);
-            scale.setToX(1.05);
-            scale.setToY(1.05);
-            scale.play();
-        });
-        
-        card.setOnMouseExited(e -> {
-            ScaleTransition scale = new ScaleTransition(Duration.millis(200), card);
-            scale.setToX(1.0);
-            scale.setToY(1.0);
-            scale.play();
-        });
+    private void fillHighlightedText(TextFlow flow, String text, List<int[]> highlights) {
+        flow.getChildren().clear();
+        if (text == null) return;
+        
+        int position = 0;
+        for (int[] range : highlights) {
+            int start = Math.max(range[0], position);
+            int end = Math.min(range[1], text.length());
+            if (start >= end) continue;
+            
+            if (start > position) {
+                flow.getChildren().add(new Text(text.substring(position, start)));
+            }
+            Text matched = new Text(text.substring(start, end));
+            matched.getStyleClass().add("tip-highlight");
+            flow.getChildren().add(matched);
+            position = end;
+        }
+        if (position < text.length()) {
+            flow.getChildren().add(new Text(text.substring(position)));
+        }
     }
     
     /**
-     * Animate tip card entrance
+     * Get color for difficulty level
      */
-    private void animateTipCardEntrance(VBox card, int index) {
-        card.setOpacity(0);
-        card.setTranslateY(30);
-        
-        FadeTransition fade = new FadeTransition(Duration.millis(500), card);
-        fade.setFromValue(0);
-        fade.setToValue(1);
-        fade.setDelay(Duration.millis(index * 100));
-        
-        Timeline slide = new Timeline(
-            new KeyFrame(Duration.millis(500), e -> card.setTranslateY(0))
-        );
-        slide.setDelay(Duration.millis(index * 100));
-        
-        fade.play();
-        slide.play();
+    private Color getDifficultyColor(String difficulty) {
+        switch (difficulty) {
+            case "Easy": return Color.GREEN;
+            case "Medium": return Color.ORANGE;
+            case "Hard": return Color.RED;
+            default: return Color.GRAY;
+        }
     }
     
     /**
@@ -880,7 +1042,12 @@ public class TipsController extends BaseController {
                    "Estimated CO₂ Savings: " + String.format("%.1f kg", tip.getEstimatedCO2Savings()));
         
         // Mark as read
-        tip.setReadCount(tip.getReadCount() + 1);
+        if (tipsService != null && currentUser != null) {
+            tipsService.markTipAsRead(currentUser.getId(), tip.getId());
+            loadPersonalRecommendations();
+        } else {
+            tip.setReadCount(tip.getReadCount() + 1);
+        }
     }
     
     /**
@@ -898,10 +1065,27 @@ public class TipsController extends BaseController {
             favoriteBtn.setText("❤️");
             showNotification("Added to favorites", "success");
         }
+        recordFavorite(tip, !isFavorite);
         
         updateStatistics();
     }
     
+    /**
+     * Save a favorite change for the current user and refresh the recommendations it affects
+     */
+    private void recordFavorite(EcoTip tip, boolean favorite) {
+        if (tipsService == null || currentUser == null) {
+            return;
+        }
+        
+        if (favorite) {
+            tipsService.addToFavorites(currentUser.getId(), tip.getId());
+        } else {
+            tipsService.removeFromFavorites(currentUser.getId(), tip.getId());
+        }
+        loadPersonalRecommendations();
+    }
+    
     /**
      * Share tip
      */
@@ -930,9 +1114,14 @@ public class TipsController extends BaseController {
     }
     
     /**
-     * Get personalized recommendations
+     * Get personalized recommendations. The service caches them per user, so this is cheap
+     * to call whenever the screen is shown.
      */
     private List<EcoTip> getPersonalizedRecommendations() {
+        if (tipsService != null && currentUser != null) {
+            return tipsService.getPersonalizedRecommendations(currentUser.getId(), 5);
+        }
+        
         // In a real app, this would analyze user behavior and preferences
         return allTips.stream()
                      .sorted((t1, t2) -> Double.compare(t2.getRating(), t1.getRating()))
@@ -969,63 +1158,23 @@ public class TipsController extends BaseController {
         return card;
     }
     
-    /**
-     * Update pagination controls
-     */
-    private void updatePagination() {
-        totalPages = (int) Math.ceil((double) filteredTips.size() / itemsPerPage);
-        
-        if (totalPages == 0) {
-            totalPages = 1;
-        }
-        
-        if (currentPage > totalPages) {
-            currentPage = totalPages;
-        }
-        
-        if (pageLabel != null) {
-            pageLabel.setText(currentPage + " / " + totalPages);
-        }
-        
-        if (prevPageBtn != null) {
-            prevPageBtn.setDisable(currentPage <= 1);
-        }
-        
-        if (nextPageBtn != null) {
-            nextPageBtn.setDisable(currentPage >= totalPages);
-        }
-    }
-    
-    /**
-     * Go to previous page
-     */
-    private void goToPreviousPage() {
-        if (currentPage > 1) {
-            currentPage--;
-            displayTips();
-        }
-    }
-    
-    /**
-     * Go to next page
-     */
-    private void goToNextPage() {
-        if (currentPage < totalPages) {
-            currentPage++;
-            displayTips();
-        }
-    }
-    
     /**
      * Update statistics display
      */
     private void updateStatistics() {
+        long totalTips = allTips.size();
+        long readTips = allTips.stream().mapToLong(EcoTip::getReadCount).sum();
+        if (tipsService != null) {
+            Map<String, Object> stats = tipsService.getTipsStatistics();
+            totalTips = ((Number) stats.getOrDefault("totalTips", 0)).longValue();
+            readTips = ((Number) stats.getOrDefault("totalReadCount", 0)).longValue();
+        }
+        
         if (totalTipsLabel != null) {
-            totalTipsLabel.setText(String.valueOf(allTips.size()));
+            totalTipsLabel.setText(String.valueOf(totalTips));
         }
         
         if (readTipsLabel != null) {
-            long readTips = allTips.stream().mapToLong(EcoTip::getReadCount).sum();
             readTipsLabel.setText(String.valueOf(readTips));
         }
         
@@ -0,0 +1,364 @@
+package main.java.com.ecohabit.dao;
+
+import main.java.com.ecohabit.config.DBManager;
+import main.java.com.ecohabit.model.Badge;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data access for per-user badge progress and awards stored in the achievements table
+ */
+public class BadgeDAO {
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO achievements (user_id, template_key, name, description, icon, current_value, " +
+        "progress, earned, earned_date, last_day, carry, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT(user_id, template_key) DO UPDATE SET " +
+        "current_value = excluded.current_value, " +
+        "progress = excluded.progress, " +
+        // A late progress flush must never take back an award that was already written
+        "earned = MAX(achievements.earned, excluded.earned), " +
+        "earned_date = COALESCE(achievements.earned_date, excluded.earned_date), " +
+        "last_day = excluded.last_day, " +
+        "carry = excluded.carry, " +
+        "updated_at = CURRENT_TIMESTAMP";
+
+    // Backfilled history only moves progress forward; live progress that is already ahead wins
+    private static final String BACKFILL_UPSERT_SQL =
+        "INSERT INTO achievements (user_id, template_key, name, description, icon, current_value, " +
+        "progress, earned, earned_date, last_day, carry, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT(user_id, template_key) DO UPDATE SET " +
+        "current_value = MAX(achievements.current_value, excluded.current_value), " +
+        "progress = MAX(achievements.progress, excluded.progress), " +
+        "earned = MAX(achievements.earned, excluded.earned), " +
+        "earned_date = CASE WHEN achievements.earned THEN achievements.earned_date ELSE excluded.earned_date END, " +
+        "last_day = CASE WHEN excluded.current_value >= achievements.current_value " +
+        "THEN excluded.last_day ELSE achievements.last_day END, " +
+        "carry = CASE WHEN excluded.current_value >= achievements.current_value " +
+        "THEN excluded.carry ELSE achievements.carry END, " +
+        "updated_at = CURRENT_TIMESTAMP";
+
+    private final DBManager dbManager;
+
+    public BadgeDAO() {
+        this.dbManager = DBManager.getInstance();
+    }
+
+    /**
+     * A persisted badge row
+     */
+    public static class BadgeRecord {
+        private final String templateKey;
+        private final int currentValue;
+        private final boolean earned;
+        private final LocalDateTime earnedDate;
+        private final LocalDate lastDay;
+        private final double carry;
+
+        public BadgeRecord(String templateKey, int currentValue, boolean earned,
+                           LocalDateTime earnedDate, LocalDate lastDay, double carry) {
+            this.templateKey = templateKey;
+            this.currentValue = currentValue;
+            this.earned = earned;
+            this.earnedDate = earnedDate;
+            this.lastDay = lastDay;
+            this.carry = carry;
+        }
+
+        public String getTemplateKey() { return templateKey; }
+        public int getCurrentValue() { return currentValue; }
+        public boolean isEarned() { return earned; }
+        public LocalDateTime getEarnedDate() { return earnedDate; }
+        public LocalDate getLastDay() { return lastDay; }
+        public double getCarry() { return carry; }
+    }
+
+    /**
+     * Progress snapshot queued for writing
+     */
+    public static class BadgeWrite {
+        private final int userId;
+        private final Badge badge;
+        private final LocalDate lastDay;
+        private final double carry;
+
+        public BadgeWrite(int userId, Badge badge, LocalDate lastDay, double carry) {
+            this.userId = userId;
+            this.badge = badge;
+            this.lastDay = lastDay;
+            this.carry = carry;
+        }
+
+        public int getUserId() { return userId; }
+        public Badge getBadge() { return badge; }
+        public LocalDate getLastDay() { return lastDay; }
+        public double getCarry() { return carry; }
+    }
+
+    /**
+     * Load all badge rows for a user
+     */
+    public List<BadgeRecord> loadUserBadges(int userId) {
+        List<BadgeRecord> records = new ArrayList<>();
+        String sql = "SELECT template_key, current_value, earned, earned_date, last_day, carry " +
+                     "FROM achievements WHERE user_id = ? AND template_key IS NOT NULL";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp earnedDate = rs.getBoolean("earned") ? rs.getTimestamp("earned_date") : null;
+                        String lastDay = rs.getString("last_day");
+                        records.add(new BadgeRecord(
+                            rs.getString("template_key"),
+                            rs.getInt("current_value"),
+                            rs.getBoolean("earned"),
+                            earnedDate != null ? earnedDate.toLocalDateTime() : null,
+                            lastDay != null ? LocalDate.parse(lastDay) : null,
+                            rs.getDouble("carry")));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading badges for user " + userId + ": " + e.getMessage());
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Write a batch of progress snapshots in one transaction
+     */
+    public int saveBatch(Collection<BadgeWrite> writes) {
+        if (writes.isEmpty()) return 0;
+
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                    for (BadgeWrite write : writes) {
+                        bind(pstmt, write);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                conn.commit();
+                return writes.size();
+
+            } catch (SQLException e) {
+                System.err.println("Error saving badge progress: " + e.getMessage());
+                rollback(conn);
+                return 0;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    /**
+     * Write a single badge immediately (used for awards)
+     */
+    public boolean save(BadgeWrite write) {
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(UPSERT_SQL)) {
+                bind(pstmt, write);
+                return pstmt.executeUpdate() > 0;
+            } catch (SQLException e) {
+                System.err.println("Error saving badge award: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Remove all badge rows for a user
+     */
+    public void deleteUserBadges(int userId) {
+        synchronized (dbManager) {
+            try {
+                dbManager.executeUpdate("DELETE FROM achievements WHERE user_id = ? AND template_key IS NOT NULL", userId);
+            } catch (SQLException e) {
+                System.err.println("Error deleting badges for user " + userId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Criteria fingerprints of templates whose backfill has completed (templateKey -> hash)
+     */
+    public Map<String, String> loadBackfilledTemplates() {
+        Map<String, String> templates = new HashMap<>();
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    "SELECT template_key, criteria_hash FROM badge_backfill_templates");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    templates.put(rs.getString("template_key"), rs.getString("criteria_hash"));
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading backfilled templates: " + e.getMessage());
+            }
+        }
+
+        return templates;
+    }
+
+    /**
+     * Users already finished by an earlier, interrupted run of a backfill job
+     */
+    public Set<Integer> loadBackfillProgress(String jobKey) {
+        Set<Integer> userIds = new HashSet<>();
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    "SELECT user_id FROM badge_backfill_progress WHERE job_key = ?")) {
+                pstmt.setString(1, jobKey);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        userIds.add(rs.getInt("user_id"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading backfill progress: " + e.getMessage());
+            }
+        }
+
+        return userIds;
+    }
+
+    /**
+     * Write backfilled progress for a group of users and mark them done, in one transaction
+     */
+    public boolean saveBackfillBatch(String jobKey, Collection<BadgeWrite> writes, Collection<Integer> userIds) {
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(BACKFILL_UPSERT_SQL)) {
+                    for (BadgeWrite write : writes) {
+                        bind(pstmt, write);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO badge_backfill_progress (job_key, user_id) VALUES (?, ?)")) {
+                    for (Integer userId : userIds) {
+                        pstmt.setString(1, jobKey);
+                        pstmt.setInt(2, userId);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                System.err.println("Error saving badge backfill batch: " + e.getMessage());
+                rollback(conn);
+                return false;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    /**
+     * Record a finished backfill job and drop its per-user progress
+     */
+    public boolean completeBackfill(String jobKey, Map<String, String> templateHashes) {
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO badge_backfill_templates (template_key, criteria_hash, completed_at) " +
+                        "VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+                    for (Map.Entry<String, String> entry : templateHashes.entrySet()) {
+                        pstmt.setString(1, entry.getKey());
+                        pstmt.setString(2, entry.getValue());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM badge_backfill_progress WHERE job_key = ?")) {
+                    pstmt.setString(1, jobKey);
+                    pstmt.executeUpdate();
+                }
+
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                System.err.println("Error completing badge backfill: " + e.getMessage());
+                rollback(conn);
+                return false;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    private void bind(PreparedStatement pstmt, BadgeWrite write) throws SQLException {
+        Badge badge = write.badge;
+        pstmt.setInt(1, write.userId);
+        pstmt.setString(2, badge.getTemplateKey());
+        pstmt.setString(3, badge.getTitle());
+        pstmt.setString(4, badge.getDescription());
+        pstmt.setString(5, badge.getIcon());
+        pstmt.setInt(6, badge.getCurrentValue());
+        pstmt.setInt(7, badge.getProgress());
+        pstmt.setBoolean(8, badge.isEarned());
+        pstmt.setTimestamp(9, badge.isEarned() && badge.getEarnedDate() != null
+                ? Timestamp.valueOf(badge.getEarnedDate()) : null);
+        pstmt.setString(10, write.lastDay != null ? write.lastDay.toString() : null);
+        pstmt.setDouble(11, write.carry);
+    }
+
+    private void rollback(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back badge batch: " + e.getMessage());
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error restoring auto-commit: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package main.java.com.ecohabit.dao;
+
+import main.java.com.ecohabit.config.DBManager;
+import main.java.com.ecohabit.model.ChatMessage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Chat history in the chat_sessions and chat_messages tables.
+ *
+ * Messages are append-only and numbered per session from 1, so (session_id, seq) is both the
+ * key and the offset index: the last N messages, or any page, is one range scan.
+ *
+ * The terms of each message are written to chat_terms with it, in the same transaction, so the
+ * search index never falls behind the history.
+ */
+public class ChatMessageDAO {
+
+    private static final String ENTITY_SEPARATOR = "|";
+
+    private static final String INSERT_MESSAGE_SQL =
+        "INSERT OR REPLACE INTO chat_messages (session_id, seq, sender, message_type, content, sent_at, " +
+        "intent, confidence, entities, category) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SESSION_SQL =
+        "INSERT INTO chat_sessions (session_id, user_id, first_seq, last_seq, created_at, last_message_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (session_id) DO UPDATE SET " +
+        "last_seq = MAX(last_seq, excluded.last_seq), last_message_at = excluded.last_message_at";
+
+    private static final String INSERT_TERM_SQL =
+        "INSERT OR IGNORE INTO chat_terms (user_id, term, session_id, seq, sent_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SESSION_COLUMNS =
+        "session_id, user_id, first_seq, last_seq, created_at, last_message_at";
+
+    private final DBManager dbManager;
+
+    public ChatMessageDAO() {
+        this.dbManager = DBManager.getInstance();
+    }
+
+    /**
+     * A message waiting to be written, with the position it was given in its session and the
+     * terms it is found by
+     */
+    public static class ChatWrite {
+        private final int userId;
+        private final String sessionId;
+        private final long seq;
+        private final ChatMessage message;
+        private final Collection<String> terms;
+
+        public ChatWrite(int userId, String sessionId, long seq, ChatMessage message, Collection<String> terms) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+            this.seq = seq;
+            this.message = message;
+            this.terms = terms;
+        }
+
+        public int getUserId() { return userId; }
+        public String getSessionId() { return sessionId; }
+        public long getSeq() { return seq; }
+        public ChatMessage getMessage() { return message; }
+        public Collection<String> getTerms() { return terms; }
+    }
+
+    /**
+     * A stored session: its owner and the range of message numbers it still holds
+     */
+    public static class SessionInfo {
+        private final String sessionId;
+        private final int userId;
+        private final long firstSeq;
+        private final long lastSeq;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime lastMessageAt;
+
+        public SessionInfo(String sessionId, int userId, long firstSeq, long lastSeq,
+                           LocalDateTime createdAt, LocalDateTime lastMessageAt) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.firstSeq = firstSeq;
+            this.lastSeq = lastSeq;
+            this.createdAt = createdAt;
+            this.lastMessageAt = lastMessageAt;
+        }
+
+        public String getSessionId() { return sessionId; }
+        public int getUserId() { return userId; }
+        public long getFirstSeq() { return firstSeq; }
+        public long getLastSeq() { return lastSeq; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    }
+
+    /**
+     * How many messages a session holds, how many of them the user sent, and how often each
+     * intent came up
+     */
+    public static class MessageCounts {
+        private final Map<String, Long> intentCounts = new LinkedHashMap<>();
+        private long messages;
+        private long userMessages;
+
+        public Map<String, Long> getIntentCounts() { return intentCounts; }
+        public long getMessages() { return messages; }
+        public long getUserMessages() { return userMessages; }
+    }
+
+    /**
+     * Append messages and advance their sessions in one transaction. Returns the number of
+     * messages written, 0 when the batch failed and nothing was saved.
+     */
+    public int appendBatch(Collection<ChatWrite> writes) {
+        if (writes.isEmpty()) return 0;
+
+        // First and last write of each session, for the session rows
+        Map<String, ChatWrite> firstBySession = new LinkedHashMap<>();
+        Map<String, ChatWrite> lastBySession = new LinkedHashMap<>();
+        for (ChatWrite write : writes) {
+            firstBySession.putIfAbsent(write.getSessionId(), write);
+            lastBySession.put(write.getSessionId(), write);
+        }
+
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MESSAGE_SQL)) {
+                    for (ChatWrite write : writes) {
+                        bind(pstmt, write);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                insertTerms(conn, writes);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SESSION_SQL)) {
+                    for (ChatWrite last : lastBySession.values()) {
+                        ChatWrite first = firstBySession.get(last.getSessionId());
+                        pstmt.setString(1, last.getSessionId());
+                        pstmt.setInt(2, last.getUserId());
+                        pstmt.setLong(3, first.getSeq());
+                        pstmt.setLong(4, last.getSeq());
+                        pstmt.setString(5, timestamp(first.getMessage().getTimestamp()));
+                        pstmt.setString(6, timestamp(last.getMessage().getTimestamp()));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                conn.commit();
+                return writes.size();
+
+            } catch (SQLException e) {
+                System.err.println("Error saving chat messages: " + e.getMessage());
+                rollback(conn);
+                return 0;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    private void insertTerms(Connection conn, Collection<ChatWrite> writes) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_TERM_SQL)) {
+            for (ChatWrite write : writes) {
+                for (String term : write.getTerms()) {
+                    pstmt.setInt(1, write.getUserId());
+                    pstmt.setString(2, term);
+                    pstmt.setString(3, write.getSessionId());
+                    pstmt.setLong(4, write.getSeq());
+                    String sentAt = timestamp(write.getMessage().getTimestamp());
+                    pstmt.setString(5, sentAt != null ? sentAt : "");
+                    pstmt.addBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Messages fromSeq (inclusive) to toSeq (exclusive) of a session, oldest first
+     */
+    public List<ChatMessage> loadRange(String sessionId, long fromSeq, long toSeq) {
+        List<ChatMessage> messages = new ArrayList<>();
+        if (fromSeq >= toSeq) return messages;
+
+        String sql = "SELECT seq, sender, message_type, content, sent_at, intent, confidence, entities, category " +
+                     "FROM chat_messages WHERE session_id = ? AND seq >= ? AND seq < ? ORDER BY seq";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, sessionId);
+                pstmt.setLong(2, fromSeq);
+                pstmt.setLong(3, toSeq);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        messages.add(toMessage(sessionId, rs));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading chat messages: " + e.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Message and intent counts of a session, in one scan of its messages
+     */
+    public MessageCounts countMessages(String sessionId) {
+        MessageCounts counts = new MessageCounts();
+        String sql = "SELECT intent, message_type, COUNT(*) AS messages FROM chat_messages " +
+                     "WHERE session_id = ? GROUP BY intent, message_type";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, sessionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        long messages = rs.getLong("messages");
+                        counts.messages += messages;
+                        if ("user".equals(rs.getString("message_type"))) {
+                            counts.userMessages += messages;
+                        }
+                        String intent = rs.getString("intent");
+                        if (intent != null) {
+                            counts.intentCounts.merge(intent, messages, Long::sum);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error counting chat messages: " + e.getMessage());
+            }
+        }
+        return counts;
+    }
+
+    public SessionInfo findSession(String sessionId) {
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    "SELECT " + SESSION_COLUMNS + " FROM chat_sessions WHERE session_id = ?")) {
+                pstmt.setString(1, sessionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? toSession(rs) : null;
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading chat session: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A user's sessions, most recently active first
+     */
+    public List<SessionInfo> loadSessions(int userId) {
+        List<SessionInfo> sessions = new ArrayList<>();
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    "SELECT " + SESSION_COLUMNS + " FROM chat_sessions WHERE user_id = ? " +
+                    "ORDER BY last_message_at DESC")) {
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        sessions.add(toSession(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading chat sessions: " + e.getMessage());
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * A user's messages that have every term and, for each prefix, a term starting with it, sent
+     * in [from, to) when those are given, newest first. The rarest term is read newest first and
+     * the others are looked up per message, so a query stops once limit messages passed accept;
+     * a phrase check only looks at as many messages as it needs.
+     */
+    public List<ChatMessage> searchMessages(int userId, List<String> terms, List<String> prefixes,
+                                            LocalDateTime from, LocalDateTime to,
+                                            Predicate<ChatMessage> accept, int limit) {
+        List<ChatMessage> messages = new ArrayList<>();
+        if (limit <= 0 || terms.size() + prefixes.size() == 0) return messages;
+
+        synchronized (dbManager) {
+            try {
+                Connection conn = dbManager.getConnection();
+
+                // Read the messages with the rarest term, or the first prefix when there are only prefixes
+                List<String> checkTerms = new ArrayList<>(terms);
+                List<String> checkPrefixes = new ArrayList<>(prefixes);
+                String driverTerm = null;
+                long fewest = Long.MAX_VALUE;
+                for (String term : terms) {
+                    long postings = countPostings(conn, userId, term);
+                    if (postings < fewest) {
+                        fewest = postings;
+                        driverTerm = term;
+                    }
+                }
+                String driverPrefix = null;
+                String driver;
+                if (driverTerm != null) {
+                    checkTerms.remove(driverTerm);
+                    driver = "SELECT sent_at, session_id, seq FROM chat_terms WHERE user_id = ? AND term = ?";
+                } else {
+                    driverPrefix = checkPrefixes.remove(0);
+                    driver = "SELECT DISTINCT sent_at, session_id, seq FROM chat_terms " +
+                             "WHERE user_id = ? AND term >= ? AND term < ?";
+                }
+                if (from != null) driver += " AND sent_at >= ?";
+                if (to != null) driver += " AND sent_at < ?";
+
+                StringBuilder sql = new StringBuilder(
+                        "SELECT m.session_id, m.seq, m.sender, m.message_type, m.content, m.sent_at, m.intent, " +
+                        "m.confidence, m.entities, m.category FROM (" + driver + ") t " +
+                        "JOIN chat_messages m ON m.session_id = t.session_id AND m.seq = t.seq WHERE 1 = 1");
+                for (int k = 0; k < checkTerms.size(); k++) {
+                    sql.append(" AND EXISTS (SELECT 1 FROM chat_terms o WHERE o.session_id = t.session_id " +
+                               "AND o.seq = t.seq AND o.term = ?)");
+                }
+                for (int k = 0; k < checkPrefixes.size(); k++) {
+                    sql.append(" AND EXISTS (SELECT 1 FROM chat_terms o WHERE o.session_id = t.session_id " +
+                               "AND o.seq = t.seq AND o.term >= ? AND o.term < ?)");
+                }
+                sql.append(" ORDER BY t.sent_at DESC, t.session_id DESC, t.seq DESC");
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    pstmt.setInt(index++, userId);
+                    if (driverTerm != null) {
+                        pstmt.setString(index++, driverTerm);
+                    } else {
+                        index = bindPrefix(pstmt, index, driverPrefix);
+                    }
+                    if (from != null) pstmt.setString(index++, timestamp(from));
+                    if (to != null) pstmt.setString(index++, timestamp(to));
+                    for (String term : checkTerms) {
+                        pstmt.setString(index++, term);
+                    }
+                    for (String prefix : checkPrefixes) {
+                        index = bindPrefix(pstmt, index, prefix);
+                    }
+
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (messages.size() < limit && rs.next()) {
+                            ChatMessage message = toMessage(rs.getString("session_id"), rs);
+                            if (accept.test(message)) {
+                                messages.add(message);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error searching chat messages: " + e.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Messages of a user with a term, counted up to a cap since only the rarest term matters
+     */
+    private long countPostings(Connection conn, int userId, String term) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM chat_terms WHERE user_id = ? AND term = ? LIMIT 10000)")) {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, term);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static int bindPrefix(PreparedStatement pstmt, int index, String prefix) throws SQLException {
+        pstmt.setString(index++, prefix);
+        pstmt.setString(index++, prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1));
+        return index;
+    }
+
+    public boolean deleteSession(String sessionId) {
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM chat_messages WHERE session_id = ?")) {
+                    pstmt.setString(1, sessionId);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM chat_terms WHERE session_id = ?")) {
+                    pstmt.setString(1, sessionId);
+                    pstmt.executeUpdate();
+                }
+                int deleted;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM chat_sessions WHERE session_id = ?")) {
+                    pstmt.setString(1, sessionId);
+                    deleted = pstmt.executeUpdate();
+                }
+
+                conn.commit();
+                return deleted > 0;
+            } catch (SQLException e) {
+                System.err.println("Error deleting chat session: " + e.getMessage());
+                rollback(conn);
+                return false;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    /**
+     * Delete sessions with no message since the cutoff. Returns how many were removed.
+     */
+    public int deleteSessionsBefore(LocalDateTime cutoff) {
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM chat_messages WHERE session_id IN " +
+                        "(SELECT session_id FROM chat_sessions WHERE last_message_at < ?)")) {
+                    pstmt.setString(1, timestamp(cutoff));
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM chat_terms WHERE session_id IN " +
+                        "(SELECT session_id FROM chat_sessions WHERE last_message_at < ?)")) {
+                    pstmt.setString(1, timestamp(cutoff));
+                    pstmt.executeUpdate();
+                }
+                int deleted;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "DELETE FROM chat_sessions WHERE last_message_at < ?")) {
+                    pstmt.setString(1, timestamp(cutoff));
+                    deleted = pstmt.executeUpdate();
+                }
+
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                System.err.println("Error deleting old chat sessions: " + e.getMessage());
+                rollback(conn);
+                return 0;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    private void bind(PreparedStatement pstmt, ChatWrite write) throws SQLException {
+        ChatMessage message = write.getMessage();
+        pstmt.setString(1, write.getSessionId());
+        pstmt.setLong(2, write.getSeq());
+        pstmt.setString(3, message.getSender());
+        pstmt.setString(4, message.getMessageType());
+        pstmt.setString(5, message.getContent());
+        pstmt.setString(6, timestamp(message.getTimestamp()));
+        pstmt.setString(7, message.getIntent());
+        pstmt.setDouble(8, message.getConfidence());
+        String[] entities = message.getEntities();
+        pstmt.setString(9, entities == null || entities.length == 0 ? null : String.join(ENTITY_SEPARATOR, entities));
+        pstmt.setString(10, message.getMessageCategory());
+    }
+
+    private ChatMessage toMessage(String sessionId, ResultSet rs) throws SQLException {
+        ChatMessage message = new ChatMessage(rs.getString("content"), rs.getString("sender"), rs.getString("message_type"));
+        message.setId((int) rs.getLong("seq"));
+        message.setSessionId(sessionId);
+        LocalDateTime sentAt = parseTimestamp(rs.getString("sent_at"));
+        if (sentAt != null) {
+            message.setTimestamp(sentAt);
+        }
+        message.setIntent(rs.getString("intent"));
+        message.setConfidence(rs.getDouble("confidence"));
+        String entities = rs.getString("entities");
+        if (entities != null) {
+            message.setEntities(entities.split("\\" + ENTITY_SEPARATOR));
+        }
+        message.setMessageCategory(rs.getString("category"));
+        return message;
+    }
+
+    private SessionInfo toSession(ResultSet rs) throws SQLException {
+        return new SessionInfo(
+            rs.getString("session_id"),
+            rs.getInt("user_id"),
+            rs.getLong("first_seq"),
+            rs.getLong("last_seq"),
+            parseTimestamp(rs.getString("created_at")),
+            parseTimestamp(rs.getString("last_message_at")));
+    }
+
+    private static String timestamp(LocalDateTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    private static LocalDateTime parseTimestamp(String text) {
+        if (text == null) return null;
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void rollback(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back chat history: " + e.getMessage());
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error restoring auto-commit: " + e.getMessage());
+        }
+    }
+}
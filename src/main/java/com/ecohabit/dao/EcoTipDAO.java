@@ -0,0 +1,522 @@
+package main.java.com.ecohabit.dao;
+
+import main.java.com.ecohabit.config.DBManager;
+import main.java.com.ecohabit.model.EcoTip;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Data access for the tip catalog stored in the eco_tips table.
+ *
+ * Filtering, sorting and paging run in SQL so callers only ever hold the page they show.
+ * Text search is served by {@link main.java.com.ecohabit.service.TipSearchIndex}.
+ */
+public class EcoTipDAO {
+
+    private static final String COLUMNS =
+        "id, tip_key, locale, title, tip_text, category, difficulty, icon, rating, read_count, like_count, " +
+        "co2_impact, tags, source, featured, approved, image_url, user_id, date_created, last_updated";
+
+    private static final String SEARCH_COLUMNS = "id, title, tip_text, category, difficulty, tags";
+    private static final String FEATURE_COLUMNS =
+        "id, category, difficulty, rating, read_count, like_count, co2_impact";
+
+    private static final String IMPORT_SQL =
+        "INSERT OR IGNORE INTO eco_tips (tip_key, locale, title, tip_text, category, difficulty, icon, rating, " +
+        "read_count, like_count, co2_impact, tags, source, featured, approved, image_url, user_id, " +
+        "date_created, last_updated) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final DBManager dbManager;
+
+    public EcoTipDAO() {
+        this.dbManager = DBManager.getInstance();
+    }
+
+    /**
+     * Number of tips stored for a locale
+     */
+    public int count(String locale) {
+        return count(null, null, locale);
+    }
+
+    /**
+     * Number of tips matching the filters. Null or "All" means no filter.
+     */
+    public int count(String category, String difficulty, String locale) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM eco_tips" + where(category, difficulty, locale, params);
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                bind(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                System.err.println("Error counting tips: " + e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * One page of tips matching the filters
+     *
+     * @param sortBy one of "Date", "Rating", "Popularity", "Title", "Difficulty"
+     * @param limit page size, or a negative value for no limit
+     */
+    public List<EcoTip> findPage(String category, String difficulty, String sortBy,
+                                 int offset, int limit, String locale) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + COLUMNS + " FROM eco_tips" + where(category, difficulty, locale, params) +
+                     " ORDER BY " + orderBy(sortBy) + " LIMIT ? OFFSET ?";
+        params.add(limit);
+        params.add(Math.max(offset, 0));
+        return query(sql, params);
+    }
+
+    /**
+     * One page of the given tips, e.g. search matches, in a sort order other than relevance
+     */
+    public List<EcoTip> findPageByIds(Collection<Integer> ids, String sortBy, int offset, int limit) {
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        // Ids are integers, so they can be inlined; a match set may exceed the bind parameter limit
+        String idList = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return query("SELECT " + COLUMNS + " FROM eco_tips WHERE id IN (" + idList + ") " +
+                     "ORDER BY " + orderBy(sortBy) + " LIMIT ? OFFSET ?", List.of(limit, Math.max(offset, 0)));
+    }
+
+    /**
+     * Stream the searchable text of every tip in a locale, for building the search index
+     */
+    public void forEachSearchText(String locale, Consumer<EcoTip> consumer) {
+        String sql = "SELECT " + SEARCH_COLUMNS + " FROM eco_tips WHERE locale = ?";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, locale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        EcoTip tip = new EcoTip();
+                        tip.setId(rs.getInt("id"));
+                        tip.setTitle(rs.getString("title"));
+                        tip.setDescription(rs.getString("tip_text"));
+                        tip.setCategory(rs.getString("category"));
+                        tip.setDifficulty(rs.getString("difficulty"));
+                        tip.setTags(splitTags(rs.getString("tags")));
+                        consumer.accept(tip);
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading tip text: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stream the ranking features of every tip in a locale (category, difficulty, rating,
+     * counters and CO2 impact), for building the recommender
+     */
+    public void forEachFeatures(String locale, Consumer<EcoTip> consumer) {
+        String sql = "SELECT " + FEATURE_COLUMNS + " FROM eco_tips WHERE locale = ?";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, locale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        EcoTip tip = new EcoTip();
+                        tip.setId(rs.getInt("id"));
+                        tip.setCategory(rs.getString("category"));
+                        tip.setDifficulty(rs.getString("difficulty"));
+                        tip.setRating(rs.getDouble("rating"));
+                        tip.setReadCount(rs.getInt("read_count"));
+                        tip.setLikeCount(rs.getInt("like_count"));
+                        tip.setEstimatedCO2Savings(rs.getDouble("co2_impact"));
+                        consumer.accept(tip);
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading tip features: " + e.getMessage());
+            }
+        }
+    }
+
+    public EcoTip findById(int id) {
+        List<EcoTip> tips = query("SELECT " + COLUMNS + " FROM eco_tips WHERE id = ?", Collections.singletonList(id));
+        return tips.isEmpty() ? null : tips.get(0);
+    }
+
+    /**
+     * Tips with the given ids, in no particular order
+     */
+    public List<EcoTip> findByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return query("SELECT " + COLUMNS + " FROM eco_tips WHERE id IN (" + placeholders + ")", new ArrayList<>(ids));
+    }
+
+    public List<EcoTip> findFeatured(int limit, String locale) {
+        return query("SELECT " + COLUMNS + " FROM eco_tips WHERE locale = ? AND featured = 1 " +
+                     "ORDER BY rating DESC LIMIT ?", List.of(locale, limit));
+    }
+
+    public List<EcoTip> findPopular(int limit, String locale) {
+        return query("SELECT " + COLUMNS + " FROM eco_tips WHERE locale = ? " +
+                     "ORDER BY read_count DESC, rating DESC LIMIT ?", List.of(locale, limit));
+    }
+
+    /**
+     * Distinct categories, alphabetically
+     */
+    public List<String> findCategories(String locale) {
+        List<String> categories = new ArrayList<>();
+        String sql = "SELECT DISTINCT category FROM eco_tips WHERE locale = ? AND category IS NOT NULL ORDER BY category";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, locale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        categories.add(rs.getString(1));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading tip categories: " + e.getMessage());
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Insert a batch of catalog tips in one transaction. Tips whose key and locale
+     * already exist are skipped, so an interrupted import can simply be run again.
+     *
+     * @return number of tips inserted
+     */
+    public int importTips(List<EcoTip> tips) {
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                int inserted = 0;
+                try (PreparedStatement pstmt = conn.prepareStatement(IMPORT_SQL)) {
+                    for (EcoTip tip : tips) {
+                        bindTip(pstmt, tip);
+                        pstmt.addBatch();
+                    }
+                    for (int count : pstmt.executeBatch()) {
+                        if (count > 0) inserted += count;
+                    }
+                }
+
+                conn.commit();
+                return inserted;
+
+            } catch (SQLException e) {
+                System.err.println("Error importing tips: " + e.getMessage());
+                rollback(conn);
+                return 0;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    /**
+     * Insert a tip and set its generated id
+     */
+    public boolean insert(EcoTip tip) {
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    IMPORT_SQL.replace("INSERT OR IGNORE", "INSERT"), Statement.RETURN_GENERATED_KEYS)) {
+                bindTip(pstmt, tip);
+                if (pstmt.executeUpdate() == 0) return false;
+
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        tip.setId(keys.getInt(1));
+                    }
+                }
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error inserting tip: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    public boolean update(EcoTip tip) {
+        String sql = "UPDATE eco_tips SET title = ?, tip_text = ?, category = ?, difficulty = ?, icon = ?, " +
+                     "rating = ?, co2_impact = ?, tags = ?, source = ?, featured = ?, approved = ?, image_url = ?, " +
+                     "last_updated = ? WHERE id = ?";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, tip.getTitle());
+                pstmt.setString(2, tip.getDescription());
+                pstmt.setString(3, tip.getCategory());
+                pstmt.setString(4, tip.getDifficulty());
+                pstmt.setString(5, tip.getIcon());
+                pstmt.setDouble(6, tip.getRating());
+                pstmt.setDouble(7, tip.getEstimatedCO2Savings());
+                pstmt.setString(8, joinTags(tip.getTags()));
+                pstmt.setString(9, tip.getSource());
+                pstmt.setBoolean(10, tip.isFeatured());
+                pstmt.setBoolean(11, tip.isApproved());
+                pstmt.setString(12, tip.getImageUrl());
+                pstmt.setTimestamp(13, Timestamp.valueOf(tip.getLastUpdated() != null ? tip.getLastUpdated() : LocalDateTime.now()));
+                pstmt.setInt(14, tip.getId());
+                return pstmt.executeUpdate() > 0;
+            } catch (SQLException e) {
+                System.err.println("Error updating tip: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    public boolean delete(int id) {
+        return execute("DELETE FROM eco_tips WHERE id = ?", id);
+    }
+
+    public boolean incrementReadCount(int id) {
+        return execute("UPDATE eco_tips SET read_count = read_count + 1 WHERE id = ?", id);
+    }
+
+    /**
+     * Add delta to a tip's like count, never going below zero
+     */
+    public boolean adjustLikeCount(int id, int delta) {
+        return execute("UPDATE eco_tips SET like_count = MAX(0, like_count + ?) WHERE id = ?", delta, id);
+    }
+
+    /**
+     * Store a tip's rating, keeping the catalog rating it replaced the first time in base_rating
+     */
+    public boolean updateRating(int id, double rating) {
+        return execute("UPDATE eco_tips SET base_rating = COALESCE(base_rating, rating), rating = ? WHERE id = ?",
+                       rating, id);
+    }
+
+    /**
+     * Catalog totals and per-category / per-difficulty counts, computed in SQL
+     */
+    public Map<String, Object> loadStatistics(String locale) {
+        Map<String, Object> stats = new HashMap<>();
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    "SELECT COUNT(*), AVG(rating), SUM(read_count), SUM(like_count) FROM eco_tips WHERE locale = ?")) {
+                pstmt.setString(1, locale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        stats.put("totalTips", rs.getInt(1));
+                        stats.put("averageRating", rs.getDouble(2));
+                        stats.put("totalReadCount", rs.getInt(3));
+                        stats.put("totalLikes", rs.getInt(4));
+                    }
+                }
+                stats.put("categoryBreakdown", countBy("category", locale));
+                stats.put("difficultyBreakdown", countBy("difficulty", locale));
+            } catch (SQLException e) {
+                System.err.println("Error loading tip statistics: " + e.getMessage());
+            }
+        }
+        return stats;
+    }
+
+    private Map<String, Long> countBy(String column, String locale) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                "SELECT " + column + ", COUNT(*) FROM eco_tips WHERE locale = ? AND " + column + " IS NOT NULL " +
+                "GROUP BY " + column + " ORDER BY " + column)) {
+            pstmt.setString(1, locale);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        return counts;
+    }
+
+    private String where(String category, String difficulty, String locale, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE locale = ?");
+        params.add(locale);
+
+        if (category != null && !"All".equals(category)) {
+            where.append(" AND category = ?");
+            params.add(category);
+        }
+        if (difficulty != null && !"All".equals(difficulty)) {
+            where.append(" AND difficulty = ?");
+            params.add(difficulty);
+        }
+        return where.toString();
+    }
+
+    private static String orderBy(String sortBy) {
+        if (sortBy == null) sortBy = "Date";
+
+        switch (sortBy) {
+            case "Rating":
+                return "rating DESC, id";
+            case "Popularity":
+                return "read_count DESC, id";
+            case "Title":
+                return "title COLLATE NOCASE, id";
+            case "Difficulty":
+                return "CASE difficulty WHEN 'Easy' THEN 1 WHEN 'Medium' THEN 2 WHEN 'Hard' THEN 3 " +
+                       "WHEN 'Very Hard' THEN 4 ELSE 0 END, id";
+            case "Date":
+            default:
+                // Also "Relevance" without a text query: newest first
+                return "date_created DESC, id DESC";
+        }
+    }
+
+    private List<EcoTip> query(String sql, List<?> params) {
+        List<EcoTip> tips = new ArrayList<>();
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                bind(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        tips.add(mapRow(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading tips: " + e.getMessage());
+            }
+        }
+        return tips;
+    }
+
+    private boolean execute(String sql, Object... params) {
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                bind(pstmt, List.of(params));
+                return pstmt.executeUpdate() > 0;
+            } catch (SQLException e) {
+                System.err.println("Error updating tip: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private void rollback(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back tip import: " + e.getMessage());
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error restoring auto-commit: " + e.getMessage());
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, List<?> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static void bindTip(PreparedStatement pstmt, EcoTip tip) throws SQLException {
+        pstmt.setString(1, tip.getTipKey());
+        pstmt.setString(2, tip.getLocale() != null ? tip.getLocale() : "en");
+        pstmt.setString(3, tip.getTitle());
+        pstmt.setString(4, tip.getDescription());
+        pstmt.setString(5, tip.getCategory());
+        pstmt.setString(6, tip.getDifficulty());
+        pstmt.setString(7, tip.getIcon());
+        pstmt.setDouble(8, tip.getRating());
+        pstmt.setInt(9, tip.getReadCount());
+        pstmt.setInt(10, tip.getLikeCount());
+        pstmt.setDouble(11, tip.getEstimatedCO2Savings());
+        pstmt.setString(12, joinTags(tip.getTags()));
+        pstmt.setString(13, tip.getSource());
+        pstmt.setBoolean(14, tip.isFeatured());
+        pstmt.setBoolean(15, tip.isApproved());
+        pstmt.setString(16, tip.getImageUrl());
+        if (tip.getUserId() > 0) {
+            pstmt.setInt(17, tip.getUserId());
+        } else {
+            pstmt.setNull(17, Types.INTEGER);
+        }
+        pstmt.setString(18, tip.getDateCreated() != null ? tip.getDateCreated().toString() : LocalDate.now().toString());
+        pstmt.setTimestamp(19, Timestamp.valueOf(tip.getLastUpdated() != null ? tip.getLastUpdated() : LocalDateTime.now()));
+    }
+
+    private static EcoTip mapRow(ResultSet rs) throws SQLException {
+        EcoTip tip = new EcoTip();
+        tip.setId(rs.getInt("id"));
+        tip.setTipKey(rs.getString("tip_key"));
+        tip.setLocale(rs.getString("locale"));
+        tip.setTitle(rs.getString("title"));
+        tip.setDescription(rs.getString("tip_text"));
+        tip.setCategory(rs.getString("category"));
+        tip.setDifficulty(rs.getString("difficulty"));
+        tip.setIcon(rs.getString("icon"));
+        tip.setRating(rs.getDouble("rating"));
+        tip.setReadCount(rs.getInt("read_count"));
+        tip.setLikeCount(rs.getInt("like_count"));
+        tip.setEstimatedCO2Savings(rs.getDouble("co2_impact"));
+        tip.setTags(splitTags(rs.getString("tags")));
+        tip.setSource(rs.getString("source"));
+        tip.setFeatured(rs.getBoolean("featured"));
+        tip.setApproved(rs.getBoolean("approved"));
+        tip.setImageUrl(rs.getString("image_url"));
+        tip.setUserId(rs.getInt("user_id"));
+
+        String dateCreated = rs.getString("date_created");
+        if (dateCreated != null) {
+            try {
+                tip.setDateCreated(LocalDate.parse(dateCreated));
+            } catch (RuntimeException e) {
+                // Keep the default
+            }
+        }
+        Timestamp lastUpdated = rs.getTimestamp("last_updated");
+        if (lastUpdated != null) {
+            tip.setLastUpdated(lastUpdated.toLocalDateTime());
+        }
+        return tip;
+    }
+
+    private static String joinTags(String[] tags) {
+        return tags == null || tags.length == 0 ? null : String.join(",", tags);
+    }
+
+    private static String[] splitTags(String tags) {
+        return tags == null || tags.isEmpty() ? new String[0] : tags.split(",");
+    }
+}
@@ -0,0 +1,214 @@
+package main.java.com.ecohabit.dao;
+
+import main.java.com.ecohabit.config.DBManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-user rollups used to rebuild the leaderboards at startup
+ */
+public class LeaderboardDAO {
+
+    private final DBManager dbManager;
+
+    public LeaderboardDAO() {
+        this.dbManager = DBManager.getInstance();
+    }
+
+    /**
+     * CO2 saved by one user overall and within the current week and month
+     */
+    public static class Co2Rollup {
+        private final int userId;
+        private final double total;
+        private final double week;
+        private final double month;
+
+        public Co2Rollup(int userId, double total, double week, double month) {
+            this.userId = userId;
+            this.total = total;
+            this.week = week;
+            this.month = month;
+        }
+
+        public int getUserId() { return userId; }
+        public double getTotal() { return total; }
+        public double getWeek() { return week; }
+        public double getMonth() { return month; }
+    }
+
+    /**
+     * The latest run of consecutive activity days for one user
+     */
+    public static class StreakRollup {
+        private final int userId;
+        private final LocalDate lastDay;
+        private final int streak;
+
+        public StreakRollup(int userId, LocalDate lastDay, int streak) {
+            this.userId = userId;
+            this.lastDay = lastDay;
+            this.streak = streak;
+        }
+
+        public int getUserId() { return userId; }
+        public LocalDate getLastDay() { return lastDay; }
+        public int getStreak() { return streak; }
+    }
+
+    /**
+     * An earned badge row
+     */
+    public static class EarnedBadge {
+        private final int userId;
+        private final String templateKey;
+        private final LocalDateTime earnedDate;
+
+        public EarnedBadge(int userId, String templateKey, LocalDateTime earnedDate) {
+            this.userId = userId;
+            this.templateKey = templateKey;
+            this.earnedDate = earnedDate;
+        }
+
+        public int getUserId() { return userId; }
+        public String getTemplateKey() { return templateKey; }
+        public LocalDateTime getEarnedDate() { return earnedDate; }
+    }
+
+    /**
+     * Id of the newest stored activity, 0 when there is none. Ids only grow, so rollups limited
+     * to ids up to it cover exactly the activities stored before it was read.
+     */
+    public long loadMaxActivityId() {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT MAX(id) FROM activities");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error loading newest activity id: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Sum completed activities' CO2 per user, with week and month totals from the given start
+     * days, over the activities with ids up to maxId
+     */
+    public List<Co2Rollup> loadCo2Rollups(LocalDate weekStart, LocalDate monthStart, long maxId) {
+        List<Co2Rollup> rollups = new ArrayList<>();
+        String sql = "SELECT user_id, SUM(co2_saved) AS total, " +
+                     "SUM(CASE WHEN activity_date >= ? THEN co2_saved ELSE 0 END) AS week, " +
+                     "SUM(CASE WHEN activity_date >= ? THEN co2_saved ELSE 0 END) AS month " +
+                     "FROM activities WHERE completed = 1 AND id <= ? GROUP BY user_id";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, weekStart.toString());
+            pstmt.setString(2, monthStart.toString());
+            pstmt.setLong(3, maxId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rollups.add(new Co2Rollup(rs.getInt("user_id"), rs.getDouble("total"),
+                                              rs.getDouble("week"), rs.getDouble("month")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading CO2 rollups: " + e.getMessage());
+        }
+
+        return rollups;
+    }
+
+    /**
+     * Each user's most recent activity day and the number of consecutive days ending on it,
+     * over the activities with ids up to maxId. Reads distinct days newest first and stops
+     * counting a user at the first gap.
+     */
+    public List<StreakRollup> loadStreakRollups(long maxId) {
+        List<StreakRollup> rollups = new ArrayList<>();
+        String sql = "SELECT DISTINCT user_id, activity_date FROM activities WHERE completed = 1 AND id <= ? " +
+                     "ORDER BY user_id, activity_date DESC";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, maxId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int userId = 0;
+                LocalDate lastDay = null;
+                LocalDate expected = null;
+                int streak = 0;
+                boolean counting = false;
+
+                while (rs.next()) {
+                    int rowUser = rs.getInt("user_id");
+                    LocalDate day;
+                    try {
+                        day = LocalDate.parse(rs.getString("activity_date"));
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+
+                    if (lastDay == null || rowUser != userId) {
+                        if (lastDay != null) {
+                            rollups.add(new StreakRollup(userId, lastDay, streak));
+                        }
+                        userId = rowUser;
+                        lastDay = day;
+                        expected = day.minusDays(1);
+                        streak = 1;
+                        counting = true;
+                    } else if (counting) {
+                        if (day.equals(expected)) {
+                            streak++;
+                            expected = day.minusDays(1);
+                        } else {
+                            counting = false;
+                        }
+                    }
+                }
+                if (lastDay != null) {
+                    rollups.add(new StreakRollup(userId, lastDay, streak));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error loading streak rollups: " + e.getMessage());
+        }
+
+        return rollups;
+    }
+
+    /**
+     * All earned badges with their templates and award dates
+     */
+    public List<EarnedBadge> loadEarnedBadges() {
+        List<EarnedBadge> badges = new ArrayList<>();
+        String sql = "SELECT user_id, template_key, earned_date FROM achievements " +
+                     "WHERE earned = 1 AND template_key IS NOT NULL";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp earnedDate = rs.getTimestamp("earned_date");
+                    badges.add(new EarnedBadge(rs.getInt("user_id"), rs.getString("template_key"),
+                                               earnedDate != null ? earnedDate.toLocalDateTime() : null));
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading earned badges: " + e.getMessage());
+            }
+        }
+
+        return badges;
+    }
+}
@@ -0,0 +1,64 @@
+package main.java.com.ecohabit.dao;
+
+import main.java.com.ecohabit.config.DBManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.BitSet;
+
+/**
+ * Per-user tip bitmaps in the user_tip_marks table. Bit i is set when the user has marked
+ * tip id i; each bitmap is stored as the little-endian bytes of {@link BitSet#toByteArray()}.
+ */
+public class TipMarkDAO {
+
+    public static final String READ = "read";
+    public static final String FAVORITE = "favorite";
+
+    private final DBManager dbManager;
+
+    public TipMarkDAO() {
+        this.dbManager = DBManager.getInstance();
+    }
+
+    /**
+     * A user's bitmap of the given kind, empty when nothing is stored
+     */
+    public BitSet load(int userId, String kind) {
+        String sql = "SELECT bits FROM user_tip_marks WHERE user_id = ? AND kind = ?";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, kind);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        byte[] bits = rs.getBytes("bits");
+                        return bits != null ? BitSet.valueOf(bits) : new BitSet();
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading tip marks: " + e.getMessage());
+            }
+        }
+        return new BitSet();
+    }
+
+    public boolean save(int userId, String kind, BitSet bits) {
+        String sql = "INSERT OR REPLACE INTO user_tip_marks (user_id, kind, bits, updated_at) " +
+                     "VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, kind);
+                pstmt.setBytes(3, bits.toByteArray());
+                return pstmt.executeUpdate() > 0;
+            } catch (SQLException e) {
+                System.err.println("Error saving tip marks: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+}
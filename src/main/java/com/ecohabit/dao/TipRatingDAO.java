@@ -0,0 +1,156 @@
+package main.java.com.ecohabit.dao;
+
+import main.java.com.ecohabit.config.DBManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Individual tip ratings in the tip_ratings table, one per user and tip
+ */
+public class TipRatingDAO {
+
+    private final DBManager dbManager;
+
+    public TipRatingDAO() {
+        this.dbManager = DBManager.getInstance();
+    }
+
+    /**
+     * A stored rating and the value it replaced, or null when it is the user's first for the tip
+     */
+    public static class SavedRating {
+        private final double rating;
+        private final Double previous;
+
+        public SavedRating(double rating, Double previous) {
+            this.rating = rating;
+            this.previous = previous;
+        }
+
+        public double getRating() { return rating; }
+        public Double getPrevious() { return previous; }
+    }
+
+    /**
+     * Rating count and sum for one tip, with the catalog rating the average starts from
+     */
+    public static class RatingTotals {
+        private final int tipId;
+        private final long count;
+        private final double sum;
+        private final double baseRating;
+
+        public RatingTotals(int tipId, long count, double sum, double baseRating) {
+            this.tipId = tipId;
+            this.count = count;
+            this.sum = sum;
+            this.baseRating = baseRating;
+        }
+
+        public int getTipId() { return tipId; }
+        public long getCount() { return count; }
+        public double getSum() { return sum; }
+        public double getBaseRating() { return baseRating; }
+    }
+
+    /**
+     * Insert or replace a user's rating of a tip. Returns null when it could not be saved.
+     */
+    public SavedRating upsert(int userId, int tipId, double rating) {
+        synchronized (dbManager) {
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+
+                Double previous = null;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT rating FROM tip_ratings WHERE user_id = ? AND tip_id = ?")) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, tipId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            previous = rs.getDouble(1);
+                        }
+                    }
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO tip_ratings (user_id, tip_id, rating, rated_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP) " +
+                        "ON CONFLICT (user_id, tip_id) DO UPDATE SET rating = excluded.rating, rated_at = excluded.rated_at")) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, tipId);
+                    pstmt.setDouble(3, rating);
+                    pstmt.executeUpdate();
+                }
+
+                conn.commit();
+                return new SavedRating(rating, previous);
+            } catch (SQLException e) {
+                System.err.println("Error saving tip rating: " + e.getMessage());
+                rollback(conn);
+                return null;
+            } finally {
+                restoreAutoCommit(conn);
+            }
+        }
+    }
+
+    /**
+     * Rating totals for every rated tip in a locale
+     */
+    public List<RatingTotals> loadTotals(String locale) {
+        List<RatingTotals> totals = new ArrayList<>();
+        String sql = "SELECT r.tip_id, COUNT(*), SUM(r.rating), COALESCE(t.base_rating, t.rating, 0) " +
+                     "FROM tip_ratings r JOIN eco_tips t ON t.id = r.tip_id WHERE t.locale = ? GROUP BY r.tip_id";
+
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql)) {
+                pstmt.setString(1, locale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        totals.add(new RatingTotals(rs.getInt(1), rs.getLong(2), rs.getDouble(3), rs.getDouble(4)));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error loading rating totals: " + e.getMessage());
+            }
+        }
+        return totals;
+    }
+
+    public void deleteForTip(int tipId) {
+        synchronized (dbManager) {
+            try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(
+                    "DELETE FROM tip_ratings WHERE tip_id = ?")) {
+                pstmt.setInt(1, tipId);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println("Error deleting tip ratings: " + e.getMessage());
+            }
+        }
+    }
+
+    private void rollback(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back tip rating: " + e.getMessage());
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error restoring auto-commit: " + e.getMessage());
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class Badge {
     private boolean isPublic; // Can be shared/displayed publicly
     private String unlockCondition; // Human-readable unlock condition
     private int sortOrder; // Display order priority
+    private String templateKey; // Key of the template this badge was created from
 
     // Constructors
     public Badge() {
@@ -263,6 +264,14 @@ public class Badge {
         this.sortOrder = sortOrder;
     }
 
+    public String getTemplateKey() {
+        return templateKey;
+    }
+
+    public void setTemplateKey(String templateKey) {
+        this.templateKey = templateKey;
+    }
+
     // Utility Methods
     
     /**
@@ -548,6 +557,7 @@ public class Badge {
         copy.setPublic(this.isPublic);
         copy.setUnlockCondition(this.unlockCondition);
         copy.setSortOrder(this.sortOrder);
+        copy.setTemplateKey(this.templateKey);
         return copy;
     }
 
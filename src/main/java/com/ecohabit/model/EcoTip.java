@@ -26,6 +26,8 @@ public class EcoTip {
     private String imageUrl;
     private int userId; // Creator of the tip
     private boolean isApproved;
+    private String tipKey; // Stable catalog key, shared by all translations of a tip
+    private String locale;
 
     // Constructors
     public EcoTip() {
@@ -35,6 +37,7 @@ public class EcoTip {
         this.readCount = 0;
         this.likeCount = 0;
         this.isApproved = true;
+        this.locale = "en";
     }
 
     public EcoTip(String title, String description, String category, String difficulty) {
@@ -190,6 +193,22 @@ public class EcoTip {
         isApproved = approved;
     }
 
+    public String getTipKey() {
+        return tipKey;
+    }
+
+    public void setTipKey(String tipKey) {
+        this.tipKey = tipKey;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public void setLocale(String locale) {
+        this.locale = locale;
+    }
+
     // Utility methods
     public void incrementReadCount() {
         this.readCount++;
@@ -0,0 +1,41 @@
+package main.java.com.ecohabit.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A tip matched by a search, with its relevance and the matched ranges in the title
+ * and description. Each range is {start, end}, end exclusive, in characters.
+ */
+public class TipSearchResult {
+    private final EcoTip tip;
+    private final double score;
+    private final List<int[]> titleHighlights;
+    private final List<int[]> descriptionHighlights;
+
+    public TipSearchResult(EcoTip tip, double score, List<int[]> titleHighlights, List<int[]> descriptionHighlights) {
+        this.tip = tip;
+        this.score = score;
+        this.titleHighlights = titleHighlights != null ? titleHighlights : Collections.emptyList();
+        this.descriptionHighlights = descriptionHighlights != null ? descriptionHighlights : Collections.emptyList();
+    }
+
+    public EcoTip getTip() {
+        return tip;
+    }
+
+    /**
+     * Relevance score, higher is better
+     */
+    public double getScore() {
+        return score;
+    }
+
+    public List<int[]> getTitleHighlights() {
+        return titleHighlights;
+    }
+
+    public List<int[]> getDescriptionHighlights() {
+        return descriptionHighlights;
+    }
+}
@@ -0,0 +1,269 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.User;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Answers questions about the user's own activity history in the chat, e.g. "how much CO2
+ * did I save last month", "transport this week" or "this week vs last week".
+ *
+ * The intent and the extracted entities pick a date range, an optional category and whether to
+ * compare with an earlier range; each range is one grouped query on the covering
+ * (user, date) index, capped at {@link #MAX_RANGE_DAYS}, so no answer scans the whole history.
+ * Results are kept per chat until activities change or {@link #CACHE_TTL_MILLIS} passes.
+ */
+public class ActivityInsights {
+
+    static final int MAX_RANGE_DAYS = 366;
+    private static final int DEFAULT_RANGE_DAYS = 30;
+    private static final int CACHE_SIZE = 32;
+    private static final long CACHE_TTL_MILLIS = 5 * 60 * 1000;
+    private static final double KG_PER_TREE_YEAR = 21.0; // CO2 a grown tree absorbs in a year
+
+    private static final Pattern COMPARISON = Pattern.compile(
+            "\\b(?:vs|versus|compared?|comparison|than)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OWN_DATA = Pattern.compile(
+            "\\b(?:my|i|me|how much|how many|total|saved?)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADVICE = Pattern.compile(
+            "\\b(?:reduce|lower|cut|tips?|ways?|how (?:can|do|should))\\b", Pattern.CASE_INSENSITIVE);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MMM d", Locale.ENGLISH);
+
+    private ActivityService activityService;
+    private final Map<String, CachedTotals> cache;
+
+    /**
+     * Totals of one user and range, with the data version they were read at
+     */
+    private static final class CachedTotals {
+        private final List<ActivityService.CategoryTotal> totals;
+        private final long dataVersion;
+        private final long loadedAt;
+
+        private CachedTotals(List<ActivityService.CategoryTotal> totals, long dataVersion, long loadedAt) {
+            this.totals = totals;
+            this.dataVersion = dataVersion;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * A date range with the words used to describe it
+     */
+    private static final class Period {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final String label;
+
+        private Period(LocalDate from, LocalDate to, String label) {
+            this.from = from;
+            this.to = to;
+            this.label = label;
+        }
+    }
+
+    public ActivityInsights() {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTotals> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Whether replies to an intent may be built from the user's activities
+     */
+    public static boolean usesUserData(String intent) {
+        return "data_analysis".equals(intent) || "carbon_footprint".equals(intent);
+    }
+
+    /**
+     * An answer built from the user's activities, or null when the message is not asking about
+     * them and a template reply fits better. Data analysis questions always get figures; carbon
+     * footprint questions only when they name a period or ask about the user's own numbers.
+     */
+    public String answer(String intent, String message, List<EntityExtractor.Entity> entities, User user, LocalDate today) {
+        if (user == null || message == null) return null;
+        if (!usesUserData(intent)) return null;
+        boolean dataQuestion = "data_analysis".equals(intent);
+
+        Period first = null;
+        Period second = null;
+        String category = null;
+        for (EntityExtractor.Entity entity : entities) {
+            if (entity.getType() == EntityExtractor.Type.DATE) {
+                Period period = toPeriod(entity);
+                if (first == null) {
+                    first = period;
+                } else if (second == null) {
+                    second = period;
+                }
+            } else if (entity.getType() == EntityExtractor.Type.KEYWORD && category == null) {
+                category = entity.getCategory();
+            }
+        }
+        // "How can I reduce my footprint" wants advice; "what did I save" wants figures
+        if (!dataQuestion && first == null
+                && (!OWN_DATA.matcher(message).find() || ADVICE.matcher(message).find())) {
+            return null;
+        }
+
+        if (first == null) {
+            first = new Period(today.minusDays(DEFAULT_RANGE_DAYS - 1), today, "in the last " + DEFAULT_RANGE_DAYS + " days");
+        }
+        if (second == null && COMPARISON.matcher(message).find()) {
+            second = previousPeriod(first);
+        }
+
+        if (second != null) {
+            return describeComparison(user.getId(), first, second, category, today);
+        }
+        return describePeriod(user.getId(), first, category, today);
+    }
+
+    private String describePeriod(int userId, Period period, String category, LocalDate today) {
+        if (period.from.isAfter(today)) {
+            return "📅 That's still ahead! Ask me again afterwards and I'll show you how it went.";
+        }
+        List<ActivityService.CategoryTotal> totals = totals(userId, period, today);
+        int count = 0;
+        double co2 = 0;
+        for (ActivityService.CategoryTotal total : totals) {
+            if (category == null || category.equals(total.getCategory())) {
+                count += total.getActivityCount();
+                co2 += total.getCo2Saved();
+            }
+        }
+
+        String subject = category != null ? category + " activities" : "activities";
+        if (count == 0) {
+            return "📊 You haven't logged any " + subject + " " + period.label + " yet. "
+                    + "Log what you do in the Activity Log and I can show you how it adds up!";
+        }
+
+        StringBuilder answer = new StringBuilder();
+        answer.append(String.format("📊 Here's what you logged %s:\n\n", period.label));
+        answer.append(String.format("• %d %s, %.1f kg CO₂ saved\n", count,
+                count == 1 ? subject.replace("activities", "activity") : subject, co2));
+        if (category == null) {
+            for (ActivityService.CategoryTotal total : totals) {
+                answer.append(String.format("• %s: %.1f kg (%d)\n", total.getCategory(),
+                        total.getCo2Saved(), total.getActivityCount()));
+            }
+        }
+        if (co2 >= KG_PER_TREE_YEAR) {
+            answer.append(String.format("\nThat's about what %d trees absorb in a year! 🌳", Math.round(co2 / KG_PER_TREE_YEAR)));
+        } else if (category == null && totals.size() > 1) {
+            ActivityService.CategoryTotal strongest = totals.get(0);
+            answer.append(String.format("\nYour strongest category is %s.", strongest.getCategory()));
+        }
+        return answer.toString().trim();
+    }
+
+    private String describeComparison(int userId, Period current, Period earlier, String category, LocalDate today) {
+        double currentCo2 = sum(totals(userId, current, today), category);
+        double earlierCo2 = sum(totals(userId, earlier, today), category);
+        String subject = category != null ? category + " " : "";
+
+        StringBuilder answer = new StringBuilder("📊 ");
+        answer.append(String.format("%sCO₂ saved %s: %.1f kg\n", subject, current.label, currentCo2));
+        answer.append(String.format("%sCO₂ saved %s: %.1f kg\n\n", subject, earlier.label, earlierCo2));
+        if (earlierCo2 == 0 && currentCo2 == 0) {
+            answer.append("Nothing logged in either period yet - a great time to start!");
+        } else if (earlierCo2 == 0) {
+            answer.append("Everything you saved is new this time. Great start! 🌱");
+        } else {
+            double change = (currentCo2 - earlierCo2) / earlierCo2 * 100;
+            if (Math.abs(change) < 1) {
+                answer.append("About the same as before - steady progress!");
+            } else if (change > 0) {
+                answer.append(String.format("That's %.0f%% more than %s. Keep it up! 🎉", change, earlier.label));
+            } else {
+                answer.append(String.format("That's %.0f%% less than %s. Small steps add up - you've got this!", -change, earlier.label));
+            }
+        }
+        return answer.toString();
+    }
+
+    private static double sum(List<ActivityService.CategoryTotal> totals, String category) {
+        double co2 = 0;
+        for (ActivityService.CategoryTotal total : totals) {
+            if (category == null || category.equals(total.getCategory())) {
+                co2 += total.getCo2Saved();
+            }
+        }
+        return co2;
+    }
+
+    /**
+     * Category totals of a period, clipped to today and to the range cap, from the cache when
+     * nothing changed since they were read
+     */
+    private synchronized List<ActivityService.CategoryTotal> totals(int userId, Period period, LocalDate today) {
+        LocalDate to = period.to.isAfter(today) ? today : period.to;
+        LocalDate from = period.from.isBefore(to.minusDays(MAX_RANGE_DAYS - 1)) ? to.minusDays(MAX_RANGE_DAYS - 1) : period.from;
+        if (from.isAfter(to)) return List.of();
+
+        String key = userId + "|" + from + "|" + to;
+        long version = ActivityService.getDataVersion();
+        long now = System.currentTimeMillis();
+        CachedTotals cached = cache.get(key);
+        if (cached != null && cached.dataVersion == version && now - cached.loadedAt < CACHE_TTL_MILLIS) {
+            return cached.totals;
+        }
+
+        if (activityService == null) {
+            activityService = new ActivityService();
+        }
+        List<ActivityService.CategoryTotal> totals = List.copyOf(activityService.getCategoryTotals(userId, from, to));
+        cache.put(key, new CachedTotals(totals, version, now));
+        return totals;
+    }
+
+    private static Period toPeriod(EntityExtractor.Entity date) {
+        String name = date.getName();
+        String label;
+        if (name.startsWith("this ") || name.startsWith("last ") || name.startsWith("past ")
+                || name.startsWith("previous ") || name.equals("today") || name.equals("yesterday")) {
+            label = name;
+        } else if (date.getFrom().equals(date.getTo())) {
+            label = "on " + date.getFrom().format(DAY_FORMAT);
+        } else {
+            label = "from " + date.getFrom().format(DAY_FORMAT) + " to " + date.getTo().format(DAY_FORMAT);
+        }
+        return new Period(date.getFrom(), date.getTo(), label);
+    }
+
+    /**
+     * The range of equal length just before a period, e.g. last week for this week
+     */
+    private static Period previousPeriod(Period period) {
+        long days = ChronoUnit.DAYS.between(period.from, period.to) + 1;
+        LocalDate to = period.from.minusDays(1);
+        LocalDate from = to.minusDays(days - 1);
+        // Calendar months differ in length; compare with the whole previous month
+        if (period.label.endsWith(" month") && period.from.getDayOfMonth() == 1) {
+            from = period.from.minusMonths(1);
+        }
+
+        String label;
+        if (period.label.startsWith("this ")) {
+            label = "last " + period.label.substring(5);
+        } else if (period.label.startsWith("last ") && !period.label.contains(" days")) {
+            label = "the " + period.label.substring(5) + " before";
+        } else if (period.label.equals("today")) {
+            label = "yesterday";
+        } else {
+            label = "the " + days + " days before";
+        }
+        return new Period(from, to, label);
+    }
+}
@@ -6,19 +6,48 @@ import main.java.com.ecohabit.dao.DatabaseConnection;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Service class for handling Activity-related database operations
  */
 public class ActivityService {
     
+    private static final AtomicLong dataVersion = new AtomicLong();
+    private static volatile boolean schemaReady; // table and indexes are set up once per run
+    
     private final DatabaseConnection dbConnection;
     
+    /**
+     * Completed activities and CO2 saved in one category over a date range
+     */
+    public static class CategoryTotal {
+        private final String category;
+        private final int activityCount;
+        private final double co2Saved;
+        
+        public CategoryTotal(String category, int activityCount, double co2Saved) {
+            this.category = category;
+            this.activityCount = activityCount;
+            this.co2Saved = co2Saved;
+        }
+        
+        public String getCategory() { return category; }
+        public int getActivityCount() { return activityCount; }
+        public double getCo2Saved() { return co2Saved; }
+    }
+    
     public ActivityService() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeDatabase(); // Initialize database tables
+        if (!schemaReady) {
+            initializeDatabase(); // Initialize database tables
+        }
     }
     
     /**
@@ -45,6 +74,8 @@ public class ActivityService {
              Statement stmt = conn.createStatement()) {
             
             stmt.execute(createTableSQL);
+            createIndexes(stmt);
+            schemaReady = true;
             System.out.println("Activities table created or verified successfully");
             
         } catch (SQLException e) {
@@ -77,6 +108,8 @@ public class ActivityService {
              Statement stmt = conn.createStatement()) {
             
             stmt.execute(createTableSQL);
+            createIndexes(stmt);
+            schemaReady = true;
             System.out.println("Activities table created without foreign key constraint");
             
         } catch (SQLException e) {
@@ -84,6 +117,24 @@ public class ActivityService {
         }
     }
     
+    /**
+     * Per-user, date-ordered lookups back the activity history and badge backfill queries. The
+     * index also covers the columns of {@link #getCategoryTotals}, so date-range totals are read
+     * from the index alone.
+     */
+    private void createIndexes(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_activities_user_date_totals " +
+                     "ON activities (user_id, activity_date, completed, category, co2_saved)");
+    }
+    
+    /**
+     * Counter bumped whenever activities are saved or deleted, so cached totals can tell they
+     * are stale
+     */
+    public static long getDataVersion() {
+        return dataVersion.get();
+    }
+    
     /**
      * Get all activities for a specific user
      */
@@ -112,7 +163,72 @@ public class ActivityService {
     }
     
     /**
-     * Save a new activity for a user
+     * Get the ids of all users that have logged at least one activity
+     */
+    public List<Integer> getActivityUserIds() {
+        List<Integer> userIds = new ArrayList<>();
+        if (!tableExists("activities")) {
+            return userIds;
+        }
+        
+        String sql = "SELECT DISTINCT user_id FROM activities ORDER BY user_id";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                userIds.add(rs.getInt("user_id"));
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error fetching activity user IDs: " + e.getMessage());
+        }
+        
+        return userIds;
+    }
+    
+    /**
+     * Stream the completed activities of several users in one query, grouped by user
+     * and oldest first within each user. Rows are handed over one at a time and not retained.
+     */
+    public boolean forEachCompletedActivity(Collection<Integer> userIds, Consumer<Activity> consumer) {
+        if (userIds.isEmpty()) {
+            return true;
+        }
+        
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < userIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String sql = "SELECT * FROM activities WHERE completed = 1 AND user_id IN (" + placeholders + ") " +
+                     "ORDER BY user_id, activity_date, id";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            for (Integer userId : userIds) {
+                pstmt.setInt(index++, userId);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Activity activity = mapResultSetToActivity(rs);
+                    activity.setUserId(rs.getInt("user_id"));
+                    consumer.accept(activity);
+                }
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            System.err.println("Error streaming activities: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Save a new activity for a user, setting its id to the one it was stored under
      */
     public boolean saveActivity(String userId, Activity activity) {
         // First, ensure the table exists
@@ -124,7 +240,7 @@ public class ActivityService {
                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setInt(1, Integer.parseInt(userId));
             pstmt.setString(2, activity.getDescription());
@@ -137,6 +253,12 @@ public class ActivityService {
             pstmt.setBoolean(9, activity.isCompleted());
             
             int affectedRows = pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    activity.setId(keys.getInt(1));
+                }
+            }
+            dataVersion.incrementAndGet();
             return affectedRows > 0;
             
         } catch (SQLException e) {
@@ -181,6 +303,7 @@ public class ActivityService {
             pstmt.setInt(2, Integer.parseInt(userId));
             
             int affectedRows = pstmt.executeUpdate();
+            dataVersion.incrementAndGet();
             return affectedRows > 0;
             
         } catch (SQLException e) {
@@ -253,4 +376,70 @@ public class ActivityService {
         
         return 0.0;
     }
+    
+    /**
+     * Number of completed activities a user has logged in each category
+     */
+    public Map<String, Integer> getCategoryMix(String userId) {
+        Map<String, Integer> mix = new HashMap<>();
+        if (!tableExists("activities")) {
+            return mix;
+        }
+        
+        String sql = "SELECT category, COUNT(*) AS activity_count FROM activities " +
+                     "WHERE user_id = ? AND completed = 1 GROUP BY category";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, Integer.parseInt(userId));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    mix.put(rs.getString("category"), rs.getInt("activity_count"));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error loading activity mix: " + e.getMessage());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid user ID format: " + userId);
+        }
+        
+        return mix;
+    }
+    
+    /**
+     * Completed activities and CO2 saved per category between two days, inclusive, largest
+     * saving first. One range scan of the covering index over the user's rows in those days.
+     */
+    public List<CategoryTotal> getCategoryTotals(int userId, LocalDate from, LocalDate to) {
+        List<CategoryTotal> totals = new ArrayList<>();
+        if (!tableExists("activities")) {
+            return totals;
+        }
+        
+        String sql = "SELECT category, COUNT(*) AS activity_count, SUM(co2_saved) AS total_co2 " +
+                     "FROM activities " +
+                     "WHERE user_id = ? AND activity_date >= ? AND activity_date < ? AND completed = 1 " +
+                     "GROUP BY category ORDER BY total_co2 DESC";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, from.toString());
+            pstmt.setString(3, to.plusDays(1).toString()); // also takes times stored on the last day
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.add(new CategoryTotal(rs.getString("category"),
+                            rs.getInt("activity_count"), rs.getDouble("total_co2")));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error loading activity totals: " + e.getMessage());
+        }
+        
+        return totals;
+    }
 }
\ No newline at end of file
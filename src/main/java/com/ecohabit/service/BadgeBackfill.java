@@ -0,0 +1,260 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.dao.BadgeDAO;
+import main.java.com.ecohabit.model.Badge;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays stored activity history through compiled badge rules, so templates added after
+ * users started logging activities still reflect everything those users already did.
+ *
+ * Users are split across a fork/join pool in chunks. A chunk streams its users' activities
+ * once, oldest first, computing progress and the day each badge was earned. It then writes
+ * the results and marks the users done in one transaction. A job is keyed by the templates
+ * and criteria it covers, so an interrupted run resumes with the users it had not finished.
+ */
+public class BadgeBackfill {
+
+    private static final int USERS_PER_CHUNK = 256;
+
+    private final BadgeService badgeService;
+    private final BadgeRuleEngine ruleEngine;
+    private final Map<String, Badge> templates;
+    private final BadgeDAO badgeDAO;
+    private final ActivityService activityService;
+    private final AtomicBoolean cancelled;
+
+    public BadgeBackfill(BadgeService badgeService, BadgeRuleEngine ruleEngine, Map<String, Badge> templates,
+                         BadgeDAO badgeDAO, ActivityService activityService) {
+        this.badgeService = badgeService;
+        this.ruleEngine = ruleEngine;
+        this.templates = templates;
+        this.badgeDAO = badgeDAO;
+        this.activityService = activityService;
+        this.cancelled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Backfill every activity-driven template that is new or whose criteria changed
+     * since its last completed backfill. Returns the number of users processed.
+     */
+    public int runPending() {
+        Map<String, String> done = badgeDAO.loadBackfilledTemplates();
+        SortedMap<String, String> pending = new TreeMap<>();
+
+        for (Map.Entry<String, String> entry : fingerprints(templates.keySet()).entrySet()) {
+            if (!entry.getValue().equals(done.get(entry.getKey()))) {
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return pending.isEmpty() ? 0 : run(pending);
+    }
+
+    /**
+     * Recompute the given templates for all users, whether or not they were backfilled before
+     */
+    public int runTemplates(Collection<String> templateKeys) {
+        Map<String, String> hashes = fingerprints(templateKeys);
+        return hashes.isEmpty() ? 0 : run(new TreeMap<>(hashes));
+    }
+
+    /**
+     * Ask a running backfill to stop after its current chunks. Finished users stay recorded.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    private Map<String, String> fingerprints(Collection<String> templateKeys) {
+        Map<String, String> hashes = new HashMap<>();
+        for (String templateKey : templateKeys) {
+            BadgeRuleEngine.CompiledRule rule = ruleEngine.getRule(templateKey);
+            Badge template = templates.get(templateKey);
+            if (rule == null || template == null || !rule.isActivityRule()) continue;
+
+            hashes.put(templateKey, Integer.toHexString(Objects.hash(template.getCriteria(), template.getTargetValue())));
+        }
+        return hashes;
+    }
+
+    private int run(SortedMap<String, String> templateHashes) {
+        String jobKey = Integer.toHexString(templateHashes.toString().hashCode());
+        Set<String> templateKeys = templateHashes.keySet();
+
+        Set<Integer> finished = badgeDAO.loadBackfillProgress(jobKey);
+        List<Integer> userIds = new ArrayList<>();
+        for (Integer userId : activityService.getActivityUserIds()) {
+            if (!finished.contains(userId)) userIds.add(userId);
+        }
+
+        System.out.println("Badge backfill " + jobKey + ": " + templateKeys.size() + " templates, " +
+                           userIds.size() + " users (" + finished.size() + " already done)");
+
+        long start = System.currentTimeMillis();
+        Job job = new Job(jobKey, templateKeys, userIds);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.invoke(new ChunkTask(job, 0, userIds.size()));
+        } finally {
+            pool.shutdown();
+        }
+
+        boolean complete = !cancelled.get() && job.failedUsers.get() == 0;
+        if (complete) {
+            badgeDAO.completeBackfill(jobKey, templateHashes);
+        }
+
+        System.out.println("Badge backfill " + jobKey + " " + (complete ? "completed" : "stopped") + ": " +
+                           job.processedUsers.get() + " users in " + (System.currentTimeMillis() - start) + " ms" +
+                           (job.failedUsers.get() > 0 ? ", " + job.failedUsers.get() + " users will be retried" : ""));
+        return job.processedUsers.get();
+    }
+
+    /**
+     * Shared state of one backfill run
+     */
+    private final class Job {
+        private final String jobKey;
+        private final Set<String> templateKeys;
+        private final List<Integer> userIds;
+        private final Map<String, List<BadgeRuleEngine.CompiledRule>> rulesByCategory;
+        private final AtomicInteger processedUsers;
+        private final AtomicInteger failedUsers;
+
+        private Job(String jobKey, Set<String> templateKeys, List<Integer> userIds) {
+            this.jobKey = jobKey;
+            this.templateKeys = templateKeys;
+            this.userIds = userIds;
+            this.rulesByCategory = new ConcurrentHashMap<>();
+            this.processedUsers = new AtomicInteger();
+            this.failedUsers = new AtomicInteger();
+        }
+
+        /**
+         * The engine's rules for a category, limited to the templates in this job
+         */
+        private List<BadgeRuleEngine.CompiledRule> rulesFor(String category) {
+            return rulesByCategory.computeIfAbsent(BadgeRuleEngine.normalize(category), k -> {
+                List<BadgeRuleEngine.CompiledRule> rules = new ArrayList<>();
+                for (BadgeRuleEngine.CompiledRule rule : ruleEngine.rulesForActivity(k)) {
+                    if (templateKeys.contains(rule.getTemplateKey())) rules.add(rule);
+                }
+                return rules;
+            });
+        }
+    }
+
+    /**
+     * Splits the user range until it fits in one chunk
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final Job job;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(Job job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get()) return;
+
+            if (to - from <= USERS_PER_CHUNK) {
+                processChunk(job, job.userIds.subList(from, to));
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(job, from, mid), new ChunkTask(job, mid, to));
+        }
+    }
+
+    /**
+     * Progress of one template for one user while replaying history
+     */
+    private static final class Accumulator {
+        private final BadgeRuleEngine.RuleState state = new BadgeRuleEngine.RuleState();
+        private int value;
+        private LocalDate earnedOn;
+    }
+
+    private void processChunk(Job job, List<Integer> chunkUsers) {
+        Map<Integer, Map<String, Accumulator>> progress = new HashMap<>();
+
+        boolean read = activityService.forEachCompletedActivity(chunkUsers, activity -> {
+            Map<String, Accumulator> userProgress = null;
+
+            for (BadgeRuleEngine.CompiledRule rule : job.rulesFor(activity.getCategory())) {
+                if (!rule.matches(activity)) continue;
+
+                if (userProgress == null) {
+                    userProgress = progress.computeIfAbsent(activity.getUserId(), k -> new HashMap<>());
+                }
+                Accumulator acc = userProgress.computeIfAbsent(rule.getTemplateKey(), k -> new Accumulator());
+                if (acc.earnedOn != null) continue; // earned badges stop counting, as they do live
+
+                acc.value = rule.accumulate(acc.state, acc.value, activity);
+                if (acc.value >= templates.get(rule.getTemplateKey()).getTargetValue()) {
+                    acc.earnedOn = activity.getDate() != null ? activity.getDate() : LocalDate.now();
+                }
+            }
+        });
+
+        if (!read) {
+            job.failedUsers.addAndGet(chunkUsers.size());
+            return;
+        }
+
+        Map<Integer, List<BadgeDAO.BadgeWrite>> writesByUser = new HashMap<>();
+        List<BadgeDAO.BadgeWrite> writes = new ArrayList<>();
+        for (Map.Entry<Integer, Map<String, Accumulator>> userEntry : progress.entrySet()) {
+            List<BadgeDAO.BadgeWrite> userWrites = new ArrayList<>();
+            for (Map.Entry<String, Accumulator> entry : userEntry.getValue().entrySet()) {
+                Accumulator acc = entry.getValue();
+                if (acc.value <= 0) continue;
+
+                userWrites.add(new BadgeDAO.BadgeWrite(userEntry.getKey(),
+                        toBadge(entry.getKey(), userEntry.getKey(), acc), acc.state.getLastDay(), acc.state.getCarry()));
+            }
+            writesByUser.put(userEntry.getKey(), userWrites);
+            writes.addAll(userWrites);
+        }
+
+        if (!badgeDAO.saveBackfillBatch(job.jobKey, writes, chunkUsers)) {
+            job.failedUsers.addAndGet(chunkUsers.size());
+            return;
+        }
+
+        // Users loaded meanwhile hold state read before this commit; bring them up to date
+        for (Map.Entry<Integer, List<BadgeDAO.BadgeWrite>> entry : writesByUser.entrySet()) {
+            badgeService.mergeBackfill(entry.getKey(), entry.getValue());
+        }
+        job.processedUsers.addAndGet(chunkUsers.size());
+    }
+
+    private Badge toBadge(String templateKey, int userId, Accumulator acc) {
+        Badge badge = templates.get(templateKey).copy();
+        badge.setUserId(userId);
+        badge.setCurrentValue(acc.value);
+        if (acc.earnedOn != null) {
+            badge.setEarned(true);
+            badge.setEarnedDate(acc.earnedOn.atStartOfDay());
+            badge.setProgress(100);
+        } else {
+            badge.setEarned(false);
+            badge.setEarnedDate(null);
+        }
+        return badge;
+    }
+}
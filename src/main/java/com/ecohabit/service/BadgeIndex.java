@@ -0,0 +1,75 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.Badge;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Lookup indexes over all loaded user badges:
+ * id -> badge, (user, templateKey) -> badge and (user, category) -> badges.
+ *
+ * All maps are concurrent and a badge is registered in every index inside one
+ * per-user critical section, so readers never see a badge in one index but not another
+ * once {@link #add(Badge)} has returned.
+ */
+public class BadgeIndex {
+
+    private final Map<Integer, Badge> byId;
+    private final Map<Integer, Map<String, Badge>> byUserKey;
+    private final Map<Integer, Map<String, List<Badge>>> byUserCategory;
+
+    public BadgeIndex() {
+        this.byId = new ConcurrentHashMap<>();
+        this.byUserKey = new ConcurrentHashMap<>();
+        this.byUserCategory = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Register a badge in all indexes. Returns false if the user already has a badge
+     * for the same template, in which case nothing is changed.
+     */
+    public boolean add(Badge badge) {
+        Map<String, Badge> keys = byUserKey.computeIfAbsent(badge.getUserId(), k -> new ConcurrentHashMap<>());
+
+        synchronized (keys) {
+            if (keys.putIfAbsent(badge.getTemplateKey(), badge) != null) {
+                return false;
+            }
+            byId.put(badge.getId(), badge);
+            byUserCategory.computeIfAbsent(badge.getUserId(), k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(badge.getCategory(), k -> new CopyOnWriteArrayList<>())
+                    .add(badge);
+            return true;
+        }
+    }
+
+    public Badge getById(int badgeId) {
+        return byId.get(badgeId);
+    }
+
+    public Badge get(int userId, String templateKey) {
+        Map<String, Badge> keys = byUserKey.get(userId);
+        return keys != null && templateKey != null ? keys.get(templateKey) : null;
+    }
+
+    public boolean contains(int userId, String templateKey) {
+        return get(userId, templateKey) != null;
+    }
+
+    /**
+     * Badges of one category for a user, in insertion order
+     */
+    public List<Badge> getByCategory(int userId, String category) {
+        Map<String, List<Badge>> categories = byUserCategory.get(userId);
+        if (categories == null) return Collections.emptyList();
+
+        List<Badge> badges = categories.get(category);
+        return badges != null ? Collections.unmodifiableList(badges) : Collections.emptyList();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,276 @@
+package main.java.com.ecohabit.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import main.java.com.ecohabit.model.Activity;
+import main.java.com.ecohabit.model.Badge;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles badge template criteria into rules and indexes them by the event type they react to.
+ *
+ * Criteria are JSON objects stored in {@link Badge#getCriteria()}, for example:
+ * <pre>
+ * {"events": ["transportation"], "match": ["bus", "train"], "metric": "count"}
+ * </pre>
+ * <ul>
+ *   <li><b>events</b> - activity categories or custom event types (e.g. "social:referral").
+ *       When omitted the rule reacts to every activity.</li>
+ *   <li><b>match</b> - optional keywords, at least one must appear in the activity description</li>
+ *   <li><b>unit</b> - optional unit the activity quantity must be logged in</li>
+ *   <li><b>metric</b> - count, co2, quantity, streak (consecutive days) or days (distinct days)</li>
+ * </ul>
+ *
+ * The engine itself is immutable after construction; per-user accumulator state lives in
+ * {@link RuleState} objects owned by the caller so the same rules can be replayed over history.
+ */
+public class BadgeRuleEngine {
+
+    public enum Metric { COUNT, CO2, QUANTITY, STREAK, DAYS }
+
+    private final Map<String, CompiledRule> rulesByKey;
+    private final Map<String, List<CompiledRule>> rulesByEvent;
+    private final List<CompiledRule> anyActivityRules;
+    private final Map<String, List<CompiledRule>> activityRuleCache;
+
+    public BadgeRuleEngine(Map<String, Badge> templates) {
+        this.rulesByKey = new LinkedHashMap<>();
+        this.rulesByEvent = new HashMap<>();
+        this.activityRuleCache = new ConcurrentHashMap<>();
+        List<CompiledRule> anyRules = new ArrayList<>();
+
+        for (Map.Entry<String, Badge> entry : templates.entrySet()) {
+            CompiledRule rule = compile(entry.getKey(), entry.getValue().getCriteria());
+            if (rule == null) continue;
+
+            rulesByKey.put(rule.getTemplateKey(), rule);
+            if (rule.events.length == 0) {
+                anyRules.add(rule);
+            } else {
+                for (String event : rule.events) {
+                    rulesByEvent.computeIfAbsent(event, k -> new ArrayList<>()).add(rule);
+                }
+            }
+        }
+
+        this.anyActivityRules = Collections.unmodifiableList(anyRules);
+    }
+
+    /**
+     * Compile a single criteria string. Returns null when the template has no usable criteria.
+     */
+    static CompiledRule compile(String templateKey, String criteria) {
+        if (criteria == null || criteria.trim().isEmpty()) return null;
+
+        try {
+            JsonObject json = JsonParser.parseString(criteria).getAsJsonObject();
+
+            String[] events = readStrings(json, "events");
+            String[] keywords = readStrings(json, "match");
+            String unit = json.has("unit") ? normalize(json.get("unit").getAsString()) : null;
+            Metric metric = json.has("metric")
+                    ? Metric.valueOf(json.get("metric").getAsString().trim().toUpperCase())
+                    : Metric.COUNT;
+
+            return new CompiledRule(templateKey, events, keywords, unit, metric);
+
+        } catch (RuntimeException e) {
+            System.err.println("Invalid criteria for badge " + templateKey + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String[] readStrings(JsonObject json, String field) {
+        if (!json.has(field)) return new String[0];
+
+        JsonElement element = json.get(field);
+        if (element.isJsonPrimitive()) {
+            return new String[]{normalize(element.getAsString())};
+        }
+
+        JsonArray array = element.getAsJsonArray();
+        String[] values = new String[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = normalize(array.get(i).getAsString());
+        }
+        return values;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Rules an activity of the given category can affect: the category's own rules plus
+     * rules that react to any activity. Lists are built once per category and reused.
+     */
+    public List<CompiledRule> rulesForActivity(String category) {
+        String key = normalize(category);
+        return activityRuleCache.computeIfAbsent(key, k -> {
+            List<CompiledRule> specific = rulesByEvent.getOrDefault(k, Collections.emptyList());
+            if (specific.isEmpty()) return anyActivityRules;
+
+            List<CompiledRule> combined = new ArrayList<>(specific.size() + anyActivityRules.size());
+            combined.addAll(specific);
+            combined.addAll(anyActivityRules);
+            return Collections.unmodifiableList(combined);
+        });
+    }
+
+    /**
+     * Rules registered for a custom (non-activity) event type
+     */
+    public List<CompiledRule> rulesForEvent(String eventType) {
+        return Collections.unmodifiableList(
+                rulesByEvent.getOrDefault(normalize(eventType), Collections.emptyList()));
+    }
+
+    public CompiledRule getRule(String templateKey) {
+        return rulesByKey.get(templateKey);
+    }
+
+    public Collection<CompiledRule> getAllRules() {
+        return Collections.unmodifiableCollection(rulesByKey.values());
+    }
+
+    public int getRuleCount() {
+        return rulesByKey.size();
+    }
+
+    /**
+     * A badge criteria compiled into a predicate and an accumulator
+     */
+    public static final class CompiledRule {
+        private final String templateKey;
+        private final String[] events;
+        private final String[] keywords;
+        private final String unit;
+        private final Metric metric;
+
+        private CompiledRule(String templateKey, String[] events, String[] keywords, String unit, Metric metric) {
+            this.templateKey = templateKey;
+            this.events = events;
+            this.keywords = keywords;
+            this.unit = unit;
+            this.metric = metric;
+        }
+
+        public String getTemplateKey() {
+            return templateKey;
+        }
+
+        public Metric getMetric() {
+            return metric;
+        }
+
+        /**
+         * Whether logged activities can drive this rule. Rules fed only by custom
+         * events (types containing ':') cannot be rebuilt from activity history.
+         */
+        public boolean isActivityRule() {
+            if (events.length == 0) return true;
+            for (String event : events) {
+                if (event.indexOf(':') < 0) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Check the description and unit filters. The event type has already been
+         * matched by the index lookup.
+         */
+        public boolean matches(Activity activity) {
+            if (unit != null && !unit.equals(normalize(activity.getUnit()))) {
+                return false;
+            }
+            if (keywords.length == 0) {
+                return true;
+            }
+
+            String description = normalize(activity.getDescription());
+            for (String keyword : keywords) {
+                if (description.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Fold an activity into the rule state and return the badge's new current value
+         */
+        public int accumulate(RuleState state, int currentValue, Activity activity) {
+            LocalDate day = activity.getDate() != null ? activity.getDate() : LocalDate.now();
+
+            switch (metric) {
+                case CO2:
+                    return currentValue + state.addFraction(activity.getCo2Saved());
+
+                case QUANTITY:
+                    return currentValue + state.addFraction(activity.getQuantity());
+
+                case STREAK:
+                    if (state.lastDay == null || day.isAfter(state.lastDay)) {
+                        int value = state.lastDay != null && day.equals(state.lastDay.plusDays(1))
+                                ? currentValue + 1 : 1;
+                        state.lastDay = day;
+                        return value;
+                    }
+                    return currentValue;
+
+                case DAYS:
+                    if (state.lastDay == null || day.isAfter(state.lastDay)) {
+                        state.lastDay = day;
+                        return currentValue + 1;
+                    }
+                    return currentValue;
+
+                case COUNT:
+                default:
+                    return currentValue + 1;
+            }
+        }
+    }
+
+    /**
+     * Accumulator state for one (user, rule) pair.
+     * Streak and day metrics assume activities arrive in chronological order.
+     */
+    public static final class RuleState {
+        private LocalDate lastDay;
+        private double carry;
+
+        public LocalDate getLastDay() {
+            return lastDay;
+        }
+
+        public void setLastDay(LocalDate lastDay) {
+            this.lastDay = lastDay;
+        }
+
+        public double getCarry() {
+            return carry;
+        }
+
+        public void setCarry(double carry) {
+            this.carry = carry;
+        }
+
+        /**
+         * Add a fractional amount and return the whole units it completes,
+         * so 0.4 + 0.7 kg of CO2 still counts as 1 kg.
+         */
+        private int addFraction(double amount) {
+            if (amount <= 0) return 0;
+            carry += amount;
+            int whole = (int) carry;
+            carry -= whole;
+            return whole;
+        }
+    }
+}
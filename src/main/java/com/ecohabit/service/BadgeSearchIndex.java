@@ -0,0 +1,228 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.Badge;
+
+import java.util.*;
+
+/**
+ * Full-text index over badge templates for search-as-you-type.
+ *
+ * Title, tag, category and description text is split into case-folded tokens and stored in a
+ * prefix trie. Every trie node keeps a posting list (sorted template ordinals with the best
+ * field weight) of all tokens below it, so each query term is resolved in O(term length).
+ * Multi-term queries intersect the posting lists, shortest first, and rank by summed weight.
+ *
+ * The index is immutable after construction and safe to query from any thread.
+ */
+public class BadgeSearchIndex {
+
+    // Field weights: a hit in the title matters more than one buried in the description
+    private static final float TITLE_WEIGHT = 4.0f;
+    private static final float TAG_WEIGHT = 2.5f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float EXACT_TOKEN_BOOST = 1.5f;
+
+    private final List<String> templateKeys;
+    private final int[] sortOrders;
+    private final Map<String, BitSet> categoryDocs;
+    private final TrieNode root;
+
+    public BadgeSearchIndex(Collection<Badge> templates) {
+        this.templateKeys = new ArrayList<>(templates.size());
+        this.sortOrders = new int[templates.size()];
+        this.categoryDocs = new HashMap<>();
+        this.root = new TrieNode();
+
+        int doc = 0;
+        for (Badge template : templates) {
+            templateKeys.add(template.getTemplateKey());
+            sortOrders[doc] = template.getSortOrder();
+            categoryDocs.computeIfAbsent(template.getCategory(), k -> new BitSet()).set(doc);
+
+            addField(doc, template.getTitle(), TITLE_WEIGHT);
+            addField(doc, template.getCategory(), CATEGORY_WEIGHT);
+            addField(doc, template.getDescription(), DESCRIPTION_WEIGHT);
+            if (template.getTags() != null) {
+                for (String tag : template.getTags()) {
+                    addField(doc, tag, TAG_WEIGHT);
+                }
+            }
+            doc++;
+        }
+
+        root.freeze();
+    }
+
+    private void addField(int doc, String text, float weight) {
+        for (String token : tokenize(text)) {
+            TrieNode node = root;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.children.computeIfAbsent(token.charAt(i), k -> new TrieNode());
+                node.prefixBuilder.merge(doc, weight, Math::max);
+            }
+            node.exactBuilder.merge(doc, weight * EXACT_TOKEN_BOOST, Math::max);
+        }
+    }
+
+    /**
+     * Split text into lowercase letter/digit tokens
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Template keys matching every query term as a word prefix, best match first.
+     *
+     * @param category category to restrict to, or null / "All" for every category
+     */
+    public List<String> search(String query, String category) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        BitSet allowed = category == null || "All".equals(category) ? null : categoryDocs.get(category);
+        if (allowed == null && category != null && !"All".equals(category)) {
+            return Collections.emptyList();
+        }
+
+        if (terms.isEmpty()) {
+            List<String> keys = new ArrayList<>();
+            for (int doc = 0; doc < templateKeys.size(); doc++) {
+                if (allowed == null || allowed.get(doc)) keys.add(templateKeys.get(doc));
+            }
+            return keys;
+        }
+
+        List<Postings> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            TrieNode node = find(term);
+            if (node == null) return Collections.emptyList();
+            lists.add(node.postings);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.docs.length));
+
+        // Candidates come from the shortest list; every other list is probed with a moving cursor
+        Postings first = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        List<Hit> hits = new ArrayList<>();
+
+        candidates:
+        for (int i = 0; i < first.docs.length; i++) {
+            int doc = first.docs[i];
+            if (allowed != null && !allowed.get(doc)) continue;
+
+            float score = first.weights[i];
+            for (int l = 1; l < lists.size(); l++) {
+                Postings other = lists.get(l);
+                int c = advance(other.docs, cursors[l], doc);
+                cursors[l] = c;
+                if (c >= other.docs.length || other.docs[c] != doc) continue candidates;
+                score += other.weights[c];
+            }
+            hits.add(new Hit(doc, score));
+        }
+
+        hits.sort((a, b) -> {
+            int byScore = Float.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Integer.compare(sortOrders[a.doc], sortOrders[b.doc]);
+        });
+
+        List<String> keys = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            keys.add(templateKeys.get(hit.doc));
+        }
+        return keys;
+    }
+
+    private TrieNode find(String term) {
+        TrieNode node = root;
+        for (int i = 0; i < term.length() && node != null; i++) {
+            node = node.children.get(term.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Galloping search for the first position at or after from whose doc is >= target
+     */
+    private static int advance(int[] docs, int from, int target) {
+        int step = 1;
+        int hi = from;
+        while (hi < docs.length && docs[hi] < target) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        int idx = Arrays.binarySearch(docs, from, Math.min(hi + 1, docs.length), target);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    public int size() {
+        return templateKeys.size();
+    }
+
+    /**
+     * Sorted doc ids with a weight per doc
+     */
+    private static final class Postings {
+        private final int[] docs;
+        private final float[] weights;
+
+        private Postings(int[] docs, float[] weights) {
+            this.docs = docs;
+            this.weights = weights;
+        }
+    }
+
+    private static final class Hit {
+        private final int doc;
+        private final float score;
+
+        private Hit(int doc, float score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private Map<Integer, Float> prefixBuilder = new TreeMap<>();
+        private Map<Integer, Float> exactBuilder = new HashMap<>();
+        private Postings postings;
+
+        /**
+         * Turn the build maps into posting arrays. A doc whose token ends exactly at this node
+         * gets the exact-match weight, otherwise the best prefix weight.
+         */
+        private void freeze() {
+            int[] docs = new int[prefixBuilder.size()];
+            float[] weights = new float[docs.length];
+            int i = 0;
+            for (Map.Entry<Integer, Float> entry : prefixBuilder.entrySet()) {
+                docs[i] = entry.getKey();
+                weights[i] = Math.max(entry.getValue(), exactBuilder.getOrDefault(entry.getKey(), 0f));
+                i++;
+            }
+            postings = new Postings(docs, weights);
+            prefixBuilder = null;
+            exactBuilder = null;
+
+            for (TrieNode child : children.values()) {
+                child.freeze();
+            }
+        }
+    }
+}
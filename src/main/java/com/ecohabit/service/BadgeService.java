@@ -1,29 +1,93 @@
 package main.java.com.ecohabit.service;
 
+import main.java.com.ecohabit.dao.BadgeDAO;
+import main.java.com.ecohabit.model.Activity;
 import main.java.com.ecohabit.model.Badge;
 import main.java.com.ecohabit.model.User;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
- * Service class for managing badges and achievements
+ * Service class for managing badges and achievements.
+ *
+ * Mutations for a user run under that user's lock stripe. After each mutation an immutable
+ * snapshot of copied badges is published, and all public read methods return those copies,
+ * so screens can render on any thread without locking while progress keeps updating.
  */
 public class BadgeService {
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    private static final int LOCK_STRIPES = 64;
+    private static BadgeService instance;
+    
     private List<Badge> allBadges;
-    private Map<Integer, List<Badge>> userBadges; // userId -> List of user's badges
+    private final Object[] userLocks; // lock stripes guarding live badges and rule states
+    private final Map<Integer, List<Badge>> userBadges; // userId -> live badges, guarded by the user's stripe
+    private final Map<Integer, UserSnapshot> userSnapshots; // userId -> published read-only copies
     private Map<String, Badge> badgeTemplates; // badgeId -> template for creating user badges
+    private final BadgeIndex badgeIndex; // id, (user, templateKey) and (user, category) lookups
+    private BadgeSearchIndex searchIndex; // token/prefix index over templates
+    private final BadgeStatistics badgeStatistics; // incrementally maintained aggregates
+    private final Map<Integer, Map<String, BadgeRuleEngine.RuleState>> ruleStates; // userId -> templateKey -> accumulator state
+    private BadgeRuleEngine ruleEngine;
     private Random random;
-
-    public BadgeService() {
+    
+    // Persistence: progress is coalesced per badge and flushed in batches, awards are written through
+    private final BadgeDAO badgeDAO;
+    private final Map<String, BadgeDAO.BadgeWrite> dirtyBadges; // "userId:templateKey" -> latest unsaved progress
+    private final ScheduledExecutorService flushScheduler;
+    private BadgeBackfill backfill; // replays activity history for new templates, created on demand
+    private final LeaderboardService leaderboards;
+
+    private BadgeService() {
         this.allBadges = new ArrayList<>();
-        this.userBadges = new HashMap<>();
-        this.badgeTemplates = new HashMap<>();
+        this.userLocks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new Object();
+        }
+        this.userBadges = new ConcurrentHashMap<>();
+        this.userSnapshots = new ConcurrentHashMap<>();
+        this.badgeTemplates = new LinkedHashMap<>();
+        this.badgeIndex = new BadgeIndex();
+        this.badgeStatistics = new BadgeStatistics();
+        this.ruleStates = new ConcurrentHashMap<>();
         this.random = new Random();
+        this.badgeDAO = new BadgeDAO();
+        this.dirtyBadges = new ConcurrentHashMap<>();
+        this.leaderboards = LeaderboardService.getInstance();
         
         initializeBadgeTemplates();
-        initializeSampleUserBadges();
+        this.ruleEngine = new BadgeRuleEngine(badgeTemplates);
+        this.searchIndex = new BadgeSearchIndex(badgeTemplates.values());
+        
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "badge-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized BadgeService getInstance() {
+        if (instance == null) {
+            instance = new BadgeService();
+        }
+        return instance;
+    }
+
+    /**
+     * Flush and stop the shared instance if one was created
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
     }
 
     /**
@@ -34,124 +98,151 @@ public class BadgeService {
             // Getting Started Badges
             createBadgeTemplate("first_steps", "First Steps", "Getting Started", "Easy", "🌱",
                 "Complete your first eco-friendly activity", 1, 10,
-                "Complete any eco-friendly activity"),
+                "Complete any eco-friendly activity",
+                "{\"metric\": \"count\"}"),
                 
             createBadgeTemplate("first_week", "First Week", "Getting Started", "Easy", "📅",
                 "Complete activities for 7 consecutive days", 7, 15,
-                "Maintain activity streak for 7 days"),
+                "Maintain activity streak for 7 days",
+                "{\"metric\": \"streak\"}"),
                 
             createBadgeTemplate("habit_builder", "Habit Builder", "Getting Started", "Medium", "🏗️",
                 "Complete 30 eco-friendly activities", 30, 25,
-                "Complete 30 activities total"),
+                "Complete 30 activities total",
+                "{\"metric\": \"count\"}"),
 
             // Environmental Impact Badges
             createBadgeTemplate("carbon_saver", "Carbon Saver", "Environmental Impact", "Medium", "🌍",
                 "Save 25kg of CO₂ through your activities", 25, 25,
-                "Achieve 25kg CO₂ savings"),
+                "Achieve 25kg CO₂ savings",
+                "{\"metric\": \"co2\"}"),
                 
             createBadgeTemplate("eco_champion", "Eco Champion", "Environmental Impact", "Hard", "👑",
                 "Save 100kg of CO₂ through your activities", 100, 50,
-                "Achieve 100kg CO₂ savings"),
+                "Achieve 100kg CO₂ savings",
+                "{\"metric\": \"co2\"}"),
                 
             createBadgeTemplate("planet_protector", "Planet Protector", "Environmental Impact", "Very Hard", "🛡️",
                 "Save 500kg of CO₂ through your activities", 500, 100,
-                "Achieve 500kg CO₂ savings"),
+                "Achieve 500kg CO₂ savings",
+                "{\"metric\": \"co2\"}"),
 
             // Streak Badges
             createBadgeTemplate("week_warrior", "Week Warrior", "Streak", "Medium", "🔥",
                 "Maintain a 7-day activity streak", 7, 25,
-                "Complete activities 7 days in a row"),
+                "Complete activities 7 days in a row",
+                "{\"metric\": \"streak\"}"),
                 
             createBadgeTemplate("streak_legend", "Streak Legend", "Streak", "Hard", "🏆",
                 "Maintain a 30-day activity streak", 30, 50,
-                "Complete activities 30 days in a row"),
+                "Complete activities 30 days in a row",
+                "{\"metric\": \"streak\"}"),
                 
             createBadgeTemplate("perfect_month", "Perfect Month", "Streak", "Very Hard", "⭐",
                 "Complete eco activities every day for a month", 30, 100,
-                "Complete activities every day for 30 days"),
+                "Complete activities every day for 30 days",
+                "{\"metric\": \"streak\"}"),
 
             // Transportation Badges
             createBadgeTemplate("transport_master", "Transport Master", "Transportation", "Medium", "🚲",
                 "Use eco-friendly transport 50 times", 50, 25,
-                "Use public transport, bike, or walk 50 times"),
+                "Use public transport, bike, or walk 50 times",
+                "{\"events\": [\"transportation\", \"transport\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("car_free_champion", "Car-Free Champion", "Transportation", "Hard", "🚌",
                 "Go car-free for 30 days", 30, 50,
-                "Use only eco-friendly transport for 30 days"),
+                "Use only eco-friendly transport for 30 days",
+                "{\"events\": [\"transportation\", \"transport\"], \"metric\": \"days\"}"),
                 
             createBadgeTemplate("commute_hero", "Commute Hero", "Transportation", "Medium", "🚇",
                 "Use public transport for daily commute 20 times", 20, 30,
-                "Take public transport to work/school 20 times"),
+                "Take public transport to work/school 20 times",
+                "{\"events\": [\"transportation\", \"transport\"], \"match\": [\"public transport\", \"bus\", \"train\", \"metro\", \"commute\"], \"metric\": \"count\"}"),
 
             // Waste Reduction Badges
             createBadgeTemplate("recycling_hero", "Recycling Hero", "Waste Reduction", "Medium", "♻️",
                 "Complete 25 recycling activities", 25, 25,
-                "Recycle items 25 times"),
+                "Recycle items 25 times",
+                "{\"events\": [\"waste\"], \"match\": [\"recycl\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("zero_waste_warrior", "Zero Waste Warrior", "Waste Reduction", "Very Hard", "🗂️",
                 "Achieve zero waste for 7 consecutive days", 7, 100,
-                "Produce no waste for 7 days straight"),
+                "Produce no waste for 7 days straight",
+                "{\"events\": [\"waste\"], \"match\": [\"zero waste\"], \"metric\": \"streak\"}"),
                 
             createBadgeTemplate("compost_king", "Compost King", "Waste Reduction", "Medium", "🌱",
                 "Start and maintain composting for 30 days", 30, 30,
-                "Compost organic waste for 30 days"),
+                "Compost organic waste for 30 days",
+                "{\"events\": [\"waste\"], \"match\": [\"compost\"], \"metric\": \"days\"}"),
 
             // Energy Conservation Badges
             createBadgeTemplate("energy_saver", "Energy Saver", "Energy Conservation", "Medium", "💡",
                 "Save 100kWh of energy", 100, 25,
-                "Reduce energy consumption by 100kWh"),
+                "Reduce energy consumption by 100kWh",
+                "{\"events\": [\"energy\"], \"unit\": \"kwh\", \"metric\": \"quantity\"}"),
                 
             createBadgeTemplate("solar_pioneer", "Solar Pioneer", "Energy Conservation", "Hard", "☀️",
                 "Install or use solar power", 1, 50,
-                "Set up solar energy system"),
+                "Set up solar energy system",
+                "{\"events\": [\"energy\"], \"match\": [\"solar\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("led_champion", "LED Champion", "Energy Conservation", "Easy", "💡",
                 "Switch 10 bulbs to LED", 10, 15,
-                "Replace 10 traditional bulbs with LED"),
+                "Replace 10 traditional bulbs with LED",
+                "{\"events\": [\"energy\"], \"match\": [\"led\", \"bulb\"], \"metric\": \"quantity\"}"),
 
             // Food & Garden Badges
             createBadgeTemplate("plant_parent", "Plant Parent", "Food & Garden", "Hard", "🌿",
                 "Grow 10 plants or herbs", 10, 50,
-                "Successfully grow 10 plants"),
+                "Successfully grow 10 plants",
+                "{\"events\": [\"food\", \"other\"], \"match\": [\"plant\", \"herb\", \"garden\"], \"metric\": \"quantity\"}"),
                 
             createBadgeTemplate("local_food_lover", "Local Food Lover", "Food & Garden", "Medium", "🍎",
                 "Buy local produce 20 times", 20, 25,
-                "Purchase locally grown food 20 times"),
+                "Purchase locally grown food 20 times",
+                "{\"events\": [\"food\", \"shopping\"], \"match\": [\"local\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("veggie_champion", "Veggie Champion", "Food & Garden", "Medium", "🥗",
                 "Eat plant-based meals 50 times", 50, 30,
-                "Choose vegetarian/vegan meals 50 times"),
+                "Choose vegetarian/vegan meals 50 times",
+                "{\"events\": [\"food\"], \"match\": [\"vegetarian\", \"vegan\", \"plant-based\"], \"metric\": \"count\"}"),
 
             // Water Conservation Badges
             createBadgeTemplate("water_guardian", "Water Guardian", "Water Conservation", "Hard", "💧",
                 "Save 1000 gallons of water", 1000, 50,
-                "Conserve 1000 gallons through water-saving activities"),
+                "Conserve 1000 gallons through water-saving activities",
+                "{\"match\": [\"water\"], \"unit\": \"gallons\", \"metric\": \"quantity\"}"),
                 
             createBadgeTemplate("rain_harvester", "Rain Harvester", "Water Conservation", "Hard", "☔",
                 "Collect and use rainwater", 1, 45,
-                "Set up rainwater collection system"),
+                "Set up rainwater collection system",
+                "{\"match\": [\"rain\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("leak_detective", "Leak Detective", "Water Conservation", "Easy", "🔧",
                 "Fix 5 water leaks", 5, 15,
-                "Repair water leaks in home"),
+                "Repair water leaks in home",
+                "{\"match\": [\"leak\"], \"metric\": \"count\"}"),
 
             // Social Impact Badges
             createBadgeTemplate("community_leader", "Community Leader", "Social Impact", "Medium", "👥",
                 "Invite 5 friends to join EcoHabit", 5, 30,
-                "Refer 5 friends to the app"),
+                "Refer 5 friends to the app",
+                "{\"events\": [\"social:referral\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("eco_educator", "Eco Educator", "Social Impact", "Medium", "📚",
                 "Share 10 eco-tips with others", 10, 25,
-                "Share environmental knowledge 10 times"),
+                "Share environmental knowledge 10 times",
+                "{\"events\": [\"social:share_tip\"], \"metric\": \"count\"}"),
                 
             createBadgeTemplate("change_maker", "Change Maker", "Social Impact", "Hard", "🌟",
                 "Inspire 20 people to take eco-action", 20, 50,
-                "Motivate others to adopt eco-friendly habits")
+                "Motivate others to adopt eco-friendly habits",
+                "{\"events\": [\"social:inspire\"], \"metric\": \"count\"}")
         );
         
         // Store templates
         for (Badge template : templates) {
-            badgeTemplates.put(template.getTitle().toLowerCase().replace(" ", "_"), template);
+            badgeTemplates.put(template.getTemplateKey(), template);
             allBadges.add(template);
         }
     }
@@ -161,9 +252,11 @@ public class BadgeService {
      */
     private Badge createBadgeTemplate(String key, String title, String category, String difficulty, 
                                     String icon, String description, int targetValue, int points,
-                                    String unlockCondition) {
+                                    String unlockCondition, String criteria) {
         Badge badge = new Badge(title, description, category, difficulty);
         badge.setId(generateId());
+        badge.setTemplateKey(key);
+        badge.setCriteria(criteria);
         badge.setIcon(icon);
         badge.setTargetValue(targetValue);
         badge.setPoints(points);
@@ -202,60 +295,111 @@ public class BadgeService {
     }
 
     /**
-     * Initialize sample user badges for demo
+     * Immutable view of a user's badges handed out to readers
      */
-    private void initializeSampleUserBadges() {
-        int userId = 1; // Sample user ID
-        List<Badge> userBadgeList = new ArrayList<>();
-        
-        // Create earned badges
-        Badge firstSteps = createUserBadge("first_steps", userId, true, 100, 1);
-        firstSteps.setEarnedDate(LocalDateTime.now().minusDays(30));
-        userBadgeList.add(firstSteps);
-        
-        Badge carbonSaver = createUserBadge("carbon_saver", userId, true, 100, 25);
-        carbonSaver.setEarnedDate(LocalDateTime.now().minusDays(25));
-        userBadgeList.add(carbonSaver);
-        
-        Badge weekWarrior = createUserBadge("week_warrior", userId, true, 100, 7);
-        weekWarrior.setEarnedDate(LocalDateTime.now().minusDays(20));
-        userBadgeList.add(weekWarrior);
-        
-        Badge recyclingHero = createUserBadge("recycling_hero", userId, true, 100, 25);
-        recyclingHero.setEarnedDate(LocalDateTime.now().minusDays(15));
-        userBadgeList.add(recyclingHero);
-        
-        Badge energySaver = createUserBadge("energy_saver", userId, true, 100, 100);
-        energySaver.setEarnedDate(LocalDateTime.now().minusDays(10));
-        userBadgeList.add(energySaver);
-        
-        // Create in-progress badges
-        Badge transportMaster = createUserBadge("transport_master", userId, false, 70, 35);
-        userBadgeList.add(transportMaster);
-        
-        Badge plantParent = createUserBadge("plant_parent", userId, false, 60, 6);
-        userBadgeList.add(plantParent);
-        
-        Badge streakLegend = createUserBadge("streak_legend", userId, false, 50, 15);
-        userBadgeList.add(streakLegend);
-        
-        // Create locked badges
-        Badge ecoChampion = createUserBadge("eco_champion", userId, false, 0, 0);
-        userBadgeList.add(ecoChampion);
-        
-        Badge communityLeader = createUserBadge("community_leader", userId, false, 0, 0);
-        userBadgeList.add(communityLeader);
-        
-        Badge perfectMonth = createUserBadge("perfect_month", userId, false, 0, 0);
-        userBadgeList.add(perfectMonth);
+    private static final class UserSnapshot {
+        private final List<Badge> badges;
+        private final Map<String, Badge> byKey;
+
+        private UserSnapshot(List<Badge> badges, Map<String, Badge> byKey) {
+            this.badges = badges;
+            this.byKey = byKey;
+        }
+    }
+
+    private Object lockFor(int userId) {
+        return userLocks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    /**
+     * Load a user's badge state from the database on first access.
+     * Every template gets a badge; templates without a stored row start locked.
+     */
+    private List<Badge> ensureUserLoaded(int userId) {
+        List<Badge> loaded = userBadges.get(userId);
+        if (loaded != null) return loaded;
         
-        Badge waterGuardian = createUserBadge("water_guardian", userId, false, 0, 0);
-        userBadgeList.add(waterGuardian);
+        synchronized (lockFor(userId)) {
+            loaded = userBadges.get(userId);
+            if (loaded != null) return loaded;
+            
+            Map<String, BadgeDAO.BadgeRecord> records = new HashMap<>();
+            for (BadgeDAO.BadgeRecord record : badgeDAO.loadUserBadges(userId)) {
+                records.put(record.getTemplateKey(), record);
+            }
+            
+            List<Badge> userBadgeList = new ArrayList<>();
+            Map<String, BadgeRuleEngine.RuleState> states = new HashMap<>();
+            
+            for (String templateKey : badgeTemplates.keySet()) {
+                BadgeDAO.BadgeRecord record = records.get(templateKey);
+                Badge badge = record == null
+                        ? createUserBadge(templateKey, userId, false, 0, 0)
+                        : createUserBadge(templateKey, userId, record.isEarned(), record.isEarned() ? 100 : 0, record.getCurrentValue());
+                
+                if (record != null) {
+                    badge.setEarnedDate(record.getEarnedDate());
+                    
+                    BadgeRuleEngine.RuleState state = new BadgeRuleEngine.RuleState();
+                    state.setLastDay(record.getLastDay());
+                    state.setCarry(record.getCarry());
+                    states.put(templateKey, state);
+                }
+                userBadgeList.add(badge);
+                badgeIndex.add(badge);
+            }
+            
+            ruleStates.put(userId, states);
+            badgeStatistics.onUserLoaded(userId, userBadgeList);
+            publishSnapshot(userId, userBadgeList, null);
+            userBadges.put(userId, userBadgeList);
+            return userBadgeList;
+        }
+    }
+
+    /**
+     * Publish a new read-only snapshot for a user. Copies of badges that did not change
+     * are shared with the previous snapshot. Must be called under the user's lock.
+     *
+     * @param changed badges that changed, or null to copy every badge
+     */
+    private void publishSnapshot(int userId, List<Badge> live, Collection<Badge> changed) {
+        UserSnapshot previous = userSnapshots.get(userId);
+        Set<String> changedKeys = null;
+        if (changed != null) {
+            changedKeys = new HashSet<>();
+            for (Badge badge : changed) {
+                changedKeys.add(badge.getTemplateKey());
+            }
+        }
         
-        Badge zeroWasteWarrior = createUserBadge("zero_waste_warrior", userId, false, 0, 0);
-        userBadgeList.add(zeroWasteWarrior);
+        List<Badge> copies = new ArrayList<>(live.size());
+        Map<String, Badge> byKey = new HashMap<>();
+        for (Badge badge : live) {
+            Badge copy = null;
+            if (previous != null && changedKeys != null && !changedKeys.contains(badge.getTemplateKey())) {
+                copy = previous.byKey.get(badge.getTemplateKey());
+            }
+            if (copy == null) {
+                copy = badge.copy();
+            }
+            copies.add(copy);
+            byKey.put(badge.getTemplateKey(), copy);
+        }
         
-        userBadges.put(userId, userBadgeList);
+        userSnapshots.put(userId, new UserSnapshot(Collections.unmodifiableList(copies), Collections.unmodifiableMap(byKey)));
+    }
+
+    /**
+     * Current read-only snapshot for a user, loading the user if needed
+     */
+    private UserSnapshot snapshotFor(int userId) {
+        UserSnapshot snapshot = userSnapshots.get(userId);
+        if (snapshot == null) {
+            ensureUserLoaded(userId);
+            snapshot = userSnapshots.get(userId);
+        }
+        return snapshot;
     }
 
     /**
@@ -271,6 +415,10 @@ public class BadgeService {
         userBadge.setEarned(earned);
         userBadge.setProgress(progress);
         userBadge.setCurrentValue(currentValue);
+        if (earned) {
+            // Restore the stored value without the model recomputing progress below 100%
+            userBadge.setProgress(100);
+        }
         
         return userBadge;
     }
@@ -283,10 +431,10 @@ public class BadgeService {
     }
 
     /**
-     * Get all badges for a user
+     * Get all badges for a user as a read-only snapshot
      */
     public List<Badge> getUserBadges(int userId) {
-        return userBadges.getOrDefault(userId, new ArrayList<>());
+        return snapshotFor(userId).badges;
     }
 
     /**
@@ -323,61 +471,156 @@ public class BadgeService {
      * Get badges by category for a user
      */
     public List<Badge> getBadgesByCategory(int userId, String category) {
-        return getUserBadges(userId).stream()
-                .filter(badge -> category.equals("All") || category.equals(badge.getCategory()))
-                .collect(Collectors.toList());
+        UserSnapshot snapshot = snapshotFor(userId);
+        if ("All".equals(category)) {
+            return new ArrayList<>(snapshot.badges);
+        }
+        
+        List<Badge> result = new ArrayList<>();
+        for (Badge badge : badgeIndex.getByCategory(userId, category)) {
+            result.add(snapshot.byKey.get(badge.getTemplateKey()));
+        }
+        return result;
     }
 
     /**
      * Get badge by ID
      */
     public Badge getBadgeById(int badgeId) {
-        return userBadges.values().stream()
-                .flatMap(List::stream)
-                .filter(badge -> badge.getId() == badgeId)
-                .findFirst()
-                .orElse(null);
+        Badge live = badgeIndex.getById(badgeId);
+        return live != null ? snapshotFor(live.getUserId()).byKey.get(live.getTemplateKey()) : null;
     }
 
     /**
      * Update badge progress
      */
     public boolean updateBadgeProgress(int userId, String badgeKey, int newValue) {
-        List<Badge> badges = userBadges.get(userId);
-        if (badges == null) return false;
+        Badge badge = findUserBadge(userId, badgeKey);
+        if (badge == null) return false;
         
-        Badge badge = badges.stream()
-                .filter(b -> badgeKey.equals(b.getTitle().toLowerCase().replace(" ", "_")))
-                .findFirst()
-                .orElse(null);
-        
-        if (badge != null && !badge.isEarned()) {
+        synchronized (lockFor(userId)) {
+            if (badge.isEarned()) return false;
+            
+            boolean wasStarted = badge.getProgress() > 0;
             badge.setCurrentValue(newValue);
+            onProgressChanged(userId, badge, wasStarted);
+            publishSnapshot(userId, userBadges.get(userId), Collections.singletonList(badge));
             
             // Check if badge should be earned
-            if (badge.getProgress() >= 100) {
-                awardBadge(userId, badge);
-                return true;
-            }
+            return badge.isEarned();
         }
-        
-        return false;
     }
 
     /**
      * Award badge to user
      */
     public void awardBadge(int userId, Badge badge) {
-        if (badge == null || badge.isEarned()) return;
+        if (badge == null) return;
+        
+        // Callers may hold a snapshot copy; always award the live badge
+        Badge live = findUserBadge(userId, badge.getTemplateKey());
+        if (live == null) return;
         
-        badge.setEarned(true);
-        badge.setEarnedDate(LocalDateTime.now());
-        badge.setProgress(100);
+        synchronized (lockFor(userId)) {
+            if (live.isEarned()) return;
+            
+            boolean wasStarted = live.getProgress() > 0;
+            live.setEarned(true);
+            live.setEarnedDate(LocalDateTime.now());
+            live.setProgress(100);
+            
+            onBadgeAwarded(userId, live, wasStarted);
+            publishSnapshot(userId, userBadges.get(userId), Collections.singletonList(live));
+        }
+    }
+
+    /**
+     * Persist and count a progress change, awarding the badge if it reached 100%
+     */
+    private void onProgressChanged(int userId, Badge badge, boolean wasStarted) {
+        if (badge.isEarned()) {
+            onBadgeAwarded(userId, badge, wasStarted);
+            return;
+        }
+        if (!wasStarted && badge.getProgress() > 0) {
+            badgeStatistics.onBadgeStarted(badge);
+        }
+        markDirty(userId, badge);
+    }
+
+    /**
+     * Called once a badge has become earned
+     */
+    private void onBadgeAwarded(int userId, Badge badge, boolean wasStarted) {
+        // Awards are written through; any coalesced progress for the badge is superseded
+        dirtyBadges.remove(dirtyKey(userId, badge));
+        badgeDAO.save(toWrite(userId, badge));
+        badgeStatistics.onBadgeAwarded(badge, wasStarted);
+        leaderboards.onBadgeAwarded(userId, badge.getTemplateKey(), badge.getPoints(), badge.getEarnedDate());
         
         // In a real app, you might trigger notifications, celebrations, etc.
         System.out.println("Badge awarded to user " + userId + ": " + badge.getTitle());
     }
 
+    /**
+     * Merge backfilled progress into a user that is already loaded. History only moves a badge
+     * forward: values behind the live state are ignored and earned badges are left alone.
+     */
+    void mergeBackfill(int userId, List<BadgeDAO.BadgeWrite> writes) {
+        if (writes.isEmpty() || !userBadges.containsKey(userId)) return;
+        
+        synchronized (lockFor(userId)) {
+            List<Badge> live = userBadges.get(userId);
+            Map<String, BadgeRuleEngine.RuleState> states = ruleStates.get(userId);
+            List<Badge> changed = new ArrayList<>();
+            
+            for (BadgeDAO.BadgeWrite write : writes) {
+                Badge backfilled = write.getBadge();
+                Badge badge = badgeIndex.get(userId, backfilled.getTemplateKey());
+                if (badge == null || badge.isEarned()) continue;
+                if (!backfilled.isEarned() && backfilled.getCurrentValue() <= badge.getCurrentValue()) continue;
+                
+                BadgeRuleEngine.RuleState state = new BadgeRuleEngine.RuleState();
+                state.setLastDay(write.getLastDay());
+                state.setCarry(write.getCarry());
+                states.put(badge.getTemplateKey(), state);
+                
+                boolean wasStarted = badge.getProgress() > 0;
+                badge.setCurrentValue(backfilled.getCurrentValue());
+                if (backfilled.isEarned()) {
+                    badge.setEarned(true);
+                    badge.setEarnedDate(backfilled.getEarnedDate());
+                    badge.setProgress(100);
+                }
+                changed.add(badge);
+                onProgressChanged(userId, badge, wasStarted);
+            }
+            
+            if (!changed.isEmpty()) {
+                publishSnapshot(userId, live, changed);
+            }
+        }
+    }
+
+    /**
+     * Replay stored activity history for templates that are new or whose criteria changed,
+     * on a background thread. Safe to call on every start; finished templates are skipped.
+     */
+    public synchronized void startPendingBackfill() {
+        if (backfill != null) return;
+        
+        backfill = new BadgeBackfill(this, ruleEngine, Collections.unmodifiableMap(badgeTemplates),
+                                     badgeDAO, new ActivityService());
+        Thread thread = new Thread(() -> {
+            // Awards written by the backfill bypass the live award path
+            if (backfill.runPending() > 0) {
+                leaderboards.rebuildBadgePointsAsync(getTemplatePoints());
+            }
+        }, "badge-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * Create new badge for user from template
      */
@@ -385,107 +628,48 @@ public class BadgeService {
         Badge template = badgeTemplates.get(templateKey);
         if (template == null) return null;
         
-        // Check if user already has this badge
-        List<Badge> existing = userBadges.getOrDefault(userId, new ArrayList<>());
-        boolean hasBadge = existing.stream()
-                .anyMatch(b -> b.getTitle().equals(template.getTitle()));
-        
-        if (hasBadge) return null;
+        List<Badge> existing = ensureUserLoaded(userId);
         
-        Badge userBadge = createUserBadge(templateKey, userId, false, 0, 0);
-        
-        userBadges.computeIfAbsent(userId, k -> new ArrayList<>()).add(userBadge);
-        
-        return userBadge;
+        synchronized (lockFor(userId)) {
+            // The index rejects a second badge for the same template
+            Badge userBadge = createUserBadge(templateKey, userId, false, 0, 0);
+            if (!badgeIndex.add(userBadge)) return null;
+            
+            existing.add(userBadge);
+            badgeStatistics.onBadgeAdded(userBadge);
+            publishSnapshot(userId, existing, Collections.singletonList(userBadge));
+            
+            return userBadge;
+        }
     }
 
     /**
      * Get badge statistics for user
      */
     public Map<String, Object> getUserBadgeStatistics(int userId) {
-        List<Badge> badges = getUserBadges(userId);
-        
-        Map<String, Object> stats = new HashMap<>();
-        
-        long earnedCount = badges.stream().filter(Badge::isEarned).count();
-        long inProgressCount = badges.stream().filter(Badge::isInProgress).count();
-        long lockedCount = badges.stream().filter(Badge::isLocked).count();
-        
-        int totalPoints = badges.stream()
-                .filter(Badge::isEarned)
-                .mapToInt(Badge::getPoints)
-                .sum();
-        
-        double completionRate = badges.isEmpty() ? 0 : (earnedCount * 100.0) / badges.size();
-        
-        // Category breakdown
-        Map<String, Long> categoryBreakdown = badges.stream()
-                .filter(Badge::isEarned)
-                .collect(Collectors.groupingBy(Badge::getCategory, Collectors.counting()));
-        
-        // Rarity breakdown
-        Map<String, Long> rarityBreakdown = badges.stream()
-                .filter(Badge::isEarned)
-                .collect(Collectors.groupingBy(Badge::getRarity, Collectors.counting()));
-        
-        // Recent achievements (last 30 days)
-        long recentAchievements = badges.stream()
-                .filter(Badge::isEarned)
-                .filter(b -> b.getEarnedDate() != null && 
-                            b.getEarnedDate().isAfter(LocalDateTime.now().minusDays(30)))
-                .count();
-        
-        stats.put("totalBadges", badges.size());
-        stats.put("earnedBadges", earnedCount);
-        stats.put("inProgressBadges", inProgressCount);
-        stats.put("lockedBadges", lockedCount);
-        stats.put("totalPoints", totalPoints);
-        stats.put("completionRate", Math.round(completionRate * 100.0) / 100.0);
-        stats.put("categoryBreakdown", categoryBreakdown);
-        stats.put("rarityBreakdown", rarityBreakdown);
-        stats.put("recentAchievements", recentAchievements);
-        
-        return stats;
+        ensureUserLoaded(userId);
+        return badgeStatistics.getUserSnapshot(userId);
     }
 
     /**
-     * Get global badge statistics
+     * Get global badge statistics across all loaded users
      */
     public Map<String, Object> getGlobalBadgeStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        int totalUsers = userBadges.size();
-        
-        // Total badges across all users
-        long totalUserBadges = userBadges.values().stream()
-                .mapToLong(List::size)
-                .sum();
-        
-        // Total earned badges
-        long totalEarnedBadges = userBadges.values().stream()
-                .flatMap(List::stream)
-                .filter(Badge::isEarned)
-                .count();
-        
-        // Most popular badges
-        Map<String, Long> badgePopularity = userBadges.values().stream()
-                .flatMap(List::stream)
-                .filter(Badge::isEarned)
-                .collect(Collectors.groupingBy(Badge::getTitle, Collectors.counting()));
-        
-        List<Map.Entry<String, Long>> popularBadges = badgePopularity.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
-                .collect(Collectors.toList());
-        
-        stats.put("totalUsers", totalUsers);
-        stats.put("totalBadgeTemplates", badgeTemplates.size());
-        stats.put("totalUserBadges", totalUserBadges);
-        stats.put("totalEarnedBadges", totalEarnedBadges);
-        stats.put("averageBadgesPerUser", totalUsers > 0 ? totalUserBadges / totalUsers : 0);
-        stats.put("popularBadges", popularBadges);
-        
-        return stats;
+        Map<String, Object> snapshot = badgeStatistics.getGlobalSnapshot(badgeTemplates.size());
+        snapshot.put("pointsLeaderboard",
+                leaderboards.getTop(LeaderboardService.Metric.BADGE_POINTS, LeaderboardService.Window.ALL_TIME, 5));
+        return snapshot;
+    }
+
+    /**
+     * Points awarded per badge template key
+     */
+    public Map<String, Integer> getTemplatePoints() {
+        Map<String, Integer> points = new HashMap<>();
+        for (Map.Entry<String, Badge> entry : badgeTemplates.entrySet()) {
+            points.put(entry.getKey(), entry.getValue().getPoints());
+        }
+        return points;
     }
 
     /**
@@ -518,17 +702,38 @@ public class BadgeService {
         if (query == null || query.trim().isEmpty()) {
             return getUserBadges(userId);
         }
-        
-        String searchQuery = query.toLowerCase().trim();
-        return getUserBadges(userId).stream()
-                .filter(badge -> 
-                    badge.getTitle().toLowerCase().contains(searchQuery) ||
-                    badge.getDescription().toLowerCase().contains(searchQuery) ||
-                    badge.getCategory().toLowerCase().contains(searchQuery) ||
-                    Arrays.stream(badge.getTags() != null ? badge.getTags() : new String[0])
-                          .anyMatch(tag -> tag.toLowerCase().contains(searchQuery))
-                )
-                .collect(Collectors.toList());
+        return searchBadges(userId, query, "All", "All");
+    }
+
+    /**
+     * Search a user's badges by word prefix, restricted to a category and a status
+     * ("All", "Earned", "In Progress" or "Locked"). Results are ordered by relevance.
+     */
+    public List<Badge> searchBadges(int userId, String query, String category, String status) {
+        UserSnapshot snapshot = snapshotFor(userId);
+        List<Badge> results = new ArrayList<>();
+        
+        for (String templateKey : searchIndex.search(query, category)) {
+            Badge badge = snapshot.byKey.get(templateKey);
+            if (badge != null && matchesStatus(badge, status)) {
+                results.add(badge);
+            }
+        }
+        return results;
+    }
+
+    private static boolean matchesStatus(Badge badge, String status) {
+        if (status == null) return true;
+        switch (status) {
+            case "Earned":
+                return badge.isEarned();
+            case "In Progress":
+                return !badge.isEarned() && badge.getProgress() > 0;
+            case "Locked":
+                return !badge.isEarned() && badge.getProgress() == 0;
+            default:
+                return true;
+        }
     }
 
     /**
@@ -592,75 +797,177 @@ public class BadgeService {
     }
 
     /**
-     * Simulate badge progress update based on activity
+     * Update badge progress based on activity type and CO2 savings
      */
     public List<Badge> updateProgressFromActivity(int userId, String activityType, double co2Savings) {
+        Activity activity = new Activity(activityType, java.time.LocalDate.now(), co2Savings, activityType, activityType);
+        return updateProgressFromActivity(userId, activity);
+    }
+
+    /**
+     * Update badge progress from a logged activity.
+     * Only the rules indexed under the activity's category (plus rules reacting to any activity) are evaluated.
+     */
+    public List<Badge> updateProgressFromActivity(int userId, Activity activity) {
+        return applyRules(userId, ruleEngine.rulesForActivity(activity.getCategory()), activity);
+    }
+
+    /**
+     * Update badge progress from a non-activity event such as "social:referral"
+     */
+    public List<Badge> updateProgressFromEvent(int userId, String eventType, double quantity) {
+        Activity event = new Activity(eventType, java.time.LocalDate.now(), 0, eventType, eventType);
+        event.setQuantity(quantity);
+        return applyRules(userId, ruleEngine.rulesForEvent(eventType), event);
+    }
+
+    /**
+     * Run the given compiled rules against an activity for one user
+     */
+    private List<Badge> applyRules(int userId, List<BadgeRuleEngine.CompiledRule> rules, Activity activity) {
         List<Badge> updatedBadges = new ArrayList<>();
-        List<Badge> userBadgeList = userBadges.get(userId);
+        if (rules.isEmpty()) return updatedBadges;
         
-        if (userBadgeList == null) return updatedBadges;
+        List<Badge> live = ensureUserLoaded(userId);
         
-        for (Badge badge : userBadgeList) {
-            if (badge.isEarned()) continue;
+        synchronized (lockFor(userId)) {
+            Map<String, BadgeRuleEngine.RuleState> states = ruleStates.get(userId);
             
-            boolean updated = false;
-            
-            // Update based on activity type and badge category
-            switch (badge.getCategory()) {
-                case "Getting Started":
-                    badge.incrementCurrentValue(1);
-                    updated = true;
-                    break;
-                    
-                case "Environmental Impact":
-                    if (co2Savings > 0) {
-                        badge.incrementCurrentValue((int) co2Savings);
-                        updated = true;
-                    }
-                    break;
-                    
-                case "Transportation":
-                    if ("transport".equals(activityType)) {
-                        badge.incrementCurrentValue(1);
-                        updated = true;
-                    }
-                    break;
-                    
-                case "Energy Conservation":
-                    if ("energy".equals(activityType)) {
-                        badge.incrementCurrentValue(1);
-                        updated = true;
-                    }
-                    break;
-                    
-                // Add more categories as needed
-            }
-            
-            if (updated) {
-                updatedBadges.add(badge);
+            for (BadgeRuleEngine.CompiledRule rule : rules) {
+                if (!rule.matches(activity)) continue;
                 
-                // Check if badge is now earned
-                if (badge.getProgress() >= 100) {
-                    awardBadge(userId, badge);
+                Badge badge = badgeIndex.get(userId, rule.getTemplateKey());
+                if (badge == null) {
+                    createUserBadgeFromTemplate(rule.getTemplateKey(), userId);
+                    badge = badgeIndex.get(userId, rule.getTemplateKey());
+                    if (badge == null) continue;
                 }
+                if (badge.isEarned()) continue;
+                
+                BadgeRuleEngine.RuleState state = states.computeIfAbsent(rule.getTemplateKey(), k -> new BadgeRuleEngine.RuleState());
+                int newValue = rule.accumulate(state, badge.getCurrentValue(), activity);
+                if (newValue == badge.getCurrentValue()) continue;
+                
+                // Badge flips itself to earned once progress reaches 100%
+                boolean wasStarted = badge.getProgress() > 0;
+                badge.setCurrentValue(newValue);
+                updatedBadges.add(badge);
+                onProgressChanged(userId, badge, wasStarted);
             }
+            
+            if (updatedBadges.isEmpty()) return updatedBadges;
+            publishSnapshot(userId, live, updatedBadges);
         }
         
-        return updatedBadges;
+        // Hand out the published copies, never the live badges
+        UserSnapshot snapshot = userSnapshots.get(userId);
+        List<Badge> result = new ArrayList<>(updatedBadges.size());
+        for (Badge badge : updatedBadges) {
+            result.add(snapshot.byKey.get(badge.getTemplateKey()));
+        }
+        return result;
+    }
+
+    /**
+     * Find a user's badge by template key
+     */
+    private Badge findUserBadge(int userId, String templateKey) {
+        ensureUserLoaded(userId);
+        return badgeIndex.get(userId, templateKey);
+    }
+
+    /**
+     * Get the compiled badge rule engine
+     */
+    public BadgeRuleEngine getRuleEngine() {
+        return ruleEngine;
     }
 
     /**
      * Reset user's badge progress (for testing)
      */
     public void resetUserBadges(int userId) {
-        List<Badge> badges = userBadges.get(userId);
-        if (badges != null) {
-            badges.forEach(badge -> {
-                badge.setEarned(false);
-                badge.setEarnedDate(null);
-                badge.setProgress(0);
-                badge.setCurrentValue(0);
-            });
+        synchronized (lockFor(userId)) {
+            List<Badge> badges = userBadges.get(userId);
+            if (badges != null) {
+                badges.forEach(badge -> {
+                    badge.setEarned(false);
+                    badge.setEarnedDate(null);
+                    badge.setProgress(0);
+                    badge.setCurrentValue(0);
+                });
+                ruleStates.put(userId, new HashMap<>());
+            }
+            dirtyBadges.keySet().removeIf(key -> key.startsWith(userId + ":"));
+            badgeDAO.deleteUserBadges(userId);
+            if (badges != null) {
+                badgeStatistics.onUserReset(userId, badges);
+                leaderboards.onBadgesReset(userId);
+                publishSnapshot(userId, badges, null);
+            }
+        }
+    }
+
+    /**
+     * Queue a badge's progress for the next batched write.
+     * Repeated updates to the same badge collapse into a single row write.
+     */
+    private void markDirty(int userId, Badge badge) {
+        dirtyBadges.put(dirtyKey(userId, badge), toWrite(userId, badge));
+    }
+
+    private String dirtyKey(int userId, Badge badge) {
+        return userId + ":" + badge.getTemplateKey();
+    }
+
+    /**
+     * Capture a badge and its rule state for writing. Must be called under the user's lock.
+     */
+    private BadgeDAO.BadgeWrite toWrite(int userId, Badge badge) {
+        Map<String, BadgeRuleEngine.RuleState> states = ruleStates.get(userId);
+        BadgeRuleEngine.RuleState state = states != null ? states.get(badge.getTemplateKey()) : null;
+        return new BadgeDAO.BadgeWrite(userId, badge.copy(),
+                state != null ? state.getLastDay() : null,
+                state != null ? state.getCarry() : 0);
+    }
+
+    /**
+     * Write all coalesced progress updates in a single transaction
+     */
+    public void flush() {
+        if (dirtyBadges.isEmpty()) return;
+        
+        List<BadgeDAO.BadgeWrite> batch = new ArrayList<>();
+        for (String key : dirtyBadges.keySet()) {
+            BadgeDAO.BadgeWrite write = dirtyBadges.remove(key);
+            if (write != null) {
+                batch.add(write);
+            }
+        }
+        
+        if (badgeDAO.saveBatch(batch) < batch.size()) {
+            // Keep the updates for the next attempt unless a newer one was queued meanwhile
+            for (BadgeDAO.BadgeWrite write : batch) {
+                dirtyBadges.putIfAbsent(dirtyKey(write.getUserId(), write.getBadge()), write);
+            }
+        }
+    }
+
+    /**
+     * Stop the flush timer and write any pending progress
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (backfill != null) {
+                backfill.cancel();
+            }
+        }
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        flush();
     }
 }
\ No newline at end of file
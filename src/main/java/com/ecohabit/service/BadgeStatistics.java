@@ -0,0 +1,236 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.Badge;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Badge aggregates maintained incrementally from load, progress and award events.
+ *
+ * Writers only bump {@link LongAdder} counters; the popular-badge ranking is a small
+ * top-K list republished on award. Reads assemble a snapshot from the counters and never
+ * lock, so values read concurrently with an update may lag by that one event.
+ */
+public class BadgeStatistics {
+
+    private static final int TOP_K = 5;
+
+    // Global aggregates
+    private final LongAdder totalUsers = new LongAdder();
+    private final LongAdder totalUserBadges = new LongAdder();
+    private final LongAdder totalEarnedBadges = new LongAdder();
+    private final Map<String, LongAdder> earnedByTitle = new ConcurrentHashMap<>();
+    private volatile List<Map.Entry<String, Long>> popularBadges = Collections.emptyList();
+
+    // Per-user aggregates
+    private final Map<Integer, UserStats> userStats = new ConcurrentHashMap<>();
+
+    /**
+     * Counters for a single user
+     */
+    private static final class UserStats {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder started = new LongAdder(); // in progress or earned
+        private final LongAdder earned = new LongAdder();
+        private final LongAdder points = new LongAdder();
+        private final Map<String, LongAdder> categoryBreakdown = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> rarityBreakdown = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<LocalDateTime, Badge> earnedByDate = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Register a user's badges after they are loaded
+     */
+    public void onUserLoaded(int userId, Collection<Badge> badges) {
+        UserStats stats = new UserStats();
+        if (userStats.putIfAbsent(userId, stats) != null) return;
+
+        totalUsers.increment();
+        for (Badge badge : badges) {
+            onBadgeAdded(badge);
+        }
+    }
+
+    /**
+     * Register a single new badge for a user
+     */
+    public void onBadgeAdded(Badge badge) {
+        UserStats stats = statsFor(badge.getUserId());
+        stats.total.increment();
+        totalUserBadges.increment();
+
+        if (badge.isEarned()) {
+            stats.started.increment();
+            recordEarned(stats, badge);
+        } else if (badge.getProgress() > 0) {
+            stats.started.increment();
+        }
+    }
+
+    /**
+     * A locked badge received its first progress
+     */
+    public void onBadgeStarted(Badge badge) {
+        statsFor(badge.getUserId()).started.increment();
+    }
+
+    /**
+     * A badge was awarded. wasStarted tells whether it already counted as in progress.
+     */
+    public void onBadgeAwarded(Badge badge, boolean wasStarted) {
+        UserStats stats = statsFor(badge.getUserId());
+        if (!wasStarted) {
+            stats.started.increment();
+        }
+        recordEarned(stats, badge);
+    }
+
+    /**
+     * Reset a user's counters after their badges were cleared
+     */
+    public void onUserReset(int userId, Collection<Badge> badges) {
+        UserStats old = userStats.remove(userId);
+        if (old != null) {
+            totalUsers.decrement();
+            totalUserBadges.add(-old.total.sum());
+            totalEarnedBadges.add(-old.earned.sum());
+            for (Badge badge : old.earnedByDate.values()) {
+                LongAdder count = earnedByTitle.get(badge.getTitle());
+                if (count != null) count.decrement();
+            }
+            refreshPopularBadges();
+        }
+        onUserLoaded(userId, badges);
+    }
+
+    private UserStats statsFor(int userId) {
+        return userStats.computeIfAbsent(userId, k -> new UserStats());
+    }
+
+    private void recordEarned(UserStats stats, Badge badge) {
+        stats.earned.increment();
+        stats.points.add(badge.getPoints());
+        stats.categoryBreakdown.computeIfAbsent(badge.getCategory(), k -> new LongAdder()).increment();
+        stats.rarityBreakdown.computeIfAbsent(badge.getRarity(), k -> new LongAdder()).increment();
+
+        LocalDateTime earnedDate = badge.getEarnedDate() != null ? badge.getEarnedDate() : LocalDateTime.now();
+        Badge earnedCopy = badge.copy();
+        // Nudge by a nanosecond on collision so every award keeps its own entry
+        while (stats.earnedByDate.putIfAbsent(earnedDate, earnedCopy) != null) {
+            earnedDate = earnedDate.plusNanos(1);
+        }
+
+        totalEarnedBadges.increment();
+        earnedByTitle.computeIfAbsent(badge.getTitle(), k -> new LongAdder()).increment();
+        updatePopularBadges(badge.getTitle());
+    }
+
+    /**
+     * Update the top-K list after one title's count grew. Only titles already in the
+     * list or now beating its last entry trigger a republish.
+     */
+    private void updatePopularBadges(String title) {
+        List<Map.Entry<String, Long>> current = popularBadges;
+        long count = earnedByTitle.get(title).sum();
+
+        boolean listed = false;
+        for (Map.Entry<String, Long> entry : current) {
+            if (entry.getKey().equals(title)) {
+                listed = true;
+                break;
+            }
+        }
+        if (!listed && current.size() >= TOP_K && count <= current.get(current.size() - 1).getValue()) {
+            return;
+        }
+
+        synchronized (this) {
+            List<Map.Entry<String, Long>> next = new ArrayList<>(popularBadges.size() + 1);
+            for (Map.Entry<String, Long> entry : popularBadges) {
+                if (!entry.getKey().equals(title)) {
+                    next.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), earnedByTitle.get(entry.getKey()).sum()));
+                }
+            }
+            next.add(new AbstractMap.SimpleImmutableEntry<>(title, count));
+            next.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            popularBadges = Collections.unmodifiableList(next.subList(0, Math.min(TOP_K, next.size())));
+        }
+    }
+
+    /**
+     * Rebuild the top-K list from all counters (only needed after counts go down)
+     */
+    private synchronized void refreshPopularBadges() {
+        List<Map.Entry<String, Long>> next = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : earnedByTitle.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                next.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count));
+            }
+        }
+        next.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        popularBadges = Collections.unmodifiableList(new ArrayList<>(next.subList(0, Math.min(TOP_K, next.size()))));
+    }
+
+    /**
+     * Snapshot of one user's badge statistics
+     */
+    public Map<String, Object> getUserSnapshot(int userId) {
+        UserStats stats = userStats.get(userId);
+        if (stats == null) stats = new UserStats();
+
+        long total = stats.total.sum();
+        long started = stats.started.sum();
+        long earned = stats.earned.sum();
+        double completionRate = total == 0 ? 0 : (earned * 100.0) / total;
+
+        LocalDateTime monthAgo = LocalDateTime.now().minusDays(30);
+        long recentAchievements = stats.earnedByDate.tailMap(monthAgo, false).size();
+        Map.Entry<LocalDateTime, Badge> mostRecent = stats.earnedByDate.lastEntry();
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("totalBadges", (int) total);
+        snapshot.put("earnedBadges", earned);
+        snapshot.put("inProgressBadges", Math.max(0, started - earned));
+        snapshot.put("lockedBadges", Math.max(0, total - started));
+        snapshot.put("totalPoints", (int) stats.points.sum());
+        snapshot.put("completionRate", Math.round(completionRate * 100.0) / 100.0);
+        snapshot.put("categoryBreakdown", sums(stats.categoryBreakdown));
+        snapshot.put("rarityBreakdown", sums(stats.rarityBreakdown));
+        snapshot.put("recentAchievements", recentAchievements);
+        snapshot.put("mostRecentBadge", mostRecent != null ? mostRecent.getValue() : null);
+        return snapshot;
+    }
+
+    /**
+     * Snapshot of statistics across all loaded users
+     */
+    public Map<String, Object> getGlobalSnapshot(int templateCount) {
+        long users = totalUsers.sum();
+        long userBadges = totalUserBadges.sum();
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("totalUsers", (int) users);
+        snapshot.put("totalBadgeTemplates", templateCount);
+        snapshot.put("totalUserBadges", userBadges);
+        snapshot.put("totalEarnedBadges", totalEarnedBadges.sum());
+        snapshot.put("averageBadgesPerUser", users > 0 ? userBadges / users : 0);
+        snapshot.put("popularBadges", popularBadges);
+        return snapshot;
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            long value = entry.getValue().sum();
+            if (value > 0) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,446 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.dao.ChatMessageDAO;
+import main.java.com.ecohabit.model.ChatMessage;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent chat history shared by every chat screen.
+ *
+ * Each message gets the next number of its session when it is appended and is written to
+ * chat_messages on a background thread, batched with whatever else arrived meanwhile. The
+ * last {@link #RECENT_MESSAGES} messages of every open session stay in memory, so the chat
+ * screen and the reply context never wait for the database; older pages are read by number
+ * range. Messages are kept until their session is deleted.
+ *
+ * At most {@link #MAX_OPEN_SESSIONS} sessions are kept open. Past that, the least recently used
+ * sessions whose messages are all written are closed; they are loaded again when next used.
+ *
+ * Every session also keeps its {@link ConversationStats}, counted once when it is loaded and
+ * then updated with each append. Messages are written with their {@link ChatSearchIndex} terms.
+ */
+public class ChatHistoryStore {
+
+    public static final int RECENT_MESSAGES = 200;
+    static final int MAX_OPEN_SESSIONS = 64;
+
+    private static ChatHistoryStore instance;
+
+    private final ChatMessageDAO chatMessageDAO;
+    private final Map<String, Session> sessions;
+    private final Queue<ChatMessageDAO.ChatWrite> pending;
+    private final List<ChatMessageDAO.ChatWrite> failed; // retried first on the next flush
+    private final ExecutorService writer;
+    private final AtomicLong useClock = new AtomicLong();
+
+    /**
+     * A session's message numbers, its most recent messages and its running statistics
+     */
+    private static final class Session {
+        private final String id;
+        private final int userId;
+        private long firstSeq;
+        private long lastSeq;
+        private long writtenSeq; // messages up to this number are in the database
+        private LocalDateTime lastMessageAt;
+        private final ArrayDeque<ChatMessage> recent = new ArrayDeque<>();
+        private final ConversationStats stats = new ConversationStats();
+        private volatile long lastUsed;
+        private boolean closed; // evicted; appends go to a freshly loaded copy
+
+        private Session(String id, int userId, long firstSeq, long lastSeq, LocalDateTime lastMessageAt) {
+            this.id = id;
+            this.userId = userId;
+            this.firstSeq = firstSeq;
+            this.lastSeq = lastSeq;
+            this.writtenSeq = lastSeq;
+            this.lastMessageAt = lastMessageAt;
+        }
+
+        private long count() {
+            return lastSeq - firstSeq + 1;
+        }
+
+        private long firstRecentSeq() {
+            return recent.isEmpty() ? lastSeq + 1 : recent.peekFirst().getId();
+        }
+    }
+
+    private ChatHistoryStore() {
+        this.chatMessageDAO = new ChatMessageDAO();
+        this.sessions = new ConcurrentHashMap<>();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.failed = new ArrayList<>();
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "chat-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized ChatHistoryStore getInstance() {
+        if (instance == null) {
+            instance = new ChatHistoryStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Write pending messages and stop the shared instance if one was created
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * Start an empty session for a user. It is stored with its first message.
+     */
+    public String createSession(int userId) {
+        String sessionId = "Chat_" + System.currentTimeMillis();
+        while (sessions.putIfAbsent(sessionId, new Session(sessionId, userId, 1, 0, LocalDateTime.now())) != null) {
+            sessionId = "Chat_" + (Long.parseLong(sessionId.substring(5)) + 1);
+        }
+        return sessionId;
+    }
+
+    /**
+     * Append a message to a session, numbering it and setting its id to that number. A message
+     * already stored in the session is left alone. Sessions not created here belong to no user.
+     *
+     * @return whether the message was appended
+     */
+    public boolean append(String sessionId, ChatMessage message) {
+        while (true) {
+            Session session = find(sessionId);
+            if (session == null) {
+                Session created = new Session(sessionId, 0, 1, 0, null);
+                session = Objects.requireNonNullElse(sessions.putIfAbsent(sessionId, created), created);
+            }
+
+            synchronized (session) {
+                if (session.closed) continue;
+                if (message.getId() > 0 && sessionId.equals(message.getSessionId())) {
+                    return false;
+                }
+                long seq = ++session.lastSeq;
+                message.setId((int) seq);
+                message.setSessionId(sessionId);
+                session.recent.addLast(message);
+                if (session.recent.size() > RECENT_MESSAGES) {
+                    session.recent.removeFirst();
+                }
+                session.lastMessageAt = message.getTimestamp();
+                session.stats.record(message);
+                pending.add(new ChatMessageDAO.ChatWrite(session.userId, sessionId, seq, message, ChatSearchIndex.terms(message)));
+            }
+            writer.execute(this::flush);
+            return true;
+        }
+    }
+
+    /**
+     * The last messages of a session, oldest first
+     */
+    public List<ChatMessage> recent(String sessionId, int limit) {
+        Session session = find(sessionId);
+        if (session == null) return new ArrayList<>();
+        long next;
+        synchronized (session) {
+            next = session.lastSeq + 1;
+        }
+        return page(sessionId, next, limit);
+    }
+
+    /**
+     * Up to limit messages numbered below beforeSeq, oldest first. Served from memory when they
+     * are recent, otherwise one range read.
+     */
+    public List<ChatMessage> page(String sessionId, long beforeSeq, int limit) {
+        Session session = find(sessionId);
+        if (session == null || limit <= 0) return new ArrayList<>();
+
+        long from;
+        long to;
+        synchronized (session) {
+            to = Math.min(beforeSeq, session.lastSeq + 1);
+            from = Math.max(session.firstSeq, to - limit);
+        }
+        return range(session, from, to);
+    }
+
+    /**
+     * Up to limit messages numbered above afterSeq, oldest first
+     */
+    public List<ChatMessage> pageAfter(String sessionId, long afterSeq, int limit) {
+        Session session = find(sessionId);
+        if (session == null || limit <= 0) return new ArrayList<>();
+
+        long from;
+        long to;
+        synchronized (session) {
+            from = Math.max(session.firstSeq, afterSeq + 1);
+            to = Math.min(session.lastSeq + 1, from + limit);
+        }
+        return range(session, from, to);
+    }
+
+    /**
+     * Messages numbered from from up to to, exclusive. Served from memory when they are recent,
+     * otherwise one range read.
+     */
+    private List<ChatMessage> range(Session session, long from, long to) {
+        long firstRecent;
+        List<ChatMessage> recentPart = new ArrayList<>();
+        synchronized (session) {
+            firstRecent = session.firstRecentSeq();
+            for (ChatMessage message : session.recent) {
+                if (message.getId() >= from && message.getId() < to) {
+                    recentPart.add(message);
+                }
+            }
+        }
+        if (from >= firstRecent) return recentPart;
+
+        // Older messages are read back, after anything still queued has been written
+        flush();
+        List<ChatMessage> messages = chatMessageDAO.loadRange(session.id, from, Math.min(to, firstRecent));
+        messages.addAll(recentPart);
+        return messages;
+    }
+
+    /**
+     * Number of messages a session holds, 0 when it is unknown
+     */
+    public long count(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) return 0;
+        synchronized (session) {
+            return Math.max(0, session.count());
+        }
+    }
+
+    /**
+     * A copy of a session's statistics, empty when the session is unknown
+     */
+    public ConversationStats stats(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) return new ConversationStats();
+        synchronized (session) {
+            return session.stats.copy();
+        }
+    }
+
+    /**
+     * Number of the newest message of a session, 0 when it is unknown or empty
+     */
+    public long lastSeq(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) return 0;
+        synchronized (session) {
+            return session.lastSeq;
+        }
+    }
+
+    /**
+     * Number of the oldest message a session still holds
+     */
+    public long firstSeq(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) return 1;
+        synchronized (session) {
+            return session.firstSeq;
+        }
+    }
+
+    /**
+     * A user's sessions with at least one message, most recently active first
+     */
+    public List<String> sessionIds(int userId) {
+        Map<String, LocalDateTime> lastActive = new HashMap<>();
+        for (ChatMessageDAO.SessionInfo info : chatMessageDAO.loadSessions(userId)) {
+            lastActive.put(info.getSessionId(), info.getLastMessageAt());
+        }
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.userId == userId && session.count() > 0) {
+                    lastActive.put(session.id, session.lastMessageAt);
+                }
+            }
+        }
+
+        List<String> ids = new ArrayList<>(lastActive.keySet());
+        ids.sort(Comparator.comparing((String id) -> lastActive.get(id),
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return ids;
+    }
+
+    /**
+     * Sessions with messages in memory, for statistics over recent conversations
+     */
+    public List<String> loadedSessionIds() {
+        List<String> ids = new ArrayList<>();
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.count() > 0) {
+                    ids.add(session.id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    public LocalDateTime lastMessageAt(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) return null;
+        synchronized (session) {
+            return session.lastMessageAt;
+        }
+    }
+
+    /**
+     * Delete a session and its messages. Its queued writes are dropped under the flush lock, so a
+     * batch being written on another thread cannot store them again after the delete.
+     */
+    public boolean delete(String sessionId) {
+        boolean known;
+        synchronized (this) {
+            known = sessions.remove(sessionId) != null;
+            pending.removeIf(write -> write.getSessionId().equals(sessionId));
+            failed.removeIf(write -> write.getSessionId().equals(sessionId));
+        }
+        writer.execute(() -> {
+            synchronized (this) {
+                chatMessageDAO.deleteSession(sessionId);
+            }
+        });
+        return known || chatMessageDAO.findSession(sessionId) != null;
+    }
+
+    /**
+     * Delete sessions with no message since the cutoff, in the background. Like {@link #delete},
+     * this is ordered against flushes.
+     */
+    public void deleteOlderThan(LocalDateTime cutoff) {
+        synchronized (this) {
+            sessions.values().removeIf(session -> {
+                synchronized (session) {
+                    return session.lastMessageAt != null && session.lastMessageAt.isBefore(cutoff);
+                }
+            });
+        }
+        writer.execute(() -> {
+            synchronized (this) {
+                chatMessageDAO.deleteSessionsBefore(cutoff);
+            }
+        });
+    }
+
+    /**
+     * Write queued messages in one transaction, then close idle sessions over the open limit.
+     * Runs on the writer thread; also called before reading older pages and on shutdown.
+     */
+    public synchronized void flush() {
+        List<ChatMessageDAO.ChatWrite> batch = new ArrayList<>(failed);
+        failed.clear();
+        for (ChatMessageDAO.ChatWrite write; (write = pending.poll()) != null; ) {
+            batch.add(write);
+        }
+        batch.removeIf(write -> !sessions.containsKey(write.getSessionId())); // deleted meanwhile
+        if (batch.isEmpty()) return;
+
+        if (chatMessageDAO.appendBatch(batch) < batch.size()) {
+            failed.addAll(batch);
+            return;
+        }
+
+        Map<String, Long> written = new HashMap<>();
+        for (ChatMessageDAO.ChatWrite write : batch) {
+            written.merge(write.getSessionId(), write.getSeq(), Math::max);
+        }
+        for (Map.Entry<String, Long> entry : written.entrySet()) {
+            Session session = sessions.get(entry.getKey());
+            if (session == null) continue;
+            synchronized (session) {
+                session.writtenSeq = Math.max(session.writtenSeq, entry.getValue());
+            }
+        }
+        evictIdleSessions();
+    }
+
+    /**
+     * Close the least recently used sessions until at most MAX_OPEN_SESSIONS are open. Sessions
+     * with unwritten messages, and empty ones that exist only in memory, stay open.
+     */
+    private synchronized void evictIdleSessions() {
+        int excess = sessions.size() - MAX_OPEN_SESSIONS;
+        if (excess <= 0) return;
+
+        List<Session> open = new ArrayList<>(sessions.values());
+        open.sort(Comparator.comparingLong(session -> session.lastUsed));
+        for (Session session : open) {
+            if (excess <= 0) break;
+            synchronized (session) {
+                if (session.closed || session.count() <= 0 || session.writtenSeq < session.lastSeq) continue;
+                session.closed = true;
+            }
+            if (sessions.remove(session.id, session)) {
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * The session in memory, or loaded with its recent messages when it is stored; null when
+     * it does not exist
+     */
+    private Session find(String sessionId) {
+        if (sessionId == null) return null;
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            session.lastUsed = useClock.incrementAndGet();
+            return session;
+        }
+
+        ChatMessageDAO.SessionInfo info = chatMessageDAO.findSession(sessionId);
+        if (info == null) return null;
+
+        Session loaded = new Session(sessionId, info.getUserId(), info.getFirstSeq(), info.getLastSeq(), info.getLastMessageAt());
+        long from = Math.max(info.getFirstSeq(), info.getLastSeq() - RECENT_MESSAGES + 1);
+        loaded.recent.addAll(chatMessageDAO.loadRange(sessionId, from, info.getLastSeq() + 1));
+
+        ChatMessageDAO.MessageCounts counts = chatMessageDAO.countMessages(sessionId);
+        List<ChatMessage> first = from == info.getFirstSeq()
+                ? new ArrayList<>(loaded.recent)
+                : chatMessageDAO.loadRange(sessionId, info.getFirstSeq(), info.getFirstSeq() + 1);
+        loaded.stats.restore(counts.getIntentCounts(), counts.getMessages(), counts.getUserMessages(),
+                first.isEmpty() ? null : first.get(0).getTimestamp(), new ArrayList<>(loaded.recent));
+        loaded.lastUsed = useClock.incrementAndGet();
+        Session existing = sessions.putIfAbsent(sessionId, loaded);
+        if (existing != null) return existing;
+        if (sessions.size() > MAX_OPEN_SESSIONS) {
+            writer.execute(this::evictIdleSessions);
+        }
+        return loaded;
+    }
+
+    private void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,292 @@
+package main.java.com.ecohabit.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Shared worker pool that produces chatbot replies off the UI thread.
+ *
+ * Replies for the same session run one at a time in submission order, so a quick second
+ * question never overtakes the first; different sessions run in parallel on a small bounded
+ * pool. A reply is delivered as chunks while it is produced, and every request can be
+ * cancelled, e.g. when the chat screen is left.
+ *
+ * Two delays make replies feel typed and can both be zero: a pause before the reply starts
+ * ({@value #RESPONSE_DELAY_PROPERTY}, default 0 ms) and a pause between chunks
+ * ({@value #CHUNK_DELAY_PROPERTY}, default {@value #DEFAULT_CHUNK_DELAY_MS} ms).
+ */
+public class ChatResponsePipeline {
+
+    public static final String RESPONSE_DELAY_PROPERTY = "ecohabit.chat.responseDelayMs";
+    public static final String CHUNK_DELAY_PROPERTY = "ecohabit.chat.chunkDelayMs";
+
+    private static final long DEFAULT_CHUNK_DELAY_MS = 15;
+    private static final int MAX_QUEUED = 64;
+    private static final int STATS_WINDOW = 128;
+
+    private static ChatResponsePipeline instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, SessionQueue> queues = new HashMap<>(); // guarded by this
+    private final long[] firstCharacterNanos = new long[STATS_WINDOW]; // ring, guarded by itself
+    private int firstCharacterCount;
+    private volatile long responseDelayMillis;
+    private volatile long chunkDelayMillis;
+
+    /**
+     * Produces a reply, handing each piece to the sink as soon as it is ready
+     */
+    @FunctionalInterface
+    public interface ResponseSource {
+        void stream(Consumer<String> sink) throws Exception;
+
+        /**
+         * A source for a reply computed all at once, streamed word by word
+         */
+        static ResponseSource ofText(Callable<String> text) {
+            return sink -> {
+                String response = text.call();
+                if (response == null) return;
+                int start = 0;
+                for (int i = 0; i < response.length(); i++) {
+                    if (Character.isWhitespace(response.charAt(i))
+                            && (i + 1 == response.length() || !Character.isWhitespace(response.charAt(i + 1)))) {
+                        sink.accept(response.substring(start, i + 1));
+                        start = i + 1;
+                    }
+                }
+                if (start < response.length()) {
+                    sink.accept(response.substring(start));
+                }
+            };
+        }
+    }
+
+    /**
+     * Receives a reply on the worker thread. Nothing is called after the request is cancelled.
+     */
+    public interface Listener {
+        void onChunk(String chunk);
+
+        void onComplete(String response);
+
+        void onError(Throwable error);
+    }
+
+    /**
+     * A submitted request
+     */
+    public final class Request {
+        private final String sessionId;
+        private final ResponseSource source;
+        private final Listener listener;
+        private final long submittedAt = System.nanoTime();
+        private volatile boolean cancelled;
+        private Thread worker; // while running, guarded by the pipeline
+
+        private Request(String sessionId, ResponseSource source, Listener listener) {
+            this.sessionId = sessionId;
+            this.source = source;
+            this.listener = listener;
+        }
+
+        /**
+         * Drop the request if it is waiting, or interrupt it if it is running
+         */
+        public void cancel() {
+            cancelled = true;
+            synchronized (ChatResponsePipeline.this) {
+                SessionQueue queue = queues.get(sessionId);
+                if (queue != null) queue.waiting.remove(this);
+                if (worker != null) worker.interrupt();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Nanosecond timestamp of submission, for measuring time to first character
+         */
+        public long getSubmittedAt() {
+            return submittedAt;
+        }
+    }
+
+    /**
+     * Requests of one session: the one running and those waiting behind it
+     */
+    private static final class SessionQueue {
+        private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+        private Request active;
+    }
+
+    private ChatResponsePipeline() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+                    Thread thread = new Thread(r, "chat-response-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.responseDelayMillis = Math.max(0, Long.getLong(RESPONSE_DELAY_PROPERTY, 0));
+        this.chunkDelayMillis = Math.max(0, Long.getLong(CHUNK_DELAY_PROPERTY, DEFAULT_CHUNK_DELAY_MS));
+    }
+
+    public static synchronized ChatResponsePipeline getInstance() {
+        if (instance == null) {
+            instance = new ChatResponsePipeline();
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the shared instance if one was created, interrupting replies in progress
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.executor.shutdownNow();
+            instance = null;
+        }
+    }
+
+    public void setResponseDelayMillis(long millis) {
+        this.responseDelayMillis = Math.max(0, millis);
+    }
+
+    public void setChunkDelayMillis(long millis) {
+        this.chunkDelayMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Queue a reply behind any other reply of the same session
+     */
+    public Request submit(String sessionId, ResponseSource source, Listener listener) {
+        Request request = new Request(sessionId != null ? sessionId : "", source, listener);
+        synchronized (this) {
+            SessionQueue queue = queues.computeIfAbsent(request.sessionId, _ -> new SessionQueue());
+            if (queue.active != null) {
+                queue.waiting.addLast(request);
+                return request;
+            }
+            queue.active = request;
+        }
+        start(request);
+        return request;
+    }
+
+    private void start(Request request) {
+        synchronized (this) {
+            if (request.cancelled) {
+                finish(request);
+                return;
+            }
+            try {
+                executor.execute(() -> run(request));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Too many sessions busy; reported below, outside the lock
+            }
+        }
+        request.listener.onError(new RejectedExecutionException("The chatbot is busy, please try again"));
+        finish(request);
+    }
+
+    private void run(Request request) {
+        synchronized (this) {
+            request.worker = Thread.currentThread();
+        }
+        try {
+            if (request.cancelled) return;
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+            StringBuilder response = new StringBuilder();
+            request.source.stream(chunk -> {
+                if (request.cancelled || chunk == null || chunk.isEmpty()) return;
+                if (!response.isEmpty() && chunkDelayMillis > 0) {
+                    try {
+                        Thread.sleep(chunkDelayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        request.cancelled = true;
+                        return;
+                    }
+                }
+                response.append(chunk);
+                request.listener.onChunk(chunk);
+            });
+            if (!request.cancelled) {
+                request.listener.onComplete(response.toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (!request.cancelled) {
+                request.listener.onError(e);
+            }
+        } finally {
+            synchronized (this) {
+                request.worker = null;
+                Thread.interrupted(); // a late cancel must not reach the pool's next task
+            }
+            finish(request);
+        }
+    }
+
+    /**
+     * Start the next waiting request of the session, if any
+     */
+    private void finish(Request request) {
+        Request next;
+        synchronized (this) {
+            SessionQueue queue = queues.get(request.sessionId);
+            if (queue == null || queue.active != request) return;
+            next = queue.waiting.pollFirst();
+            queue.active = next;
+            if (next == null) {
+                queues.remove(request.sessionId);
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    /**
+     * Record how long a reply took from submission until its first character was shown
+     */
+    public void recordFirstCharacter(Request request, long shownAt) {
+        synchronized (firstCharacterNanos) {
+            firstCharacterNanos[firstCharacterCount++ % STATS_WINDOW] = shownAt - request.getSubmittedAt();
+        }
+    }
+
+    /**
+     * Time to first character over recent replies, e.g. "median 12 ms, p95 30 ms over 40 replies"
+     */
+    public String getFirstCharacterSummary() {
+        long[] samples;
+        synchronized (firstCharacterNanos) {
+            samples = Arrays.copyOf(firstCharacterNanos, Math.min(firstCharacterCount, STATS_WINDOW));
+        }
+        if (samples.length == 0) return "no replies yet";
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        long p95 = samples[Math.min(samples.length - 1, (int) Math.ceil(samples.length * 0.95) - 1)];
+        return String.format("median %d ms, p95 %d ms over %d replies",
+                TimeUnit.NANOSECONDS.toMillis(median), TimeUnit.NANOSECONDS.toMillis(p95), samples.length);
+    }
+}
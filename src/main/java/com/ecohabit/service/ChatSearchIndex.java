@@ -0,0 +1,250 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.dao.ChatMessageDAO;
+import main.java.com.ecohabit.model.ChatMessage;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Search over all of a user's chat sessions.
+ *
+ * Every message is stored with its terms: its folded words without filler, the words of the
+ * entities found in it (so "2 kwh" finds "I saved 2kWh") and "#" plus its intent. A query is
+ * answered from those terms alone; only phrases are checked against the text, and only for the
+ * candidates read.
+ *
+ * Queries are words, all of which must match: {@code solar*} matches words starting with "solar",
+ * {@code "turn off the lights"} matches the words in that order, and {@code intent:energy_saving},
+ * {@code from:2024-01-01} and {@code to:2024-12-31} filter by intent and by day.
+ */
+public class ChatSearchIndex {
+
+    public static final int MAX_RESULTS = 50;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Set<String> FILLER_WORDS = new HashSet<>(); // folded like message words
+
+    static {
+        for (String word : Arrays.asList(
+                "a", "an", "the", "i", "me", "my", "you", "your", "we", "it", "is", "are", "am", "be",
+                "to", "of", "on", "in", "at", "and", "or", "for", "with", "that", "this", "so")) {
+            FILLER_WORDS.add(word.substring(0, IntentClassifier.foldedEnd(word, 0, word.length())));
+        }
+    }
+
+    private final ChatMessageDAO chatMessageDAO;
+    private final ChatHistoryStore chatHistoryStore;
+
+    /**
+     * A parsed query: the words to match and the filters
+     */
+    public static final class Query {
+        private final List<String> terms = new ArrayList<>();
+        private final List<String> prefixes = new ArrayList<>();
+        private final List<List<String>> phrases = new ArrayList<>();
+        private String intent;
+        private LocalDate from;
+        private LocalDate to;
+
+        /**
+         * Read a query typed by the user. Filters that do not parse are searched as words.
+         */
+        public static Query parse(String text) {
+            Query query = new Query();
+            if (text == null) return query;
+
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                if (i >= length) break;
+
+                if (text.charAt(i) == '"') {
+                    int end = text.indexOf('"', i + 1);
+                    if (end < 0) end = length;
+                    query.addPhrase(text.substring(i + 1, end));
+                    i = end + 1;
+                    continue;
+                }
+
+                int start = i;
+                while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                query.addToken(text.substring(start, i));
+            }
+            return query;
+        }
+
+        private void addToken(String token) {
+            int colon = token.indexOf(':');
+            if (colon > 0) {
+                String name = token.substring(0, colon).toLowerCase();
+                String value = token.substring(colon + 1);
+                if (name.equals("intent") && !value.isEmpty()) {
+                    intent = value.toLowerCase();
+                    return;
+                }
+                if (name.equals("from") || name.equals("to")) {
+                    try {
+                        LocalDate day = LocalDate.parse(value);
+                        if (name.equals("from")) from = day; else to = day;
+                        return;
+                    } catch (DateTimeParseException e) {
+                        // Searched as words
+                    }
+                }
+            }
+
+            if (token.endsWith("*")) {
+                StringBuilder prefix = new StringBuilder();
+                for (int i = 0; i < token.length() - 1; i++) {
+                    char c = token.charAt(i);
+                    if (Character.isLetterOrDigit(c)) prefix.append(IntentClassifier.lower(c));
+                }
+                if (prefix.length() >= MIN_PREFIX_LENGTH) {
+                    prefixes.add(prefix.length() > MAX_TERM_LENGTH ? prefix.substring(0, MAX_TERM_LENGTH) : prefix.toString());
+                    return;
+                }
+            }
+            for (String word : words(token)) {
+                if (!FILLER_WORDS.contains(word) && !terms.contains(word)) terms.add(word);
+            }
+        }
+
+        private void addPhrase(String phrase) {
+            List<String> words = words(phrase);
+            if (words.isEmpty()) return;
+            for (String word : words) {
+                if (!FILLER_WORDS.contains(word) && !terms.contains(word)) terms.add(word);
+            }
+            if (words.size() > 1) phrases.add(words);
+        }
+
+        /**
+         * Whether the query has anything to look up; dates alone do not
+         */
+        public boolean isEmpty() {
+            return terms.isEmpty() && prefixes.isEmpty() && intent == null;
+        }
+    }
+
+    /**
+     * A message that matched, with the session it is in
+     */
+    public static final class Hit {
+        private final ChatMessage message;
+
+        private Hit(ChatMessage message) {
+            this.message = message;
+        }
+
+        public String getSessionId() { return message.getSessionId(); }
+        /** Number of the message in its session, as used for paging */
+        public int getMessageId() { return message.getId(); }
+        public ChatMessage getMessage() { return message; }
+    }
+
+    public ChatSearchIndex(ChatHistoryStore chatHistoryStore) {
+        this.chatMessageDAO = new ChatMessageDAO();
+        this.chatHistoryStore = chatHistoryStore;
+    }
+
+    /**
+     * The terms a message is found by
+     */
+    static Set<String> terms(ChatMessage message) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words(message.getContent())) {
+            if (!FILLER_WORDS.contains(word)) terms.add(word);
+        }
+        if (message.getEntities() != null) {
+            for (String entity : message.getEntities()) {
+                terms.addAll(words(entity));
+            }
+        }
+        if (message.getIntent() != null) {
+            terms.add("#" + message.getIntent());
+        }
+        return terms;
+    }
+
+    /**
+     * The folded, lowercased words of a text in order
+     */
+    static List<String> words(CharSequence text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+
+        StringBuilder word = new StringBuilder();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (start == i) break;
+
+            word.setLength(0);
+            int end = Math.min(IntentClassifier.foldedEnd(text, start, i), start + MAX_TERM_LENGTH);
+            for (int j = start; j < end; j++) {
+                word.append(IntentClassifier.lower(text.charAt(j)));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * A user's messages matching a typed query, newest first
+     */
+    public List<Hit> search(int userId, String query, int limit) {
+        return search(userId, Query.parse(query), limit);
+    }
+
+    /**
+     * A user's messages matching a parsed query, newest first
+     */
+    public List<Hit> search(int userId, Query query, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        if (query.isEmpty()) return hits;
+
+        chatHistoryStore.flush(); // messages still queued are indexed when written
+
+        List<String> terms = new ArrayList<>(query.terms);
+        if (query.intent != null) terms.add("#" + query.intent);
+        LocalDateTime from = query.from != null ? query.from.atStartOfDay() : null;
+        LocalDateTime to = query.to != null ? query.to.plusDays(1).atStartOfDay() : null;
+
+        for (ChatMessage message : chatMessageDAO.searchMessages(userId, terms, query.prefixes, from, to,
+                message -> containsPhrases(message, query.phrases), Math.min(limit, MAX_RESULTS))) {
+            hits.add(new Hit(message));
+        }
+        return hits;
+    }
+
+    private static boolean containsPhrases(ChatMessage message, List<List<String>> phrases) {
+        if (phrases.isEmpty()) return true;
+        List<String> words = words(message.getContent());
+        for (List<String> phrase : phrases) {
+            if (Collections.indexOfSubList(words, phrase) < 0) return false;
+        }
+        return true;
+    }
+}
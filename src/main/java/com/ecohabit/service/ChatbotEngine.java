@@ -4,6 +4,7 @@ package main.java.com.ecohabit.service;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class ChatbotEngine {
     private final List<String> responses;
@@ -24,6 +25,18 @@ public class ChatbotEngine {
         return responses.get(random.nextInt(responses.size()));
     }
     
+    /**
+     * Reply from the configured response backend, without blocking the caller. With the
+     * templates active this is the keyword reply of {@link #processMessage}.
+     */
+    public CompletableFuture<String> processMessageAsync(String userMessage) {
+        ResponseBackends backends = ResponseBackends.getInstance();
+        if (backends.isTemplateActive()) {
+            return CompletableFuture.completedFuture(processMessage(userMessage));
+        }
+        return backends.respond(new ResponseBackend.Prompt(userMessage, null, null, null));
+    }
+    
     public String processMessage(String userMessage) {
         // Simple keyword-based response system
         String message = userMessage.toLowerCase();
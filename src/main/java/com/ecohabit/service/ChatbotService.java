@@ -1,14 +1,18 @@
 package main.java.com.ecohabit.service;
 
+import main.java.com.ecohabit.model.Activity;
 import main.java.com.ecohabit.model.ChatMessage;
 import main.java.com.ecohabit.model.User;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -18,125 +22,57 @@ public class ChatbotService {
     private static final int MAX_CONTEXT_MESSAGES = 10;
     private static final double MIN_CONFIDENCE_THRESHOLD = 0.3;
     
-    private Map<String, List<ChatMessage>> sessionMessages;
-    private Map<Integer, List<String>> userSessions;
+    private static final int EXPORT_PAGE_SIZE = 500;
+    
+    private ChatHistoryStore chatHistoryStore;
+    private ChatSearchIndex chatSearchIndex;
     private Map<String, String> intentPatterns;
-    private Map<String, List<String>> responseTemplates;
+    private IntentClassifier intentClassifier;
+    private IntentModel intentModel;
+    private EntityExtractor entityExtractor;
+    private ActivityInsights activityInsights;
+    private ResponseBackends responseBackends;
+    private ResponseCache responseCache;
     private Random random;
     
     public ChatbotService() {
-        this.sessionMessages = new ConcurrentHashMap<>();
-        this.userSessions = new ConcurrentHashMap<>();
-        this.intentPatterns = new HashMap<>();
-        this.responseTemplates = new HashMap<>();
+        this.chatHistoryStore = ChatHistoryStore.getInstance();
+        this.chatSearchIndex = new ChatSearchIndex(chatHistoryStore);
+        this.intentPatterns = new LinkedHashMap<>();
         this.random = new Random();
         
         initializeIntentPatterns();
-        initializeResponseTemplates();
+        this.intentClassifier = new IntentClassifier(intentPatterns);
+        this.intentModel = IntentModel.loadDefault();
+        this.entityExtractor = new EntityExtractor();
+        this.activityInsights = new ActivityInsights();
+        this.responseBackends = ResponseBackends.getInstance();
+        this.responseCache = ResponseCache.getInstance();
     }
 
     /**
-     * Initialize intent recognition patterns
+     * Initialize intent recognition patterns. Keywords match whole words; ":weight" marks vague
+     * words that should only decide a message when nothing more specific is in it, and earlier
+     * intents win ties.
      */
     private void initializeIntentPatterns() {
         intentPatterns.put("carbon_footprint", "carbon|footprint|emissions|co2|greenhouse|climate");
-        intentPatterns.put("energy_saving", "energy|electricity|power|solar|renewable|efficient");
-        intentPatterns.put("transportation", "transport|car|bike|bus|walk|drive|commute|travel");
-        intentPatterns.put("food_sustainability", "food|eat|meal|diet|vegetarian|organic|local");
+        intentPatterns.put("energy_saving", "energy|electricity|power:0.6|solar|renewable|efficient:0.6");
+        intentPatterns.put("transportation", "transport|transit|car|bike|cycle|bus|walk|drive|commute|travel");
+        intentPatterns.put("food_sustainability", "food|eat|meal|diet|vegetarian|organic:0.8|local:0.4");
         intentPatterns.put("waste_reduction", "waste|recycle|compost|plastic|packaging|garbage");
-        intentPatterns.put("water_conservation", "water|save|conservation|shower|irrigation|leak");
-        intentPatterns.put("goal_setting", "goal|target|achieve|plan|objective|aim");
-        intentPatterns.put("data_analysis", "analyze|data|progress|track|statistics|report");
-        intentPatterns.put("tips_request", "tip|advice|suggest|recommend|help|how");
+        intentPatterns.put("water_conservation", "water|save:0.3|conservation:0.6|conserve:0.6|shower|irrigation|leak");
+        intentPatterns.put("goal_setting", "goal|target|achieve|plan:0.6|objective|aim:0.6");
+        intentPatterns.put("data_analysis", "analyze|analysis|data|progress|track|statistics|report");
+        intentPatterns.put("tips_request", "tip|advice|suggest|suggestion|recommend|recommendation|help:0.5|how:0.3");
         intentPatterns.put("greeting", "hello|hi|hey|good morning|good afternoon|good evening");
         intentPatterns.put("gratitude", "thank|thanks|appreciate|grateful");
         intentPatterns.put("farewell", "bye|goodbye|see you|farewell|exit|quit");
     }
 
     /**
-     * Initialize response templates for different intents
-     */
-    private void initializeResponseTemplates() {
-        // Carbon Footprint responses
-        responseTemplates.put("carbon_footprint", Arrays.asList(
-            "🌱 Great question about carbon footprint! Here are some effective ways to reduce it:\n\n• Use public transport or bike instead of driving\n• Switch to renewable energy sources\n• Eat more plant-based meals\n• Reduce, reuse, and recycle\n• Buy local and seasonal products\n\nWould you like specific tips for any of these areas?",
-            "🌍 Your carbon footprint is the total amount of greenhouse gases you produce. To reduce it:\n\n• Energy: Use LED bulbs, unplug devices\n• Transport: Walk, bike, or use public transport\n• Food: Eat less meat, buy local produce\n• Home: Improve insulation, use efficient appliances\n\nWhat area interests you most?",
-            "♻️ Reducing your carbon footprint is one of the best things you can do for the planet! Start with these high-impact changes:\n\n• Transportation (biggest impact)\n• Energy usage at home\n• Dietary choices\n• Consumption habits\n\nI can help you create a personalized plan!"
-        ));
-
-        // Energy Saving responses
-        responseTemplates.put("energy_saving", Arrays.asList(
-            "💡 Excellent! Here are top energy-saving tips:\n\n• Replace bulbs with LED lights (75% less energy)\n• Unplug electronics when not in use\n• Use a programmable thermostat\n• Seal air leaks around windows/doors\n• Upgrade to energy-efficient appliances\n\nThese changes can reduce your electricity bill by 20-30%!",
-            "⚡ Energy conservation is key to sustainability! Try these:\n\n• Adjust thermostat by 2°F (saves 6% on bills)\n• Use cold water for washing clothes\n• Air-dry clothes instead of using dryer\n• Install solar panels if possible\n• Use power strips to eliminate phantom loads\n\nWhat's your current biggest energy expense?",
-            "🏠 Smart energy use saves money and the planet:\n\n• Home heating/cooling: 42% of energy use\n• Water heating: 18% of energy use\n• Electronics: 6% of energy use\n• Lighting: 5% of energy use\n\nFocus on the biggest users first for maximum impact!"
-        ));
-
-        // Transportation responses
-        responseTemplates.put("transportation", Arrays.asList(
-            "🚲 Transportation is a major source of emissions. Here are eco-friendly options:\n\n• Walk or bike for trips under 2 miles\n• Use public transport (bus, train, subway)\n• Carpool or use rideshare services\n• Work from home when possible\n• Combine errands into one trip\n\nEven small changes make a big difference!",
-            "🚌 Great question about sustainable transport! Consider:\n\n• Electric or hybrid vehicles\n• Public transportation (40x more efficient than cars)\n• Cycling (zero emissions + great exercise)\n• Telecommuting to reduce commute days\n• Planning routes to minimize driving\n\nWhat's your typical commute like?",
-            "🚶 Every mile not driven saves about 1 pound of CO₂! Try:\n\n• Walking: Best for health and environment\n• Cycling: 5-10x more efficient than cars\n• Public transit: Reduces traffic and emissions\n• Electric vehicles: Zero direct emissions\n• Trip planning: Combine multiple errands\n\nWhich option works best for your situation?"
-        ));
-
-        // Food Sustainability responses
-        responseTemplates.put("food_sustainability", Arrays.asList(
-            "🌿 Food choices have huge environmental impact! Try:\n\n• Eat more plant-based meals (start with 1 day/week)\n• Buy local and seasonal produce\n• Reduce food waste through meal planning\n• Choose organic when possible\n• Start a small garden or herb windowsill\n\nEven small dietary changes help significantly!",
-            "🥗 Sustainable eating benefits you and the planet:\n\n• Livestock produces 14.5% of global greenhouse gases\n• Local food reduces transport emissions\n• Organic farming protects soil and water\n• Reducing waste saves money and resources\n\nWould you like help with meal planning or recipes?",
-            "🍎 Your food choices matter! Consider:\n\n• Meatless Monday (or any day)\n• Shopping at farmers markets\n• Growing your own herbs/vegetables\n• Composting food scraps\n• Choosing minimal packaging\n\nWhat aspect of sustainable eating interests you most?"
-        ));
-
-        // Tips Request responses
-        responseTemplates.put("tips_request", Arrays.asList(
-            "💡 I'd love to help! What specific area are you interested in:\n\n• Energy conservation\n• Sustainable transportation\n• Food and diet\n• Waste reduction\n• Water conservation\n• Home improvements\n\nOr would you like personalized recommendations based on your current activities?",
-            "🌟 Here are some quick eco-wins to get started:\n\n• Switch 5 bulbs to LED\n• Take 5-minute showers\n• Use reusable bags\n• Unplug devices when not in use\n• Walk instead of drive for short trips\n\nThese are easy changes with immediate impact! Need more specific advice?",
-            "🚀 Ready to make a difference? Here's how:\n\n• Start small: Pick 1-2 changes to focus on\n• Track progress: Use our activity tracker\n• Set goals: Aim for specific targets\n• Stay consistent: Small daily actions add up\n• Get support: Join our community challenges\n\nWhat area would you like to tackle first?"
-        ));
-
-        // Goal Setting responses
-        responseTemplates.put("goal_setting", Arrays.asList(
-            "🎯 Great decision to set sustainability goals! Here's how:\n\n• Start specific: 'Reduce car trips by 50%' vs 'drive less'\n• Make it measurable: Track your progress\n• Set realistic timelines: 30-90 day goals work well\n• Choose 1-3 goals maximum to start\n• Celebrate achievements along the way\n\nWhat area would you like to focus on first?",
-            "📈 Effective goal setting drives real change! Try the SMART method:\n\n• Specific: Clear, well-defined goals\n• Measurable: Track with numbers\n• Achievable: Realistic for your lifestyle\n• Relevant: Aligned with your values\n• Time-bound: Set deadlines\n\nExample: 'Reduce energy bill by 20% in 3 months'\n\nWhat's your main environmental concern?",
-            "🌟 Let's create your sustainability action plan:\n\n• Assess current habits\n• Identify improvement areas\n• Set 2-3 specific goals\n• Choose tracking methods\n• Plan rewards for milestones\n\nI can help you set goals for energy, transport, food, or waste. What interests you most?"
-        ));
-
-        // Data Analysis responses
-        responseTemplates.put("data_analysis", Arrays.asList(
-            "📊 I'd be happy to analyze your environmental impact! Here's what I can track:\n\n• Carbon footprint by category\n• Energy usage trends\n• Transportation patterns\n• Waste reduction progress\n• Water conservation metrics\n• Goal achievement rates\n\nWhat specific data would you like me to analyze?",
-            "📈 Your sustainability journey deserves tracking! I can provide:\n\n• Weekly/monthly progress reports\n• Comparison with eco-friendly benchmarks\n• Identification of your biggest impact areas\n• Trend analysis over time\n• Achievement celebrations\n\nWould you like a comprehensive report or focus on specific areas?",
-            "🔍 Let me help you understand your environmental data:\n\n• Current performance vs. goals\n• Areas of greatest improvement\n• Cost savings from eco-actions\n• Environmental impact calculations\n• Recommendations for next steps\n\nShare what specific insights you're looking for!"
-        ));
-
-        // Greeting responses
-        responseTemplates.put("greeting", Arrays.asList(
-            "👋 Hello! I'm your personal eco-assistant. I'm here to help you live more sustainably. How can I assist you today?",
-            "🌱 Hi there! Great to see you're interested in sustainable living. I can help with eco-tips, goal setting, data analysis, and more. What would you like to explore?",
-            "🌍 Welcome! I'm excited to help you on your sustainability journey. Whether you need advice, want to set goals, or track progress, I'm here for you. What's on your mind?"
-        ));
-
-        // Gratitude responses
-        responseTemplates.put("gratitude", Arrays.asList(
-            "😊 You're very welcome! I'm always happy to help with your sustainability journey. Is there anything else you'd like to know?",
-            "🌟 My pleasure! Every step toward sustainability makes a difference. Feel free to ask me anything else!",
-            "💚 Glad I could help! Keep up the great work on your eco-friendly lifestyle. What else can I assist you with?"
-        ));
-
-        // Farewell responses
-        responseTemplates.put("farewell", Arrays.asList(
-            "👋 Goodbye! Keep up the great work on your sustainability journey. See you next time!",
-            "🌱 Take care! Remember, every small action makes a difference. Looking forward to our next chat!",
-            "🌍 Farewell! Thanks for choosing to make a positive environmental impact. Have a wonderful day!"
-        ));
-
-        // Default responses
-        responseTemplates.put("default", Arrays.asList(
-            "🤔 That's interesting! While I specialize in environmental topics, I'd love to help you with:\n\n• Carbon footprint reduction\n• Energy conservation tips\n• Sustainable transportation\n• Eco-friendly food choices\n• Waste reduction strategies\n• Goal setting and tracking\n\nWhat eco-topic interests you most?",
-            "🌍 I'm focused on helping you live more sustainably! I can assist with:\n\n• Personalized eco-advice\n• Environmental impact analysis\n• Activity recommendations\n• Progress tracking\n• Goal achievement support\n\nHow can I help you be more eco-friendly today?",
-            "💡 I'm your sustainability companion! Let me help you with:\n\n• Reducing your environmental impact\n• Saving energy and money\n• Making eco-friendly choices\n• Tracking your progress\n• Setting and achieving green goals\n\nWhat aspect of sustainable living would you like to explore?"
-        ));
-    }
-
-    /**
-     * Generate a response to user input
+     * Generate a response to user input, or null when the thread is interrupted while waiting
+     * for the response backend
      */
     public String generateResponse(String userMessage, User user, List<ChatMessage> chatHistory) {
         try {
@@ -158,37 +94,69 @@ public class ChatbotService {
      * Detect user intent from message
      */
     private String detectIntent(String message) {
-        if (message == null || message.trim().isEmpty()) {
-            return "default";
-        }
-        
-        String lowerMessage = message.toLowerCase();
-        
-        // Check each intent pattern
-        for (Map.Entry<String, String> entry : intentPatterns.entrySet()) {
-            String intent = entry.getKey();
-            String pattern = entry.getValue();
-            String[] keywords = pattern.split("\\|");
-            
-            for (String keyword : keywords) {
-                if (lowerMessage.contains(keyword.trim())) {
-                    return intent;
-                }
+        return classifyIntent(message).getIntent();
+    }
+
+    /**
+     * Trained model prediction, or the keyword match when there is no model or it is unsure
+     */
+    private IntentClassifier.Match classifyIntent(CharSequence message) {
+        if (intentModel != null) {
+            IntentClassifier.Match match = intentModel.classify(message);
+            if (match != null && match.getConfidence() >= MIN_CONFIDENCE_THRESHOLD) {
+                return match;
             }
         }
-        
-        return "default";
+        return intentClassifier.classify(message);
     }
 
     /**
      * Generate contextual response based on intent and context
      */
     private String generateContextualResponse(String intent, String userMessage, User user, List<ChatMessage> chatHistory) {
-        // Get response templates for the intent
-        List<String> templates = responseTemplates.getOrDefault(intent, responseTemplates.get("default"));
+        // The same question asked again is answered from the cache; replies built from the
+        // user's activities are cached for that user only
+        List<EntityExtractor.Entity> entities = entityExtractor.extract(userMessage);
+        int cacheUserId = user != null && ActivityInsights.usesUserData(intent) ? user.getId() : -1;
+        String cacheKey = ResponseCache.key(responseBackends.getActive().getName(), intent, entities, userMessage, cacheUserId);
+        String baseResponse = responseCache.get(cacheKey);
+        
+        if (baseResponse == null) {
+            // Answer questions about the user's own activities with their figures, otherwise ask
+            // the response backend, which falls back to the templates
+            baseResponse = activityInsights.answer(intent, userMessage, entities, user, LocalDate.now());
+            boolean cacheable = true;
+            if (baseResponse == null) {
+                List<ChatMessage> context = chatHistory != null
+                        ? chatHistory.subList(Math.max(0, chatHistory.size() - MAX_CONTEXT_MESSAGES), chatHistory.size())
+                        : null;
+                // No user name: replies are shared through the cache and personalized below
+                CompletableFuture<ResponseBackends.Reply> pending = responseBackends.reply(
+                        new ResponseBackend.Prompt(userMessage, intent, null, context));
+                ResponseBackends.Reply reply;
+                try {
+                    reply = pending.get();
+                } catch (InterruptedException e) {
+                    // The reply was cancelled, e.g. the chat screen was left
+                    pending.cancel(true);
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (ExecutionException e) {
+                    throw new CompletionException(e.getCause());
+                }
+                baseResponse = reply.getText();
+                cacheable = !reply.isFallback(); // ask the backend again next time
+            }
+            if (cacheable) {
+                responseCache.put(cacheKey, baseResponse, cacheUserId);
+            }
+        }
         
-        // Select response based on context
-        String baseResponse = selectResponseTemplate(templates, chatHistory);
+        // Offer to log an activity the user reports, e.g. "I biked 12 km"
+        Activity draft = draftActivity(userMessage);
+        if (draft != null) {
+            baseResponse = describeDraft(draft) + "\n\n" + baseResponse;
+        }
         
         // Personalize response if user information is available
         if (user != null) {
@@ -198,14 +166,6 @@ public class ChatbotService {
         return baseResponse;
     }
 
-    /**
-     * Select appropriate response template based on context
-     */
-    private String selectResponseTemplate(List<String> templates, List<ChatMessage> chatHistory) {
-        // Simple random selection (could be enhanced with ML)
-        return templates.get(random.nextInt(templates.size()));
-    }
-
     /**
      * Personalize response based on user data
      */
@@ -225,47 +185,99 @@ public class ChatbotService {
     }
 
     /**
-     * Save chat message to session
+     * Save chat message to session. Messages already saved are skipped, so saving a whole
+     * conversation again does not duplicate it. User messages are analyzed first so the
+     * session's statistics count their intent.
      */
     public void saveChatMessage(String sessionId, ChatMessage message) {
-        sessionMessages.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(message);
-        
-        // Limit session size to prevent memory issues
-        List<ChatMessage> messages = sessionMessages.get(sessionId);
-        if (messages.size() > 1000) { // Keep last 1000 messages
-            messages.subList(0, messages.size() - 1000).clear();
+        if (message.getIntent() == null && "user".equals(message.getMessageType())) {
+            analyzeMessage(message);
         }
+        chatHistoryStore.append(sessionId, message);
     }
 
     /**
-     * Get chat history for a session
+     * Get the recent chat history of a session, at most {@link ChatHistoryStore#RECENT_MESSAGES}
+     * messages. Use {@link #getMessagesBefore} to page further back.
      */
     public List<ChatMessage> getChatHistory(String sessionId) {
-        return sessionMessages.getOrDefault(sessionId, new ArrayList<>());
+        return chatHistoryStore.recent(sessionId, ChatHistoryStore.RECENT_MESSAGES);
+    }
+
+    /**
+     * Get the last messages of a session, oldest first
+     */
+    public List<ChatMessage> getRecentMessages(String sessionId, int limit) {
+        return chatHistoryStore.recent(sessionId, limit);
+    }
+
+    /**
+     * Get up to limit messages older than the one with the given id, oldest first
+     */
+    public List<ChatMessage> getMessagesBefore(String sessionId, int messageId, int limit) {
+        return chatHistoryStore.page(sessionId, messageId, limit);
+    }
+
+    /**
+     * Whether a session holds messages older than the one with the given id
+     */
+    public boolean hasMessagesBefore(String sessionId, int messageId) {
+        return messageId > chatHistoryStore.firstSeq(sessionId);
+    }
+
+    /**
+     * Get up to limit messages newer than the one with the given id, oldest first
+     */
+    public List<ChatMessage> getMessagesAfter(String sessionId, int messageId, int limit) {
+        return chatHistoryStore.pageAfter(sessionId, messageId, limit);
+    }
+
+    /**
+     * Whether a session holds messages newer than the one with the given id
+     */
+    public boolean hasMessagesAfter(String sessionId, int messageId) {
+        return messageId < chatHistoryStore.lastSeq(sessionId);
+    }
+
+    public long getMessageCount(String sessionId) {
+        return chatHistoryStore.count(sessionId);
     }
 
     /**
-     * Get user's chat sessions
+     * Get user's chat sessions, most recently active first
      */
     public List<String> getUserChatSessions(int userId) {
-        return userSessions.getOrDefault(userId, new ArrayList<>());
+        return chatHistoryStore.sessionIds(userId);
+    }
+
+    /**
+     * Search all of a user's chat sessions, newest matches first. See {@link ChatSearchIndex}
+     * for the query syntax.
+     */
+    public List<ChatSearchIndex.Hit> searchChatHistory(int userId, String query) {
+        return chatSearchIndex.search(userId, query, ChatSearchIndex.MAX_RESULTS);
     }
 
     /**
      * Create new chat session for user
      */
     public String createChatSession(int userId) {
-        String sessionId = "session_" + userId + "_" + System.currentTimeMillis();
-        userSessions.computeIfAbsent(userId, k -> new ArrayList<>()).add(sessionId);
-        return sessionId;
+        return chatHistoryStore.createSession(userId);
+    }
+
+    /**
+     * Delete a chat session and all its messages
+     */
+    public boolean deleteChatSession(String sessionId) {
+        return chatHistoryStore.delete(sessionId);
     }
 
     /**
      * Export chat history to file
      */
     public String exportChatHistory(String sessionId) throws IOException {
-        List<ChatMessage> messages = getChatHistory(sessionId);
-        if (messages.isEmpty()) {
+        long total = getMessageCount(sessionId);
+        if (total == 0) {
             throw new IOException("No messages found for session: " + sessionId);
         }
         
@@ -276,15 +288,20 @@ public class ChatbotService {
             writer.write("EcoHabit Chat Export\n");
             writer.write("Session: " + sessionId + "\n");
             writer.write("Exported: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n");
-            writer.write("Total Messages: " + messages.size() + "\n");
+            writer.write("Total Messages: " + total + "\n");
             writer.write("\n" + "=".repeat(50) + "\n\n");
             
-            for (ChatMessage message : messages) {
-                writer.write(String.format("[%s] %s:\n%s\n\n", 
-                    message.getFormattedTimestamp(),
-                    message.getSender(),
-                    message.getContent()
-                ));
+            // Page through the session instead of loading it whole
+            long end = chatHistoryStore.firstSeq(sessionId) + total;
+            for (long next = end - total; next < end; next += EXPORT_PAGE_SIZE) {
+                long before = Math.min(next + EXPORT_PAGE_SIZE, end);
+                for (ChatMessage message : chatHistoryStore.page(sessionId, before, (int) (before - next))) {
+                    writer.write(String.format("[%s] %s:\n%s\n\n", 
+                        message.getFormattedTimestamp(),
+                        message.getSender(),
+                        message.getContent()
+                    ));
+                }
             }
         }
         
@@ -292,23 +309,20 @@ public class ChatbotService {
     }
 
     /**
-     * Get conversation summary
+     * Get conversation summary, from the session's running statistics
      */
     public String getConversationSummary(String sessionId) {
-        List<ChatMessage> messages = getChatHistory(sessionId);
-        if (messages.isEmpty()) {
+        ConversationStats conversation = chatHistoryStore.stats(sessionId);
+        if (conversation.getMessageCount() == 0) {
             return "No conversation history available.";
         }
         
-        // Simple summary generation
-        Map<String, Long> intentCounts = messages.stream()
-                .filter(m -> m.getIntent() != null)
-                .collect(Collectors.groupingBy(ChatMessage::getIntent, Collectors.counting()));
+        Map<String, Long> intentCounts = conversation.getIntentCounts();
         
         StringBuilder summary = new StringBuilder();
         summary.append("Conversation Summary:\n");
-        summary.append("Total messages: ").append(messages.size()).append("\n");
-        summary.append("Duration: ").append(calculateConversationDuration(messages)).append("\n");
+        summary.append("Total messages: ").append(conversation.getMessageCount()).append("\n");
+        summary.append("Duration: ").append(calculateConversationDuration(conversation)).append("\n");
         
         if (!intentCounts.isEmpty()) {
             summary.append("\nMain topics discussed:\n");
@@ -325,11 +339,10 @@ public class ChatbotService {
     /**
      * Calculate conversation duration
      */
-    private String calculateConversationDuration(List<ChatMessage> messages) {
-        if (messages.size() < 2) return "Less than a minute";
-        
-        LocalDateTime start = messages.get(0).getTimestamp();
-        LocalDateTime end = messages.get(messages.size() - 1).getTimestamp();
+    private String calculateConversationDuration(ConversationStats conversation) {
+        LocalDateTime start = conversation.getFirstMessageAt();
+        LocalDateTime end = conversation.getLastMessageAt();
+        if (conversation.getMessageCount() < 2 || start == null || end == null) return "Less than a minute";
         
         long minutes = java.time.Duration.between(start, end).toMinutes();
         
@@ -351,15 +364,12 @@ public class ChatbotService {
     }
 
     /**
-     * Get suggested responses based on context
+     * Get suggested responses based on context: the topic of the last messages
      */
     public List<String> getSuggestedResponses(String sessionId) {
-        List<ChatMessage> recentMessages = getChatHistory(sessionId).stream()
-                .sorted(Comparator.comparing(ChatMessage::getTimestamp).reversed())
-                .limit(5)
-                .collect(Collectors.toList());
+        ConversationStats conversation = chatHistoryStore.stats(sessionId);
         
-        if (recentMessages.isEmpty()) {
+        if (conversation.getMessageCount() == 0) {
             return Arrays.asList(
                 "How can I reduce my carbon footprint?",
                 "Give me some energy saving tips",
@@ -371,7 +381,7 @@ public class ChatbotService {
         // Generate context-aware suggestions
         List<String> suggestions = new ArrayList<>();
         
-        String lastIntent = recentMessages.get(0).getIntent();
+        String lastIntent = conversation.getLastIntent();
         if ("carbon_footprint".equals(lastIntent)) {
             suggestions.addAll(Arrays.asList(
                 "How can I track my carbon savings?",
@@ -401,77 +411,54 @@ public class ChatbotService {
     public void analyzeMessage(ChatMessage message) {
         if (message == null || message.getContent() == null) return;
         
-        String content = message.getContent().toLowerCase();
+        String content = message.getContent();
         
-        // Detect intent
-        String intent = detectIntent(content);
+        // Detect intent, with confidence based on intent match strength
+        IntentClassifier.Match match = classifyIntent(content);
+        String intent = match.getIntent();
         message.setIntent(intent);
+        message.setConfidence(match.getConfidence());
         
-        // Extract entities (simple keyword extraction)
-        List<String> entities = extractEntities(content);
+        // Extract keywords, quantities and dates
+        List<EntityExtractor.Entity> entities = entityExtractor.extract(content);
         if (!entities.isEmpty()) {
-            message.setEntities(entities.toArray(new String[0]));
+            String[] names = new String[entities.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = entities.get(i).getName();
+            }
+            message.setEntities(names);
         }
         
-        // Set confidence based on intent match strength
-        double confidence = calculateConfidence(content, intent);
-        message.setConfidence(confidence);
-        
         // Categorize message
         String category = categorizeMessage(intent, content);
         message.setMessageCategory(category);
     }
 
     /**
-     * Extract entities from message content
+     * Extract keywords, quantities and dates from a message as typed spans
      */
-    private List<String> extractEntities(String content) {
-        List<String> entities = new ArrayList<>();
-        
-        // Environmental entities
-        String[] envEntities = {"energy", "carbon", "co2", "solar", "wind", "renewable", 
-                               "electric", "hybrid", "organic", "local", "sustainable",
-                               "recycle", "compost", "waste", "water", "conservation"};
-        
-        for (String entity : envEntities) {
-            if (content.contains(entity)) {
-                entities.add(entity);
-            }
-        }
-        
-        // Numbers (for quantities, percentages, etc.)
-        java.util.regex.Pattern numberPattern = java.util.regex.Pattern.compile("\\b\\d+(%|kg|kwh|miles|gallons|dollars)?\\b");
-        java.util.regex.Matcher matcher = numberPattern.matcher(content);
-        while (matcher.find()) {
-            entities.add(matcher.group());
-        }
-        
-        return entities;
+    public List<EntityExtractor.Entity> extractEntities(String message) {
+        return entityExtractor.extract(message);
     }
 
     /**
-     * Calculate confidence score for intent detection
+     * Draft activity for a message that reports one, such as "I biked 12 km", or null
      */
-    private double calculateConfidence(String content, String intent) {
-        if ("default".equals(intent)) {
-            return 0.5; // Medium confidence for default responses
+    public Activity draftActivity(String message) {
+        return entityExtractor.draftActivity(message, LocalDate.now());
+    }
+
+    private String describeDraft(Activity draft) {
+        StringBuilder text = new StringBuilder("📝 Sounds like ").append(draft.getDescription());
+        if (draft.getUnit() != null) {
+            double quantity = draft.getQuantity();
+            text.append(", ").append(quantity == Math.rint(quantity) ? String.valueOf((long) quantity) : String.valueOf(quantity))
+                .append(draft.getUnit().equals("%") ? "%" : " " + draft.getUnit());
         }
-        
-        String pattern = intentPatterns.get(intent);
-        if (pattern == null) return 0.3;
-        
-        String[] keywords = pattern.split("\\|");
-        int matches = 0;
-        
-        for (String keyword : keywords) {
-            if (content.contains(keyword.trim())) {
-                matches++;
-            }
+        if (!draft.isToday()) {
+            text.append(" on ").append(draft.getFormattedDate());
         }
-        
-        // Calculate confidence based on keyword matches
-        double confidence = Math.min(0.3 + (matches * 0.2), 1.0);
-        return confidence;
+        return text.append(". Add it in the Activity Log to count it towards your goals!").toString();
     }
 
     /**
@@ -495,27 +482,24 @@ public class ChatbotService {
     public Map<String, Object> getChatbotStatistics() {
         Map<String, Object> stats = new HashMap<>();
         
-        int totalSessions = sessionMessages.size();
-        int totalMessages = sessionMessages.values().stream()
-                .mapToInt(List::size)
+        // Sessions opened since startup; their recent messages are in memory
+        List<String> sessionIds = chatHistoryStore.loadedSessionIds();
+        int totalSessions = sessionIds.size();
+        long totalMessages = sessionIds.stream()
+                .mapToLong(chatHistoryStore::count)
                 .sum();
         
         // Calculate average messages per session
         double avgMessagesPerSession = totalSessions > 0 ? (double) totalMessages / totalSessions : 0;
         
         // Intent distribution
-        Map<String, Long> intentDistribution = sessionMessages.values().stream()
-                .flatMap(List::stream)
-                .filter(m -> m.getIntent() != null)
-                .collect(Collectors.groupingBy(ChatMessage::getIntent, Collectors.counting()));
+        Map<String, Long> intentDistribution = intentCounts(sessionIds);
         
         // Active sessions (had activity in last 24 hours)
-        long activeSessions = sessionMessages.values().stream()
-                .filter(messages -> !messages.isEmpty())
-                .filter(messages -> {
-                    ChatMessage lastMessage = messages.get(messages.size() - 1);
-                    return lastMessage.getTimestamp().isAfter(LocalDateTime.now().minusDays(1));
-                })
+        LocalDateTime dayAgo = LocalDateTime.now().minusDays(1);
+        long activeSessions = sessionIds.stream()
+                .map(chatHistoryStore::lastMessageAt)
+                .filter(lastMessage -> lastMessage != null && lastMessage.isAfter(dayAgo))
                 .count();
         
         stats.put("totalSessions", totalSessions);
@@ -523,65 +507,65 @@ public class ChatbotService {
         stats.put("averageMessagesPerSession", Math.round(avgMessagesPerSession * 100.0) / 100.0);
         stats.put("activeSessions", activeSessions);
         stats.put("intentDistribution", intentDistribution);
+        stats.put("responseBackend", responseBackends.getActive().getName());
+        stats.put("responseBackendStats", responseBackends.getStats());
+        stats.put("responseCache", responseCache.getStatistics());
+        stats.put("firstCharacterTime", ChatResponsePipeline.getInstance().getFirstCharacterSummary());
         
         return stats;
     }
 
     /**
-     * Clear old chat sessions to manage memory
+     * Delete chat sessions with no message in the last daysToKeep days; runs in the background
      */
     public void cleanupOldSessions(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        
-        sessionMessages.entrySet().removeIf(entry -> {
-            List<ChatMessage> messages = entry.getValue();
-            if (messages.isEmpty()) return true;
-            
-            // Remove session if last message is older than cutoff
-            ChatMessage lastMessage = messages.get(messages.size() - 1);
-            return lastMessage.getTimestamp().isBefore(cutoffDate);
-        });
-        
-        // Also clean up user sessions list
-        userSessions.values().forEach(sessionList -> {
-            sessionList.removeIf(sessionId -> !sessionMessages.containsKey(sessionId));
-        });
+        chatHistoryStore.deleteOlderThan(LocalDateTime.now().minusDays(daysToKeep));
     }
 
     /**
      * Get popular conversation topics
      */
     public List<Map.Entry<String, Long>> getPopularTopics(int limit) {
-        return sessionMessages.values().stream()
-                .flatMap(List::stream)
-                .filter(m -> m.getIntent() != null && !"default".equals(m.getIntent()))
-                .collect(Collectors.groupingBy(ChatMessage::getIntent, Collectors.counting()))
-                .entrySet().stream()
+        return intentCounts(chatHistoryStore.loadedSessionIds()).entrySet().stream()
+                .filter(entry -> !"default".equals(entry.getKey()))
                 .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
                 .limit(limit)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Sum of the intent counts of several sessions
+     */
+    private Map<String, Long> intentCounts(List<String> sessionIds) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String sessionId : sessionIds) {
+            chatHistoryStore.stats(sessionId).getIntentCounts().forEach((intent, count) -> counts.merge(intent, count, Long::sum));
+        }
+        return counts;
+    }
+
     /**
      * Get conversation insights for a user
      */
     public Map<String, Object> getUserConversationInsights(int userId) {
         List<String> userSessionIds = getUserChatSessions(userId);
         
-        List<ChatMessage> allUserMessages = userSessionIds.stream()
-                .flatMap(sessionId -> getChatHistory(sessionId).stream())
+        List<ConversationStats> conversations = userSessionIds.stream()
+                .map(chatHistoryStore::stats)
+                .filter(conversation -> conversation.getMessageCount() > 0)
                 .collect(Collectors.toList());
         
         Map<String, Object> insights = new HashMap<>();
         
-        insights.put("totalMessages", allUserMessages.size());
+        insights.put("totalMessages", userSessionIds.stream().mapToLong(chatHistoryStore::count).sum());
         insights.put("totalSessions", userSessionIds.size());
         
-        if (!allUserMessages.isEmpty()) {
+        if (!conversations.isEmpty()) {
             // Most active topics
-            Map<String, Long> topicFrequency = allUserMessages.stream()
-                    .filter(m -> m.getIntent() != null)
-                    .collect(Collectors.groupingBy(ChatMessage::getIntent, Collectors.counting()));
+            Map<String, Long> topicFrequency = new HashMap<>();
+            for (ConversationStats conversation : conversations) {
+                conversation.getIntentCounts().forEach((intent, count) -> topicFrequency.merge(intent, count, Long::sum));
+            }
             
             String mostDiscussedTopic = topicFrequency.entrySet().stream()
                     .max(Map.Entry.comparingByValue())
@@ -589,14 +573,16 @@ public class ChatbotService {
                     .orElse("General conversation");
             
             // Activity pattern
-            LocalDateTime firstMessage = allUserMessages.stream()
-                    .min(Comparator.comparing(ChatMessage::getTimestamp))
-                    .map(ChatMessage::getTimestamp)
+            LocalDateTime firstMessage = conversations.stream()
+                    .map(ConversationStats::getFirstMessageAt)
+                    .filter(Objects::nonNull)
+                    .min(Comparator.naturalOrder())
                     .orElse(LocalDateTime.now());
             
-            LocalDateTime lastMessage = allUserMessages.stream()
-                    .max(Comparator.comparing(ChatMessage::getTimestamp))
-                    .map(ChatMessage::getTimestamp)
+            LocalDateTime lastMessage = conversations.stream()
+                    .map(ConversationStats::getLastMessageAt)
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
                     .orElse(LocalDateTime.now());
             
             insights.put("mostDiscussedTopic", mostDiscussedTopic);
@@ -0,0 +1,119 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.ChatMessage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running analytics of one chat session, updated as each message is saved so summaries and
+ * suggestions never go back over the history: message counts, first and last message times,
+ * how often each intent came up, and the last {@link #RECENT_SIZE} messages in a ring buffer.
+ *
+ * Owned by {@link ChatHistoryStore}, which updates it under the session's lock and hands out
+ * copies. A session loaded from the database starts from counts over all its stored messages,
+ * so reloaded statistics match the live ones.
+ */
+public class ConversationStats {
+
+    public static final int RECENT_SIZE = 5;
+
+    private final Map<String, Long> intentCounts;
+    private final ChatMessage[] recent; // ring buffer, next slot at recentCount % RECENT_SIZE
+    private long recentCount;
+    private long messageCount;
+    private long userMessageCount;
+    private LocalDateTime firstMessageAt;
+    private LocalDateTime lastMessageAt;
+
+    ConversationStats() {
+        this.intentCounts = new HashMap<>();
+        this.recent = new ChatMessage[RECENT_SIZE];
+    }
+
+    private ConversationStats(ConversationStats other) {
+        this.intentCounts = new HashMap<>(other.intentCounts);
+        this.recent = other.recent.clone();
+        this.recentCount = other.recentCount;
+        this.messageCount = other.messageCount;
+        this.userMessageCount = other.userMessageCount;
+        this.firstMessageAt = other.firstMessageAt;
+        this.lastMessageAt = other.lastMessageAt;
+    }
+
+    /**
+     * Count a message appended to the session
+     */
+    void record(ChatMessage message) {
+        messageCount++;
+        if ("user".equals(message.getMessageType())) {
+            userMessageCount++;
+        }
+        if (message.getIntent() != null) {
+            intentCounts.merge(message.getIntent(), 1L, Long::sum);
+        }
+        LocalDateTime sentAt = message.getTimestamp();
+        if (sentAt != null) {
+            if (firstMessageAt == null) firstMessageAt = sentAt;
+            lastMessageAt = sentAt;
+        }
+        recent[(int) (recentCount++ % RECENT_SIZE)] = message;
+    }
+
+    /**
+     * Start from what is already stored when a session is loaded: the stored intent counts and
+     * message count, the first message time, and the last messages
+     */
+    void restore(Map<String, Long> storedIntentCounts, long storedMessages, long storedUserMessages,
+                 LocalDateTime firstAt, List<ChatMessage> lastMessages) {
+        intentCounts.putAll(storedIntentCounts);
+        messageCount = storedMessages;
+        userMessageCount = storedUserMessages;
+        firstMessageAt = firstAt;
+        for (ChatMessage message : lastMessages.subList(Math.max(0, lastMessages.size() - RECENT_SIZE), lastMessages.size())) {
+            recent[(int) (recentCount++ % RECENT_SIZE)] = message;
+            lastMessageAt = message.getTimestamp();
+        }
+    }
+
+    ConversationStats copy() {
+        return new ConversationStats(this);
+    }
+
+    public long getMessageCount() { return messageCount; }
+    public long getUserMessageCount() { return userMessageCount; }
+    public LocalDateTime getFirstMessageAt() { return firstMessageAt; }
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+
+    /**
+     * How often each intent came up
+     */
+    public Map<String, Long> getIntentCounts() {
+        return intentCounts;
+    }
+
+    /**
+     * The last messages, newest first
+     */
+    public List<ChatMessage> getRecentMessages() {
+        int size = (int) Math.min(recentCount, RECENT_SIZE);
+        List<ChatMessage> messages = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            messages.add(recent[(int) ((recentCount - i) % RECENT_SIZE)]);
+        }
+        return messages;
+    }
+
+    /**
+     * Intent of the newest of the last messages that has one, or null
+     */
+    public String getLastIntent() {
+        for (ChatMessage message : getRecentMessages()) {
+            if (message.getIntent() != null) return message.getIntent();
+        }
+        return null;
+    }
+}
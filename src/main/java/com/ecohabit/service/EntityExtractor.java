@@ -0,0 +1,534 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.Activity;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Entity recognizer for chat messages: eco keywords, quantities with units and dates, found
+ * in one pass over the message and returned as typed spans with parsed values.
+ *
+ * Quantities are numbers with an optional unit (kg, kWh, km, miles, gallons, %), normalized to
+ * one spelling. Dates are ISO dates, "May 3", "today", "yesterday", "last week", "this month",
+ * "3 days ago", weekdays such as "Tuesday" or "last Friday", and similar, resolved to an inclusive
+ * range. A weekday on its own is the most recent one, today included. The message is split into words
+ * in place; words that can start a number or a date are matched against one precompiled
+ * pattern anchored there, and every other word is looked up in a keyword table after the
+ * same suffix fold {@link IntentClassifier} uses, so "biked" and "cycling" are found without
+ * lowercasing the message.
+ *
+ * Instances are immutable and safe to share between threads; each thread reuses its own matcher.
+ */
+public class EntityExtractor {
+
+    public enum Type { KEYWORD, QUANTITY, DATE }
+
+    private static final Pattern ENTITY_PATTERN = Pattern.compile(
+            "(?<iso>\\d{4}-\\d{1,2}-\\d{1,2})"
+            + "|(?<ago>\\d+|an?|one|two|three|four|five|six|seven)\\s+(?<agoUnit>day|week|month|year)s?\\s+ago\\b"
+            + "|(?:(?<weekdayShift>this|last|past|previous|next)\\s+)?"
+            + "(?<weekday>monday|tuesday|wednesday|thursday|friday|saturday|sunday)\\b"
+            + "|(?<relative>this|last|past|previous|next)\\s+(?<period>weekend|week|month|year)\\b"
+            + "|(?<day>today|tonight|yesterday|tomorrow)\\b"
+            + "|(?<month>jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?"
+            + "|sep(?:t|tember)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?)\\.?\\s+(?<dayOfMonth>\\d{1,2})(?:st|nd|rd|th)?\\b"
+            + "|(?<number>\\d{1,3}(?:,\\d{3})+(?:\\.\\d+)?|\\d+(?:\\.\\d+)?)"
+            + "(?:\\s*(?<unit>kilowatt[- ]?hours?|kwh|kilograms?|kilos?|kgs?|kilomet(?:er|re)s?|kms?"
+            + "|miles?|mi|gallons?|gal|percent|%)(?![\\p{L}\\d]))?",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+    /** Words that can start a date, kept in the keyword table so each word costs one lookup */
+    private static final String[] DATE_WORDS = {
+        "a", "an", "one", "two", "three", "four", "five", "six", "seven",
+        "this", "last", "past", "previous", "next", "today", "tonight", "yesterday", "tomorrow",
+        "jan", "january", "feb", "february", "mar", "march", "apr", "april", "may", "jun", "june",
+        "jul", "july", "aug", "august", "sep", "sept", "september", "oct", "october", "nov", "november",
+        "dec", "december", "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"};
+    private static final int DATE_WORD = -1;
+    private static final String[] SMALL_NUMBERS = {"a", "an", "one", "two", "three", "four", "five", "six", "seven"};
+    private static final int[] SMALL_NUMBER_VALUES = {1, 1, 1, 2, 3, 4, 5, 6, 7};
+
+    /** First words of questions */
+    private static final String[] QUESTION_WORDS = {
+        "how", "what", "why", "when", "where", "which", "who", "can", "could", "should", "would",
+        "will", "do", "does", "is", "are", "any"};
+    /** First words of requests and advice, including activities named as something to do */
+    private static final String[] REQUEST_WORDS = {
+        "give", "tell", "show", "help", "suggest", "recommend", "list", "find", "explain", "please",
+        "save", "try", "use", "switch", "turn", "reduce", "cut", "make", "let", "start", "stop",
+        "consider", "avoid", "get", "buy", "install", "remember", "don",
+        "bike", "cycle", "walk", "hike", "drive", "commute", "carpool", "take", "ride", "go", "eat",
+        "recycle", "compost", "reuse", "unplug", "plant", "shower"};
+    private static final String[] SUBJECT_WORDS = {"i", "we"};
+    /** Words after "I" or "we" that make the rest a wish, plan or denial, not something done */
+    private static final String[] NOT_DONE_WORDS = {
+        "want", "wanna", "need", "would", "should", "will", "could", "can", "cannot", "might", "may",
+        "plan", "hope", "like", "wonder", "think", "d", "ll", "don", "didn", "never", "not"};
+
+    /**
+     * Category, activity type (null when the word names no loggable activity), then keywords.
+     * Keywords that fold together are reported under the first spelling listed.
+     */
+    private static final String[][] KEYWORDS = {
+        {"Transportation", "Biking", "bike", "bicycle", "cycle", "biking", "cycling"},
+        {"Transportation", "Walking", "walk", "hike"},
+        {"Transportation", "Public Transport", "transit", "bus", "train", "subway", "metro", "tram"},
+        {"Transportation", "Electric Vehicle", "ev"},
+        {"Transportation", null, "transport", "transportation", "car", "drive", "drove", "commute", "carpool", "flight", "hybrid"},
+        {"Food", "Vegetarian Meal", "vegetarian"},
+        {"Food", "Vegan Meal", "vegan"},
+        {"Food", "Local Food", "local"},
+        {"Food", "Organic Food", "organic"},
+        {"Food", null, "food", "meal", "meat", "diet"},
+        {"Energy", "Energy Conservation", "energy", "electricity", "electric", "power", "led", "thermostat", "heating"},
+        {"Energy", null, "solar", "wind", "renewable"},
+        {"Waste", "Recycling", "recycle"},
+        {"Waste", "Composting", "compost"},
+        {"Waste", "Reusable Products", "reusable", "reuse"},
+        {"Waste", null, "waste", "plastic", "trash", "landfill"},
+        {"Other", "Water Conservation", "water", "conservation"},
+        {"Other", "Reduce Water Usage", "shower"},
+        {null, null, "carbon", "co2", "emission", "footprint", "sustainable"},
+    };
+
+    private final ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> ENTITY_PATTERN.matcher(""));
+
+    private final char[][] keys;         // folded lowercase keyword
+    private final String[] keyWords;     // keyword as listed
+    private final int[] keyGroups;       // row of KEYWORDS, or DATE_WORD
+    private final int[] slots;           // open-addressed table of key index + 1, 0 when empty
+    private final int mask;
+
+    /**
+     * One recognized span of a message
+     */
+    public static final class Entity {
+        private final Type type;
+        private final int start;
+        private final int end;
+        private final String text;
+        private final String name;
+        private final double value;
+        private final String unit;
+        private final String category;
+        private final String activityType;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        private Entity(Type type, int start, int end, String text, String name, double value, String unit,
+                       String category, String activityType, LocalDate from, LocalDate to) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.name = name;
+            this.value = value;
+            this.unit = unit;
+            this.category = category;
+            this.activityType = activityType;
+            this.from = from;
+            this.to = to;
+        }
+
+        public Type getType() { return type; }
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public String getText() { return text; }
+        /** Canonical keyword, "12 km" for quantities, the lowercased text for dates */
+        public String getName() { return name; }
+        public double getValue() { return value; }
+        /** Normalized unit of a quantity, null for a bare number */
+        public String getUnit() { return unit; }
+        public String getCategory() { return category; }
+        public String getActivityType() { return activityType; }
+        /** First day of a date range */
+        public LocalDate getFrom() { return from; }
+        /** Last day of a date range, inclusive */
+        public LocalDate getTo() { return to; }
+
+        @Override
+        public String toString() {
+            return type + "[" + start + "," + end + ") " + name;
+        }
+    }
+
+    public EntityExtractor() {
+        List<char[]> keyList = new ArrayList<>();
+        List<String> wordList = new ArrayList<>();
+        List<Integer> groupList = new ArrayList<>();
+        for (int group = 0; group < KEYWORDS.length; group++) {
+            for (int k = 2; k < KEYWORDS[group].length; k++) {
+                String word = KEYWORDS[group][k];
+                char[] key = word.substring(0, IntentClassifier.foldedEnd(word, 0, word.length())).toCharArray();
+                if (find(keyList, key) < 0) {
+                    keyList.add(key);
+                    wordList.add(word);
+                    groupList.add(group);
+                }
+            }
+        }
+        for (String word : DATE_WORDS) {
+            char[] key = word.substring(0, IntentClassifier.foldedEnd(word, 0, word.length())).toCharArray();
+            if (find(keyList, key) < 0) {
+                keyList.add(key);
+                wordList.add(word);
+                groupList.add(DATE_WORD);
+            }
+        }
+
+        this.keys = keyList.toArray(new char[0][]);
+        this.keyWords = wordList.toArray(new String[0]);
+        this.keyGroups = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keyGroups[i] = groupList.get(i);
+        }
+
+        int capacity = Integer.highestOneBit(keys.length * 4 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            int slot = hash(keyWords[i], 0, keys[i].length) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Entities of a message in order of appearance, with relative dates resolved against today
+     */
+    public List<Entity> extract(CharSequence message) {
+        return extract(message, LocalDate.now());
+    }
+
+    public List<Entity> extract(CharSequence message, LocalDate today) {
+        List<Entity> entities = new ArrayList<>();
+        if (message == null) return entities;
+
+        Matcher matcher = matchers.get().reset(message);
+        int length = message.length();
+        int i = 0;
+        try {
+            while (i < length) {
+                while (i < length && !Character.isLetterOrDigit(message.charAt(i))) {
+                    i++;
+                }
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(message.charAt(i))) {
+                    i++;
+                }
+                if (start == i) break;
+
+                boolean number = Character.isDigit(message.charAt(start));
+                int key = number ? -1 : find(message, start, IntentClassifier.foldedEnd(message, start, i));
+
+                // Numbers and date words go through the pattern, anchored at the word
+                if (number || key >= 0 && keyGroups[key] == DATE_WORD) {
+                    if (matcher.region(start, length).lookingAt()) {
+                        Entity entity = toEntity(message, matcher, today);
+                        if (entity != null) {
+                            entities.add(entity);
+                            i = Math.max(i, matcher.end());
+                            continue;
+                        }
+                    }
+                } else if (key >= 0) {
+                    String[] group = KEYWORDS[keyGroups[key]];
+                    entities.add(new Entity(Type.KEYWORD, start, i, text(message, start, i), keyWords[key],
+                            0, null, group[0], group[1], null, null));
+                }
+            }
+        } finally {
+            matcher.reset(""); // do not keep the message reachable from the thread
+        }
+        return entities;
+    }
+
+    /**
+     * Draft activity for a message reporting one, such as "I biked 12 km yesterday": the first
+     * keyword naming an activity, the first quantity (1 when there is none) and the first single
+     * date (today otherwise). CO2 savings are left for the activity form to estimate. Null for
+     * messages without an activity keyword, for those that are not reports (see {@link #isReport})
+     * and for days still to come.
+     */
+    public Activity draftActivity(CharSequence message, LocalDate today) {
+        if (message == null || message.toString().indexOf('?') >= 0) return null;
+
+        Entity activity = null;
+        Entity quantity = null;
+        Entity date = null;
+        for (Entity entity : extract(message, today)) {
+            if (entity.getType() == Type.KEYWORD && entity.getActivityType() != null && activity == null) {
+                activity = entity;
+            } else if (entity.getType() == Type.QUANTITY && (quantity == null || quantity.getUnit() == null && entity.getUnit() != null)) {
+                quantity = entity;
+            } else if (entity.getType() == Type.DATE && date == null && entity.getFrom().equals(entity.getTo())) {
+                date = entity;
+            }
+        }
+        if (activity == null || !isReport(message, activity, quantity != null || date != null)) return null;
+        if (date != null && date.getFrom().isAfter(today)) return null; // planned, not done
+
+        Activity draft = new Activity();
+        draft.setDescription(activity.getActivityType());
+        draft.setActivityType(activity.getActivityType());
+        draft.setCategory(activity.getCategory());
+        draft.setDate(date != null ? date.getFrom() : today);
+        draft.setQuantity(quantity != null ? quantity.getValue() : 1.0);
+        draft.setUnit(quantity != null ? quantity.getUnit() : null);
+        draft.setNotes(message.toString());
+        return draft;
+    }
+
+    /**
+     * Whether a message tells of something done rather than asking or advising: it does not open
+     * with a question word or a request ("how do I save water", "Save 10% on heating"), no "I" or
+     * "we" in it is followed by a wish, plan or denial ("I want to bike"), and it either has "I"
+     * or "we" before the activity or names an amount or a day ("Biked 12 km").
+     */
+    private static boolean isReport(CharSequence message, Entity activity, boolean amountOrDay) {
+        boolean first = true;
+        boolean subject = false;
+        boolean afterSubject = false;
+        int length = message.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(message.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(message.charAt(i))) {
+                i++;
+            }
+            if (start == i) break;
+
+            if (first && (indexOf(QUESTION_WORDS, message, start, i) >= 0 || indexOf(REQUEST_WORDS, message, start, i) >= 0)) {
+                return false;
+            }
+            first = false;
+            if (afterSubject && indexOf(NOT_DONE_WORDS, message, start, i) >= 0) return false;
+            afterSubject = indexOf(SUBJECT_WORDS, message, start, i) >= 0;
+            if (afterSubject && start < activity.getStart()) subject = true;
+        }
+        return subject || amountOrDay;
+    }
+
+    private Entity toEntity(CharSequence message, Matcher matcher, LocalDate today) {
+        int start = matcher.start();
+        int end = matcher.end();
+
+        if (matcher.start("number") >= 0) {
+            double value = parseNumber(message, matcher.start("number"), matcher.end("number"));
+            String unit = matcher.start("unit") >= 0 ? unit(message, matcher.start("unit"), matcher.end("unit")) : null;
+            String name = formatNumber(value) + (unit == null ? "" : unit.equals("%") ? "%" : " " + unit);
+            return new Entity(Type.QUANTITY, start, end, text(message, start, end), name,
+                    value, unit, null, null, null, null);
+        }
+
+        LocalDate from;
+        LocalDate to;
+        if (matcher.start("iso") >= 0) {
+            String[] parts = matcher.group("iso").split("-");
+            from = date(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            to = from;
+        } else if (matcher.start("day") >= 0) {
+            char first = IntentClassifier.lower(message.charAt(start));
+            from = first == 'y' ? today.minusDays(1) : regionEquals(message, start, "tomorrow") ? today.plusDays(1) : today;
+            to = from;
+        } else if (matcher.start("month") >= 0) {
+            int month = indexOf(MONTHS, message, matcher.start("month"), matcher.start("month") + 3) + 1;
+            from = date(today.getYear(), month, Integer.parseInt(matcher.group("dayOfMonth")));
+            if (from != null && from.isAfter(today)) {
+                from = from.minusYears(1); // "Dec 30" said in January is last year's
+            }
+            to = from;
+        } else if (matcher.start("ago") >= 0) {
+            int amount = agoAmount(message, matcher.start("ago"), matcher.end("ago"));
+            from = minus(today, IntentClassifier.lower(message.charAt(matcher.start("agoUnit"))), amount);
+            to = from;
+        } else if (matcher.start("weekday") >= 0) {
+            String shift = matcher.start("weekdayShift") >= 0 ? matcher.group("weekdayShift").toLowerCase() : "";
+            from = weekday(today, shift, DayOfWeek.valueOf(matcher.group("weekday").toUpperCase()));
+            to = from;
+        } else {
+            LocalDate[] range = period(today, matcher.group("relative").toLowerCase(), matcher.group("period").toLowerCase());
+            from = range[0];
+            to = range[1];
+        }
+        if (from == null) return null;
+
+        String text = text(message, start, end);
+        return new Entity(Type.DATE, start, end, text, text.toLowerCase(), 0, null, null, null, from, to);
+    }
+
+    /**
+     * Inclusive range of "this week", "last month", "past year" and so on. Weeks start on
+     * Monday; "past" means the rolling period ending today.
+     */
+    private static LocalDate[] period(LocalDate today, String relative, String period) {
+        int shift = relative.equals("last") || relative.equals("previous") ? -1 : relative.equals("next") ? 1 : 0;
+        LocalDate from;
+        LocalDate to;
+        switch (period) {
+            case "weekend":
+                from = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(shift).plusDays(5);
+                return new LocalDate[] {from, from.plusDays(1)};
+            case "week":
+                if (relative.equals("past")) return new LocalDate[] {today.minusDays(6), today};
+                from = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(shift);
+                to = from.plusDays(6);
+                break;
+            case "month":
+                if (relative.equals("past")) return new LocalDate[] {today.minusMonths(1).plusDays(1), today};
+                from = today.withDayOfMonth(1).plusMonths(shift);
+                to = from.with(TemporalAdjusters.lastDayOfMonth());
+                break;
+            default:
+                if (relative.equals("past")) return new LocalDate[] {today.minusYears(1).plusDays(1), today};
+                from = today.withDayOfYear(1).plusYears(shift);
+                to = from.with(TemporalAdjusters.lastDayOfYear());
+                break;
+        }
+        return new LocalDate[] {from, to};
+    }
+
+    /**
+     * Day of "Tuesday", "last Tuesday", "this Tuesday" or "next Tuesday". On its own or after
+     * "this" it is the most recent such day, today included; after "last" the one before today.
+     */
+    private static LocalDate weekday(LocalDate today, String shift, DayOfWeek day) {
+        switch (shift) {
+            case "last":
+            case "past":
+            case "previous":
+                return today.with(TemporalAdjusters.previous(day));
+            case "next":
+                return today.with(TemporalAdjusters.next(day));
+            default:
+                return today.with(TemporalAdjusters.previousOrSame(day));
+        }
+    }
+
+    private static LocalDate minus(LocalDate today, char unit, int amount) {
+        switch (unit) {
+            case 'w': return today.minusWeeks(amount);
+            case 'm': return today.minusMonths(amount);
+            case 'y': return today.minusYears(amount);
+            default: return today.minusDays(amount);
+        }
+    }
+
+    private static int agoAmount(CharSequence message, int start, int end) {
+        if (Character.isDigit(message.charAt(start))) {
+            return (int) Math.min(parseNumber(message, start, end), 10_000);
+        }
+        return SMALL_NUMBER_VALUES[indexOf(SMALL_NUMBERS, message, start, end)];
+    }
+
+    private static LocalDate date(int year, int month, int day) {
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decimal number with optional thousands separators, parsed in place
+     */
+    private static double parseNumber(CharSequence text, int start, int end) {
+        double value = 0;
+        double scale = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                scale = 1;
+            } else if (c != ',') {
+                value = value * 10 + (c - '0');
+                scale *= 10;
+            }
+        }
+        return scale > 0 ? value / scale : value;
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    private static String unit(CharSequence text, int start, int end) {
+        char first = IntentClassifier.lower(text.charAt(start));
+        if (first == '%' || first == 'p') return "%";
+        if (first == 'g') return "gallons";
+        if (first == 'm') return "miles";
+        // kWh, kg or km: the letter after "k", or after "kilo"
+        int i = regionEquals(text, start, "kilo") ? start + 4 : start + 1;
+        char next = IntentClassifier.lower(text.charAt(Math.min(i, end - 1)));
+        if (next == 'w') return "kWh";
+        if (next == 'm') return "km";
+        return "kg";
+    }
+
+    private int find(CharSequence text, int start, int end) {
+        int slot = hash(text, start, end) & mask;
+        for (int index = slots[slot]; index != 0; index = slots[slot = (slot + 1) & mask]) {
+            char[] key = keys[index - 1];
+            if (key.length == end - start && regionEquals(text, start, key)) {
+                return index - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int find(List<char[]> keyList, char[] key) {
+        for (int i = 0; i < keyList.size(); i++) {
+            if (Arrays.equals(keyList.get(i), key)) return i;
+        }
+        return -1;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + IntentClassifier.lower(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, char[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (IntentClassifier.lower(text.charAt(start + i)) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, String word) {
+        if (start + word.length() > text.length()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (IntentClassifier.lower(text.charAt(start + i)) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(String[] words, CharSequence text, int start, int end) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].length() == end - start && regionEquals(text, start, words[i])) return i;
+        }
+        return -1;
+    }
+
+    private static String text(CharSequence message, int start, int end) {
+        return message.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,319 @@
+package main.java.com.ecohabit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keyword intent classifier, compiled once from pipe-joined patterns such as
+ * {@code "water|shower|save:0.3|good morning"}.
+ *
+ * Messages are scanned a word at a time, never as substrings, so "this" no longer says "hi".
+ * Each word is looked up in an open-addressed table straight from the message characters,
+ * after a light suffix fold ("recycling", "recycled" and "recycles" all meet "recycle").
+ * Two-word patterns match adjacent words. Every intent collects the weights of its distinct
+ * keywords, the highest total wins, ties go to the intent declared first, and totals under
+ * {@link #MIN_SCORE} fall back to {@link #DEFAULT_INTENT}. Confidence comes out of the same
+ * pass. A keyword's weight defaults to 1; vague words like "how" or "save" get less so they
+ * only decide a message when nothing more specific is in it.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public class IntentClassifier {
+
+    public static final String DEFAULT_INTENT = "default";
+
+    private static final double MIN_SCORE = 0.5;
+    private static final double DEFAULT_CONFIDENCE = 0.5;
+
+    private final String[] intents;
+    private final char[][] keys;        // folded keyword, or "first second" for phrases
+    private final int[] keyIntents;
+    private final double[] keyWeights;
+    private final boolean[] keyPhrases;
+    private final int[] sameKeyNext;    // next key with the same text in a later intent, or -1
+    private final int[] slots;          // open-addressed table of key index + 1, 0 when empty
+    private final int mask;
+
+    /**
+     * Result of classifying one message
+     */
+    public static final class Match {
+        private final String intent;
+        private final double confidence;
+        private final double score;
+
+        public Match(String intent, double confidence, double score) {
+            this.intent = intent;
+            this.confidence = confidence;
+            this.score = score;
+        }
+
+        public String getIntent() { return intent; }
+        public double getConfidence() { return confidence; }
+        public double getScore() { return score; }
+    }
+
+    private static final Match NO_MATCH = new Match(DEFAULT_INTENT, DEFAULT_CONFIDENCE, 0);
+
+    /**
+     * @param patterns intent -> pipe-joined keywords, each optionally suffixed with ":weight";
+     *                 iteration order breaks ties
+     */
+    public IntentClassifier(Map<String, String> patterns) {
+        List<String> intentNames = new ArrayList<>();
+        List<char[]> keyList = new ArrayList<>();
+        List<Integer> intentList = new ArrayList<>();
+        List<Double> weightList = new ArrayList<>();
+        List<Boolean> phraseList = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : patterns.entrySet()) {
+            int intent = intentNames.size();
+            intentNames.add(entry.getKey());
+
+            for (String keyword : entry.getValue().split("\\|")) {
+                String text = keyword.trim().toLowerCase(Locale.ROOT);
+                double weight = 1.0;
+                int colon = text.lastIndexOf(':');
+                if (colon > 0) {
+                    weight = Double.parseDouble(text.substring(colon + 1).trim());
+                    text = text.substring(0, colon).trim();
+                }
+                if (text.isEmpty()) continue;
+
+                boolean phrase = text.indexOf(' ') > 0;
+                char[] key = phrase ? text.replaceAll("\\s+", " ").toCharArray() : fold(text);
+
+                // Keywords that fold together ("thank", "thanks") count once, at the larger weight
+                int existing = indexOf(keyList, key, intentList, intent);
+                if (existing >= 0) {
+                    weightList.set(existing, Math.max(weightList.get(existing), weight));
+                    continue;
+                }
+                keyList.add(key);
+                intentList.add(intent);
+                weightList.add(weight);
+                phraseList.add(phrase);
+            }
+        }
+
+        int count = keyList.size();
+        this.intents = intentNames.toArray(new String[0]);
+        this.keys = keyList.toArray(new char[0][]);
+        this.keyIntents = new int[count];
+        this.keyWeights = new double[count];
+        this.keyPhrases = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            keyIntents[i] = intentList.get(i);
+            keyWeights[i] = weightList.get(i);
+            keyPhrases[i] = phraseList.get(i);
+        }
+
+        // A word listed under several intents is stored once and chains to the others
+        this.sameKeyNext = new int[count];
+        Arrays.fill(sameKeyNext, -1);
+        boolean[] chained = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int last = i;
+            for (int j = i + 1; j < count && !chained[i]; j++) {
+                if (!chained[j] && keyPhrases[j] == keyPhrases[i] && Arrays.equals(keys[j], keys[i])) {
+                    sameKeyNext[last] = j;
+                    chained[j] = true;
+                    last = j;
+                }
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 4 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < count; i++) {
+            if (chained[i]) continue;
+            int slot = mix(String.valueOf(keys[i]).hashCode()) & mask; // keys are already lowercase
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    public String[] getIntents() {
+        return intents.clone();
+    }
+
+    /**
+     * Classify a message. Case does not matter; null or blank messages are the default intent.
+     */
+    public Match classify(CharSequence message) {
+        if (message == null) return NO_MATCH;
+
+        double[] scores = null;
+        long[] seen = null;
+        int length = message.length();
+        int previousStart = -1;
+        int previousEnd = -1;
+        int i = 0;
+
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(message.charAt(i))) {
+                if (message.charAt(i) != ' ') previousStart = -1; // phrases never span punctuation
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(message.charAt(i))) {
+                i++;
+            }
+            if (start == i) break;
+
+            int key = find(message, start, foldedEnd(message, start, i));
+            if (key < 0 && previousStart >= 0) {
+                key = findPhrase(message, previousStart, previousEnd, start, i);
+            }
+            for (; key >= 0; key = sameKeyNext[key]) {
+                if (scores == null) {
+                    scores = new double[intents.length];
+                    seen = new long[(keys.length + 63) >>> 6];
+                }
+                long bit = 1L << key;
+                if ((seen[key >>> 6] & bit) == 0) {
+                    seen[key >>> 6] |= bit;
+                    scores[keyIntents[key]] += keyWeights[key];
+                }
+            }
+            previousStart = start;
+            previousEnd = i;
+        }
+
+        if (scores == null) return NO_MATCH;
+
+        int best = 0;
+        double runnerUp = 0;
+        for (int intent = 1; intent < scores.length; intent++) {
+            if (scores[intent] > scores[best]) {
+                runnerUp = scores[best];
+                best = intent;
+            } else if (scores[intent] > runnerUp) {
+                runnerUp = scores[intent];
+            }
+        }
+
+        double score = scores[best];
+        if (score < MIN_SCORE) return NO_MATCH;
+
+        // More keyword weight raises confidence; a close second intent lowers it
+        double confidence = Math.min(0.3 + score * 0.2, 1.0) * score / (score + runnerUp);
+        return new Match(intents[best], confidence, score);
+    }
+
+    private int find(CharSequence text, int start, int end) {
+        int slot = mix(hash(0, text, start, end)) & mask;
+        for (int index = slots[slot]; index != 0; index = slots[slot = (slot + 1) & mask]) {
+            char[] key = keys[index - 1];
+            if (!keyPhrases[index - 1] && key.length == end - start && regionMatches(key, 0, text, start, end)) {
+                return index - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Look up "first second" as an exact two-word phrase
+     */
+    private int findPhrase(CharSequence text, int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        int firstLength = firstEnd - firstStart;
+        int length = firstLength + 1 + secondEnd - secondStart;
+        int h = hash(31 * hash(0, text, firstStart, firstEnd) + ' ', text, secondStart, secondEnd);
+
+        int slot = mix(h) & mask;
+        for (int index = slots[slot]; index != 0; index = slots[slot = (slot + 1) & mask]) {
+            char[] key = keys[index - 1];
+            if (keyPhrases[index - 1] && key.length == length && key[firstLength] == ' '
+                    && regionMatches(key, 0, text, firstStart, firstEnd)
+                    && regionMatches(key, firstLength + 1, text, secondStart, secondEnd)) {
+                return index - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(char[] key, int offset, CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (key[offset++] != lower(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Continue {@link String#hashCode()} over the lowercased characters
+     */
+    private static int hash(int h, CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            h = 31 * h + lower(text.charAt(i));
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    static char lower(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static char[] fold(String word) {
+        return word.substring(0, foldedEnd(word, 0, word.length())).toCharArray();
+    }
+
+    /**
+     * End of the word once one plural or verb suffix, a final silent "e" and a doubled final
+     * consonant are dropped. Not a stemmer, just enough that keyword and message forms meet.
+     */
+    static int foldedEnd(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length >= 6 && endsWith(text, end, "ing")) {
+            end -= 3;
+        } else if (length >= 5 && (endsWith(text, end, "ed") || endsWith(text, end, "es"))) {
+            end -= 2;
+        } else if (length >= 4 && endsWith(text, end, "s") && !endsWith(text, end, "ss")) {
+            end -= 1;
+        }
+
+        if (end - start >= 4 && lower(text.charAt(end - 1)) == 'e') {
+            end--;
+        }
+        if (end - start >= 4) {
+            char last = lower(text.charAt(end - 1));
+            if (last == lower(text.charAt(end - 2)) && isConsonant(last)) {
+                end--;
+            }
+        }
+        return end;
+    }
+
+    private static boolean endsWith(CharSequence text, int end, String suffix) {
+        int start = end - suffix.length();
+        for (int i = 0; i < suffix.length(); i++) {
+            if (lower(text.charAt(start + i)) != suffix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isConsonant(char c) {
+        return c >= 'a' && c <= 'z' && "aeiou".indexOf(c) < 0;
+    }
+
+    private static int indexOf(List<char[]> keyList, char[] key, List<Integer> intentList, int intent) {
+        for (int i = 0; i < keyList.size(); i++) {
+            if (intentList.get(i) == intent && Arrays.equals(keyList.get(i), key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,227 @@
+package main.java.com.ecohabit.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Trained intent model: multinomial naive Bayes over TF-IDF weighted, hashed word features,
+ * written by {@link IntentModelTrainer} from the labeled corpus in {@code data/chat_intents.json}.
+ *
+ * The model file is memory-mapped and scored in place, so loading costs a few milliseconds and
+ * no heap. Layout, big-endian:
+ * <pre>
+ * int magic, int version, int hashBits, int classCount, int featureCount
+ * classCount x (short length, UTF-8 name)
+ * float[classCount]                 log prior
+ * int[featureCount]                 feature hashes, ascending
+ * float[featureCount]               idf
+ * float[featureCount * classCount]  log P(feature | class), feature-major
+ * </pre>
+ * Features the model never saw are ignored; a message with none of its features gets no
+ * prediction, and the caller falls back to keyword matching.
+ */
+public class IntentModel {
+
+    public static final String MODEL_FILE = "src/main/resources/data/intent_model.bin";
+    public static final String MODEL_RESOURCE = "/main/resources/data/intent_model.bin";
+
+    static final int MAGIC = 0x45484931; // "EHI1"
+    static final int VERSION = 1;
+    static final int HASH_BITS = 20;
+
+    private static final int SEED = 0x2545F491;
+
+    private final ByteBuffer buffer;
+    private final String[] classes;
+    private final int classCount;
+    private final int featureCount;
+    private final int priorsOffset;
+    private final int hashesOffset;
+    private final int idfOffset;
+    private final int likelihoodOffset;
+
+    private IntentModel(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != HASH_BITS) {
+            throw new IOException("Not an intent model, or built by another version");
+        }
+        this.classCount = buffer.getInt(12);
+        this.featureCount = buffer.getInt(16);
+
+        int position = 20;
+        this.classes = new String[classCount];
+        for (int c = 0; c < classCount; c++) {
+            int length = buffer.getShort(position);
+            byte[] name = new byte[length];
+            buffer.get(position + 2, name);
+            classes[c] = new String(name, StandardCharsets.UTF_8);
+            position += 2 + length;
+        }
+        this.priorsOffset = position;
+        this.hashesOffset = priorsOffset + 4 * classCount;
+        this.idfOffset = hashesOffset + 4 * featureCount;
+        this.likelihoodOffset = idfOffset + 4 * featureCount;
+        if (likelihoodOffset + 4L * featureCount * classCount > buffer.limit()) {
+            throw new IOException("Intent model is truncated");
+        }
+    }
+
+    /**
+     * Map a model file
+     */
+    public static IntentModel load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new IntentModel(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * The bundled model: mapped from the data directory when running from source, otherwise
+     * read from the classpath. Null when there is none.
+     */
+    public static IntentModel loadDefault() {
+        try {
+            Path path = Paths.get(MODEL_FILE);
+            if (Files.isRegularFile(path)) {
+                return load(path);
+            }
+            try (InputStream in = IntentModel.class.getResourceAsStream(MODEL_RESOURCE)) {
+                if (in != null) {
+                    return new IntentModel(ByteBuffer.wrap(in.readAllBytes()));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading intent model: " + e.getMessage());
+        }
+        return null;
+    }
+
+    public String[] getIntents() {
+        return classes.clone();
+    }
+
+    /**
+     * Most likely intent with its posterior probability as confidence, or null when the message
+     * has no feature the model knows
+     */
+    public IntentClassifier.Match classify(CharSequence message) {
+        int[] features = features(message);
+        if (features.length == 0) return null;
+        Arrays.sort(features);
+
+        // Log-scaled term frequency times idf, L2-normalized, over the features the model knows
+        int known = 0;
+        int[] rows = new int[features.length];
+        float[] weights = new float[features.length];
+        double norm = 0;
+        for (int i = 0; i < features.length; ) {
+            int hash = features[i];
+            int count = 0;
+            while (i < features.length && features[i] == hash) {
+                count++;
+                i++;
+            }
+            int row = findFeature(hash);
+            if (row < 0) continue;
+
+            float weight = (float) ((1 + Math.log(count)) * buffer.getFloat(idfOffset + 4 * row));
+            rows[known] = row;
+            weights[known] = weight;
+            norm += weight * weight;
+            known++;
+        }
+        if (known == 0) return null;
+        norm = Math.sqrt(norm);
+
+        double[] scores = new double[classCount];
+        for (int c = 0; c < classCount; c++) {
+            scores[c] = buffer.getFloat(priorsOffset + 4 * c);
+        }
+        for (int k = 0; k < known; k++) {
+            double weight = weights[k] / norm;
+            int base = likelihoodOffset + 4 * rows[k] * classCount;
+            for (int c = 0; c < classCount; c++) {
+                scores[c] += weight * buffer.getFloat(base + 4 * c);
+            }
+        }
+
+        int best = 0;
+        for (int c = 1; c < classCount; c++) {
+            if (scores[c] > scores[best]) best = c;
+        }
+        double total = 0;
+        for (int c = 0; c < classCount; c++) {
+            total += Math.exp(scores[c] - scores[best]);
+        }
+        double confidence = 1.0 / total;
+        return new IntentClassifier.Match(classes[best], confidence, scores[best]);
+    }
+
+    private int findFeature(int hash) {
+        int low = 0;
+        int high = featureCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = buffer.getInt(hashesOffset + 4 * mid);
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hashed features of a message, one entry per occurrence of each folded word. Shared with
+     * the trainer so both see the same features.
+     */
+    static int[] features(CharSequence text) {
+        if (text == null) return new int[0];
+
+        int[] features = new int[16];
+        int count = 0;
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (start == i) break;
+
+            int end = IntentClassifier.foldedEnd(text, start, i);
+            int word = 0;
+            for (int j = start; j < end; j++) {
+                word = 31 * word + IntentClassifier.lower(text.charAt(j));
+            }
+
+            if (count == features.length) {
+                features = Arrays.copyOf(features, count * 2);
+            }
+            features[count++] = bucket(word * 31 + SEED);
+        }
+        return Arrays.copyOf(features, count);
+    }
+
+    private static int bucket(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & ((1 << HASH_BITS) - 1);
+    }
+}
@@ -0,0 +1,230 @@
+package main.java.com.ecohabit.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Offline trainer for {@link IntentModel}, run with {@code gradle trainIntentModel}.
+ *
+ * Reads {@code [{"intent": ..., "keywords": [...], "examples": [...]}, ...]}, reports 5-fold
+ * cross-validated accuracy over the examples, then trains on the whole corpus and writes the
+ * binary model. Keywords are one-word documents that are always trained on, so the model
+ * knows the vocabulary the keyword classifier does even where no example uses it.
+ *
+ * Each example becomes L2-normalized TF-IDF weights over its hashed features; a class's
+ * likelihoods are its summed weights with additive smoothing.
+ */
+public class IntentModelTrainer {
+
+    public static final String CORPUS_FILE = "src/main/resources/data/chat_intents.json";
+
+    private static final double SMOOTHING = 0.1;
+    private static final int FOLDS = 5;
+
+    private final List<String> classes = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final List<int[]> documents = new ArrayList<>(); // sorted feature hashes per example
+    private final List<Integer> labels = new ArrayList<>();
+    private final List<int[]> lexicon = new ArrayList<>();
+    private final List<Integer> lexiconLabels = new ArrayList<>();
+
+    /**
+     * Trained parameters, in the order they are written
+     */
+    private static final class Parameters {
+        float[] logPriors;
+        int[] hashes;
+        float[] idf;
+        float[] logLikelihoods; // feature-major
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path corpus = Paths.get(args.length > 0 ? args[0] : CORPUS_FILE);
+        Path output = Paths.get(args.length > 1 ? args[1] : IntentModel.MODEL_FILE);
+
+        IntentModelTrainer trainer = new IntentModelTrainer();
+        trainer.readCorpus(corpus);
+        System.out.printf("Read %d examples of %d intents%n", trainer.documents.size(), trainer.classes.size());
+        System.out.printf("Cross-validated accuracy: %.1f%%%n", 100 * trainer.crossValidate());
+
+        Parameters parameters = trainer.train(allIndexes(trainer.documents.size()));
+        trainer.write(parameters, output);
+        System.out.printf("Wrote %d features to %s (%d bytes)%n",
+                parameters.hashes.length, output, Files.size(output));
+    }
+
+    void readCorpus(Path corpus) throws IOException {
+        JsonArray intents = JsonParser.parseString(Files.readString(corpus, StandardCharsets.UTF_8)).getAsJsonArray();
+        for (JsonElement element : intents) {
+            JsonObject intent = element.getAsJsonObject();
+            int label = classes.size();
+            classes.add(intent.get("intent").getAsString());
+            if (intent.has("keywords")) {
+                for (JsonElement keyword : intent.getAsJsonArray("keywords")) {
+                    int[] features = IntentModel.features(keyword.getAsString());
+                    Arrays.sort(features);
+                    lexicon.add(features);
+                    lexiconLabels.add(label);
+                }
+            }
+            for (JsonElement example : intent.getAsJsonArray("examples")) {
+                int[] features = IntentModel.features(example.getAsString());
+                Arrays.sort(features);
+                texts.add(example.getAsString());
+                documents.add(features);
+                labels.add(label);
+            }
+        }
+    }
+
+    /**
+     * Train on all but one fold at a time and score the held-out fold
+     */
+    double crossValidate() throws IOException {
+        int correct = 0;
+        for (int fold = 0; fold < FOLDS; fold++) {
+            List<Integer> training = new ArrayList<>();
+            List<Integer> testing = new ArrayList<>();
+            for (int i = 0; i < documents.size(); i++) {
+                (i % FOLDS == fold ? testing : training).add(i);
+            }
+
+            Path file = Files.createTempFile("intent_model", ".bin");
+            try {
+                write(train(training), file);
+                IntentModel model = IntentModel.load(file);
+                for (int i : testing) {
+                    IntentClassifier.Match match = model.classify(texts.get(i));
+                    if (match != null && match.getIntent().equals(classes.get(labels.get(i)))) {
+                        correct++;
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        return (double) correct / documents.size();
+    }
+
+    /**
+     * Train on the given examples plus every keyword in the lexicon
+     */
+    Parameters train(List<Integer> examples) {
+        List<int[]> trainingDocuments = new ArrayList<>(lexicon);
+        List<Integer> trainingLabels = new ArrayList<>(lexiconLabels);
+        for (int i : examples) {
+            trainingDocuments.add(documents.get(i));
+            trainingLabels.add(labels.get(i));
+        }
+        int documentCount = trainingDocuments.size();
+
+        // Vocabulary and document frequencies
+        TreeMap<Integer, Integer> documentFrequency = new TreeMap<>();
+        for (int[] features : trainingDocuments) {
+            for (int f = 0; f < features.length; f++) {
+                if (f == 0 || features[f] != features[f - 1]) {
+                    documentFrequency.merge(features[f], 1, Integer::sum);
+                }
+            }
+        }
+
+        int featureCount = documentFrequency.size();
+        int classCount = classes.size();
+        Parameters parameters = new Parameters();
+        parameters.hashes = new int[featureCount];
+        parameters.idf = new float[featureCount];
+        Map<Integer, Integer> rows = new HashMap<>();
+        int row = 0;
+        for (Map.Entry<Integer, Integer> entry : documentFrequency.entrySet()) {
+            parameters.hashes[row] = entry.getKey();
+            parameters.idf[row] = (float) (Math.log((documentCount + 1.0) / (entry.getValue() + 1.0)) + 1.0);
+            rows.put(entry.getKey(), row++);
+        }
+
+        // Summed normalized TF-IDF weight of each feature per class
+        double[] weightSums = new double[featureCount * classCount];
+        double[] classTotals = new double[classCount];
+        int[] classDocuments = new int[classCount];
+        for (int d = 0; d < documentCount; d++) {
+            int label = trainingLabels.get(d);
+            classDocuments[label]++;
+
+            int[] features = trainingDocuments.get(d);
+            List<int[]> counts = new ArrayList<>(); // {row, count}
+            double norm = 0;
+            for (int f = 0; f < features.length; ) {
+                int hash = features[f];
+                int count = 0;
+                while (f < features.length && features[f] == hash) {
+                    count++;
+                    f++;
+                }
+                int featureRow = rows.get(hash);
+                double weight = (1 + Math.log(count)) * parameters.idf[featureRow];
+                counts.add(new int[] {featureRow, count});
+                norm += weight * weight;
+            }
+            norm = Math.sqrt(norm);
+            for (int[] count : counts) {
+                double weight = (1 + Math.log(count[1])) * parameters.idf[count[0]] / norm;
+                weightSums[count[0] * classCount + label] += weight;
+                classTotals[label] += weight;
+            }
+        }
+
+        parameters.logPriors = new float[classCount];
+        parameters.logLikelihoods = new float[featureCount * classCount];
+        for (int c = 0; c < classCount; c++) {
+            parameters.logPriors[c] = (float) Math.log((classDocuments[c] + 1.0) / (documentCount + classCount));
+            double denominator = classTotals[c] + SMOOTHING * featureCount;
+            for (int f = 0; f < featureCount; f++) {
+                parameters.logLikelihoods[f * classCount + c] =
+                        (float) Math.log((weightSums[f * classCount + c] + SMOOTHING) / denominator);
+            }
+        }
+        return parameters;
+    }
+
+    void write(Parameters parameters, Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream file = Files.newOutputStream(output);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(IntentModel.MAGIC);
+            out.writeInt(IntentModel.VERSION);
+            out.writeInt(IntentModel.HASH_BITS);
+            out.writeInt(classes.size());
+            out.writeInt(parameters.hashes.length);
+            for (String name : classes) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            for (float prior : parameters.logPriors) out.writeFloat(prior);
+            for (int hash : parameters.hashes) out.writeInt(hash);
+            for (float idf : parameters.idf) out.writeFloat(idf);
+            for (float likelihood : parameters.logLikelihoods) out.writeFloat(likelihood);
+        }
+    }
+
+    private static List<Integer> allIndexes(int count) {
+        List<Integer> indexes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,222 @@
+package main.java.com.ecohabit.service;
+
+import java.util.*;
+
+/**
+ * Users ranked by a score, highest first, ties broken by lower user id.
+ *
+ * Backed by an order-statistic treap (a randomized balanced search tree whose nodes carry
+ * subtree sizes), so score updates, a user's rank and the start of the top-K walk all take
+ * O(log n). Only users with a positive score are ranked.
+ *
+ * Not thread-safe; {@link LeaderboardService} guards access.
+ */
+public class Leaderboard {
+
+    private final Map<Integer, Double> scores;
+    private final Random random;
+    private Node root;
+
+    public Leaderboard() {
+        this.scores = new HashMap<>();
+        this.random = new Random();
+    }
+
+    /**
+     * A ranked user
+     */
+    public static final class Entry {
+        private final int rank;
+        private final int userId;
+        private final double score;
+
+        public Entry(int rank, int userId, double score) {
+            this.rank = rank;
+            this.userId = userId;
+            this.score = score;
+        }
+
+        public int getRank() { return rank; }
+        public int getUserId() { return userId; }
+        public double getScore() { return score; }
+
+        @Override
+        public String toString() {
+            return "#" + rank + " user " + userId + " (" + score + ")";
+        }
+    }
+
+    private static final class Node {
+        private final int userId;
+        private final double score;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(int userId, double score, int priority) {
+            this.userId = userId;
+            this.score = score;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Set a user's score. A score of zero or less removes the user from the board.
+     */
+    public void set(int userId, double score) {
+        Double old = scores.remove(userId);
+        if (old != null) {
+            root = delete(root, old, userId);
+        }
+        if (score > 0) {
+            scores.put(userId, score);
+            root = insert(root, new Node(userId, score, random.nextInt()));
+        }
+    }
+
+    /**
+     * Add to a user's score and return the new score
+     */
+    public double add(int userId, double delta) {
+        double score = getScore(userId) + delta;
+        set(userId, score);
+        return score;
+    }
+
+    public void remove(int userId) {
+        set(userId, 0);
+    }
+
+    public double getScore(int userId) {
+        return scores.getOrDefault(userId, 0.0);
+    }
+
+    /**
+     * 1-based rank of a user, or 0 when the user is not on the board
+     */
+    public int getRank(int userId) {
+        Double score = scores.get(userId);
+        if (score == null) return 0;
+
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(score, userId, node.score, node.userId);
+            if (cmp == 0) {
+                return before + size(node.left) + 1;
+            }
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The k highest ranked users
+     */
+    public List<Entry> top(int k) {
+        List<Entry> entries = new ArrayList<>(Math.min(Math.max(k, 0), size()));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+
+        while ((node != null || !stack.isEmpty()) && entries.size() < k) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            entries.add(new Entry(entries.size() + 1, node.userId, node.score));
+            node = node.right;
+        }
+        return entries;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void clear() {
+        scores.clear();
+        root = null;
+    }
+
+    // Order: higher score first, then lower user id
+    private static int compare(double score1, int userId1, double score2, int userId2) {
+        int cmp = Double.compare(score2, score1);
+        return cmp != 0 ? cmp : Integer.compare(userId1, userId2);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) return added;
+
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.score, added.userId);
+            added.left = parts[0];
+            added.right = parts[1];
+            return update(added);
+        }
+        if (compare(added.score, added.userId, node.score, node.userId) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return update(node);
+    }
+
+    private static Node delete(Node node, double score, int userId) {
+        if (node == null) return null;
+
+        int cmp = compare(score, userId, node.score, node.userId);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, score, userId);
+        } else {
+            node.right = delete(node.right, score, userId);
+        }
+        return update(node);
+    }
+
+    /**
+     * Split into nodes ordered before the key and nodes at or after it
+     */
+    private static Node[] split(Node node, double score, int userId) {
+        if (node == null) return new Node[]{null, null};
+
+        if (compare(node.score, node.userId, score, userId) < 0) {
+            Node[] parts = split(node.right, score, userId);
+            node.right = parts[0];
+            return new Node[]{update(node), parts[1]};
+        }
+        Node[] parts = split(node.left, score, userId);
+        node.left = parts[1];
+        return new Node[]{parts[0], update(node)};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+}
@@ -0,0 +1,294 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.dao.LeaderboardDAO;
+import main.java.com.ecohabit.model.Activity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Leaderboards for CO2 saved, current streak and badge points.
+ *
+ * Boards are updated in O(log n) as activities are logged and badges awarded, and rebuilt
+ * from database rollups at startup. CO2 and badge points also keep weekly and monthly boards.
+ * These roll over by swapping in an empty board when the period changes. Streaks are a current
+ * value, so every window returns the same streak board. Streaks that lapse are dropped day by
+ * day, using an index of users keyed by their last activity day.
+ */
+public class LeaderboardService {
+
+    public enum Metric { CO2_SAVED, STREAK, BADGE_POINTS }
+
+    public enum Window { ALL_TIME, WEEKLY, MONTHLY }
+
+    private static LeaderboardService instance;
+
+    private final LeaderboardDAO leaderboardDAO;
+    private final ExecutorService rebuildExecutor;
+
+    private final Leaderboard co2AllTime = new Leaderboard();
+    private final Leaderboard pointsAllTime = new Leaderboard();
+    private final Leaderboard streaks = new Leaderboard();
+    private Leaderboard co2Weekly = new Leaderboard();
+    private Leaderboard co2Monthly = new Leaderboard();
+    private Leaderboard pointsWeekly = new Leaderboard();
+    private Leaderboard pointsMonthly = new Leaderboard();
+    private LocalDate weekStart;
+    private LocalDate monthStart;
+
+    // What the last rebuild read from the database, so events it already covered are skipped:
+    // activities up to this id, and each user's earned badge templates
+    private long activityWatermark;
+    private final Map<Integer, Set<String>> countedBadges = new HashMap<>();
+
+    // Streak tracking: last activity day per user, and users grouped by that day for expiry
+    private final Map<Integer, StreakState> streakStates = new HashMap<>();
+    private final TreeMap<LocalDate, Set<Integer>> usersByLastDay = new TreeMap<>();
+
+    private static final class StreakState {
+        private LocalDate lastDay;
+        private int streak;
+    }
+
+    private LeaderboardService() {
+        this.leaderboardDAO = new LeaderboardDAO();
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "leaderboard-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDate today = LocalDate.now();
+        this.weekStart = startOfWeek(today);
+        this.monthStart = today.withDayOfMonth(1);
+    }
+
+    public static synchronized LeaderboardService getInstance() {
+        if (instance == null) {
+            instance = new LeaderboardService();
+        }
+        return instance;
+    }
+
+    /**
+     * Rebuild every board from database rollups on a background thread
+     *
+     * @param templatePoints badge template key -> points awarded
+     */
+    public void rebuildAsync(Map<String, Integer> templatePoints) {
+        rebuildExecutor.execute(() -> rebuild(templatePoints));
+    }
+
+    /**
+     * Rebuild only the badge point boards on a background thread, e.g. after a badge backfill
+     */
+    public void rebuildBadgePointsAsync(Map<String, Integer> templatePoints) {
+        rebuildExecutor.execute(() -> rebuildBadgePoints(templatePoints));
+    }
+
+    /**
+     * Rebuild every board from database rollups. Runs under the service lock, so events arriving
+     * meanwhile wait for it; those the rollups already read are then skipped, not counted twice.
+     */
+    public synchronized void rebuild(Map<String, Integer> templatePoints) {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        rollOver(today);
+        activityWatermark = leaderboardDAO.loadMaxActivityId();
+
+        co2AllTime.clear();
+        co2Weekly.clear();
+        co2Monthly.clear();
+        for (LeaderboardDAO.Co2Rollup rollup : leaderboardDAO.loadCo2Rollups(weekStart, monthStart, activityWatermark)) {
+            co2AllTime.set(rollup.getUserId(), rollup.getTotal());
+            co2Weekly.set(rollup.getUserId(), rollup.getWeek());
+            co2Monthly.set(rollup.getUserId(), rollup.getMonth());
+        }
+
+        streaks.clear();
+        streakStates.clear();
+        usersByLastDay.clear();
+        for (LeaderboardDAO.StreakRollup rollup : leaderboardDAO.loadStreakRollups(activityWatermark)) {
+            StreakState state = new StreakState();
+            state.lastDay = rollup.getLastDay();
+            state.streak = rollup.getStreak();
+            streakStates.put(rollup.getUserId(), state);
+            trackLastDay(rollup.getUserId(), null, state.lastDay);
+            if (!state.lastDay.isBefore(today.minusDays(1))) {
+                streaks.set(rollup.getUserId(), state.streak);
+            }
+        }
+
+        rebuildBadgePoints(templatePoints);
+        System.out.println("Leaderboards rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Rebuild the badge point boards from earned badges
+     */
+    public synchronized void rebuildBadgePoints(Map<String, Integer> templatePoints) {
+        rollOver(LocalDate.now());
+
+        pointsAllTime.clear();
+        pointsWeekly.clear();
+        pointsMonthly.clear();
+        countedBadges.clear();
+        for (LeaderboardDAO.EarnedBadge badge : leaderboardDAO.loadEarnedBadges()) {
+            Integer points = templatePoints.get(badge.getTemplateKey());
+            if (points != null) {
+                countedBadges.computeIfAbsent(badge.getUserId(), k -> new HashSet<>()).add(badge.getTemplateKey());
+                addPoints(badge.getUserId(), points, badge.getEarnedDate());
+            }
+        }
+    }
+
+    /**
+     * Apply a logged activity to the CO2 and streak boards, unless the last rebuild already
+     * read it. The activity must have been saved, so that its id is set.
+     */
+    public synchronized void onActivityLogged(int userId, Activity activity) {
+        if (activity.getId() > 0 && activity.getId() <= activityWatermark) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        rollOver(today);
+        LocalDate day = activity.getDate() != null ? activity.getDate() : today;
+
+        double co2 = activity.getCo2Saved();
+        if (co2 > 0) {
+            co2AllTime.add(userId, co2);
+            if (!day.isBefore(weekStart)) co2Weekly.add(userId, co2);
+            if (!day.isBefore(monthStart)) co2Monthly.add(userId, co2);
+        }
+
+        StreakState state = streakStates.computeIfAbsent(userId, k -> new StreakState());
+        LocalDate previous = state.lastDay;
+        if (previous != null && !day.isAfter(previous)) {
+            // Same day, or back-dated: the current run is unchanged
+            return;
+        }
+
+        state.streak = previous != null && day.equals(previous.plusDays(1)) ? state.streak + 1 : 1;
+        state.lastDay = day;
+        trackLastDay(userId, previous, day);
+        if (!day.isBefore(today.minusDays(1))) {
+            streaks.set(userId, state.streak);
+        }
+    }
+
+    /**
+     * Apply an awarded badge to the point boards, unless the last rebuild already counted it
+     */
+    public synchronized void onBadgeAwarded(int userId, String templateKey, int points, LocalDateTime earnedDate) {
+        if (templateKey != null && !countedBadges.computeIfAbsent(userId, k -> new HashSet<>()).add(templateKey)) {
+            return;
+        }
+        rollOver(LocalDate.now());
+        addPoints(userId, points, earnedDate);
+    }
+
+    /**
+     * Drop a user's badge points after their badges were reset
+     */
+    public synchronized void onBadgesReset(int userId) {
+        countedBadges.remove(userId);
+        pointsAllTime.remove(userId);
+        pointsWeekly.remove(userId);
+        pointsMonthly.remove(userId);
+    }
+
+    /**
+     * The k highest ranked users
+     */
+    public synchronized List<Leaderboard.Entry> getTop(Metric metric, Window window, int k) {
+        rollOver(LocalDate.now());
+        return board(metric, window).top(k);
+    }
+
+    /**
+     * A user's 1-based rank, or 0 when the user has no score on the board
+     */
+    public synchronized int getRank(Metric metric, Window window, int userId) {
+        rollOver(LocalDate.now());
+        return board(metric, window).getRank(userId);
+    }
+
+    public synchronized double getScore(Metric metric, Window window, int userId) {
+        rollOver(LocalDate.now());
+        return board(metric, window).getScore(userId);
+    }
+
+    /**
+     * Number of users ranked on a board
+     */
+    public synchronized int getParticipantCount(Metric metric, Window window) {
+        rollOver(LocalDate.now());
+        return board(metric, window).size();
+    }
+
+    private Leaderboard board(Metric metric, Window window) {
+        switch (metric) {
+            case STREAK:
+                return streaks;
+            case BADGE_POINTS:
+                return window == Window.WEEKLY ? pointsWeekly : window == Window.MONTHLY ? pointsMonthly : pointsAllTime;
+            case CO2_SAVED:
+            default:
+                return window == Window.WEEKLY ? co2Weekly : window == Window.MONTHLY ? co2Monthly : co2AllTime;
+        }
+    }
+
+    private void addPoints(int userId, int points, LocalDateTime earnedDate) {
+        if (points <= 0) return;
+
+        LocalDate day = earnedDate != null ? earnedDate.toLocalDate() : LocalDate.now();
+        pointsAllTime.add(userId, points);
+        if (!day.isBefore(weekStart)) pointsWeekly.add(userId, points);
+        if (!day.isBefore(monthStart)) pointsMonthly.add(userId, points);
+    }
+
+    /**
+     * Start new windowed boards when the week or month changed, and drop lapsed streaks
+     */
+    private void rollOver(LocalDate today) {
+        LocalDate currentWeek = startOfWeek(today);
+        if (!currentWeek.equals(weekStart)) {
+            weekStart = currentWeek;
+            co2Weekly = new Leaderboard();
+            pointsWeekly = new Leaderboard();
+        }
+
+        LocalDate currentMonth = today.withDayOfMonth(1);
+        if (!currentMonth.equals(monthStart)) {
+            monthStart = currentMonth;
+            co2Monthly = new Leaderboard();
+            pointsMonthly = new Leaderboard();
+        }
+
+        // A streak survives as long as the last activity was today or yesterday
+        LocalDate cutoff = today.minusDays(1);
+        while (!usersByLastDay.isEmpty() && usersByLastDay.firstKey().isBefore(cutoff)) {
+            for (Integer userId : usersByLastDay.pollFirstEntry().getValue()) {
+                streaks.remove(userId);
+            }
+        }
+    }
+
+    private void trackLastDay(int userId, LocalDate previous, LocalDate day) {
+        if (previous != null) {
+            Set<Integer> users = usersByLastDay.get(previous);
+            if (users != null) {
+                users.remove(userId);
+                if (users.isEmpty()) usersByLastDay.remove(previous);
+            }
+        }
+        usersByLastDay.computeIfAbsent(day, k -> new HashSet<>()).add(userId);
+    }
+
+    private static LocalDate startOfWeek(LocalDate day) {
+        return day.with(DayOfWeek.MONDAY);
+    }
+}
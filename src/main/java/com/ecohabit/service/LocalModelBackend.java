@@ -0,0 +1,233 @@
+package main.java.com.ecohabit.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import main.java.com.ecohabit.model.ChatMessage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response backend for a model running in a local process and serving HTTP, enabled by
+ * pointing {@value #URL_PROPERTY} at it, e.g. {@code http://127.0.0.1:8089/respond}.
+ *
+ * Prompts waiting while all {@value #MAX_CONCURRENT_PROPERTY} (default 2) requests are in flight
+ * are sent together, up to {@value #MAX_BATCH_PROPERTY} (default 8) per request:
+ * <pre>
+ * POST {"prompts": [{"id": 1, "intent": "greeting", "user": "Sam", "message": "hi",
+ *                    "history": [{"role": "user", "content": "..."}]}]}
+ * 200  {"responses": [{"id": 1, "text": "Hello Sam!"}]}
+ * </pre>
+ * A request taking longer than {@value #TIMEOUT_PROPERTY} (default 10000 ms), a non-200 status
+ * or a missing id fails those prompts, and {@link ResponseBackends} answers them from the
+ * templates.
+ */
+public class LocalModelBackend implements ResponseBackend {
+
+    public static final String NAME = "local-model";
+    public static final String URL_PROPERTY = "ecohabit.chat.localModel.url";
+    public static final String TIMEOUT_PROPERTY = "ecohabit.chat.localModel.timeoutMs";
+    public static final String MAX_CONCURRENT_PROPERTY = "ecohabit.chat.localModel.maxConcurrent";
+    public static final String MAX_BATCH_PROPERTY = "ecohabit.chat.localModel.maxBatch";
+
+    private static final int HISTORY_MESSAGES = 6;
+
+    private final URI endpoint;
+    private final Duration timeout;
+    private final int maxBatch;
+    private final Semaphore inFlight;
+    private final ConcurrentLinkedQueue<Pending> pending;
+    private final AtomicLong ids;
+    private HttpClient client; // created with the first prompt
+
+    /**
+     * A prompt waiting for its reply
+     */
+    private static final class Pending {
+        private final long id;
+        private final Prompt prompt;
+        private final CompletableFuture<String> reply = new CompletableFuture<>();
+
+        private Pending(long id, Prompt prompt) {
+            this.id = id;
+            this.prompt = prompt;
+        }
+    }
+
+    public LocalModelBackend() {
+        String url = System.getProperty(URL_PROPERTY);
+        URI uri = null;
+        if (url != null && !url.isBlank()) {
+            try {
+                uri = URI.create(url.trim());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid local model URL: " + url);
+            }
+        }
+        this.endpoint = uri;
+        this.timeout = Duration.ofMillis(Math.max(1, Long.getLong(TIMEOUT_PROPERTY, 10_000)));
+        this.maxBatch = Math.max(1, Integer.getInteger(MAX_BATCH_PROPERTY, 8));
+        this.inFlight = new Semaphore(Math.max(1, Integer.getInteger(MAX_CONCURRENT_PROPERTY, 2)));
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.ids = new AtomicLong();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return endpoint != null;
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    @Override
+    public CompletableFuture<String> respond(Prompt prompt) {
+        if (endpoint == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No local model URL configured"));
+        }
+        Pending request = new Pending(ids.incrementAndGet(), prompt);
+        pending.add(request);
+        dispatch();
+        return request.reply;
+    }
+
+    /**
+     * Send waiting prompts while fewer than the limit of requests are in flight
+     */
+    private void dispatch() {
+        while (!pending.isEmpty() && inFlight.tryAcquire()) {
+            List<Pending> batch = new ArrayList<>();
+            for (Pending request; batch.size() < maxBatch && (request = pending.poll()) != null; ) {
+                if (!request.reply.isDone()) { // timed out while waiting
+                    batch.add(request);
+                }
+            }
+            if (batch.isEmpty()) {
+                inFlight.release();
+            } else {
+                send(batch);
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(batch).toString()))
+                .build();
+
+        client().sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            try {
+                if (error != null) {
+                    fail(batch, error);
+                } else if (response.statusCode() != 200) {
+                    fail(batch, new IOException("Local model returned status " + response.statusCode()));
+                } else {
+                    complete(batch, response.body());
+                }
+            } finally {
+                inFlight.release();
+                dispatch();
+            }
+        });
+    }
+
+    private synchronized HttpClient client() {
+        if (client == null) {
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .build();
+        }
+        return client;
+    }
+
+    private static JsonObject toJson(List<Pending> batch) {
+        JsonArray prompts = new JsonArray();
+        for (Pending request : batch) {
+            Prompt prompt = request.prompt;
+            JsonObject json = new JsonObject();
+            json.addProperty("id", request.id);
+            json.addProperty("intent", prompt.getIntent());
+            json.addProperty("user", prompt.getUserName());
+            json.addProperty("message", prompt.getMessage());
+
+            JsonArray history = new JsonArray();
+            List<ChatMessage> messages = prompt.getHistory();
+            for (ChatMessage message : messages.subList(Math.max(0, messages.size() - HISTORY_MESSAGES), messages.size())) {
+                JsonObject turn = new JsonObject();
+                turn.addProperty("role", "bot".equals(message.getMessageType()) ? "assistant" : "user");
+                turn.addProperty("content", message.getContent());
+                history.add(turn);
+            }
+            json.add("history", history);
+            prompts.add(json);
+        }
+        JsonObject body = new JsonObject();
+        body.add("prompts", prompts);
+        return body;
+    }
+
+    private static void complete(List<Pending> batch, String body) {
+        Map<Long, String> texts = new HashMap<>();
+        try {
+            for (JsonElement element : JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("responses")) {
+                JsonObject response = element.getAsJsonObject();
+                JsonElement text = response.get("text");
+                texts.put(response.get("id").getAsLong(), text == null || text.isJsonNull() ? null : text.getAsString());
+            }
+        } catch (RuntimeException e) {
+            fail(batch, new IOException("Unreadable local model response: " + e.getMessage(), e));
+            return;
+        }
+        for (Pending request : batch) {
+            String text = texts.get(request.id);
+            if (text != null) {
+                request.reply.complete(text);
+            } else {
+                request.reply.completeExceptionally(new IOException("Local model gave no reply for prompt " + request.id));
+            }
+        }
+    }
+
+    private static void fail(List<Pending> batch, Throwable error) {
+        for (Pending request : batch) {
+            request.reply.completeExceptionally(error);
+        }
+    }
+
+    @Override
+    public void close() {
+        fail(drain(), new IllegalStateException("Local model backend closed"));
+    }
+
+    private List<Pending> drain() {
+        List<Pending> waiting = new ArrayList<>();
+        for (Pending request; (request = pending.poll()) != null; ) {
+            waiting.add(request);
+        }
+        return waiting;
+    }
+}
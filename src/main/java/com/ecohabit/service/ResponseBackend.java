@@ -0,0 +1,76 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.ChatMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service provider interface for whatever writes the chatbot's replies. Implementations are
+ * found with {@link java.util.ServiceLoader} through
+ * {@code META-INF/services/main.java.com.ecohabit.service.ResponseBackend} and need a public
+ * no-argument constructor; {@link ResponseBackends} picks one, applies timeouts and falls back
+ * to the templates.
+ *
+ * {@link #respond} must not block the calling thread for long: slow backends return a future
+ * and complete it from their own threads.
+ */
+public interface ResponseBackend {
+
+    /**
+     * Short unique name, used to select the backend with {@value ResponseBackends#BACKEND_PROPERTY}
+     */
+    String getName();
+
+    /**
+     * Whether the backend is configured and can take prompts
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Among available backends, the one with the highest priority is used unless one is
+     * selected by name
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * The reply to a prompt. A future completed with null or an exception falls back to the
+     * templates.
+     */
+    CompletableFuture<String> respond(Prompt prompt);
+
+    /**
+     * Release processes, connections or threads
+     */
+    default void close() {
+    }
+
+    /**
+     * What a backend gets to answer: the message, its detected intent, and the conversation so far
+     */
+    final class Prompt {
+        private final String message;
+        private final String intent;
+        private final String userName;
+        private final List<ChatMessage> history;
+
+        public Prompt(String message, String intent, String userName, List<ChatMessage> history) {
+            this.message = message;
+            this.intent = intent;
+            this.userName = userName;
+            this.history = history != null ? List.copyOf(history) : List.of();
+        }
+
+        public String getMessage() { return message; }
+        /** Detected intent, or null when the caller did not classify the message */
+        public String getIntent() { return intent; }
+        /** First name of the user, or null */
+        public String getUserName() { return userName; }
+        /** Earlier messages of the conversation, oldest first */
+        public List<ChatMessage> getHistory() { return history; }
+    }
+}
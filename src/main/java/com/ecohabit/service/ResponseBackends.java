@@ -0,0 +1,241 @@
+package main.java.com.ecohabit.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The response backends found on the classpath, and the one chat replies come from.
+ *
+ * The templates are always there. Other backends are loaded with {@link ServiceLoader}; the
+ * one named by {@value #BACKEND_PROPERTY} is used when it is available, otherwise the available
+ * backend with the highest priority. A reply that fails, is empty or takes longer than
+ * {@value #TIMEOUT_PROPERTY} (default {@value #DEFAULT_TIMEOUT_MS} ms) is replaced by a template,
+ * so a slow local model never holds up the chat. Requests, errors, timeouts and latency are
+ * counted per backend.
+ */
+public class ResponseBackends {
+
+    public static final String BACKEND_PROPERTY = "ecohabit.chat.backend";
+    public static final String TIMEOUT_PROPERTY = "ecohabit.chat.backendTimeoutMs";
+
+    private static final long DEFAULT_TIMEOUT_MS = 10_000;
+
+    private static ResponseBackends instance;
+
+    private final TemplateResponseBackend templates;
+    private final Map<String, ResponseBackend> backends; // by name, templates first
+    private final Map<String, Stats> stats;
+    private volatile long timeoutMillis;
+
+    /**
+     * Counters of one backend
+     */
+    public static class Stats {
+        private final String backend;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Stats(String backend) {
+            this.backend = backend;
+        }
+
+        private void record(long nanos) {
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public String getBackend() { return backend; }
+        public long getRequests() { return requests.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public long getTimeouts() { return timeouts.sum(); }
+
+        public double getMeanLatencyMillis() {
+            long count = requests.sum();
+            return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %d errors, %d timeouts, mean %.1f ms, max %.1f ms",
+                    backend, getRequests(), getErrors(), getTimeouts(), getMeanLatencyMillis(), getMaxLatencyMillis());
+        }
+    }
+
+    /**
+     * A reply with where it came from
+     */
+    public static class Reply {
+        private final String text;
+        private final String backend;
+        private final boolean fallback;
+
+        private Reply(String text, String backend, boolean fallback) {
+            this.text = text;
+            this.backend = backend;
+            this.fallback = fallback;
+        }
+
+        public String getText() { return text; }
+        public String getBackend() { return backend; }
+        /** Whether the active backend failed and a template stood in */
+        public boolean isFallback() { return fallback; }
+    }
+
+    private ResponseBackends() {
+        this.templates = new TemplateResponseBackend();
+        this.backends = new LinkedHashMap<>();
+        this.stats = new LinkedHashMap<>();
+        this.timeoutMillis = Math.max(1, Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_MS));
+
+        register(templates);
+        Iterator<ResponseBackend> providers = ServiceLoader.load(ResponseBackend.class).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) break;
+                ResponseBackend backend = providers.next();
+                if (!backends.containsKey(backend.getName())) {
+                    register(backend);
+                }
+            } catch (ServiceConfigurationError e) {
+                System.err.println("Error loading response backend: " + e.getMessage());
+            }
+        }
+    }
+
+    private void register(ResponseBackend backend) {
+        backends.put(backend.getName(), backend);
+        stats.put(backend.getName(), new Stats(backend.getName()));
+    }
+
+    public static synchronized ResponseBackends getInstance() {
+        if (instance == null) {
+            instance = new ResponseBackends();
+        }
+        return instance;
+    }
+
+    /**
+     * Close every backend of the shared instance if one was created, and drop the replies
+     * cached from them
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            for (ResponseBackend backend : instance.backends.values()) {
+                backend.close();
+            }
+            instance = null;
+            ResponseCache.getInstance().invalidateAll(); // the next instance may load other backends
+        }
+    }
+
+    public void setTimeoutMillis(long millis) {
+        this.timeoutMillis = Math.max(1, millis);
+    }
+
+    /**
+     * The backend replies come from now
+     */
+    public ResponseBackend getActive() {
+        ResponseBackend selected = backends.get(System.getProperty(BACKEND_PROPERTY, ""));
+        if (selected != null && selected.isAvailable()) {
+            return selected;
+        }
+        ResponseBackend best = templates;
+        for (ResponseBackend backend : backends.values()) {
+            if (backend.getPriority() > best.getPriority() && backend.isAvailable()) {
+                best = backend;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Whether replies come from the templates, so callers with their own canned replies can
+     * answer at once
+     */
+    public boolean isTemplateActive() {
+        return getActive() == templates;
+    }
+
+    /**
+     * The active backend's reply, or a template when it fails or runs out of time. The future
+     * always completes normally.
+     */
+    public CompletableFuture<String> respond(ResponseBackend.Prompt prompt) {
+        return reply(prompt).thenApply(Reply::getText);
+    }
+
+    /**
+     * Like {@link #respond}, telling a template that stood in from a real reply. Cancelling the
+     * returned future cancels the backend's request, so a prompt still queued is not sent.
+     */
+    public CompletableFuture<Reply> reply(ResponseBackend.Prompt prompt) {
+        ResponseBackend backend = getActive();
+        Stats counters = stats.get(backend.getName());
+        counters.requests.increment();
+        long start = System.nanoTime();
+
+        CompletableFuture<String> reply;
+        try {
+            reply = backend.respond(prompt);
+        } catch (RuntimeException e) {
+            reply = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> request = reply;
+        CompletableFuture<Reply> result = reply.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).handle((response, error) -> {
+            counters.record(System.nanoTime() - start);
+            if (error == null && response != null && !response.isBlank()) {
+                return new Reply(response, backend.getName(), false);
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                counters.timeouts.increment();
+            } else {
+                counters.errors.increment();
+                if (cause != null) {
+                    System.err.println("Error from response backend " + backend.getName() + ": " + cause);
+                }
+            }
+            return new Reply(fallback(prompt), TemplateResponseBackend.NAME, backend != templates);
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) request.cancel(true);
+        });
+        return result;
+    }
+
+    private String fallback(ResponseBackend.Prompt prompt) {
+        Stats counters = stats.get(TemplateResponseBackend.NAME);
+        counters.requests.increment();
+        long start = System.nanoTime();
+        String response = templates.respondNow(prompt.getIntent());
+        counters.record(System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Counters of every backend, templates first
+     */
+    public List<Stats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+}
@@ -0,0 +1,186 @@
+package main.java.com.ecohabit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chat replies shared by every chat screen, keyed by what was asked rather than how: the
+ * backend, the intent, the entities found (dates resolved to days) and a fingerprint of the
+ * message's folded words without filler, so "tips for saving energy" and "give me some energy
+ * saving tips" share one entry. Replies are stored before they are personalized.
+ *
+ * Replies built from a user's activities are kept per user and go stale once any activity is
+ * saved or deleted, which {@link #get} checks against {@link ActivityService#getDataVersion};
+ * everything else is shared between users. Entries expire after {@link #TTL_MILLIS}, the least
+ * recently used go beyond {@link #MAX_ENTRIES}, and {@link #invalidateAll} drops everything
+ * when the templates or the model behind them change.
+ */
+public class ResponseCache {
+
+    static final int MAX_ENTRIES = 512;
+    static final long TTL_MILLIS = 10 * 60 * 1000;
+    private static final int MAX_FINGERPRINT_LENGTH = 200;
+
+    private static final Set<String> FILLER_WORDS = new HashSet<>(); // folded like message words
+
+    static {
+        for (String word : Arrays.asList(
+                "a", "an", "the", "i", "me", "my", "you", "your", "we", "to", "for", "of", "on", "in",
+                "at", "and", "or", "is", "are", "am", "be", "do", "does", "can", "could", "would", "should",
+                "some", "any", "please", "pls", "give", "tell", "show", "about", "with", "it", "that",
+                "this", "there", "what", "which", "so", "just", "hi", "hey")) {
+            FILLER_WORDS.add(word.substring(0, IntentClassifier.foldedEnd(word, 0, word.length())));
+        }
+    }
+
+    private static ResponseCache instance;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * A cached reply; userId is -1 when it is shared
+     */
+    private static final class Entry {
+        private final String response;
+        private final int userId;
+        private final long dataVersion;
+        private final long createdAt;
+
+        private Entry(String response, int userId, long dataVersion, long createdAt) {
+            this.response = response;
+            this.userId = userId;
+            this.dataVersion = dataVersion;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private ResponseCache() {
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > MAX_ENTRIES) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static synchronized ResponseCache getInstance() {
+        if (instance == null) {
+            instance = new ResponseCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Cache key of a message. Pass the user's id when the reply depends on their data, -1 when
+     * any user asking the same gets the same reply.
+     */
+    public static String key(String backend, String intent, List<EntityExtractor.Entity> entities,
+                             CharSequence message, int userId) {
+        List<String> parts = new ArrayList<>();
+        for (EntityExtractor.Entity entity : entities) {
+            parts.add(entity.getType() == EntityExtractor.Type.DATE
+                    ? entity.getFrom() + ".." + entity.getTo()
+                    : entity.getName());
+        }
+        parts.sort(null);
+        return backend + '|' + intent + '|' + userId + '|' + String.join(",", parts) + '|' + fingerprint(message);
+    }
+
+    /**
+     * The message's distinct folded words without filler, sorted
+     */
+    static String fingerprint(CharSequence message) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        int length = message.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(message.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(message.charAt(i))) {
+                i++;
+            }
+            if (start == i) break;
+
+            word.setLength(0);
+            int end = IntentClassifier.foldedEnd(message, start, i);
+            for (int j = start; j < end; j++) {
+                word.append(IntentClassifier.lower(message.charAt(j)));
+            }
+            if (!FILLER_WORDS.contains(word.toString())) {
+                words.add(word.toString());
+            }
+        }
+
+        List<String> sorted = new ArrayList<>(words);
+        sorted.sort(null);
+        String fingerprint = String.join(" ", sorted);
+        if (fingerprint.length() > MAX_FINGERPRINT_LENGTH) {
+            fingerprint = fingerprint.substring(0, MAX_FINGERPRINT_LENGTH) + '#' + fingerprint.hashCode();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * The cached reply, or null when there is none or it expired or went stale
+     */
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            boolean expired = System.currentTimeMillis() - entry.createdAt >= TTL_MILLIS;
+            boolean stale = entry.userId >= 0 && entry.dataVersion != ActivityService.getDataVersion();
+            if (!expired && !stale) {
+                hits++;
+                return entry.response;
+            }
+            entries.remove(key);
+            evictions++;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String key, String response, int userId) {
+        entries.put(key, new Entry(response, userId, ActivityService.getDataVersion(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Drop every reply, e.g. after the templates or the response backend changed
+     */
+    public synchronized void invalidateAll() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    /**
+     * Hits, misses, hit rate, size, evictions (expired, stale or least recently used) and
+     * invalidations since startup
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : Math.round(hits * 1000.0 / lookups) / 10.0);
+        stats.put("size", entries.size());
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+}
@@ -0,0 +1,133 @@
+package main.java.com.ecohabit.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Default response backend: a canned reply for the detected intent, picked at random among a
+ * few so repeated questions read differently. Answers at once and is always available.
+ */
+public class TemplateResponseBackend implements ResponseBackend {
+
+    public static final String NAME = "templates";
+
+    private final Map<String, List<String>> responseTemplates;
+    private final Random random;
+
+    public TemplateResponseBackend() {
+        this.responseTemplates = new HashMap<>();
+        this.random = new Random();
+        initializeResponseTemplates();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<String> respond(Prompt prompt) {
+        return CompletableFuture.completedFuture(respondNow(prompt.getIntent()));
+    }
+
+    /**
+     * A template for an intent, or a general one for unknown or missing intents
+     */
+    public String respondNow(String intent) {
+        List<String> templates = responseTemplates.getOrDefault(intent, responseTemplates.get("default"));
+        return selectResponseTemplate(templates);
+    }
+
+    /**
+     * Select appropriate response template
+     */
+    private String selectResponseTemplate(List<String> templates) {
+        // Simple random selection (could be enhanced with ML)
+        return templates.get(random.nextInt(templates.size()));
+    }
+
+    /**
+     * Initialize response templates for different intents
+     */
+    private void initializeResponseTemplates() {
+        responseTemplates.put("carbon_footprint", Arrays.asList(
+            "🌱 Great question about carbon footprint! Here are some effective ways to reduce it:\n\n• Use public transport or bike instead of driving\n• Switch to renewable energy sources\n• Eat more plant-based meals\n• Reduce, reuse, and recycle\n• Buy local and seasonal products\n\nWould you like specific tips for any of these areas?",
+            "🌍 Your carbon footprint is the total amount of greenhouse gases you produce. To reduce it:\n\n• Energy: Use LED bulbs, unplug devices\n• Transport: Walk, bike, or use public transport\n• Food: Eat less meat, buy local produce\n• Home: Improve insulation, use efficient appliances\n\nWhat area interests you most?",
+            "♻️ Reducing your carbon footprint is one of the best things you can do for the planet! Start with these high-impact changes:\n\n• Transportation (biggest impact)\n• Energy usage at home\n• Dietary choices\n• Consumption habits\n\nI can help you create a personalized plan!"
+        ));
+
+        // Energy Saving responses
+        responseTemplates.put("energy_saving", Arrays.asList(
+            "💡 Excellent! Here are top energy-saving tips:\n\n• Replace bulbs with LED lights (75% less energy)\n• Unplug electronics when not in use\n• Use a programmable thermostat\n• Seal air leaks around windows/doors\n• Upgrade to energy-efficient appliances\n\nThese changes can reduce your electricity bill by 20-30%!",
+            "⚡ Energy conservation is key to sustainability! Try these:\n\n• Adjust thermostat by 2°F (saves 6% on bills)\n• Use cold water for washing clothes\n• Air-dry clothes instead of using dryer\n• Install solar panels if possible\n• Use power strips to eliminate phantom loads\n\nWhat's your current biggest energy expense?",
+            "🏠 Smart energy use saves money and the planet:\n\n• Home heating/cooling: 42% of energy use\n• Water heating: 18% of energy use\n• Electronics: 6% of energy use\n• Lighting: 5% of energy use\n\nFocus on the biggest users first for maximum impact!"
+        ));
+
+        // Transportation responses
+        responseTemplates.put("transportation", Arrays.asList(
+            "🚲 Transportation is a major source of emissions. Here are eco-friendly options:\n\n• Walk or bike for trips under 2 miles\n• Use public transport (bus, train, subway)\n• Carpool or use rideshare services\n• Work from home when possible\n• Combine errands into one trip\n\nEven small changes make a big difference!",
+            "🚌 Great question about sustainable transport! Consider:\n\n• Electric or hybrid vehicles\n• Public transportation (40x more efficient than cars)\n• Cycling (zero emissions + great exercise)\n• Telecommuting to reduce commute days\n• Planning routes to minimize driving\n\nWhat's your typical commute like?",
+            "🚶 Every mile not driven saves about 1 pound of CO₂! Try:\n\n• Walking: Best for health and environment\n• Cycling: 5-10x more efficient than cars\n• Public transit: Reduces traffic and emissions\n• Electric vehicles: Zero direct emissions\n• Trip planning: Combine multiple errands\n\nWhich option works best for your situation?"
+        ));
+
+        // Food Sustainability responses
+        responseTemplates.put("food_sustainability", Arrays.asList(
+            "🌿 Food choices have huge environmental impact! Try:\n\n• Eat more plant-based meals (start with 1 day/week)\n• Buy local and seasonal produce\n• Reduce food waste through meal planning\n• Choose organic when possible\n• Start a small garden or herb windowsill\n\nEven small dietary changes help significantly!",
+            "🥗 Sustainable eating benefits you and the planet:\n\n• Livestock produces 14.5% of global greenhouse gases\n• Local food reduces transport emissions\n• Organic farming protects soil and water\n• Reducing waste saves money and resources\n\nWould you like help with meal planning or recipes?",
+            "🍎 Your food choices matter! Consider:\n\n• Meatless Monday (or any day)\n• Shopping at farmers markets\n• Growing your own herbs/vegetables\n• Composting food scraps\n• Choosing minimal packaging\n\nWhat aspect of sustainable eating interests you most?"
+        ));
+
+        // Tips Request responses
+        responseTemplates.put("tips_request", Arrays.asList(
+            "💡 I'd love to help! What specific area are you interested in:\n\n• Energy conservation\n• Sustainable transportation\n• Food and diet\n• Waste reduction\n• Water conservation\n• Home improvements\n\nOr would you like personalized recommendations based on your current activities?",
+            "🌟 Here are some quick eco-wins to get started:\n\n• Switch 5 bulbs to LED\n• Take 5-minute showers\n• Use reusable bags\n• Unplug devices when not in use\n• Walk instead of drive for short trips\n\nThese are easy changes with immediate impact! Need more specific advice?",
+            "🚀 Ready to make a difference? Here's how:\n\n• Start small: Pick 1-2 changes to focus on\n• Track progress: Use our activity tracker\n• Set goals: Aim for specific targets\n• Stay consistent: Small daily actions add up\n• Get support: Join our community challenges\n\nWhat area would you like to tackle first?"
+        ));
+
+        // Goal Setting responses
+        responseTemplates.put("goal_setting", Arrays.asList(
+            "🎯 Great decision to set sustainability goals! Here's how:\n\n• Start specific: 'Reduce car trips by 50%' vs 'drive less'\n• Make it measurable: Track your progress\n• Set realistic timelines: 30-90 day goals work well\n• Choose 1-3 goals maximum to start\n• Celebrate achievements along the way\n\nWhat area would you like to focus on first?",
+            "📈 Effective goal setting drives real change! Try the SMART method:\n\n• Specific: Clear, well-defined goals\n• Measurable: Track with numbers\n• Achievable: Realistic for your lifestyle\n• Relevant: Aligned with your values\n• Time-bound: Set deadlines\n\nExample: 'Reduce energy bill by 20% in 3 months'\n\nWhat's your main environmental concern?",
+            "🌟 Let's create your sustainability action plan:\n\n• Assess current habits\n• Identify improvement areas\n• Set 2-3 specific goals\n• Choose tracking methods\n• Plan rewards for milestones\n\nI can help you set goals for energy, transport, food, or waste. What interests you most?"
+        ));
+
+        // Data Analysis responses
+        responseTemplates.put("data_analysis", Arrays.asList(
+            "📊 I'd be happy to analyze your environmental impact! Here's what I can track:\n\n• Carbon footprint by category\n• Energy usage trends\n• Transportation patterns\n• Waste reduction progress\n• Water conservation metrics\n• Goal achievement rates\n\nWhat specific data would you like me to analyze?",
+            "📈 Your sustainability journey deserves tracking! I can provide:\n\n• Weekly/monthly progress reports\n• Comparison with eco-friendly benchmarks\n• Identification of your biggest impact areas\n• Trend analysis over time\n• Achievement celebrations\n\nWould you like a comprehensive report or focus on specific areas?",
+            "🔍 Let me help you understand your environmental data:\n\n• Current performance vs. goals\n• Areas of greatest improvement\n• Cost savings from eco-actions\n• Environmental impact calculations\n• Recommendations for next steps\n\nShare what specific insights you're looking for!"
+        ));
+
+        // Greeting responses
+        responseTemplates.put("greeting", Arrays.asList(
+            "👋 Hello! I'm your personal eco-assistant. I'm here to help you live more sustainably. How can I assist you today?",
+            "🌱 Hi there! Great to see you're interested in sustainable living. I can help with eco-tips, goal setting, data analysis, and more. What would you like to explore?",
+            "🌍 Welcome! I'm excited to help you on your sustainability journey. Whether you need advice, want to set goals, or track progress, I'm here for you. What's on your mind?"
+        ));
+
+        // Gratitude responses
+        responseTemplates.put("gratitude", Arrays.asList(
+            "😊 You're very welcome! I'm always happy to help with your sustainability journey. Is there anything else you'd like to know?",
+            "🌟 My pleasure! Every step toward sustainability makes a difference. Feel free to ask me anything else!",
+            "💚 Glad I could help! Keep up the great work on your eco-friendly lifestyle. What else can I assist you with?"
+        ));
+
+        // Farewell responses
+        responseTemplates.put("farewell", Arrays.asList(
+            "👋 Goodbye! Keep up the great work on your sustainability journey. See you next time!",
+            "🌱 Take care! Remember, every small action makes a difference. Looking forward to our next chat!",
+            "🌍 Farewell! Thanks for choosing to make a positive environmental impact. Have a wonderful day!"
+        ));
+
+        // Default responses
+        responseTemplates.put("default", Arrays.asList(
+            "🤔 That's interesting! While I specialize in environmental topics, I'd love to help you with:\n\n• Carbon footprint reduction\n• Energy conservation tips\n• Sustainable transportation\n• Eco-friendly food choices\n• Waste reduction strategies\n• Goal setting and tracking\n\nWhat eco-topic interests you most?",
+            "🌍 I'm focused on helping you live more sustainably! I can assist with:\n\n• Personalized eco-advice\n• Environmental impact analysis\n• Activity recommendations\n• Progress tracking\n• Goal achievement support\n\nHow can I help you be more eco-friendly today?",
+            "💡 I'm your sustainability companion! Let me help you with:\n\n• Reducing your environmental impact\n• Saving energy and money\n• Making eco-friendly choices\n• Tracking your progress\n• Setting and achieving green goals\n\nWhat aspect of sustainable living would you like to explore?"
+        ));
+    }
+}
@@ -0,0 +1,103 @@
+package main.java.com.ecohabit.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Running rating totals per tip, kept in lock-free adders so concurrent ratings never block
+ * each other.
+ *
+ * A tip's displayed rating is a Bayesian average: its catalog rating counts as
+ * {@link #PRIOR_WEIGHT} votes alongside the user ratings, so a single vote moves a tip a little
+ * and many votes take over. Tips without a catalog rating start from the mean of all user ratings.
+ */
+public class TipRatings {
+
+    private static final double PRIOR_WEIGHT = 5;
+
+    private final ConcurrentHashMap<Integer, Totals> totalsByTip = new ConcurrentHashMap<>();
+    private final DoubleAdder allSum = new DoubleAdder();
+    private final LongAdder allCount = new LongAdder();
+
+    private static final class Totals {
+        private final double baseRating;
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Totals(double baseRating) {
+            this.baseRating = baseRating;
+        }
+    }
+
+    /**
+     * Seed a tip's totals from stored ratings
+     */
+    public void load(int tipId, long count, double sum, double baseRating) {
+        Totals totals = totalsByTip.computeIfAbsent(tipId, k -> new Totals(baseRating));
+        totals.count.add(count);
+        totals.sum.add(sum);
+        allCount.add(count);
+        allSum.add(sum);
+    }
+
+    /**
+     * Apply one user's rating, replacing their previous one when given, and return the tip's
+     * new Bayesian average
+     *
+     * @param baseRating looks up the catalog rating of a tip rated for the first time
+     */
+    public double record(int tipId, Double previous, double rating, IntToDoubleFunction baseRating) {
+        Totals totals = totalsByTip.computeIfAbsent(tipId, id -> new Totals(baseRating.applyAsDouble(id)));
+        if (previous == null) {
+            totals.count.increment();
+            allCount.increment();
+            totals.sum.add(rating);
+            allSum.add(rating);
+        } else {
+            totals.sum.add(rating - previous);
+            allSum.add(rating - previous);
+        }
+        return average(totals);
+    }
+
+    /**
+     * Bayesian average of a tip, or fallback when it has no user ratings
+     */
+    public double average(int tipId, double fallback) {
+        Totals totals = totalsByTip.get(tipId);
+        return totals != null ? average(totals) : fallback;
+    }
+
+    public long count(int tipId) {
+        Totals totals = totalsByTip.get(tipId);
+        return totals != null ? totals.count.sum() : 0;
+    }
+
+    /**
+     * Forget a deleted tip's ratings
+     */
+    public void remove(int tipId) {
+        Totals totals = totalsByTip.remove(tipId);
+        if (totals != null) {
+            allCount.add(-totals.count.sum());
+            allSum.add(-totals.sum.sum());
+        }
+    }
+
+    private double average(Totals totals) {
+        long count = totals.count.sum();
+        double sum = totals.sum.sum();
+        if (count <= 0) {
+            return totals.baseRating;
+        }
+
+        double prior = totals.baseRating;
+        if (prior <= 0) {
+            long votes = allCount.sum();
+            prior = votes > 0 ? allSum.sum() / votes : sum / count;
+        }
+        return (PRIOR_WEIGHT * prior + sum) / (PRIOR_WEIGHT + count);
+    }
+}
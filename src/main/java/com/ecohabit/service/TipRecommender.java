@@ -0,0 +1,446 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.EcoTip;
+import main.java.com.ecohabit.util.AliasTable;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Personalized tip recommendations.
+ *
+ * The catalog is held as parallel arrays of a few features per tip: category, difficulty,
+ * log-scaled CO2 impact and a quality score from rating and popularity. Each user has a compact
+ * preference vector over the same features, seeded from their favorites, read tips and the
+ * categories of their logged activities, then updated in place as favorite and read events
+ * arrive. A recommendation list is the top K unseen tips by affinity, chosen with a bounded
+ * min-heap in one pass over the arrays, and is cached per user until that user's next favorite,
+ * read or rating event, or until the catalog changes.
+ *
+ * It also keeps one bitmap of tip ids per category and difficulty, so filters combine with a
+ * user's read and favorite bitmaps by word-parallel bit operations.
+ *
+ * The tip of the day is drawn by rating from an alias table, rebuilt only after ratings or the
+ * catalog change, so a draw costs O(1) whatever the catalog size.
+ *
+ * Thread-safe; all public methods synchronize on the recommender.
+ */
+public class TipRecommender {
+
+    private static final float FAVORITE_WEIGHT = 3f;
+    private static final float READ_WEIGHT = 1f;
+    private static final float ACTIVITY_MIX_WEIGHT = 6f; // spread over the categories of logged activities
+
+    private static final float CATEGORY_SHARE = 0.45f;
+    private static final float DIFFICULTY_SHARE = 0.15f;
+    private static final float CO2_SHARE = 0.10f;
+    private static final float QUALITY_SHARE = 0.30f;
+
+    private static final double MIN_DRAW_WEIGHT = 0.1; // unrated tips still come up now and then
+    private static final int MAX_DRAWS = 32;
+
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final Map<String, Integer> difficultyOrdinals = new HashMap<>();
+    private final Map<Integer, Integer> slotByTipId = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet liveTips = new BitSet(); // by tip id
+    private final Map<Integer, BitSet> tipsByCategory = new HashMap<>();
+    private final Map<Integer, BitSet> tipsByDifficulty = new HashMap<>();
+
+    private int[] tipIds = new int[64];
+    private int[] categories = new int[64];
+    private int[] difficulties = new int[64];
+    private float[] impacts = new float[64];
+    private float[] qualities = new float[64];
+    private float[] ratings = new float[64];
+    private int slotCount;
+
+    private AliasTable sampler; // null when ratings or the catalog changed since it was built
+    private int[] samplerTips;
+
+    private final Map<Integer, Preferences> preferences = new HashMap<>();
+    private final Map<Integer, int[]> cached = new HashMap<>();
+    private final Map<Integer, DailyPick> dailyPicks = new HashMap<>();
+
+    /**
+     * What a user leans towards. Category and difficulty weights are indexed by ordinal;
+     * impact is tracked as a weighted mean of log CO2 savings.
+     */
+    private static final class Preferences {
+        private float[] categories = new float[8];
+        private float categoryTotal;
+        private float[] difficulties = new float[4];
+        private float difficultyTotal;
+        private double impactSum;
+        private double impactWeight;
+    }
+
+    private static final class DailyPick {
+        private final long day;
+        private final int tipId;
+
+        private DailyPick(long day, int tipId) {
+            this.day = day;
+            this.tipId = tipId;
+        }
+    }
+
+    /**
+     * Add a tip, or replace its features when it is already known
+     */
+    public synchronized void put(EcoTip tip) {
+        Integer slot = slotByTipId.get(tip.getId());
+        if (slot == null) {
+            slot = slotCount++;
+            ensureCapacity(slotCount);
+            slotByTipId.put(tip.getId(), slot);
+        } else {
+            clearFacets(slot);
+        }
+
+        tipIds[slot] = tip.getId();
+        categories[slot] = ordinal(categoryOrdinals, tip.getCategory());
+        difficulties[slot] = ordinal(difficultyOrdinals, tip.getDifficulty());
+        impacts[slot] = impact(tip.getEstimatedCO2Savings());
+        qualities[slot] = quality(tip);
+        ratings[slot] = (float) tip.getRating();
+        live.set(slot);
+        liveTips.set(tip.getId());
+        tipsByCategory.computeIfAbsent(categories[slot], k -> new BitSet()).set(tip.getId());
+        tipsByDifficulty.computeIfAbsent(difficulties[slot], k -> new BitSet()).set(tip.getId());
+        cached.clear();
+        sampler = null;
+    }
+
+    public synchronized void remove(int tipId) {
+        Integer slot = slotByTipId.remove(tipId);
+        if (slot != null) {
+            live.clear(slot);
+            clearFacets(slot);
+            cached.clear();
+            sampler = null;
+        }
+    }
+
+    private void clearFacets(int slot) {
+        int tipId = tipIds[slot];
+        liveTips.clear(tipId);
+        tipsByCategory.get(categories[slot]).clear(tipId);
+        tipsByDifficulty.get(difficulties[slot]).clear(tipId);
+    }
+
+    /**
+     * Ids of the tips in a category and difficulty, as a new bitmap the caller may modify.
+     * Null or "All" means no filter.
+     */
+    public synchronized BitSet matching(String category, String difficulty) {
+        BitSet result = (BitSet) liveTips.clone();
+        if (category != null && !"All".equals(category)) {
+            restrict(result, categoryOrdinals.get(category), tipsByCategory);
+        }
+        if (difficulty != null && !"All".equals(difficulty)) {
+            restrict(result, difficultyOrdinals.get(difficulty), tipsByDifficulty);
+        }
+        return result;
+    }
+
+    private static void restrict(BitSet result, Integer ordinal, Map<Integer, BitSet> facets) {
+        BitSet facet = ordinal != null ? facets.get(ordinal) : null;
+        if (facet != null) {
+            result.and(facet);
+        } else {
+            result.clear();
+        }
+    }
+
+    /**
+     * Best recommendations for a user, best first. Tips the user has read or favorited are
+     * never recommended.
+     *
+     * @param favorites the user's favorite tip ids; also seeds preferences on first use
+     * @param read the user's read tip ids, likewise
+     * @param activityMix activity counts by category, only called when preferences are seeded
+     */
+    public synchronized List<Integer> recommend(int userId, int limit, BitSet favorites, BitSet read,
+                                                Supplier<Map<String, Integer>> activityMix) {
+        int[] ids = cached.get(userId);
+        if (ids == null || ids.length < limit && ids.length < unseenCount(favorites, read)) {
+            Preferences prefs = preferences.computeIfAbsent(userId, k -> seed(favorites, read, activityMix.get()));
+            BitSet seen = (BitSet) favorites.clone();
+            seen.or(read);
+            ids = topK(prefs, limit, seen);
+            cached.put(userId, ids);
+        }
+
+        List<Integer> result = new ArrayList<>(Math.min(limit, ids.length));
+        for (int i = 0; i < ids.length && i < limit; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * A favorite was added (weight 1) or removed (weight -1)
+     */
+    public synchronized void favoriteChanged(int userId, int tipId, int direction) {
+        adjust(userId, tipId, FAVORITE_WEIGHT * direction);
+    }
+
+    public synchronized void tipRead(int userId, int tipId) {
+        adjust(userId, tipId, READ_WEIGHT);
+    }
+
+    /**
+     * A user rated a tip; its quality feeds every user's ranking, but only the rater's list
+     * is dropped at once, others pick it up on their next event
+     */
+    public synchronized void tipRated(int userId, EcoTip tip) {
+        Integer slot = slotByTipId.get(tip.getId());
+        if (slot != null) {
+            qualities[slot] = quality(tip);
+            ratings[slot] = (float) tip.getRating();
+            sampler = null;
+        }
+        cached.remove(userId);
+    }
+
+    /**
+     * A user's tip for the day, or -1 when the catalog is empty. It is drawn from their unread
+     * tips with a generator seeded by user and date, then kept until the day changes, so every
+     * screen shows the same tip without drawing again.
+     */
+    public synchronized int tipOfDay(int userId, LocalDate day, BitSet read) {
+        DailyPick pick = dailyPicks.get(userId);
+        if (pick != null && pick.day == day.toEpochDay() && slotByTipId.containsKey(pick.tipId)) {
+            return pick.tipId;
+        }
+
+        Random random = new Random(userId * 0x9E3779B97F4A7C15L + day.toEpochDay());
+        int tipId = draw(random, read, -1);
+        if (tipId >= 0) {
+            dailyPicks.put(userId, new DailyPick(day.toEpochDay(), tipId));
+        }
+        return tipId;
+    }
+
+    /**
+     * A tip drawn in proportion to its rating, preferring ones not in read and avoiding
+     * skipTipId while there is anything else. Returns -1 when the catalog is empty.
+     */
+    public synchronized int draw(Random random, BitSet read, int skipTipId) {
+        AliasTable table = sampler();
+        if (table.size() == 0) return -1;
+
+        for (int i = 0; i < MAX_DRAWS; i++) {
+            int tipId = samplerTips[table.sample(random)];
+            if (tipId != skipTipId && !read.get(tipId)) return tipId;
+        }
+
+        // Most draws hit read tips, so the user has read nearly everything: pick from what is left
+        BitSet unread = (BitSet) liveTips.clone();
+        unread.andNot(read);
+        if (skipTipId >= 0) unread.clear(skipTipId);
+        if (!unread.isEmpty()) {
+            int tipId = unread.nextSetBit(random.nextInt(unread.length()));
+            return tipId >= 0 ? tipId : unread.nextSetBit(0);
+        }
+
+        // Everything is read: any tip but the skipped one
+        int tipId = -1;
+        for (int i = 0; i < MAX_DRAWS && (tipId < 0 || tipId == skipTipId); i++) {
+            tipId = samplerTips[table.sample(random)];
+        }
+        return tipId;
+    }
+
+    private AliasTable sampler() {
+        if (sampler == null) {
+            samplerTips = new int[live.cardinality()];
+            double[] weights = new double[samplerTips.length];
+            int i = 0;
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                samplerTips[i] = tipIds[slot];
+                weights[i++] = Math.max(ratings[slot], MIN_DRAW_WEIGHT);
+            }
+            sampler = new AliasTable(weights);
+        }
+        return sampler;
+    }
+
+    private void adjust(int userId, int tipId, float weight) {
+        cached.remove(userId);
+        Preferences prefs = preferences.get(userId);
+        if (prefs != null) {
+            addTip(prefs, tipId, weight);
+        }
+    }
+
+    private int unseenCount(BitSet favorites, BitSet read) {
+        BitSet unseen = (BitSet) liveTips.clone();
+        unseen.andNot(favorites);
+        unseen.andNot(read);
+        return unseen.cardinality();
+    }
+
+    private Preferences seed(BitSet favorites, BitSet read, Map<String, Integer> activityMix) {
+        Preferences prefs = new Preferences();
+        for (int tipId = favorites.nextSetBit(0); tipId >= 0; tipId = favorites.nextSetBit(tipId + 1)) {
+            addTip(prefs, tipId, FAVORITE_WEIGHT);
+        }
+        for (int tipId = read.nextSetBit(0); tipId >= 0; tipId = read.nextSetBit(tipId + 1)) {
+            addTip(prefs, tipId, READ_WEIGHT);
+        }
+
+        int activities = 0;
+        for (int count : activityMix.values()) {
+            activities += count;
+        }
+        for (Map.Entry<String, Integer> entry : activityMix.entrySet()) {
+            Integer category = categoryOrdinals.get(entry.getKey());
+            if (category != null) {
+                addCategory(prefs, category, ACTIVITY_MIX_WEIGHT * entry.getValue() / activities);
+            }
+        }
+        return prefs;
+    }
+
+    private void addTip(Preferences prefs, int tipId, float weight) {
+        Integer slot = slotByTipId.get(tipId);
+        if (slot == null) return;
+
+        addCategory(prefs, categories[slot], weight);
+        addDifficulty(prefs, difficulties[slot], weight);
+        prefs.impactSum += impacts[slot] * weight;
+        prefs.impactWeight += weight;
+    }
+
+    private static void addCategory(Preferences prefs, int category, float weight) {
+        if (category >= prefs.categories.length) {
+            prefs.categories = Arrays.copyOf(prefs.categories, category + 8);
+        }
+        prefs.categories[category] += weight;
+        prefs.categoryTotal += weight;
+    }
+
+    private static void addDifficulty(Preferences prefs, int difficulty, float weight) {
+        if (difficulty >= prefs.difficulties.length) {
+            prefs.difficulties = Arrays.copyOf(prefs.difficulties, difficulty + 4);
+        }
+        prefs.difficulties[difficulty] += weight;
+        prefs.difficultyTotal += weight;
+    }
+
+    /**
+     * The limit best live tips not in seen, best first. Keeps a min-heap of slots so the
+     * weakest of the current best is replaced in O(log K).
+     */
+    private int[] topK(Preferences prefs, int limit, BitSet seen) {
+        float[] categoryShare = normalized(prefs.categories, prefs.categoryTotal);
+        float[] difficultyShare = normalized(prefs.difficulties, prefs.difficultyTotal);
+        boolean hasImpact = prefs.impactWeight > 0;
+        float preferredImpact = hasImpact ? (float) (prefs.impactSum / prefs.impactWeight) : 0;
+
+        int[] heap = new int[Math.max(limit, 0)];
+        float[] heapScores = new float[heap.length];
+        int size = 0;
+
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            if (heap.length == 0) break;
+            if (seen.get(tipIds[slot])) continue;
+
+            float score = QUALITY_SHARE * qualities[slot];
+            if (categories[slot] < categoryShare.length) {
+                score += CATEGORY_SHARE * categoryShare[categories[slot]];
+            }
+            if (difficulties[slot] < difficultyShare.length) {
+                score += DIFFICULTY_SHARE * difficultyShare[difficulties[slot]];
+            }
+            if (hasImpact) {
+                score += CO2_SHARE / (1 + Math.abs(impacts[slot] - preferredImpact));
+            }
+
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heapScores[parent] <= score) break;
+                    heap[i] = heap[parent];
+                    heapScores[i] = heapScores[parent];
+                    i = parent;
+                }
+                heap[i] = slot;
+                heapScores[i] = score;
+            } else if (score > heapScores[0]) {
+                siftDown(heap, heapScores, size, slot, score);
+            }
+        }
+
+        int[] ids = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ids[i] = tipIds[heap[0]];
+            siftDown(heap, heapScores, i, heap[i], heapScores[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Put slot at the root of a heap of the given size and sift it down
+     */
+    private static void siftDown(int[] heap, float[] heapScores, int size, int slot, float score) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heapScores[child + 1] < heapScores[child]) child++;
+            if (heapScores[child] >= score) break;
+            heap[i] = heap[child];
+            heapScores[i] = heapScores[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = slot;
+            heapScores[i] = score;
+        }
+    }
+
+    private static float[] normalized(float[] weights, float total) {
+        float[] shares = new float[weights.length];
+        if (total <= 0) return shares;
+        for (int i = 0; i < weights.length; i++) {
+            shares[i] = Math.max(weights[i], 0) / total;
+        }
+        return shares;
+    }
+
+    private static int ordinal(Map<String, Integer> ordinals, String name) {
+        return ordinals.computeIfAbsent(name != null ? name : "", k -> ordinals.size());
+    }
+
+    /**
+     * CO2 savings on a log scale, so 1 kg and 10 kg differ as much as 10 kg and 100 kg
+     */
+    private static float impact(double co2Savings) {
+        return (float) Math.log1p(Math.max(co2Savings, 0));
+    }
+
+    /**
+     * Rating in [0, 1], with a small boost for popular tips
+     */
+    private static float quality(EcoTip tip) {
+        float rating = (float) Math.max(0, Math.min(tip.getRating(), 5)) / 5f;
+        return tip.isPopular() ? 0.8f * rating + 0.2f : 0.8f * rating;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= tipIds.length) return;
+
+        int capacity = Math.max(size, tipIds.length * 2);
+        tipIds = Arrays.copyOf(tipIds, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        difficulties = Arrays.copyOf(difficulties, capacity);
+        impacts = Arrays.copyOf(impacts, capacity);
+        qualities = Arrays.copyOf(qualities, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+    }
+}
@@ -0,0 +1,484 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.EcoTip;
+import main.java.com.ecohabit.util.PorterStemmer;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranked full-text index over the tip catalog.
+ *
+ * Title, tag, category and description text is split into lowercase words and reduced to
+ * Porter stems, so "composting" also finds "compost". Each stem keeps a posting list of the
+ * tips containing it with a field-weighted term frequency, and matches are ranked with BM25.
+ * Every query word must match, as a whole stem or as the prefix of one, so results narrow
+ * while the user types. Scoring walks plain arrays, which keeps queries within a few
+ * milliseconds even when a word appears in most of a 50k tip catalog.
+ *
+ * Tips are added and removed as the catalog changes; a removed tip stays in its posting
+ * lists as a dead entry that queries skip. Access is guarded by a read/write lock.
+ */
+public class TipSearchIndex {
+
+    // Field weights: a hit in the title matters more than one buried in the description
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float TAG_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // BM25 term frequency saturation and length normalization
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Shorter query words match whole stems only; "s" would otherwise expand to most of the vocabulary
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final TreeMap<String, Postings> postingsByStem;
+    private final Map<Integer, Integer> docByTipId;
+    private final Map<String, BitSet> categoryDocs;
+    private final Map<String, BitSet> difficultyDocs;
+    private final BitSet live;
+    private final ReentrantReadWriteLock lock;
+    private int[] tipIds;
+    private float[] docLengths;
+    private Postings[][] docPostings; // posting lists of each doc, to keep document frequencies right on removal
+    private int docCount;
+    private int liveCount;
+    private double totalLength;
+
+    public TipSearchIndex() {
+        this.postingsByStem = new TreeMap<>();
+        this.docByTipId = new HashMap<>();
+        this.categoryDocs = new HashMap<>();
+        this.difficultyDocs = new HashMap<>();
+        this.live = new BitSet();
+        this.lock = new ReentrantReadWriteLock();
+        this.tipIds = new int[256];
+        this.docLengths = new float[256];
+        this.docPostings = new Postings[256][];
+    }
+
+    /**
+     * A matched tip and its BM25 score
+     */
+    public static final class Hit {
+        private final int tipId;
+        private final float score;
+
+        public Hit(int tipId, float score) {
+            this.tipId = tipId;
+            this.score = score;
+        }
+
+        public int getTipId() { return tipId; }
+        public float getScore() { return score; }
+    }
+
+    /**
+     * One page of hits, best first, and the number of tips matched in total
+     */
+    public static final class Page {
+        private final List<Hit> hits;
+        private final int total;
+
+        public Page(List<Hit> hits, int total) {
+            this.hits = hits;
+            this.total = total;
+        }
+
+        public List<Hit> getHits() { return hits; }
+        public int getTotal() { return total; }
+    }
+
+    /**
+     * Add a tip, replacing any earlier version of it
+     */
+    public void add(EcoTip tip) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(tip.getId());
+
+            Map<String, Float> frequencies = new HashMap<>();
+            float length = addField(frequencies, tip.getTitle(), TITLE_WEIGHT)
+                         + addField(frequencies, tip.getCategory(), CATEGORY_WEIGHT)
+                         + addField(frequencies, tip.getDescription(), DESCRIPTION_WEIGHT);
+            if (tip.getTags() != null) {
+                for (String tag : tip.getTags()) {
+                    length += addField(frequencies, tag, TAG_WEIGHT);
+                }
+            }
+
+            int doc = docCount++;
+            ensureCapacity(docCount);
+            tipIds[doc] = tip.getId();
+            docLengths[doc] = length;
+            docByTipId.put(tip.getId(), doc);
+
+            Postings[] postings = new Postings[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                Postings list = postingsByStem.computeIfAbsent(entry.getKey(), k -> new Postings());
+                list.add(doc, entry.getValue());
+                postings[i++] = list;
+            }
+            docPostings[doc] = postings;
+
+            live.set(doc);
+            liveCount++;
+            totalLength += length;
+            if (tip.getCategory() != null) {
+                categoryDocs.computeIfAbsent(tip.getCategory(), k -> new BitSet()).set(doc);
+            }
+            if (tip.getDifficulty() != null) {
+                difficultyDocs.computeIfAbsent(tip.getDifficulty(), k -> new BitSet()).set(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int tipId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(tipId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(int tipId) {
+        Integer doc = docByTipId.remove(tipId);
+        if (doc == null) return;
+
+        live.clear(doc);
+        liveCount--;
+        totalLength -= docLengths[doc];
+        for (Postings list : docPostings[doc]) {
+            list.liveDocs--;
+        }
+        docPostings[doc] = null;
+    }
+
+    private float addField(Map<String, Float> frequencies, String text, float weight) {
+        float length = 0;
+        for (int[] span : tokenSpans(text)) {
+            String stem = PorterStemmer.stem(text.substring(span[0], span[1]).toLowerCase(Locale.ROOT));
+            frequencies.merge(stem, weight, Float::sum);
+            length += weight;
+        }
+        return length;
+    }
+
+    /**
+     * Whether the query has any words to search for
+     */
+    public static boolean hasTerms(String query) {
+        return !tokenSpans(query).isEmpty();
+    }
+
+    /**
+     * One page of tips matching every query word, best match first
+     *
+     * @param category category to restrict to, or null / "All" for every category
+     * @param difficulty difficulty to restrict to, or null / "All"
+     * @param limit page size, or a negative value for every match
+     */
+    public Page search(String query, String category, String difficulty, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            float[] scores = new float[docCount];
+            BitSet matches = match(query, category, difficulty, scores);
+            int total = matches.cardinality();
+            int wanted = limit < 0 ? total : (int) Math.min((long) Math.max(offset, 0) + limit, total);
+            if (wanted <= 0 || offset >= total) {
+                return new Page(Collections.emptyList(), total);
+            }
+
+            // Keep the best `wanted` docs in a min-heap of doc numbers, then read them back best first
+            int[] heap = new int[wanted];
+            int heapSize = 0;
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                if (heapSize < wanted) {
+                    heap[heapSize] = doc;
+                    siftUp(heap, heapSize++, scores);
+                } else if (ranksAbove(doc, heap[0], scores)) {
+                    heap[0] = doc;
+                    siftDown(heap, heapSize, scores);
+                }
+            }
+
+            Hit[] ranked = new Hit[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                int doc = heap[0];
+                ranked[i] = new Hit(tipIds[doc], scores[doc]);
+                heap[0] = heap[i];
+                siftDown(heap, i, scores);
+            }
+            int from = Math.max(offset, 0);
+            return new Page(Arrays.asList(ranked).subList(Math.min(from, ranked.length), ranked.length), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Higher score first, ties broken by newest tip
+     */
+    private boolean ranksAbove(int doc, int other, float[] scores) {
+        int cmp = Float.compare(scores[doc], scores[other]);
+        return cmp != 0 ? cmp > 0 : tipIds[doc] > tipIds[other];
+    }
+
+    private void siftUp(int[] heap, int i, float[] scores) {
+        int doc = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksAbove(heap[parent], doc, scores)) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = doc;
+    }
+
+    private void siftDown(int[] heap, int size, float[] scores) {
+        if (size == 0) return;
+        int doc = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && ranksAbove(heap[child], heap[child + 1], scores)) child++;
+            if (!ranksAbove(doc, heap[child], scores)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = doc;
+    }
+
+    /**
+     * Ids of every tip matching the query, in no particular order
+     */
+    public List<Integer> matchAll(String query, String category, String difficulty) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = match(query, category, difficulty, null);
+            List<Integer> ids = new ArrayList<>(matches.cardinality());
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                ids.add(tipIds[doc]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int count(String query, String category, String difficulty) {
+        lock.readLock().lock();
+        try {
+            return match(query, category, difficulty, null).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live docs matching every query word and the filters. When scores is given, each
+     * match gets its BM25 score summed over query words; a word that expands to several
+     * stems counts its best one.
+     */
+    private BitSet match(String query, String category, String difficulty, float[] scores) {
+        List<QueryTerm> terms = parse(query);
+        BitSet result = new BitSet();
+        if (terms.isEmpty()) return result;
+
+        List<List<Postings>> expansions = new ArrayList<>(terms.size());
+        for (QueryTerm term : terms) {
+            List<Postings> lists = expand(term);
+            if (lists.isEmpty()) return result;
+            expansions.add(lists);
+        }
+
+        // Start from the rarest word so the candidate set is small from the outset
+        expansions.sort(Comparator.comparingInt(TipSearchIndex::postingCount));
+
+        result.or(live);
+        if (category != null && !"All".equals(category)) {
+            result.and(categoryDocs.getOrDefault(category, new BitSet()));
+        }
+        if (difficulty != null && !"All".equals(difficulty)) {
+            result.and(difficultyDocs.getOrDefault(difficulty, new BitSet()));
+        }
+
+        float averageLength = (float) (liveCount > 0 ? totalLength / liveCount : 1.0);
+        float[] best = scores != null ? new float[docCount] : null;
+
+        for (List<Postings> lists : expansions) {
+            BitSet termDocs = new BitSet(docCount);
+            for (Postings list : lists) {
+                float idf = (float) Math.log(1 + (liveCount - list.liveDocs + 0.5) / (list.liveDocs + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    if (!result.get(doc)) continue;
+
+                    termDocs.set(doc);
+                    if (best != null) {
+                        float tf = list.frequencies[i];
+                        float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                        best[doc] = Math.max(best[doc], idf * tf * (K1 + 1) / (tf + norm));
+                    }
+                }
+            }
+            result.and(termDocs);
+            if (result.isEmpty()) return result;
+
+            if (best != null) {
+                for (int doc = termDocs.nextSetBit(0); doc >= 0; doc = termDocs.nextSetBit(doc + 1)) {
+                    scores[doc] += best[doc];
+                    best[doc] = 0;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int postingCount(List<Postings> lists) {
+        int count = 0;
+        for (Postings list : lists) {
+            count += list.size;
+        }
+        return count;
+    }
+
+    /**
+     * Posting lists for a query word: its exact stem, plus every stem starting with the
+     * stem or the typed word when the word is long enough to be a useful prefix
+     */
+    private List<Postings> expand(QueryTerm term) {
+        List<Postings> lists = new ArrayList<>();
+        if (term.word.length() < MIN_PREFIX_LENGTH) {
+            Postings exact = postingsByStem.get(term.stem);
+            if (exact != null) lists.add(exact);
+            return lists;
+        }
+
+        lists.addAll(postingsByStem.subMap(term.stem, term.stem + Character.MAX_VALUE).values());
+        if (!term.word.startsWith(term.stem)) {
+            for (Map.Entry<String, Postings> entry :
+                    postingsByStem.subMap(term.word, term.word + Character.MAX_VALUE).entrySet()) {
+                if (!entry.getKey().startsWith(term.stem)) lists.add(entry.getValue());
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * Character ranges {start, end} in the text that match the query, for highlighting
+     */
+    public static List<int[]> highlight(String text, String query) {
+        List<int[]> ranges = new ArrayList<>();
+        List<QueryTerm> terms = parse(query);
+        if (text == null || terms.isEmpty()) return ranges;
+
+        for (int[] span : tokenSpans(text)) {
+            String stem = PorterStemmer.stem(text.substring(span[0], span[1]).toLowerCase(Locale.ROOT));
+            for (QueryTerm term : terms) {
+                if (term.matches(stem)) {
+                    ranges.add(span);
+                    break;
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private static List<QueryTerm> parse(String query) {
+        Map<String, QueryTerm> terms = new LinkedHashMap<>();
+        for (int[] span : tokenSpans(query)) {
+            String word = query.substring(span[0], span[1]).toLowerCase(Locale.ROOT);
+            terms.putIfAbsent(word, new QueryTerm(word));
+        }
+        return new ArrayList<>(terms.values());
+    }
+
+    /**
+     * Ranges of letter/digit runs in the text
+     */
+    private static List<int[]> tokenSpans(String text) {
+        List<int[]> spans = new ArrayList<>();
+        if (text == null) return spans;
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                spans.add(new int[]{start, i});
+                start = -1;
+            }
+        }
+        return spans;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= tipIds.length) return;
+
+        int capacity = Math.max(size, tipIds.length * 2);
+        tipIds = Arrays.copyOf(tipIds, capacity);
+        docLengths = Arrays.copyOf(docLengths, capacity);
+        docPostings = Arrays.copyOf(docPostings, capacity);
+    }
+
+    /**
+     * A lowercase query word and its stem
+     */
+    private static final class QueryTerm {
+        private final String word;
+        private final String stem;
+
+        private QueryTerm(String word) {
+            this.word = word;
+            this.stem = PorterStemmer.stem(word);
+        }
+
+        /**
+         * Same rule as expand(): exact stem, or a prefix match for long enough words
+         */
+        private boolean matches(String indexedStem) {
+            if (indexedStem.equals(stem)) return true;
+            return word.length() >= MIN_PREFIX_LENGTH
+                    && (indexedStem.startsWith(stem) || indexedStem.startsWith(word));
+        }
+    }
+
+    /**
+     * Docs containing a stem, in the order they were added, with their weighted frequencies
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+        private int liveDocs;
+
+        private void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            liveDocs++;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package main.java.com.ecohabit.service;
+
+import main.java.com.ecohabit.model.EcoTip;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalog totals for the statistics panel, loaded once from the database and then moved by
+ * each add, delete, read, like and rating, so reading them never touches the catalog.
+ */
+public class TipStatistics {
+
+    private final LongAdder totalTips = new LongAdder();
+    private final DoubleAdder ratingSum = new DoubleAdder();
+    private final LongAdder totalReadCount = new LongAdder();
+    private final LongAdder totalLikes = new LongAdder();
+    private final Map<String, LongAdder> categoryCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> difficultyCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Start from totals computed by {@code EcoTipDAO.loadStatistics}
+     */
+    @SuppressWarnings("unchecked")
+    public TipStatistics(Map<String, Object> loaded) {
+        long tips = ((Number) loaded.getOrDefault("totalTips", 0)).longValue();
+        totalTips.add(tips);
+        ratingSum.add(((Number) loaded.getOrDefault("averageRating", 0.0)).doubleValue() * tips);
+        totalReadCount.add(((Number) loaded.getOrDefault("totalReadCount", 0)).longValue());
+        totalLikes.add(((Number) loaded.getOrDefault("totalLikes", 0)).longValue());
+
+        Map<String, Long> categories = (Map<String, Long>) loaded.getOrDefault("categoryBreakdown", new HashMap<>());
+        categories.forEach((category, count) -> counter(categoryCounts, category).add(count));
+        Map<String, Long> difficulties = (Map<String, Long>) loaded.getOrDefault("difficultyBreakdown", new HashMap<>());
+        difficulties.forEach((difficulty, count) -> counter(difficultyCounts, difficulty).add(count));
+    }
+
+    public void tipAdded(EcoTip tip) {
+        apply(tip, 1);
+    }
+
+    public void tipRemoved(EcoTip tip) {
+        apply(tip, -1);
+    }
+
+    public void tipRead() {
+        totalReadCount.increment();
+    }
+
+    public void likesChanged(int delta) {
+        totalLikes.add(delta);
+    }
+
+    /**
+     * A tip's rating moved from oldRating to newRating
+     */
+    public void ratingChanged(double oldRating, double newRating) {
+        ratingSum.add(newRating - oldRating);
+    }
+
+    /**
+     * Current totals, with the same keys as {@code EcoTipDAO.loadStatistics}
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new HashMap<>();
+        long tips = totalTips.sum();
+        stats.put("totalTips", (int) tips);
+        stats.put("averageRating", tips > 0 ? ratingSum.sum() / tips : 0.0);
+        stats.put("totalReadCount", (int) totalReadCount.sum());
+        stats.put("totalLikes", (int) totalLikes.sum());
+        stats.put("categoryBreakdown", breakdown(categoryCounts));
+        stats.put("difficultyBreakdown", breakdown(difficultyCounts));
+        return stats;
+    }
+
+    private void apply(EcoTip tip, int sign) {
+        totalTips.add(sign);
+        ratingSum.add(sign * tip.getRating());
+        totalReadCount.add(sign * tip.getReadCount());
+        totalLikes.add(sign * tip.getLikeCount());
+        if (tip.getCategory() != null) {
+            counter(categoryCounts, tip.getCategory()).add(sign);
+        }
+        if (tip.getDifficulty() != null) {
+            counter(difficultyCounts, tip.getDifficulty()).add(sign);
+        }
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counts, String key) {
+        return counts.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /**
+     * Non-zero counts in key order
+     */
+    private static Map<String, Long> breakdown(Map<String, LongAdder> counts) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        new TreeMap<>(counts).forEach((key, count) -> {
+            long value = count.sum();
+            if (value > 0) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+}
@@ -1,320 +1,454 @@
 package main.java.com.ecohabit.service;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import main.java.com.ecohabit.dao.EcoTipDAO;
+import main.java.com.ecohabit.dao.TipMarkDAO;
+import main.java.com.ecohabit.dao.TipRatingDAO;
 import main.java.com.ecohabit.model.EcoTip;
+import main.java.com.ecohabit.model.TipSearchResult;
 import main.java.com.ecohabit.model.User;
+import main.java.com.ecohabit.util.JsonUtils;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Service class for managing eco tips
+ *
+ * The catalog lives in the eco_tips table and is seeded from eco_tips.json on first start.
+ * Screens page through it with getTipsPage / countTips; only recently used tips stay in memory.
+ * Text queries are answered by a shared {@link TipSearchIndex} per locale, and recommendations
+ * by a shared {@link TipRecommender}. Rating totals ({@link TipRatings}) and catalog statistics
+ * ({@link TipStatistics}) are likewise loaded once and then updated in place.
  */
 public class TipsService {
-    private static final String DB_URL = "jdbc:h2:~/ecohabit";
-    private List<EcoTip> tipsCache;
-    private Map<Integer, Set<Integer>> userFavorites; // userId -> Set of tip IDs
-    private Map<Integer, Set<Integer>> userReadTips; // userId -> Set of tip IDs
+    private static final String CATALOG_RESOURCE = "/main/resources/data/eco_tips.json";
+    private static final String DEFAULT_LOCALE = "en";
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final int HOT_TIPS_CAPACITY = 256;
+    private static final Map<String, TipSearchIndex> SEARCH_INDEXES = new ConcurrentHashMap<>();
+    private static final Map<String, TipRecommender> RECOMMENDERS = new ConcurrentHashMap<>();
+    private static final Map<String, TipRatings> RATINGS = new ConcurrentHashMap<>();
+    private static final Map<String, TipStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+    // Bit i set for tip id i; loaded from user_tip_marks on first use and shared by every screen,
+    // so cached recommendations stay consistent with them. Synchronize on a bitmap to use it.
+    private static final Map<Integer, BitSet> USER_FAVORITES = new ConcurrentHashMap<>(); // userId -> favorite tips
+    private static final Map<Integer, BitSet> USER_READ_TIPS = new ConcurrentHashMap<>(); // userId -> read tips
+
+    private final EcoTipDAO ecoTipDAO;
+    private final TipMarkDAO tipMarkDAO;
+    private final TipRatingDAO tipRatingDAO;
+    private final String locale;
+    private final Map<Integer, EcoTip> hotTips; // LRU of recently used tips by id
     private Random random;
 
     public TipsService() {
-        this.tipsCache = new ArrayList<>();
-        this.userFavorites = new HashMap<>();
-        this.userReadTips = new HashMap<>();
+        this(DEFAULT_LOCALE);
+    }
+
+    public TipsService(String locale) {
+        this.ecoTipDAO = new EcoTipDAO();
+        this.tipMarkDAO = new TipMarkDAO();
+        this.tipRatingDAO = new TipRatingDAO();
+        this.locale = locale;
+        this.hotTips = Collections.synchronizedMap(new LinkedHashMap<Integer, EcoTip>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, EcoTip> eldest) {
+                return size() > HOT_TIPS_CAPACITY;
+            }
+        });
         this.random = new Random();
         initializeTips();
     }
 
     /**
-     * Initialize with sample tips data
+     * Import the shipped catalog when the table has no tips for this locale yet
      */
     private void initializeTips() {
-        tipsCache.addAll(Arrays.asList(
-            createTip("Switch to LED Bulbs", "Energy", "Easy", 
-                "Replace incandescent bulbs with LED bulbs to reduce energy consumption by up to 75%. LED bulbs last longer and produce less heat.",
-                "💡", 4.5, 8.5),
-                
-            createTip("Start Composting", "Waste", "Medium", 
-                "Turn kitchen scraps into nutrient-rich compost for your garden. Reduces methane emissions from landfills and creates valuable soil amendment.",
-                "🌱", 4.2, 12.3),
-                
-            createTip("Use Public Transport", "Transportation", "Easy", 
-                "Take buses, trains, or subways instead of driving. A single bus can replace 40 cars on the road, significantly reducing emissions.",
-                "🚌", 4.7, 15.2),
-                
-            createTip("Grow Your Own Herbs", "Food", "Medium", 
-                "Start a small herb garden on your windowsill. Reduces packaging waste and food miles while providing fresh ingredients.",
-                "🌿", 4.3, 3.8),
-                
-            createTip("Install Water-Saving Showerheads", "Water", "Easy", 
-                "Low-flow showerheads can reduce water usage by up to 40% without sacrificing pressure. Easy to install and immediate savings.",
-                "🚿", 4.1, 0.5),
-                
-            createTip("Use Reusable Bags", "Shopping", "Easy", 
-                "Bring reusable bags when shopping to eliminate single-use plastic bags. Keep them in your car or by your front door.",
-                "🛍️", 4.8, 2.1),
-                
-            createTip("Unplug Electronics", "Energy", "Easy", 
-                "Unplug devices when not in use to prevent phantom energy consumption. Can reduce electricity bills by 5-10%.",
-                "🔌", 4.0, 6.7),
-                
-            createTip("Collect Rainwater", "Water", "Hard", 
-                "Set up a rainwater collection system for watering plants. Can reduce water bills and help during drought conditions.",
-                "☔", 4.4, 25.8),
-                
-            createTip("Meal Planning", "Food", "Medium", 
-                "Plan your meals to reduce food waste and make more sustainable food choices. Can save money and reduce environmental impact.",
-                "📝", 4.6, 18.9),
-                
-            createTip("DIY Natural Cleaners", "Home", "Medium", 
-                "Make eco-friendly cleaning products using vinegar, baking soda, and essential oils. Safer for your family and the environment.",
-                "🧽", 4.2, 4.2),
-                
-            createTip("Walk or Bike Short Distances", "Transportation", "Easy",
-                "For trips under 2 miles, consider walking or biking instead of driving. Great exercise and zero emissions.",
-                "🚶", 4.4, 8.9),
-                
-            createTip("Reduce Meat Consumption", "Food", "Medium",
-                "Try 'Meatless Monday' or reduce meat consumption by one meal per day. Livestock farming is a major source of greenhouse gases.",
-                "🥗", 4.1, 32.1),
-                
-            createTip("Use a Programmable Thermostat", "Energy", "Medium",
-                "Install a programmable thermostat to optimize heating and cooling. Can reduce energy usage by 10-23%.",
-                "🌡️", 4.3, 28.4),
-                
-            createTip("Buy Local Produce", "Food", "Easy",
-                "Purchase locally grown produce to reduce transportation emissions and support local farmers.",
-                "🍎", 4.2, 5.6),
-                
-            createTip("Fix Water Leaks", "Water", "Easy",
-                "Repair dripping faucets and running toilets immediately. A single drip can waste over 3,000 gallons per year.",
-                "🔧", 4.0, 12.7),
-                
-            createTip("Use Cold Water for Washing", "Energy", "Easy",
-                "Wash clothes in cold water when possible. Heating water accounts for 90% of washing machine energy use.",
-                "🧺", 3.9, 11.3),
-                
-            createTip("Install Solar Panels", "Energy", "Very Hard",
-                "Consider installing solar panels to generate renewable energy. High upfront cost but significant long-term savings.",
-                "☀️", 4.6, 150.2),
-                
-            createTip("Create a Rain Garden", "Water", "Hard",
-                "Design a garden that captures and filters rainwater runoff. Helps prevent flooding and recharges groundwater.",
-                "🌧️", 4.5, 35.7),
-                
-            createTip("Buy Energy-Efficient Appliances", "Energy", "Medium",
-                "Choose ENERGY STAR certified appliances when replacing old ones. Can reduce energy usage by 10-50%.",
-                "⚡", 4.3, 45.8),
-                
-            createTip("Participate in Community Gardens", "Food", "Medium",
-                "Join or start a community garden. Builds local food security and creates green spaces in urban areas.",
-                "👥", 4.4, 8.3)
-        ));
-    }
-
-    /**
-     * Create a sample tip
-     */
-    private EcoTip createTip(String title, String category, String difficulty, 
-                            String description, String icon, double rating, double co2Savings) {
+        if (ecoTipDAO.count(locale) > 0) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try (InputStream in = openCatalog()) {
+            if (in == null) {
+                System.err.println("Tip catalog not found: " + JsonUtils.ECO_TIPS_FILE);
+                return;
+            }
+            int imported = importCatalog(in);
+            System.out.println("Imported " + imported + " tips in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error importing tip catalog: " + e.getMessage());
+        }
+    }
+
+    private InputStream openCatalog() throws IOException {
+        InputStream in = TipsService.class.getResourceAsStream(CATALOG_RESOURCE);
+        if (in != null) {
+            return in;
+        }
+        try {
+            return new FileInputStream(JsonUtils.ECO_TIPS_FILE);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stream the catalog array and insert it in batches, so the file is never held in memory
+     */
+    private int importCatalog(InputStream in) throws IOException {
+        int imported = 0;
+        List<EcoTip> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                EcoTip tip = readTip(reader);
+                if (tip.getTipKey() == null || tip.getTitle() == null || tip.getDescription() == null) {
+                    continue;
+                }
+                batch.add(tip);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    imported += ecoTipDAO.importTips(batch);
+                    batch.clear();
+                }
+            }
+            reader.endArray();
+        }
+
+        if (!batch.isEmpty()) {
+            imported += ecoTipDAO.importTips(batch);
+        }
+        return imported;
+    }
+
+    private EcoTip readTip(JsonReader reader) throws IOException {
         EcoTip tip = new EcoTip();
-        tip.setId(generateId());
-        tip.setTitle(title);
-        tip.setCategory(category);
-        tip.setDifficulty(difficulty);
-        tip.setDescription(description);
-        tip.setIcon(icon);
-        tip.setRating(rating);
-        tip.setEstimatedCO2Savings(co2Savings);
-        tip.setDateCreated(LocalDate.now().minusDays(random.nextInt(365)));
-        tip.setLastUpdated(LocalDateTime.now().minusDays(random.nextInt(30)));
-        tip.setReadCount(random.nextInt(1000));
-        tip.setLikeCount(random.nextInt(500));
         tip.setSource("EcoHabit Community");
         tip.setApproved(true);
-        
-        // Add some random tags
-        String[] possibleTags = {"beginner", "advanced", "money-saving", "quick-win", "lifestyle", "technology", "health"};
-        List<String> tags = new ArrayList<>();
-        for (int i = 0; i < random.nextInt(3) + 1; i++) {
-            String tag = possibleTags[random.nextInt(possibleTags.length)];
-            if (!tags.contains(tag)) {
-                tags.add(tag);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "key": tip.setTipKey(reader.nextString()); break;
+                case "locale": tip.setLocale(reader.nextString()); break;
+                case "title": tip.setTitle(reader.nextString()); break;
+                case "description": tip.setDescription(reader.nextString()); break;
+                case "category": tip.setCategory(reader.nextString()); break;
+                case "difficulty": tip.setDifficulty(reader.nextString()); break;
+                case "icon": tip.setIcon(reader.nextString()); break;
+                case "rating": tip.setRating(reader.nextDouble()); break;
+                case "co2Savings": tip.setEstimatedCO2Savings(reader.nextDouble()); break;
+                case "source": tip.setSource(reader.nextString()); break;
+                case "featured": tip.setFeatured(reader.nextBoolean()); break;
+                case "imageUrl": tip.setImageUrl(reader.nextString()); break;
+                case "tags":
+                    List<String> tags = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        tags.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    tip.setTags(tags.toArray(new String[0]));
+                    break;
+                default:
+                    reader.skipValue();
             }
         }
-        tip.setTags(tags.toArray(new String[0]));
-        
+        reader.endObject();
         return tip;
     }
 
     /**
-     * Generate unique ID for tips
+     * Get all tips. Loads the whole catalog; screens should page with getTipsPage instead.
      */
-    private int generateId() {
-        return Math.abs(UUID.randomUUID().hashCode());
+    public List<EcoTip> getAllTips() {
+        return ecoTipDAO.findPage(null, null, "Date", 0, -1, locale);
     }
 
     /**
-     * Get all tips
+     * Get one page of tips matching the filters. Null or "All" means no filter.
+     *
+     * @param sortBy one of "Relevance", "Date", "Rating", "Popularity", "Title", "Difficulty"
      */
-    public List<EcoTip> getAllTips() {
-        return new ArrayList<>(tipsCache);
+    public List<EcoTip> getTipsPage(String category, String difficulty, String query, String sortBy,
+                                    int offset, int limit) {
+        if (TipSearchIndex.hasTerms(query)) {
+            return searchTipsPage(category, difficulty, query, sortBy, offset, limit).stream()
+                    .map(TipSearchResult::getTip)
+                    .collect(Collectors.toList());
+        }
+
+        List<EcoTip> page = ecoTipDAO.findPage(category, difficulty, sortBy, offset, limit, locale);
+        remember(page);
+        return page;
+    }
+
+    /**
+     * Search one page of tips, best match first unless another sort is given. Each result
+     * carries the matched ranges in the title and description for highlighting.
+     */
+    public List<TipSearchResult> searchTipsPage(String category, String difficulty, String query, String sortBy,
+                                                int offset, int limit) {
+        TipSearchIndex index = getSearchIndex();
+        List<TipSearchResult> results = new ArrayList<>();
+
+        if (sortBy == null || "Relevance".equals(sortBy)) {
+            TipSearchIndex.Page page = index.search(query, category, difficulty, offset, limit);
+            List<Integer> ids = page.getHits().stream().map(TipSearchIndex.Hit::getTipId).collect(Collectors.toList());
+            Map<Integer, EcoTip> tips = ecoTipDAO.findByIds(ids).stream()
+                    .collect(Collectors.toMap(EcoTip::getId, tip -> tip));
+
+            for (TipSearchIndex.Hit hit : page.getHits()) {
+                EcoTip tip = tips.get(hit.getTipId());
+                if (tip != null) {
+                    results.add(toSearchResult(tip, hit.getScore(), query));
+                }
+            }
+        } else {
+            List<Integer> ids = index.matchAll(query, category, difficulty);
+            for (EcoTip tip : ecoTipDAO.findPageByIds(ids, sortBy, offset, limit)) {
+                results.add(toSearchResult(tip, 0, query));
+            }
+        }
+
+        for (TipSearchResult result : results) {
+            hotTips.put(result.getTip().getId(), result.getTip());
+        }
+        return results;
+    }
+
+    private TipSearchResult toSearchResult(EcoTip tip, double score, String query) {
+        return new TipSearchResult(tip, score,
+                                   TipSearchIndex.highlight(tip.getTitle(), query),
+                                   TipSearchIndex.highlight(tip.getDescription(), query));
+    }
+
+    /**
+     * Count the tips matching the filters
+     */
+    public int countTips(String category, String difficulty, String query) {
+        if (TipSearchIndex.hasTerms(query)) {
+            return getSearchIndex().count(query, category, difficulty);
+        }
+        return ecoTipDAO.count(category, difficulty, locale);
+    }
+
+    /**
+     * The search index for this locale, built from the catalog on first use
+     */
+    private TipSearchIndex getSearchIndex() {
+        return SEARCH_INDEXES.computeIfAbsent(locale, k -> {
+            long start = System.currentTimeMillis();
+            TipSearchIndex index = new TipSearchIndex();
+            ecoTipDAO.forEachSearchText(k, index::add);
+            System.out.println("Indexed " + index.size() + " tips for search in " +
+                               (System.currentTimeMillis() - start) + " ms");
+            return index;
+        });
+    }
+
+    /**
+     * The recommender for this locale, loaded from the catalog on first use
+     */
+    private TipRecommender getRecommender() {
+        return RECOMMENDERS.computeIfAbsent(locale, k -> {
+            TipRecommender recommender = new TipRecommender();
+            ecoTipDAO.forEachFeatures(k, recommender::put);
+            return recommender;
+        });
+    }
+
+    /**
+     * Rating totals for this locale, loaded from tip_ratings on first use
+     */
+    private TipRatings getRatings() {
+        return RATINGS.computeIfAbsent(locale, k -> {
+            TipRatings ratings = new TipRatings();
+            for (TipRatingDAO.RatingTotals totals : tipRatingDAO.loadTotals(k)) {
+                ratings.load(totals.getTipId(), totals.getCount(), totals.getSum(), totals.getBaseRating());
+            }
+            return ratings;
+        });
+    }
+
+    /**
+     * Apply a change to the statistics when they are loaded. Until then there is nothing to
+     * update: the first load reads the change from the table.
+     */
+    private void updateStatistics(Consumer<TipStatistics> change) {
+        TipStatistics statistics = STATISTICS.get(locale);
+        if (statistics != null) {
+            change.accept(statistics);
+        }
     }
 
     /**
      * Get tips by category
      */
     public List<EcoTip> getTipsByCategory(String category) {
-        if ("All".equals(category)) {
-            return getAllTips();
-        }
-        return tipsCache.stream()
-                .filter(tip -> category.equals(tip.getCategory()))
-                .collect(Collectors.toList());
+        return ecoTipDAO.findPage(category, null, "Date", 0, -1, locale);
     }
 
     /**
      * Get tips by difficulty
      */
     public List<EcoTip> getTipsByDifficulty(String difficulty) {
-        if ("All".equals(difficulty)) {
-            return getAllTips();
-        }
-        return tipsCache.stream()
-                .filter(tip -> difficulty.equals(tip.getDifficulty()))
-                .collect(Collectors.toList());
+        return ecoTipDAO.findPage(null, difficulty, "Date", 0, -1, locale);
     }
 
     /**
-     * Search tips by query
+     * Search tips by query, best match first
      */
     public List<EcoTip> searchTips(String query) {
-        if (query == null || query.trim().isEmpty()) {
+        if (!TipSearchIndex.hasTerms(query)) {
             return getAllTips();
         }
-        
-        String searchQuery = query.toLowerCase().trim();
-        return tipsCache.stream()
-                .filter(tip -> 
-                    tip.getTitle().toLowerCase().contains(searchQuery) ||
-                    tip.getDescription().toLowerCase().contains(searchQuery) ||
-                    tip.getCategory().toLowerCase().contains(searchQuery) ||
-                    Arrays.stream(tip.getTags() != null ? tip.getTags() : new String[0])
-                          .anyMatch(tag -> tag.toLowerCase().contains(searchQuery))
-                )
-                .collect(Collectors.toList());
+        return getTipsPage(null, null, query, "Relevance", 0, -1);
     }
 
     /**
      * Get tip by ID
      */
     public EcoTip getTipById(int tipId) {
-        return tipsCache.stream()
-                .filter(tip -> tip.getId() == tipId)
-                .findFirst()
-                .orElse(null);
+        EcoTip tip = hotTips.get(tipId);
+        if (tip == null) {
+            tip = ecoTipDAO.findById(tipId);
+            if (tip != null) {
+                hotTips.put(tipId, tip);
+            }
+        }
+        return tip;
     }
 
     /**
-     * Get tip of the day for a user
+     * Get tip of the day for a user. Tips are drawn by rating, preferring unread ones; the
+     * pick is seeded by user and date and stays the same for the rest of the day.
      */
     public EcoTip getTipOfDay(int userId) {
-        // Get user's reading history
-        Set<Integer> readTips = userReadTips.getOrDefault(userId, new HashSet<>());
-        
-        // Filter out already read tips
-        List<EcoTip> unreadTips = tipsCache.stream()
-                .filter(tip -> !readTips.contains(tip.getId()))
-                .collect(Collectors.toList());
-        
-        // If all tips are read, choose from all tips
-        if (unreadTips.isEmpty()) {
-            unreadTips = new ArrayList<>(tipsCache);
+        BitSet read = snapshot(USER_READ_TIPS, TipMarkDAO.READ, userId);
+        int tipId = getRecommender().tipOfDay(userId, LocalDate.now(), read);
+        return tipId >= 0 ? getTipById(tipId) : null;
+    }
+
+    /**
+     * Draw a different tip than the current one, by rating and preferring unread tips, for
+     * when the user asks for another
+     */
+    public EcoTip getAnotherTip(int userId, int currentTipId) {
+        BitSet read = snapshot(USER_READ_TIPS, TipMarkDAO.READ, userId);
+        int tipId = getRecommender().draw(random, read, currentTipId);
+        return tipId >= 0 ? getTipById(tipId) : null;
+    }
+
+    /**
+     * Ids of the tips a user has not read in a category and difficulty, as a bitmap with bit i
+     * set for tip id i. Null or "All" means no filter.
+     */
+    public BitSet getUnreadTips(int userId, String category, String difficulty) {
+        BitSet unread = getRecommender().matching(category, difficulty);
+        BitSet read = marks(USER_READ_TIPS, TipMarkDAO.READ, userId);
+        synchronized (read) {
+            unread.andNot(read);
         }
-        
-        // Select a random tip, weighted by rating
-        return selectWeightedRandomTip(unreadTips);
+        return unread;
     }
 
     /**
-     * Get personalized recommendations for a user
+     * Get personalized recommendations for a user, best first. Lists are cached per user
+     * and recomputed only after the user's next favorite, read or rating.
      */
     public List<EcoTip> getPersonalizedRecommendations(int userId, int limit) {
-        Set<Integer> favoriteIds = userFavorites.getOrDefault(userId, new HashSet<>());
-        Set<Integer> readIds = userReadTips.getOrDefault(userId, new HashSet<>());
-        
-        // Get categories from user's favorites
-        Set<String> favoriteCategories = tipsCache.stream()
-                .filter(tip -> favoriteIds.contains(tip.getId()))
-                .map(EcoTip::getCategory)
-                .collect(Collectors.toSet());
-        
-        // Recommend tips from favorite categories that haven't been read
-        List<EcoTip> recommendations = tipsCache.stream()
-                .filter(tip -> !readIds.contains(tip.getId()))
-                .filter(tip -> favoriteCategories.isEmpty() || favoriteCategories.contains(tip.getCategory()))
-                .sorted(Comparator.comparing(EcoTip::getRating).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
-        
-        // If not enough recommendations, fill with popular tips
-        if (recommendations.size() < limit) {
-            List<EcoTip> popularTips = tipsCache.stream()
-                    .filter(tip -> !readIds.contains(tip.getId()))
-                    .filter(tip -> !recommendations.contains(tip))
-                    .filter(EcoTip::isPopular)
-                    .sorted(Comparator.comparing(EcoTip::getRating).reversed())
-                    .limit(limit - recommendations.size())
-                    .collect(Collectors.toList());
-            recommendations.addAll(popularTips);
+        BitSet favoriteIds = snapshot(USER_FAVORITES, TipMarkDAO.FAVORITE, userId);
+        BitSet readIds = snapshot(USER_READ_TIPS, TipMarkDAO.READ, userId);
+
+        List<Integer> ids = getRecommender().recommend(userId, limit, favoriteIds, readIds,
+                () -> new ActivityService().getCategoryMix(String.valueOf(userId)));
+        return getTipsByIds(ids);
+    }
+
+    /**
+     * Tips in the order of the given ids, served from memory where possible
+     */
+    private List<EcoTip> getTipsByIds(List<Integer> ids) {
+        Map<Integer, EcoTip> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            EcoTip tip = hotTips.get(id);
+            if (tip != null) {
+                found.put(id, tip);
+            } else {
+                missing.add(id);
+            }
         }
-        
-        return recommendations;
+        if (!missing.isEmpty()) {
+            for (EcoTip tip : ecoTipDAO.findByIds(missing)) {
+                found.put(tip.getId(), tip);
+                hotTips.put(tip.getId(), tip);
+            }
+        }
+
+        List<EcoTip> tips = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            EcoTip tip = found.get(id);
+            if (tip != null) tips.add(tip);
+        }
+        return tips;
     }
 
     /**
      * Get featured tips
      */
     public List<EcoTip> getFeaturedTips() {
-        return tipsCache.stream()
-                .filter(EcoTip::isFeatured)
-                .sorted(Comparator.comparing(EcoTip::getRating).reversed())
-                .limit(5)
-                .collect(Collectors.toList());
+        return ecoTipDAO.findFeatured(5, locale);
     }
 
     /**
      * Get recent tips
      */
     public List<EcoTip> getRecentTips(int limit) {
-        return tipsCache.stream()
-                .sorted(Comparator.comparing(EcoTip::getDateCreated).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+        return ecoTipDAO.findPage(null, null, "Date", 0, limit, locale);
     }
 
     /**
      * Get popular tips
      */
     public List<EcoTip> getPopularTips(int limit) {
-        return tipsCache.stream()
-                .sorted(Comparator.comparing(EcoTip::getReadCount).reversed()
-                        .thenComparing(EcoTip::getRating).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+        return ecoTipDAO.findPopular(limit, locale);
     }
 
     /**
      * Mark tip as read by user
      */
     public void markTipAsRead(int userId, int tipId) {
-        userReadTips.computeIfAbsent(userId, k -> new HashSet<>()).add(tipId);
-        
+        if (setMark(USER_READ_TIPS, TipMarkDAO.READ, userId, tipId, true)) {
+            getRecommender().tipRead(userId, tipId);
+        }
+
         // Increment read count
-        EcoTip tip = getTipById(tipId);
-        if (tip != null) {
-            tip.incrementReadCount();
+        if (ecoTipDAO.incrementReadCount(tipId)) {
+            updateStatistics(TipStatistics::tipRead);
+            EcoTip tip = hotTips.get(tipId);
+            if (tip != null) {
+                tip.incrementReadCount();
+            }
         }
     }
 
@@ -322,16 +456,19 @@ public class TipsService {
      * Add tip to user favorites
      */
     public boolean addToFavorites(int userId, int tipId) {
-        Set<Integer> favorites = userFavorites.computeIfAbsent(userId, k -> new HashSet<>());
-        boolean added = favorites.add(tipId);
-        
+        boolean added = setMark(USER_FAVORITES, TipMarkDAO.FAVORITE, userId, tipId, true);
         if (added) {
-            EcoTip tip = getTipById(tipId);
+            getRecommender().favoriteChanged(userId, tipId, 1);
+        }
+
+        if (added && ecoTipDAO.adjustLikeCount(tipId, 1)) {
+            updateStatistics(statistics -> statistics.likesChanged(1));
+            EcoTip tip = hotTips.get(tipId);
             if (tip != null) {
                 tip.incrementLikeCount();
             }
         }
-        
+
         return added;
     }
 
@@ -339,18 +476,19 @@ public class TipsService {
      * Remove tip from user favorites
      */
     public boolean removeFromFavorites(int userId, int tipId) {
-        Set<Integer> favorites = userFavorites.get(userId);
-        if (favorites == null) return false;
-        
-        boolean removed = favorites.remove(tipId);
-        
+        boolean removed = setMark(USER_FAVORITES, TipMarkDAO.FAVORITE, userId, tipId, false);
         if (removed) {
-            EcoTip tip = getTipById(tipId);
+            getRecommender().favoriteChanged(userId, tipId, -1);
+        }
+
+        if (removed && ecoTipDAO.adjustLikeCount(tipId, -1)) {
+            updateStatistics(statistics -> statistics.likesChanged(-1));
+            EcoTip tip = hotTips.get(tipId);
             if (tip != null) {
                 tip.decrementLikeCount();
             }
         }
-        
+
         return removed;
     }
 
@@ -358,83 +496,89 @@ public class TipsService {
      * Check if tip is in user favorites
      */
     public boolean isFavorite(int userId, int tipId) {
-        Set<Integer> favorites = userFavorites.get(userId);
-        return favorites != null && favorites.contains(tipId);
+        BitSet favorites = marks(USER_FAVORITES, TipMarkDAO.FAVORITE, userId);
+        synchronized (favorites) {
+            return favorites.get(tipId);
+        }
     }
 
     /**
      * Get user's favorite tips
      */
     public List<EcoTip> getUserFavorites(int userId) {
-        Set<Integer> favoriteIds = userFavorites.getOrDefault(userId, new HashSet<>());
-        return tipsCache.stream()
-                .filter(tip -> favoriteIds.contains(tip.getId()))
-                .collect(Collectors.toList());
+        BitSet favoriteIds = snapshot(USER_FAVORITES, TipMarkDAO.FAVORITE, userId);
+        return ecoTipDAO.findByIds(favoriteIds.stream().boxed().collect(Collectors.toList()));
+    }
+
+    /**
+     * A user's read or favorite bitmap, loaded on first use
+     */
+    private BitSet marks(Map<Integer, BitSet> marks, String kind, int userId) {
+        return marks.computeIfAbsent(userId, id -> tipMarkDAO.load(id, kind));
+    }
+
+    private BitSet snapshot(Map<Integer, BitSet> marks, String kind, int userId) {
+        BitSet bits = marks(marks, kind, userId);
+        synchronized (bits) {
+            return (BitSet) bits.clone();
+        }
+    }
+
+    /**
+     * Set or clear a tip in one of a user's bitmaps and save it. Returns false when the bit
+     * already had that value.
+     */
+    private boolean setMark(Map<Integer, BitSet> marks, String kind, int userId, int tipId, boolean value) {
+        BitSet bits = marks(marks, kind, userId);
+        synchronized (bits) {
+            if (bits.get(tipId) == value) {
+                return false;
+            }
+            bits.set(tipId, value);
+            tipMarkDAO.save(userId, kind, bits);
+            return true;
+        }
     }
 
     /**
-     * Rate a tip
+     * Rate a tip from 0 to 5. Each user has one rating per tip and rating again replaces it.
+     * The tip's rating becomes the Bayesian average of its catalog rating and all user ratings.
      */
     public void rateTip(int tipId, double rating, int userId) {
         EcoTip tip = getTipById(tipId);
-        if (tip != null && rating >= 0 && rating <= 5) {
-            // Simple rating update (in real app, you'd track individual ratings)
-            double currentRating = tip.getRating();
-            int readCount = tip.getReadCount();
-            
-            // Weighted average with new rating
-            double newRating = ((currentRating * readCount) + rating) / (readCount + 1);
-            tip.setRating(newRating);
+        if (tip == null || rating < 0 || rating > 5) {
+            return;
+        }
+
+        // Load the totals before saving, so the new rating is not counted twice
+        TipRatings ratings = getRatings();
+        TipRatingDAO.SavedRating saved = tipRatingDAO.upsert(userId, tipId, rating);
+        if (saved == null) {
+            return;
+        }
+
+        double baseRating = tip.getRating();
+        double before = ratings.average(tipId, baseRating);
+        double average = ratings.record(tipId, saved.getPrevious(), rating, id -> baseRating);
+        if (ecoTipDAO.updateRating(tipId, average)) {
+            tip.setRating(average);
+            updateStatistics(statistics -> statistics.ratingChanged(before, average));
+            getRecommender().tipRated(userId, tip);
         }
     }
 
     /**
-     * Get tips statistics
+     * Number of users who rated a tip
+     */
+    public long getRatingCount(int tipId) {
+        return getRatings().count(tipId);
+    }
+
+    /**
+     * Get tips statistics, maintained in memory after the first call
      */
     public Map<String, Object> getTipsStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        stats.put("totalTips", tipsCache.size());
-        stats.put("averageRating", tipsCache.stream().mapToDouble(EcoTip::getRating).average().orElse(0.0));
-        stats.put("totalReadCount", tipsCache.stream().mapToInt(EcoTip::getReadCount).sum());
-        stats.put("totalLikes", tipsCache.stream().mapToInt(EcoTip::getLikeCount).sum());
-        
-        // Category breakdown
-        Map<String, Long> categoryStats = tipsCache.stream()
-                .collect(Collectors.groupingBy(EcoTip::getCategory, Collectors.counting()));
-        stats.put("categoryBreakdown", categoryStats);
-        
-        // Difficulty breakdown
-        Map<String, Long> difficultyStats = tipsCache.stream()
-                .collect(Collectors.groupingBy(EcoTip::getDifficulty, Collectors.counting()));
-        stats.put("difficultyBreakdown", difficultyStats);
-        
-        return stats;
-    }
-
-    /**
-     * Select weighted random tip based on rating
-     */
-    private EcoTip selectWeightedRandomTip(List<EcoTip> tips) {
-        if (tips.isEmpty()) return null;
-        if (tips.size() == 1) return tips.get(0);
-        
-        // Calculate total weight
-        double totalWeight = tips.stream().mapToDouble(tip -> Math.max(tip.getRating(), 0.1)).sum();
-        
-        // Random selection
-        double randomValue = random.nextDouble() * totalWeight;
-        double currentWeight = 0;
-        
-        for (EcoTip tip : tips) {
-            currentWeight += Math.max(tip.getRating(), 0.1);
-            if (currentWeight >= randomValue) {
-                return tip;
-            }
-        }
-        
-        // Fallback to last tip
-        return tips.get(tips.size() - 1);
+        return STATISTICS.computeIfAbsent(locale, k -> new TipStatistics(ecoTipDAO.loadStatistics(k))).snapshot();
     }
 
     /**
@@ -442,13 +586,18 @@ public class TipsService {
      */
     public EcoTip addTip(EcoTip tip) {
         if (tip == null) return null;
-        
-        tip.setId(generateId());
+
+        tip.setLocale(locale);
         tip.setDateCreated(LocalDate.now());
         tip.setLastUpdated(LocalDateTime.now());
         tip.setApproved(false); // New tips need approval
-        
-        tipsCache.add(tip);
+
+        if (!ecoTipDAO.insert(tip)) {
+            return null;
+        }
+        updateStatistics(statistics -> statistics.tipAdded(tip));
+        getSearchIndex().add(tip);
+        getRecommender().put(tip);
         return tip;
     }
 
@@ -457,33 +606,45 @@ public class TipsService {
      */
     public boolean updateTip(EcoTip updatedTip) {
         if (updatedTip == null) return false;
-        
-        for (int i = 0; i < tipsCache.size(); i++) {
-            if (tipsCache.get(i).getId() == updatedTip.getId()) {
-                updatedTip.setLastUpdated(LocalDateTime.now());
-                tipsCache.set(i, updatedTip);
-                return true;
-            }
+
+        updatedTip.setLastUpdated(LocalDateTime.now());
+        updatedTip.setRating(getRatings().average(updatedTip.getId(), updatedTip.getRating()));
+        EcoTip previous = ecoTipDAO.findById(updatedTip.getId());
+        hotTips.remove(updatedTip.getId());
+        if (previous == null || !ecoTipDAO.update(updatedTip)) {
+            return false;
         }
-        return false;
+        updateStatistics(statistics -> {
+            statistics.tipRemoved(previous);
+            statistics.tipAdded(updatedTip);
+        });
+        getSearchIndex().add(updatedTip);
+        getRecommender().put(updatedTip);
+        return true;
     }
 
     /**
      * Delete tip
      */
     public boolean deleteTip(int tipId) {
-        return tipsCache.removeIf(tip -> tip.getId() == tipId);
+        EcoTip tip = ecoTipDAO.findById(tipId);
+        hotTips.remove(tipId);
+        if (tip == null || !ecoTipDAO.delete(tipId)) {
+            return false;
+        }
+        tipRatingDAO.deleteForTip(tipId);
+        getRatings().remove(tipId);
+        updateStatistics(statistics -> statistics.tipRemoved(tip));
+        getSearchIndex().remove(tipId);
+        getRecommender().remove(tipId);
+        return true;
     }
 
     /**
      * Get all categories
      */
     public List<String> getAllCategories() {
-        return tipsCache.stream()
-                .map(EcoTip::getCategory)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return ecoTipDAO.findCategories(locale);
     }
 
     /**
@@ -492,4 +653,10 @@ public class TipsService {
     public List<String> getAllDifficulties() {
         return Arrays.asList("Easy", "Medium", "Hard", "Very Hard");
     }
+
+    private void remember(List<EcoTip> tips) {
+        for (EcoTip tip : tips) {
+            hotTips.put(tip.getId(), tip);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package main.java.com.ecohabit.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Weighted random sampling in constant time, using Vose's alias method.
+ *
+ * Building the table takes O(n). Each draw then picks one of n equally likely columns and
+ * flips a single biased coin to choose between the column's own index and its alias.
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights non-negative weights; an index is drawn in proportion to its weight
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        this.probability = new double[n];
+        this.alias = new int[n];
+
+        double total = 0;
+        for (double weight : weights) {
+            total += Math.max(weight, 0);
+        }
+        if (n == 0 || total <= 0) {
+            Arrays.fill(probability, 1.0); // nothing to prefer: uniform
+            return;
+        }
+
+        // Scale so the average column holds exactly 1, then pair each underfull column
+        // with an overfull one that tops it up
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = Math.max(weights[i], 0) * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is full up to rounding error
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0;
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * An index drawn in proportion to its weight, or -1 when the table is empty
+     */
+    public int sample(Random random) {
+        if (probability.length == 0) return -1;
+
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
@@ -15,6 +15,9 @@ import java.util.regex.Pattern;
 
 public class JsonUtils {
     
+    // Shipped tip catalog, imported into the eco_tips table on first start
+    public static final String ECO_TIPS_FILE = "src/main/resources/data/eco_tips.json";
+    
     // Simple JSON parser implementation
     public static String toJson(Object object) {
         if (object instanceof Map) {
@@ -381,7 +384,7 @@ public class JsonUtils {
     
     public static List<Map<String, Object>> loadEcoTips() {
         try {
-            return readJsonArrayFromFile("data/eco_tips.json");
+            return readJsonArrayFromFile(ECO_TIPS_FILE);
         } catch (IOException e) {
             System.err.println("Failed to load eco tips: " + e.getMessage());
             
@@ -0,0 +1,292 @@
+package main.java.com.ecohabit.util;
+
+/**
+ * English stemmer implementing M. F. Porter's 1980 suffix-stripping algorithm,
+ * so that "composting", "composted" and "compost" all reduce to "compost".
+ *
+ * Expects a lowercase word; words of two letters or fewer are returned unchanged.
+ */
+public final class PorterStemmer {
+
+    private char[] b;
+    private int k;  // end of the current word
+    private int j;  // end of the stem being examined
+
+    private PorterStemmer(String word) {
+        this.b = word.toCharArray();
+        this.k = b.length - 1;
+    }
+
+    public static String stem(String word) {
+        if (word == null || word.length() <= 2) return word;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') return word; // digits and non-ASCII words are left alone
+        }
+
+        PorterStemmer stemmer = new PorterStemmer(word);
+        stemmer.step1ab();
+        stemmer.step1c();
+        stemmer.step2();
+        stemmer.step3();
+        stemmer.step4();
+        stemmer.step5();
+        return new String(stemmer.b, 0, stemmer.k + 1);
+    }
+
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a': case 'e': case 'i': case 'o': case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Number of vowel-consonant sequences between 0 and j
+     */
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j) return n;
+            if (!cons(i)) break;
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) return n;
+                if (cons(i)) break;
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) return n;
+                if (!cons(i)) break;
+                i++;
+            }
+            i++;
+        }
+    }
+
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) return true;
+        }
+        return false;
+    }
+
+    private boolean doublec(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    /**
+     * Consonant-vowel-consonant ending where the last consonant is not w, x or y
+     */
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) return false;
+        char c = b[i];
+        return c != 'w' && c != 'x' && c != 'y';
+    }
+
+    private boolean ends(String s) {
+        int length = s.length();
+        int offset = k - length + 1;
+        if (offset < 0) return false;
+        for (int i = 0; i < length; i++) {
+            if (b[offset + i] != s.charAt(i)) return false;
+        }
+        j = k - length;
+        return true;
+    }
+
+    private void setTo(String s) {
+        int length = s.length();
+        int offset = j + 1;
+        if (offset + length > b.length) {
+            char[] grown = new char[offset + length];
+            System.arraycopy(b, 0, grown, 0, b.length);
+            b = grown;
+        }
+        for (int i = 0; i < length; i++) {
+            b[offset + i] = s.charAt(i);
+        }
+        k = j + length;
+    }
+
+    private void r(String s) {
+        if (m() > 0) setTo(s);
+    }
+
+    /**
+     * Plurals and -ed / -ing
+     */
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses")) k -= 2;
+            else if (ends("ies")) setTo("i");
+            else if (b[k - 1] != 's') k--;
+        }
+        if (ends("eed")) {
+            if (m() > 0) k--;
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) setTo("ate");
+            else if (ends("bl")) setTo("ble");
+            else if (ends("iz")) setTo("ize");
+            else if (doublec(k)) {
+                k--;
+                char c = b[k];
+                if (c == 'l' || c == 's' || c == 'z') k++;
+            } else if (m() == 1 && cvc(k)) {
+                setTo("e");
+            }
+        }
+    }
+
+    /**
+     * Terminal y to i when there is another vowel in the stem
+     */
+    private void step1c() {
+        if (ends("y") && vowelInStem()) b[k] = 'i';
+    }
+
+    /**
+     * Double suffixes to single ones, e.g. -ization to -ize
+     */
+    private void step2() {
+        if (k == 0) return;
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) { r("ate"); break; }
+                if (ends("tional")) { r("tion"); break; }
+                break;
+            case 'c':
+                if (ends("enci")) { r("ence"); break; }
+                if (ends("anci")) { r("ance"); break; }
+                break;
+            case 'e':
+                if (ends("izer")) { r("ize"); break; }
+                break;
+            case 'l':
+                if (ends("bli")) { r("ble"); break; }
+                if (ends("alli")) { r("al"); break; }
+                if (ends("entli")) { r("ent"); break; }
+                if (ends("eli")) { r("e"); break; }
+                if (ends("ousli")) { r("ous"); break; }
+                break;
+            case 'o':
+                if (ends("ization")) { r("ize"); break; }
+                if (ends("ation")) { r("ate"); break; }
+                if (ends("ator")) { r("ate"); break; }
+                break;
+            case 's':
+                if (ends("alism")) { r("al"); break; }
+                if (ends("iveness")) { r("ive"); break; }
+                if (ends("fulness")) { r("ful"); break; }
+                if (ends("ousness")) { r("ous"); break; }
+                break;
+            case 't':
+                if (ends("aliti")) { r("al"); break; }
+                if (ends("iviti")) { r("ive"); break; }
+                if (ends("biliti")) { r("ble"); break; }
+                break;
+            case 'g':
+                if (ends("logi")) { r("log"); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * -ic-, -full, -ness etc.
+     */
+    private void step3() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) { r("ic"); break; }
+                if (ends("ative")) { r(""); break; }
+                if (ends("alize")) { r("al"); break; }
+                break;
+            case 'i':
+                if (ends("iciti")) { r("ic"); break; }
+                break;
+            case 'l':
+                if (ends("ical")) { r("ic"); break; }
+                if (ends("ful")) { r(""); break; }
+                break;
+            case 's':
+                if (ends("ness")) { r(""); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * -ant, -ence etc. in a stem with m() > 1
+     */
+    private void step4() {
+        if (k == 0) return;
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("al")) break;
+                return;
+            case 'c':
+                if (ends("ance") || ends("ence")) break;
+                return;
+            case 'e':
+                if (ends("er")) break;
+                return;
+            case 'i':
+                if (ends("ic")) break;
+                return;
+            case 'l':
+                if (ends("able") || ends("ible")) break;
+                return;
+            case 'n':
+                if (ends("ant") || ends("ement") || ends("ment") || ends("ent")) break;
+                return;
+            case 'o':
+                if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
+                if (ends("ou")) break;
+                return;
+            case 's':
+                if (ends("ism")) break;
+                return;
+            case 't':
+                if (ends("ate") || ends("iti")) break;
+                return;
+            case 'u':
+                if (ends("ous")) break;
+                return;
+            case 'v':
+                if (ends("ive")) break;
+                return;
+            case 'z':
+                if (ends("ize")) break;
+                return;
+            default:
+                return;
+        }
+        if (m() > 1) k = j;
+    }
+
+    /**
+     * Final -e, and -ll to -l, in longer stems
+     */
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || a == 1 && !cvc(k - 1)) k--;
+        }
+        if (b[k] == 'l' && doublec(k) && m() > 1) k--;
+    }
+}
@@ -0,0 +1,116 @@
+package main.java.com.ecohabit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link LocalModelBackend} and the template fallback of {@link ResponseBackends}, against a
+ * {@link StubModelServer}
+ */
+class LocalModelBackendTest {
+
+    private static final long LATENCY_MS = 150;
+
+    private StubModelServer stub;
+    private LocalModelBackend backend;
+
+    @AfterEach
+    void tearDown() {
+        if (backend != null) backend.close();
+        ResponseBackends.shutdownInstance();
+        if (stub != null) stub.close();
+        System.clearProperty(LocalModelBackend.URL_PROPERTY);
+        System.clearProperty(LocalModelBackend.MAX_CONCURRENT_PROPERTY);
+        System.clearProperty(LocalModelBackend.MAX_BATCH_PROPERTY);
+        System.clearProperty(ResponseBackends.BACKEND_PROPERTY);
+    }
+
+    private void startStub(long latencyMillis, int maxConcurrent, int maxBatch) throws IOException {
+        stub = new StubModelServer(0, latencyMillis);
+        System.setProperty(LocalModelBackend.URL_PROPERTY, stub.getUrl());
+        System.setProperty(LocalModelBackend.MAX_CONCURRENT_PROPERTY, String.valueOf(maxConcurrent));
+        System.setProperty(LocalModelBackend.MAX_BATCH_PROPERTY, String.valueOf(maxBatch));
+    }
+
+    private static ResponseBackend.Prompt prompt(String message) {
+        return new ResponseBackend.Prompt(message, "energy_saving", null, null);
+    }
+
+    @Test
+    void batchesPromptsWaitingForARequestSlot() throws Exception {
+        startStub(LATENCY_MS, 1, 8);
+        backend = new LocalModelBackend();
+
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            replies.add(backend.respond(prompt("question " + i)));
+        }
+        for (int i = 0; i < replies.size(); i++) {
+            assertEquals("stub: question " + i, replies.get(i).get(5, TimeUnit.SECONDS));
+        }
+
+        // The first prompt takes the only slot; the other five wait and go out together
+        assertEquals(List.of(1, 5), stub.getBatchSizes());
+    }
+
+    @Test
+    void keepsRequestsInFlightWithinTheLimit() throws Exception {
+        startStub(LATENCY_MS, 2, 1);
+        backend = new LocalModelBackend();
+
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            replies.add(backend.respond(prompt("question " + i)));
+        }
+        for (int i = 0; i < replies.size(); i++) {
+            assertEquals("stub: question " + i, replies.get(i).get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(6, stub.getBatchSizes().size());
+        assertEquals(2, stub.getMaxInFlight());
+    }
+
+    @Test
+    void fallsBackToTemplatesWhenTheModelIsTooSlow() throws Exception {
+        startStub(1_000, 2, 8);
+        System.setProperty(ResponseBackends.BACKEND_PROPERTY, LocalModelBackend.NAME);
+        ResponseBackends backends = ResponseBackends.getInstance();
+        backends.setTimeoutMillis(LATENCY_MS);
+
+        ResponseBackends.Reply reply = backends.reply(prompt("how do I save energy")).get(5, TimeUnit.SECONDS);
+
+        assertTrue(reply.isFallback());
+        assertEquals(TemplateResponseBackend.NAME, reply.getBackend());
+        assertFalse(reply.getText().isBlank());
+        long timeouts = 0;
+        for (ResponseBackends.Stats stats : backends.getStats()) {
+            if (stats.getBackend().equals(LocalModelBackend.NAME)) timeouts = stats.getTimeouts();
+        }
+        assertEquals(1, timeouts);
+    }
+
+    @Test
+    void cancelledReplyIsNotSent() throws Exception {
+        startStub(LATENCY_MS, 1, 8);
+        System.setProperty(ResponseBackends.BACKEND_PROPERTY, LocalModelBackend.NAME);
+        ResponseBackends backends = ResponseBackends.getInstance();
+
+        CompletableFuture<ResponseBackends.Reply> first = backends.reply(prompt("first"));
+        CompletableFuture<ResponseBackends.Reply> second = backends.reply(prompt("second"));
+        second.cancel(true);
+
+        assertEquals("stub: first", first.get(5, TimeUnit.SECONDS).getText());
+        Thread.sleep(LATENCY_MS * 2);
+        assertEquals(List.of(1), stub.getBatchSizes());
+    }
+}
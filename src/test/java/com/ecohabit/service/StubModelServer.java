@@ -0,0 +1,120 @@
+package main.java.com.ecohabit.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stand-in for a local model process, speaking the protocol of {@link LocalModelBackend}.
+ * Every prompt is answered with "stub: " and its message after a fixed latency. The batch
+ * sizes received and the most requests seen at once are recorded.
+ *
+ * Run on its own to try the chat against it:
+ * {@code java main.java.com.ecohabit.service.StubModelServer 8089 150}, then start the app with
+ * {@code -Decohabit.chat.localModel.url=http://127.0.0.1:8089/respond}.
+ */
+public class StubModelServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public StubModelServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "stub-model");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/respond", this::respond);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 150;
+        StubModelServer stub = new StubModelServer(port, latency);
+        System.out.println("Stub model listening on " + stub.getUrl() + " with " + latency + " ms latency");
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/respond";
+    }
+
+    /**
+     * Number of prompts in each request received, in arrival order
+     */
+    public synchronized List<Integer> getBatchSizes() {
+        return new ArrayList<>(batchSizes);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        JsonArray prompts = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("prompts");
+        synchronized (this) {
+            batchSizes.add(prompts.size());
+        }
+
+        // Counted as running until the reply is ready, before the client can send another
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.decrementAndGet();
+            send(exchange, 503, "{}");
+            return;
+        }
+        inFlight.decrementAndGet();
+
+        JsonArray responses = new JsonArray();
+        for (JsonElement element : prompts) {
+            JsonObject prompt = element.getAsJsonObject();
+            JsonObject response = new JsonObject();
+            response.add("id", prompt.get("id"));
+            response.addProperty("text", "stub: " + prompt.get("message").getAsString());
+            responses.add(response);
+        }
+        JsonObject reply = new JsonObject();
+        reply.add("responses", responses);
+        send(exchange, 200, reply.toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}